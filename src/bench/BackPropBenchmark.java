@@ -0,0 +1,100 @@
+package bench;
+
+import filter.FilterAgent;
+import learn.BackProp;
+import learn.DataSet;
+
+/**
+ * The <code>BackPropBenchmark</code> class measures a training pass
+ * of the back propagation neural network of the rating filter, i.e.
+ * a call of {@link BackProp#process()} for each record of the data
+ * set, or calls of {@link BackProp#processBatch()} for mini-batches
+ * of the records. The network is built as <code>
+ * FilterAgent.trainRatingNet</code> builds it.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class BackPropBenchmark extends Benchmark {
+	/** The network being trained. */
+	private BackProp net;
+
+	/** The number of records of a mini-batch, 0 to train the network
+	 * a record at a time. */
+	private final int batchSize;
+
+	/**
+	 * Creates the benchmark training the network a record at a time.
+	 */
+	public BackPropBenchmark() {
+		super("BackProp.process");
+		batchSize = 0;
+	}
+
+	/**
+	 * Creates the benchmark training the network by mini-batches.
+	 * @param batchSize the number of records of a mini-batch.
+	 */
+	public BackPropBenchmark(int batchSize) {
+		super("BackProp.processBatch/" + batchSize);
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Loads the data set of the fixture and creates the network.
+	 * @param fixture the data the benchmark runs on.
+	 * @throws Exception if the data set cannot be read.
+	 */
+	@Override
+	public void setUp(Fixture fixture) throws Exception {
+		DataSet dataSet = fixture.loadDataSet();
+
+		net = new BackProp("Back Propagation Neural Network");
+		net.setDataSet(dataSet);
+		net.setNumRecs(dataSet.getNumRecords());
+		net.setFieldsPerRec(dataSet.getNormFieldsPerRec());
+		net.setData(dataSet.getNormalizedMatrix());
+
+		int numOutputs = dataSet.getClassFieldSize();
+		int numInputs = net.getFieldsPerRec() - numOutputs;
+
+		if (numInputs >= FilterAgent.DEEP_RATING_NET_INPUTS) {
+			net.createNetwork(numInputs,
+					new int[] { numInputs, numInputs / 2 }, numOutputs);
+		} else {
+			net.createNetwork(numInputs, 2 * numInputs, numOutputs);
+		}
+
+		if (batchSize > 0) {
+			net.setBatchSize(batchSize);
+		}
+	}
+
+	/**
+	 * Trains the network on all records of the data set.
+	 */
+	@Override
+	public void run() {
+		int numRecs = net.getNumRecs();
+
+		if (batchSize > 0) {
+			for (int i = 0; i < numRecs; ) {
+				i += net.processBatch();
+			}
+		} else {
+			for (int i = 0; i < numRecs; i++) {
+				net.process();
+			}
+		}
+
+		consume(net.getAveRMSError());
+	}
+
+	/**
+	 * Retrieves the number of items that an operation processes.
+	 * @return the number of records of the data set.
+	 */
+	@Override
+	public int getOperationSize() {
+		return net.getNumRecs();
+	}
+} // end class BackPropBenchmark
@@ -0,0 +1,213 @@
+package bench;
+
+/**
+ * The <code>Benchmark</code> class is the base class of the
+ * benchmarks of the hot paths of the application. A benchmark
+ * measures the time of one operation, e.g. counting the keywords of
+ * a corpus or one training pass of a neural network, on a
+ * {@link Fixture}. The measure is made of:
+ * <ul>
+ * <li>warmup iterations, whose times are dropped, so that the code
+ * is compiled by the JIT compiler
+ * <li>measurement iterations, each of which repeats the operation
+ * until the iteration time has elapsed
+ * </ul>
+ * The result is the mean time of an operation over the measurement
+ * iterations, with its standard deviation.
+ *
+ * @author Tran Xuan Hoang
+ */
+public abstract class Benchmark {
+	/** Receives the values computed by the operations, so that the
+	 * JIT compiler cannot remove them. */
+	private static volatile int blackhole;
+
+	/** The name of the benchmark. */
+	protected String name;
+
+	/**
+	 * Creates a benchmark.
+	 * @param name the name of the benchmark.
+	 */
+	public Benchmark(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Prepares the state of the operation. The time of this method
+	 * is not measured.
+	 * @param fixture the data the benchmark runs on.
+	 * @throws Exception if the state cannot be prepared.
+	 */
+	public abstract void setUp(Fixture fixture) throws Exception;
+
+	/**
+	 * Runs the operation once.
+	 * @throws Exception if the operation fails.
+	 */
+	public abstract void run() throws Exception;
+
+	/**
+	 * Retrieves the number of items, e.g. articles or records, that
+	 * an operation processes.
+	 * @return the number of items of an operation.
+	 */
+	public abstract int getOperationSize();
+
+	/**
+	 * Releases the state of the operation.
+	 * @throws Exception if the state cannot be released.
+	 */
+	public void tearDown() throws Exception {
+	}
+
+	/**
+	 * Consumes a value computed by an operation.
+	 * @param value the value to be consumed.
+	 */
+	protected static void consume(int value) {
+		blackhole ^= value;
+	}
+
+	/**
+	 * Consumes a value computed by an operation.
+	 * @param value the value to be consumed.
+	 */
+	protected static void consume(double value) {
+		blackhole ^= (int) Double.doubleToRawLongBits(value);
+	}
+
+	/**
+	 * Measures the time of the operation on a fixture.
+	 * @param fixture the data the benchmark runs on.
+	 * @param numWarmups the number of warmup iterations.
+	 * @param numIterations the number of measurement iterations.
+	 * @param iterationTime the minimal time of an iteration (ms).
+	 * @return the result of the measure.
+	 * @throws Exception if the operation fails.
+	 */
+	public Result measure(Fixture fixture, int numWarmups,
+			int numIterations, int iterationTime) throws Exception {
+		double[] times = new double[numIterations];
+		long numOps = 0;
+
+		setUp(fixture);
+
+		try {
+			for (int i = 0; i < numWarmups; i++) {
+				iterate(iterationTime);
+			}
+
+			for (int i = 0; i < numIterations; i++) {
+				long[] iteration = iterate(iterationTime);
+
+				times[i] = (double) iteration[0] / iteration[1];
+				numOps += iteration[1];
+			}
+		} finally {
+			tearDown();
+		}
+
+		return new Result(name, fixture, getOperationSize(),
+				fixture.getKeywords().length, times, numOps);
+	}
+
+	/**
+	 * Repeats the operation until the iteration time has elapsed.
+	 * @param iterationTime the minimal time of the iteration (ms).
+	 * @return the elapsed time (ns) and the number of operations.
+	 * @throws Exception if the operation fails.
+	 */
+	private long[] iterate(int iterationTime) throws Exception {
+		long duration = iterationTime * 1000000L;
+		long startTime = System.nanoTime();
+		long elapsed;
+		long numOps = 0;
+
+		do {
+			run();
+			numOps++;
+			elapsed = System.nanoTime() - startTime;
+		} while (elapsed < duration);
+
+		return new long[] { elapsed, numOps };
+	}
+
+	/**
+	 * Retrieves the name of the benchmark.
+	 * @return the name of the benchmark.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * The <code>Result</code> class holds the measure of a benchmark
+	 * on a fixture.
+	 */
+	public static class Result {
+		/** The name of the benchmark. */
+		public final String benchmark;
+
+		/** The fixture the benchmark ran on. */
+		public final Fixture fixture;
+
+		/** The number of items processed by an operation. */
+		public final int size;
+
+		/** The number of keywords of the fixture. */
+		public final int numKeywords;
+
+		/** The mean time of an operation (ns). */
+		public final double mean;
+
+		/** The standard deviation of the time of an operation (ns). */
+		public final double stdDev;
+
+		/** The number of measured operations. */
+		public final long numOps;
+
+		/**
+		 * Creates a result.
+		 * @param benchmark the name of the benchmark.
+		 * @param fixture the fixture the benchmark ran on.
+		 * @param size the number of items processed by an operation.
+		 * @param numKeywords the number of keywords of the fixture.
+		 * @param times the mean time of an operation in each
+		 * measurement iteration (ns).
+		 * @param numOps the number of measured operations.
+		 */
+		public Result(String benchmark, Fixture fixture, int size,
+				int numKeywords, double[] times, long numOps) {
+			double sum = 0.0;
+			double sumSquares = 0.0;
+
+			for (int i = 0; i < times.length; i++) {
+				sum += times[i];
+			}
+
+			double mean = sum / times.length;
+
+			for (int i = 0; i < times.length; i++) {
+				sumSquares += (times[i] - mean) * (times[i] - mean);
+			}
+
+			this.benchmark = benchmark;
+			this.fixture = fixture;
+			this.size = size;
+			this.numKeywords = numKeywords;
+			this.mean = mean;
+			this.stdDev = (times.length > 1) ?
+					Math.sqrt(sumSquares / (times.length - 1)) : 0.0;
+			this.numOps = numOps;
+		}
+
+		/**
+		 * Retrieves the mean time per item of an operation.
+		 * @return the mean time per item (ns).
+		 */
+		public double getTimePerItem() {
+			return (size > 0) ? mean / size : mean;
+		}
+	} // end class Result
+} // end class Benchmark
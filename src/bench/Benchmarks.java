@@ -0,0 +1,347 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import filter.FilterAgent;
+
+/**
+ * The <code>Benchmarks</code> class runs the benchmarks of the hot
+ * paths of the application on a grid of fixtures. Its usage is:
+ * <pre>
+ * java bench.Benchmarks [options]
+ *
+ *   -benchmarks list  the benchmarks to run among count, backprop,
+ *                     batch, kmap, kernels, loops, load, parse and
+ *                     save (default all)
+ *   -profiles list    the TrainingDataSets profiles to run on, all,
+ *                     none or their numbers, e.g. 1,4 (default all)
+ *   -data dir         the directory of the profiles (default
+ *                     TrainingDataSets)
+ *   -sizes list       the numbers of articles of the corpora
+ *                     (default 100,1000)
+ *   -keywords list    the numbers of keywords of the synthetic
+ *                     fixtures, none for no synthetic fixture
+ *                     (default 20,200)
+ *   -warmups n        the number of warmup iterations (default 3)
+ *   -iterations n     the number of measurement iterations (default 5)
+ *   -time ms          the time of an iteration (default 500)
+ *   -format fmt       table or csv (default table)
+ * </pre>
+ * A profile fixture is run for each corpus size, while a synthetic
+ * fixture is run for each corpus size and each number of keywords.
+ * The data set of a fixture has one record per article.<br>
+ * The results are written to the standard output and the messages of
+ * the application are dropped.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class Benchmarks {
+	/** The names of the benchmarks on the command line. */
+	private static final String[] BENCHMARK_NAMES = {
+			"count", "backprop", "batch", "kmap", "kernels", "loops",
+			"load", "parse", "save" };
+
+	/**
+	 * Creates a benchmark from its name on the command line.
+	 * @param name the name of the benchmark.
+	 * @return the benchmark, or <code>null</code> if the name is
+	 * unknown.
+	 */
+	static Benchmark createBenchmark(String name) {
+		switch (name) {
+		case "count":
+			return new CountKeywordsBenchmark();
+		case "backprop":
+			return new BackPropBenchmark();
+		case "batch":
+			return new BackPropBenchmark(FilterAgent.RATING_BATCH_SIZE);
+		case "kmap":
+			return new KMapNetBenchmark();
+		case "kernels":
+			return new KernelsBenchmark(true);
+		case "loops":
+			return new KernelsBenchmark(false);
+		case "load":
+			return new LoadDataSetBenchmark(true);
+		case "parse":
+			return new LoadDataSetBenchmark(false);
+		case "save":
+			return new SaveAgentBenchmark();
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a comma separated list of numbers.
+	 * @param list the list, or <code>none</code> for an empty list.
+	 * @return the numbers.
+	 * @throws NumberFormatException if an element is not a number.
+	 */
+	private static int[] parseNumbers(String list) {
+		if (list.equals("none")) {
+			return new int[0];
+		}
+
+		String[] elements = list.split(",");
+		int[] numbers = new int[elements.length];
+
+		for (int i = 0; i < elements.length; i++) {
+			numbers[i] = Integer.parseInt(elements[i].trim());
+		}
+
+		return numbers;
+	}
+
+	/**
+	 * Finds the profile directories to run on.
+	 * @param dataDir the directory of the profiles.
+	 * @param list <code>all</code>, <code>none</code> or the numbers
+	 * of the profiles, i.e. the prefixes of their directory names.
+	 * @return the profile directories, sorted by name.
+	 */
+	private static List<File> findProfiles(File dataDir, String list) {
+		List<File> profiles = new ArrayList<>();
+		File[] dirs = dataDir.listFiles();
+
+		if (list.equals("none") || dirs == null) {
+			return profiles;
+		}
+
+		List<String> numbers = Arrays.asList(list.split(","));
+		Arrays.sort(dirs);
+
+		for (File dir : dirs) {
+			String number = dir.getName().split("-")[0].trim();
+
+			if (new File(dir, "filterAgent.ser").isFile() &&
+					(list.equals("all") || numbers.contains(number))) {
+				profiles.add(dir);
+			}
+		}
+
+		return profiles;
+	}
+
+	/**
+	 * Writes the header of the results.
+	 * @param out the stream receiving the results.
+	 * @param csv <code>true</code> for comma separated values.
+	 */
+	private static void writeHeader(PrintStream out, boolean csv) {
+		if (csv) {
+			out.println("benchmark,fixture,size,keywords,ns_per_op," +
+					"ns_per_op_stddev,ns_per_item,ops");
+		} else {
+			out.printf("%-27s %-38s %8s %8s %15s %12s %12s%n",
+					"Benchmark", "Fixture", "Size", "Keywords",
+					"ns/op", "+/-", "ns/item");
+		}
+	}
+
+	/**
+	 * Writes a result.
+	 * @param out the stream receiving the results.
+	 * @param result the result of a benchmark.
+	 * @param csv <code>true</code> for comma separated values.
+	 */
+	private static void writeResult(PrintStream out,
+			Benchmark.Result result, boolean csv) {
+		if (csv) {
+			out.println(result.benchmark + "," + result.fixture + "," +
+					result.size + "," + result.numKeywords + "," +
+					result.mean + "," + result.stdDev + "," +
+					result.getTimePerItem() + "," + result.numOps);
+		} else {
+			out.printf("%-27s %-38s %8d %8d %15.0f %12.0f %12.1f%n",
+					result.benchmark, result.fixture, result.size,
+					result.numKeywords, result.mean, result.stdDev,
+					result.getTimePerItem());
+		}
+	}
+
+	/**
+	 * Prints the usage of the command and exits.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java bench.Benchmarks [options]");
+		System.err.println("  -benchmarks list  count,backprop,batch,kmap," +
+				"kernels,loops,load,parse,save (default all)");
+		System.err.println("  -profiles list    all, none or profile " +
+				"numbers, e.g. 1,4 (default all)");
+		System.err.println("  -data dir         directory of the profiles " +
+				"(default TrainingDataSets)");
+		System.err.println("  -sizes list       numbers of articles " +
+				"(default 100,1000)");
+		System.err.println("  -keywords list    numbers of keywords of " +
+				"synthetic fixtures, or none (default 20,200)");
+		System.err.println("  -warmups n        warmup iterations (default 3)");
+		System.err.println("  -iterations n     measurement iterations " +
+				"(default 5)");
+		System.err.println("  -time ms          time of an iteration " +
+				"(default 500)");
+		System.err.println("  -format fmt       table or csv (default table)");
+		System.exit(2);
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 * @param args the options.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		// the results are written to the standard output, so the
+		// messages of the application are dropped
+		PrintStream results = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+
+		String benchmarkList = String.join(",", BENCHMARK_NAMES);
+		String profileList = "all";
+		File dataDir = new File("TrainingDataSets");
+		int[] sizes = { 100, 1000 };
+		int[] keywordCounts = { 20, 200 };
+		int numWarmups = 3;
+		int numIterations = 5;
+		int iterationTime = 500;
+		boolean csv = false;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+
+				if (i + 1 >= args.length) {
+					usage();
+				} else if (arg.equals("-benchmarks")) {
+					benchmarkList = args[++i];
+				} else if (arg.equals("-profiles")) {
+					profileList = args[++i];
+				} else if (arg.equals("-data")) {
+					dataDir = new File(args[++i]);
+				} else if (arg.equals("-sizes")) {
+					sizes = parseNumbers(args[++i]);
+				} else if (arg.equals("-keywords")) {
+					keywordCounts = parseNumbers(args[++i]);
+				} else if (arg.equals("-warmups")) {
+					numWarmups = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-iterations")) {
+					numIterations = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-time")) {
+					iterationTime = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-format")) {
+					String format = args[++i];
+					csv = format.equals("csv");
+
+					if (!csv && !format.equals("table")) {
+						usage();
+					}
+				} else {
+					usage();
+				}
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		}
+
+		if (numIterations < 1 || iterationTime < 1) {
+			usage();
+		}
+
+		List<Benchmark> benchmarks = new ArrayList<>();
+
+		for (String name : benchmarkList.split(",")) {
+			Benchmark benchmark = createBenchmark(name.trim());
+
+			if (benchmark == null) {
+				usage();
+			}
+
+			benchmarks.add(benchmark);
+		}
+
+		List<File> profiles = findProfiles(dataDir, profileList);
+
+		if (!profileList.equals("none") && profiles.isEmpty()) {
+			System.err.println("Error: no profile in " + dataDir);
+			System.exit(1);
+		}
+
+		File workDir;
+
+		try {
+			workDir = Files.createTempDirectory("bench").toFile();
+		} catch (IOException e) {
+			System.err.println("Error: cannot create a work directory - " + e);
+			System.exit(1);
+			return;
+		}
+
+		writeHeader(results, csv);
+
+		try {
+			for (int size : sizes) {
+				for (File profile : profiles) {
+					run(benchmarks, Fixture.fromProfile(profile, size,
+							workDir), numWarmups, numIterations,
+							iterationTime, results, csv);
+				}
+
+				for (int numKeywords : keywordCounts) {
+					run(benchmarks, Fixture.synthetic(size, numKeywords,
+							workDir), numWarmups, numIterations,
+							iterationTime, results, csv);
+				}
+			}
+		} catch (Exception e) {
+			System.err.println("Error: " + e);
+			e.printStackTrace();
+			System.exit(1);
+		} finally {
+			workDir.delete();
+		}
+
+		System.exit(results.checkError() ? 1 : 0);
+	}
+
+	/**
+	 * Runs benchmarks on a fixture and writes their results.
+	 * @param benchmarks the benchmarks to run.
+	 * @param fixture the data the benchmarks run on.
+	 * @param numWarmups the number of warmup iterations.
+	 * @param numIterations the number of measurement iterations.
+	 * @param iterationTime the minimal time of an iteration (ms).
+	 * @param out the stream receiving the results.
+	 * @param csv <code>true</code> for comma separated values.
+	 * @throws Exception if a benchmark fails.
+	 */
+	private static void run(List<Benchmark> benchmarks, Fixture fixture,
+			int numWarmups, int numIterations, int iterationTime,
+			PrintStream out, boolean csv) throws Exception {
+		try {
+			for (Benchmark benchmark : benchmarks) {
+				System.err.println("Running " + benchmark.getName() +
+						" on " + fixture + "...");
+				writeResult(out, benchmark.measure(fixture, numWarmups,
+						numIterations, iterationTime), csv);
+				out.flush();
+			}
+		} finally {
+			fixture.deleteFiles();
+		}
+	}
+} // end class Benchmarks
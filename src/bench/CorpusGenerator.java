@@ -0,0 +1,254 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import filter.FilterAgent;
+
+/**
+ * The <code>CorpusGenerator</code> class generates synthetic topic
+ * profiles and article corpora, so that the training, loading and
+ * scoring paths can be load tested with much more data than the
+ * <code>TrainingDataSets</code> profiles hold. Its usage is:
+ * <pre>
+ * java bench.CorpusGenerator [options] output-dir
+ *
+ *   -profiles n      the number of topic profiles (default 1)
+ *   -keywords n      the number of keywords of a profile (default 200)
+ *   -records n       the number of records of the data set of a
+ *                    profile (default 1000000)
+ *   -articles n      the number of article files of a profile
+ *                    (default 0)
+ *   -length n        the number of words of an article (default 1000)
+ *   -vocabulary n    the number of distinct words that are not
+ *                    keywords (default 5000)
+ *   -zipf s          the exponent of the Zipf distribution of the
+ *                    word and keyword frequencies (default 1.0)
+ *   -ratings dist    uniform, normal, skewed or bimodal (default
+ *                    normal)
+ *   -keywordRate r   the fraction of keywords in an article of mean
+ *                    rating (default 0.05)
+ *   -seed n          the seed of the random choices
+ * </pre>
+ * Each profile is written to its own topic directory, named like
+ * those of <code>TrainingDataSets</code>, with:
+ * <ul>
+ * <li><code>filterAgent.ser</code>, a filter agent holding the
+ * keywords, whose neural networks are not trained
+ * <li><code>infofilter.dfn</code> and <code>infofilter.dat</code>,
+ * the training data set
+ * <li><code>articles</code>, the article files and their ratings,
+ * if any
+ * </ul>
+ * The output directory can then be given to the benchmarks, the
+ * batch scorer or the scoring server as a directory of topics.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class CorpusGenerator {
+	/** The generator of the keywords, articles and data sets. */
+	protected SyntheticCorpus corpus;
+
+	/** The number of keywords of a profile. */
+	protected int numKeywords = 200;
+
+	/** The number of records of the data set of a profile. */
+	protected int numRecords = 1000000;
+
+	/** The number of article files of a profile. */
+	protected int numArticles = 0;
+
+	/**
+	 * Creates a corpus generator.
+	 * @param corpus the generator of the keywords, articles and data
+	 * sets.
+	 */
+	public CorpusGenerator(SyntheticCorpus corpus) {
+		this.corpus = corpus;
+	}
+
+	/**
+	 * Generates a topic profile. The keywords of each profile are
+	 * different from those of the other profiles.
+	 * @param directory the topic directory, which is created if
+	 * necessary.
+	 * @throws IOException if a file cannot be written.
+	 */
+	public void generateProfile(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the directory " + directory);
+		}
+
+		String[] keywords = corpus.createKeywords(numKeywords);
+		FilterAgent agent = new FilterAgent(directory.getName());
+		File agentFile = new File(directory, FilterAgent.fileName);
+
+		agent.setKeywords(keywords);
+		agent.saveToFile(agentFile.getPath());
+
+		if (!agentFile.isFile()) {
+			throw new IOException("Cannot write " + agentFile);
+		}
+
+		corpus.writeDataSet(keywords, numRecords,
+				new File(directory, "infofilter").getPath());
+
+		if (numArticles > 0) {
+			corpus.writeArticles(keywords, numArticles,
+					new File(directory, "articles"));
+		}
+	}
+
+	/**
+	 * Sets the number of keywords of a profile.
+	 * @param numKeywords the number of keywords.
+	 */
+	public void setNumKeywords(int numKeywords) {
+		this.numKeywords = numKeywords;
+	}
+
+	/**
+	 * Sets the number of records of the data set of a profile.
+	 * @param numRecords the number of records.
+	 */
+	public void setNumRecords(int numRecords) {
+		this.numRecords = numRecords;
+	}
+
+	/**
+	 * Sets the number of article files of a profile.
+	 * @param numArticles the number of articles, 0 for none.
+	 */
+	public void setNumArticles(int numArticles) {
+		this.numArticles = numArticles;
+	}
+
+	/**
+	 * Prints the usage of the command and exits.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java bench.CorpusGenerator [options] " +
+				"output-dir");
+		System.err.println("  -profiles n      number of topic profiles " +
+				"(default 1)");
+		System.err.println("  -keywords n      keywords of a profile " +
+				"(default 200)");
+		System.err.println("  -records n       records of a data set " +
+				"(default 1000000)");
+		System.err.println("  -articles n      article files of a profile " +
+				"(default 0)");
+		System.err.println("  -length n        words of an article " +
+				"(default 1000)");
+		System.err.println("  -vocabulary n    distinct words that are not " +
+				"keywords (default 5000)");
+		System.err.println("  -zipf s          Zipf exponent of the word " +
+				"frequencies (default 1.0)");
+		System.err.println("  -ratings dist    uniform, normal, skewed or " +
+				"bimodal (default normal)");
+		System.err.println("  -keywordRate r   fraction of keywords in an " +
+				"article (default 0.05)");
+		System.err.println("  -seed n          seed of the random choices");
+		System.exit(2);
+	}
+
+	/**
+	 * Generates the profiles given on the command line.
+	 * @param args the options and the output directory.
+	 */
+	public static void main(String[] args) {
+		// the filter agents report on the standard output
+		System.setOut(System.err);
+
+		int numProfiles = 1;
+		long seed = Fixture.SEED;
+		File outputDir = null;
+		int numKeywords = 200;
+		int numRecords = 1000000;
+		int numArticles = 0;
+		int articleLength = SyntheticCorpus.DEFAULT_ARTICLE_LENGTH;
+		int vocabularySize = SyntheticCorpus.DEFAULT_VOCABULARY_SIZE;
+		double zipfExponent = SyntheticCorpus.DEFAULT_ZIPF_EXPONENT;
+		int ratingDistribution = SyntheticCorpus.NORMAL_RATINGS;
+		double keywordRate = SyntheticCorpus.DEFAULT_KEYWORD_RATE;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+
+				if (!arg.startsWith("-")) {
+					if (outputDir != null) {
+						usage();
+					}
+
+					outputDir = new File(arg);
+				} else if (i + 1 >= args.length) {
+					usage();
+				} else if (arg.equals("-profiles")) {
+					numProfiles = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-keywords")) {
+					numKeywords = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-records")) {
+					numRecords = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-articles")) {
+					numArticles = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-length")) {
+					articleLength = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-vocabulary")) {
+					vocabularySize = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-zipf")) {
+					zipfExponent = Double.parseDouble(args[++i]);
+				} else if (arg.equals("-ratings")) {
+					ratingDistribution =
+							SyntheticCorpus.parseRatingDistribution(args[++i]);
+				} else if (arg.equals("-keywordRate")) {
+					keywordRate = Double.parseDouble(args[++i]);
+				} else if (arg.equals("-seed")) {
+					seed = Long.parseLong(args[++i]);
+				} else {
+					usage();
+				}
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		}
+
+		if (outputDir == null || numProfiles < 1 ||
+				numKeywords < 1 || numRecords < 0 ||
+				numArticles < 0 || articleLength < 1 ||
+				vocabularySize < 1 || zipfExponent < 0 ||
+				ratingDistribution == -1 ||
+				keywordRate < 0 || keywordRate > 0.5) {
+			usage();
+		}
+
+		SyntheticCorpus corpus = new SyntheticCorpus(seed);
+		corpus.setArticleLength(articleLength);
+		corpus.setVocabularySize(vocabularySize);
+		corpus.setZipfExponent(zipfExponent);
+		corpus.setRatingDistribution(ratingDistribution);
+		corpus.setKeywordRate(keywordRate);
+
+		CorpusGenerator generator = new CorpusGenerator(corpus);
+		generator.setNumKeywords(numKeywords);
+		generator.setNumRecords(numRecords);
+		generator.setNumArticles(numArticles);
+
+		long startTime = System.currentTimeMillis();
+
+		try {
+			for (int i = 1; i <= numProfiles; i++) {
+				File directory = new File(outputDir,
+						i + "- Synthetic Topic " + i);
+
+				System.err.println("Generating " + directory + "...");
+				generator.generateProfile(directory);
+			}
+		} catch (IOException e) {
+			System.err.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+
+		System.err.println("Generated " + numProfiles + " profiles in " +
+				(System.currentTimeMillis() - startTime) + " ms");
+	}
+} // end class CorpusGenerator
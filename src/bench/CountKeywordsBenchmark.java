@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.List;
+
+import filter.Article;
+import filter.KeywordMatcher;
+
+/**
+ * The <code>CountKeywordsBenchmark</code> class measures the counting
+ * of the keywords of a whole corpus, as done by <code>
+ * FilterAgent.countWordMultiKeys</code> for every loaded article:
+ * the {@link KeywordMatcher} compiled from the keywords of the agent
+ * counts the keywords in the body of each article. The trace of the
+ * counts, which the agent only writes when its trace level is set, is
+ * not measured.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class CountKeywordsBenchmark extends Benchmark {
+	/** The matcher compiled from the keywords of the fixture. */
+	private KeywordMatcher matcher;
+
+	/** The articles whose keywords are counted. */
+	private List<Article> articles;
+
+	/**
+	 * Creates the benchmark.
+	 */
+	public CountKeywordsBenchmark() {
+		super("countWordMultiKeys");
+	}
+
+	/**
+	 * Compiles the keywords of the fixture.
+	 * @param fixture the data the benchmark runs on.
+	 */
+	@Override
+	public void setUp(Fixture fixture) {
+		matcher = new KeywordMatcher(fixture.getKeywords());
+		articles = fixture.getArticles();
+	}
+
+	/**
+	 * Counts the keywords of all articles of the corpus.
+	 */
+	@Override
+	public void run() {
+		for (int i = 0; i < articles.size(); i++) {
+			consume(matcher.count(articles.get(i))[0]);
+		}
+	}
+
+	/**
+	 * Retrieves the number of items that an operation processes.
+	 * @return the number of articles of the corpus.
+	 */
+	@Override
+	public int getOperationSize() {
+		return articles.size();
+	}
+} // end class CountKeywordsBenchmark
@@ -0,0 +1,218 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import filter.Article;
+import filter.FilterAgent;
+import learn.DataSet;
+import learn.DataSetCache;
+
+/**
+ * The <code>Fixture</code> class holds the data a benchmark runs on:
+ * <ul>
+ * <li>a filter agent and its keywords
+ * <li>a corpus of articles whose text is held in memory
+ * <li>a training data set in the <code>.dfn</code> and <code>.dat
+ * </code> layout
+ * </ul>
+ * A fixture is either built from one of the <code>TrainingDataSets
+ * </code> profiles, whose agent is used as it is, or it is generated
+ * by a {@link SyntheticCorpus}. Since the profiles do not keep the
+ * text of their training articles, the articles of both kinds of
+ * fixtures are generated. The data set of a fixture has one record
+ * per article, so that all benchmarks scale with the corpus size.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class Fixture {
+	/** The seed of the generated corpora, so that all runs use the
+	 * same articles. */
+	public static final long SEED = 20160501L;
+
+	/** The name of the fixture. */
+	protected String name;
+
+	/** The filter agent of the fixture. */
+	protected FilterAgent agent;
+
+	/** The keywords of the agent. */
+	protected String[] keywords;
+
+	/** The articles of the corpus. */
+	protected List<Article> articles;
+
+	/** The name of the data set files, without the extension. */
+	protected String dataFileName;
+
+	/** The number of records in the data set, 0 until it is read. */
+	protected int numRecords;
+
+	/**
+	 * Creates a fixture.
+	 * @param name the name of the fixture.
+	 * @param agent the filter agent.
+	 * @param articles the articles of the corpus.
+	 * @param dataFileName the name of the data set files, without
+	 * the extension.
+	 */
+	public Fixture(String name, FilterAgent agent, List<Article> articles,
+			String dataFileName) {
+		this.name = name;
+		this.agent = agent;
+		this.keywords = agent.getKeywords();
+		this.articles = articles;
+		this.dataFileName = dataFileName;
+	}
+
+	/**
+	 * Creates a fixture from a <code>TrainingDataSets</code> profile.
+	 * The articles are generated with the keywords of the profile,
+	 * and the records of the data set of the profile are repeated
+	 * up to the number of articles.
+	 * @param directory the topic directory of the profile, holding
+	 * the <code>filterAgent.ser</code>, <code>infofilter.dfn</code>
+	 * and <code>infofilter.dat</code> files.
+	 * @param numArticles the number of articles of the corpus.
+	 * @param workDir the directory into which the data set is written.
+	 * @return the fixture.
+	 * @throws Exception if the profile cannot be read.
+	 */
+	public static Fixture fromProfile(File directory, int numArticles,
+			File workDir) throws Exception {
+		FilterAgent agent = FilterAgent.restoreFromFile(
+				new File(directory, FilterAgent.fileName).getPath());
+		SyntheticCorpus corpus = new SyntheticCorpus(SEED);
+		String name = directory.getName() + " x" + numArticles;
+		String dataFileName = new File(workDir, name).getPath();
+		List<String> records = Files.readAllLines(
+				new File(directory, "infofilter.dat").toPath());
+
+		Files.copy(new File(directory, "infofilter.dfn").toPath(),
+				Paths.get(dataFileName + ".dfn"));
+
+		try (BufferedWriter out = new BufferedWriter(
+				new FileWriter(dataFileName + ".dat"))) {
+			for (int i = 0; i < numArticles; i++) {
+				out.write(records.get(i % records.size()));
+				out.newLine();
+			}
+		}
+
+		return new Fixture(name, agent,
+				corpus.createArticles(agent.getKeywords(), numArticles),
+				dataFileName);
+	}
+
+	/**
+	 * Creates a synthetic fixture. The data set has one record per
+	 * article.
+	 * @param numArticles the number of articles of the corpus.
+	 * @param numKeywords the number of keywords.
+	 * @param workDir the directory into which the data set is written.
+	 * @return the fixture.
+	 * @throws IOException if the data set cannot be written.
+	 */
+	public static Fixture synthetic(int numArticles, int numKeywords,
+			File workDir) throws IOException {
+		SyntheticCorpus corpus = new SyntheticCorpus(SEED);
+		String[] keywords = corpus.createKeywords(numKeywords);
+		FilterAgent agent = new FilterAgent("SyntheticAgent");
+		String name = "synthetic-" + numArticles + "x" + numKeywords;
+		String dataFileName = new File(workDir, name).getPath();
+
+		agent.setKeywords(keywords);
+		corpus.writeDataSet(keywords, numArticles, dataFileName);
+
+		return new Fixture(name, agent,
+				corpus.createArticles(keywords, numArticles), dataFileName);
+	}
+
+	/**
+	 * Reads the data set of the fixture, through its binary cache.
+	 * @return the loaded and normalized data set.
+	 * @throws IOException if the data set cannot be read.
+	 */
+	public DataSet loadDataSet() throws IOException {
+		return loadDataSet(true);
+	}
+
+	/**
+	 * Reads the data set of the fixture.
+	 * @param useCache <code>true</code> to read the values from the
+	 * binary cache of the data file, <code>false</code> to parse the
+	 * data file.
+	 * @return the loaded and normalized data set.
+	 * @throws IOException if the data set cannot be read.
+	 */
+	public DataSet loadDataSet(boolean useCache) throws IOException {
+		DataSet dataSet = new DataSet(name, dataFileName);
+
+		dataSet.setUseCache(useCache);
+		dataSet.loadDataFile();
+		numRecords = dataSet.getNumRecords();
+
+		return dataSet;
+	}
+
+	/**
+	 * Retrieves the name of the fixture.
+	 * @return the name of the fixture.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Retrieves the filter agent of the fixture.
+	 * @return the filter agent.
+	 */
+	public FilterAgent getAgent() {
+		return agent;
+	}
+
+	/**
+	 * Retrieves the keywords of the agent.
+	 * @return the keywords.
+	 */
+	public String[] getKeywords() {
+		return keywords;
+	}
+
+	/**
+	 * Retrieves the articles of the corpus.
+	 * @return the articles.
+	 */
+	public List<Article> getArticles() {
+		return articles;
+	}
+
+	/**
+	 * Retrieves the number of records in the data set.
+	 * @return the number of records, 0 if the data set was not read.
+	 */
+	public int getNumRecords() {
+		return numRecords;
+	}
+
+	/**
+	 * Deletes the files of the data set.
+	 */
+	public void deleteFiles() {
+		new File(dataFileName + ".dfn").delete();
+		new File(dataFileName + ".dat").delete();
+		new File(dataFileName + ".dat" + DataSetCache.EXTENSION).delete();
+	}
+
+	/**
+	 * Returns the name of the fixture.
+	 */
+	public String toString() {
+		return name;
+	}
+} // end class Fixture
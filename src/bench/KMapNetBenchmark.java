@@ -0,0 +1,65 @@
+package bench;
+
+import filter.FilterAgent;
+import learn.DataSet;
+import learn.KMapNet;
+
+/**
+ * The <code>KMapNetBenchmark</code> class measures a training pass
+ * of the Kohonen map neural network of the cluster filter, i.e. a
+ * call of {@link KMapNet#cluster()} for each record of the data set.
+ * The network is built as <code>FilterAgent.trainClusterNet</code>
+ * builds it.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class KMapNetBenchmark extends Benchmark {
+	/** The network being trained. */
+	private KMapNet net;
+
+	/**
+	 * Creates the benchmark.
+	 */
+	public KMapNetBenchmark() {
+		super("KMapNet.cluster");
+	}
+
+	/**
+	 * Loads the data set of the fixture and creates the network.
+	 * @param fixture the data the benchmark runs on.
+	 * @throws Exception if the data set cannot be read.
+	 */
+	@Override
+	public void setUp(Fixture fixture) throws Exception {
+		DataSet dataSet = fixture.loadDataSet();
+
+		net = new KMapNet("Kohonen Map Neural Network");
+		net.setDataSet(dataSet);
+		net.setNumRecs(dataSet.getNumRecords());
+		net.setFieldsPerRec(dataSet.getFieldsPerRec());
+		net.setData(dataSet.getNormalizedMatrix());
+		net.createNetwork(net.getFieldsPerRec(), 2,
+				FilterAgent.NUM_CLUSTERS / 2);
+	}
+
+	/**
+	 * Trains the network on all records of the data set.
+	 */
+	@Override
+	public void run() {
+		int numRecs = net.getNumRecs();
+
+		for (int i = 0; i < numRecs; i++) {
+			net.cluster();
+		}
+	}
+
+	/**
+	 * Retrieves the number of items that an operation processes.
+	 * @return the number of records of the data set.
+	 */
+	@Override
+	public int getOperationSize() {
+		return net.getNumRecs();
+	}
+} // end class KMapNetBenchmark
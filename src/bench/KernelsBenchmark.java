@@ -0,0 +1,194 @@
+package bench;
+
+import filter.FilterAgent;
+import learn.DataMatrix;
+import learn.DataSet;
+import learn.Kernels;
+
+/**
+ * The <code>KernelsBenchmark</code> class measures the dense loops of
+ * the neural networks on the records of a fixture, either with the
+ * {@link Kernels} or with loops summing in index order as the
+ * networks used to. For each record, an operation computes:
+ * <ul>
+ * <li>the net inputs of a hidden layer of twice as many units as
+ * there are inputs, with dot products, as the back propagation
+ * network does
+ * <li>the changes of the weights of the hidden layer, with
+ * <code>axpy</code> updates
+ * <li>the distances to the units of a Kohonen map of
+ * {@link FilterAgent#NUM_CLUSTERS} units
+ * </ul>
+ * Comparing both benchmarks on the profiles and on the synthetic
+ * fixtures of many keywords shows the speedup of the kernels with the
+ * number of inputs.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class KernelsBenchmark extends Benchmark {
+	/** Indicates whether the kernels or the index order loops are
+	 * measured. */
+	private final boolean useKernels;
+
+	/** The records of the data set, whose first fields are inputs. */
+	private DataMatrix records;
+
+	/** The number of inputs of a record. */
+	private int numInputs;
+
+	/** The number of hidden units. */
+	private int numHidden;
+
+	/** The weights of the hidden units, one row per unit. */
+	private double[] weights;
+
+	/** The accumulated changes of the weights of the hidden units. */
+	private double[] wDerivs;
+
+	/** The weights of the units of the Kohonen map. */
+	private double[] mapWeights;
+
+	/** The inputs of the current record. */
+	private double[] inputs;
+
+	/**
+	 * Creates the benchmark.
+	 * @param useKernels <code>true</code> to measure the kernels,
+	 * <code>false</code> to measure the index order loops.
+	 */
+	public KernelsBenchmark(boolean useKernels) {
+		super(useKernels ? "Kernels" : "Kernels/loops");
+		this.useKernels = useKernels;
+	}
+
+	/**
+	 * Loads the data set of the fixture and creates the weights.
+	 * @param fixture the data the benchmark runs on.
+	 * @throws Exception if the data set cannot be read.
+	 */
+	@Override
+	public void setUp(Fixture fixture) throws Exception {
+		DataSet dataSet = fixture.loadDataSet();
+
+		records = dataSet.getNormalizedMatrix();
+		numInputs = dataSet.getNormFieldsPerRec() -
+				dataSet.getClassFieldSize();
+		numHidden = 2 * numInputs;
+		weights = new double[numHidden * numInputs];
+		wDerivs = new double[numHidden * numInputs];
+		mapWeights = new double[FilterAgent.NUM_CLUSTERS * numInputs];
+		inputs = new double[numInputs];
+
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = 0.5 - Math.random();
+		}
+
+		for (int i = 0; i < mapWeights.length; i++) {
+			mapWeights[i] = Math.random();
+		}
+	}
+
+	/**
+	 * Runs the loops on all records of the data set.
+	 */
+	@Override
+	public void run() {
+		int numRecs = records.getNumRows();
+		double sum = 0.0;
+
+		for (int r = 0; r < numRecs; r++) {
+			records.copyRow(r, 0, inputs, 0, numInputs);
+
+			for (int h = 0; h < numHidden; h++) {
+				int winx = h * numInputs;
+				double net = useKernels ?
+						Kernels.dot(inputs, 0, weights, winx, numInputs) :
+						dot(inputs, weights, winx, numInputs);
+				double delta = 1e-6 * net;
+
+				if (useKernels) {
+					Kernels.axpy(delta, inputs, 0, wDerivs, winx, numInputs);
+				} else {
+					axpy(delta, inputs, wDerivs, winx, numInputs);
+				}
+
+				sum += net;
+			}
+
+			for (int u = 0; u < FilterAgent.NUM_CLUSTERS; u++) {
+				int winx = u * numInputs;
+
+				sum += useKernels ?
+						Kernels.squaredDistance(inputs, 0, mapWeights, winx,
+								numInputs) :
+						squaredDistance(inputs, mapWeights, winx, numInputs);
+			}
+		}
+
+		consume(sum);
+	}
+
+	/**
+	 * Computes a dot product in index order.
+	 * @param x the first vector.
+	 * @param y the array of the second vector.
+	 * @param yOff the index of the first element of the second vector.
+	 * @param n the number of elements of the vectors.
+	 * @return the dot product.
+	 */
+	private static double dot(double[] x, double[] y, int yOff, int n) {
+		double sum = 0.0;
+
+		for (int i = 0; i < n; i++) {
+			sum += x[i] * y[yOff + i];
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Computes a squared distance in index order.
+	 * @param x the first vector.
+	 * @param y the array of the second vector.
+	 * @param yOff the index of the first element of the second vector.
+	 * @param n the number of elements of the vectors.
+	 * @return the squared distance.
+	 */
+	private static double squaredDistance(double[] x, double[] y,
+			int yOff, int n) {
+		double sum = 0.0;
+
+		for (int i = 0; i < n; i++) {
+			sum += (x[i] - y[yOff + i]) * (x[i] - y[yOff + i]);
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Adds a multiple of a vector to another one, one element at a
+	 * time.
+	 * @param a the multiplier.
+	 * @param x the added vector.
+	 * @param y the array of the updated vector.
+	 * @param yOff the index of the first element of the updated
+	 * vector.
+	 * @param n the number of elements of the vectors.
+	 */
+	private static void axpy(double a, double[] x, double[] y, int yOff,
+			int n) {
+		for (int j = 0; j < n; j++) {
+			int inx = yOff + j;
+			y[inx] += a * x[j];
+		}
+	}
+
+	/**
+	 * Retrieves the number of items that an operation processes.
+	 * @return the number of records of the data set.
+	 */
+	@Override
+	public int getOperationSize() {
+		return records.getNumRows();
+	}
+} // end class KernelsBenchmark
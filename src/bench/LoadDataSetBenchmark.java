@@ -0,0 +1,59 @@
+package bench;
+
+import learn.DataSet;
+
+/**
+ * The <code>LoadDataSetBenchmark</code> class measures the loading
+ * of a training data set by {@link DataSet#loadDataFile()}: reading
+ * the <code>.dfn</code> and <code>.dat</code> files, computing the
+ * statistics of the fields and normalizing the records. The values
+ * of the records are either read from the binary cache of the data
+ * file or parsed from the data file.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class LoadDataSetBenchmark extends Benchmark {
+	/** The fixture whose data set is loaded. */
+	private Fixture fixture;
+
+	/** Indicates whether the values are read from the cache. */
+	private boolean useCache;
+
+	/**
+	 * Creates the benchmark.
+	 * @param useCache <code>true</code> to read the values from the
+	 * binary cache, <code>false</code> to parse the data file.
+	 */
+	public LoadDataSetBenchmark(boolean useCache) {
+		super(useCache ? "DataSet.loadDataFile" : "DataSet.loadDataFile/parse");
+		this.useCache = useCache;
+	}
+
+	/**
+	 * Loads the data set once to count its records.
+	 * @param fixture the data the benchmark runs on.
+	 * @throws Exception if the data set cannot be read.
+	 */
+	@Override
+	public void setUp(Fixture fixture) throws Exception {
+		this.fixture = fixture;
+		fixture.loadDataSet(useCache); // counts the records
+	}
+
+	/**
+	 * Loads the data set of the fixture.
+	 */
+	@Override
+	public void run() throws Exception {
+		consume(fixture.loadDataSet(useCache).getNormFieldsPerRec());
+	}
+
+	/**
+	 * Retrieves the number of items that an operation processes.
+	 * @return the number of records of the data set.
+	 */
+	@Override
+	public int getOperationSize() {
+		return fixture.getNumRecords();
+	}
+} // end class LoadDataSetBenchmark
@@ -0,0 +1,68 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import filter.FilterAgent;
+
+/**
+ * The <code>SaveAgentBenchmark</code> class measures the
+ * serialization of a filter agent into a file by
+ * {@link FilterAgent#saveToFile(String)}, which is done every time
+ * its keywords change or its neural networks are trained. The agent
+ * of a <code>TrainingDataSets</code> profile holds its trained
+ * networks, while a synthetic agent only holds its keywords.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class SaveAgentBenchmark extends Benchmark {
+	/** The agent being saved. */
+	private FilterAgent agent;
+
+	/** The file into which the agent is saved. */
+	private File file;
+
+	/**
+	 * Creates the benchmark.
+	 */
+	public SaveAgentBenchmark() {
+		super("FilterAgent.saveToFile");
+	}
+
+	/**
+	 * Creates the temporary file into which the agent is saved.
+	 * @param fixture the data the benchmark runs on.
+	 * @throws IOException if the file cannot be created.
+	 */
+	@Override
+	public void setUp(Fixture fixture) throws IOException {
+		agent = fixture.getAgent();
+		file = File.createTempFile("filterAgent", ".ser");
+	}
+
+	/**
+	 * Saves the agent into the temporary file.
+	 */
+	@Override
+	public void run() {
+		agent.saveToFile(file.getPath());
+		consume((int) file.length());
+	}
+
+	/**
+	 * Deletes the temporary file.
+	 */
+	@Override
+	public void tearDown() {
+		file.delete();
+	}
+
+	/**
+	 * Retrieves the number of items that an operation processes.
+	 * @return 1, since an operation saves one agent.
+	 */
+	@Override
+	public int getOperationSize() {
+		return 1;
+	}
+} // end class SaveAgentBenchmark
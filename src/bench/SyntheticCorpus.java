@@ -0,0 +1,455 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import filter.Article;
+
+/**
+ * The <code>SyntheticCorpus</code> class generates keywords, articles
+ * and training data files of any size, so that the benchmarks and
+ * load tests can be run at scale points much larger than the <code>
+ * TrainingDataSets</code> profiles. The generated words are random
+ * lower-case letters, and the keywords never occur among the other
+ * words of the articles.<br>
+ * The corpus is controlled by:
+ * <ul>
+ * <li>the size of the vocabulary of the words that are not keywords
+ * <li>the exponent of the Zipf distribution of the frequencies of
+ * the words and of the keywords, so that a few keywords occur much
+ * more often than the others, as in real articles
+ * <li>the distribution of the ratings of the articles
+ * <li>the length of the articles and their keyword rate
+ * </ul>
+ * Each article or data record first draws its rating. The keyword
+ * rate of an article grows with its rating, from none for a rating
+ * of 0 to twice the keyword rate for a rating of 1, so that the
+ * neural networks have something to learn.<br>
+ * A corpus is generated from a seed, so that the same seed and
+ * settings always generate the same keywords, articles and data
+ * files.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class SyntheticCorpus {
+	/** The ratings are uniformly distributed between 0 and 1. */
+	public static final int UNIFORM_RATINGS = 0;
+
+	/** The ratings are normally distributed around the mean rating. */
+	public static final int NORMAL_RATINGS = 1;
+
+	/** Most ratings are low, as most articles are not interesting. */
+	public static final int SKEWED_RATINGS = 2;
+
+	/** The ratings are either low or high. */
+	public static final int BIMODAL_RATINGS = 3;
+
+	/** The names of the rating distributions, by distribution. */
+	public static final String[] RATING_DISTRIBUTIONS = {
+			"uniform", "normal", "skewed", "bimodal" };
+
+	/** The default number of words in a generated article. */
+	public static final int DEFAULT_ARTICLE_LENGTH = 1000;
+
+	/** The default fraction of the words of an article that are
+	 * keywords, for the mean rating. */
+	public static final double DEFAULT_KEYWORD_RATE = 0.05;
+
+	/** The default number of distinct words that are not keywords. */
+	public static final int DEFAULT_VOCABULARY_SIZE = 5000;
+
+	/** The default exponent of the Zipf distributions. */
+	public static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+
+	/** The mean rating of the normal distribution. */
+	private static final double MEAN_RATING = 0.3;
+
+	/** The standard deviation of the normal distribution. */
+	private static final double RATING_STD_DEV = 0.15;
+
+	/** The number of words in a sentence of a generated article. */
+	private static final int SENTENCE_LENGTH = 12;
+
+	/** The generator of all random choices. */
+	protected Random random;
+
+	/** The words generated so far, so that no word is generated
+	 * twice. */
+	private Set<String> usedWords = new HashSet<>();
+
+	/** The words of the articles that are not keywords. */
+	private String[] vocabulary;
+
+	/** The distribution of the words of the vocabulary. */
+	private ZipfDistribution wordDistribution;
+
+	/** The distribution of the keywords, for the number of keywords
+	 * it was created for. */
+	private ZipfDistribution keywordDistribution;
+
+	/** The number of words in a generated article. */
+	protected int articleLength = DEFAULT_ARTICLE_LENGTH;
+
+	/** The fraction of the words of an article that are keywords,
+	 * for the mean rating. */
+	protected double keywordRate = DEFAULT_KEYWORD_RATE;
+
+	/** The number of distinct words that are not keywords. */
+	protected int vocabularySize = DEFAULT_VOCABULARY_SIZE;
+
+	/** The exponent of the Zipf distributions. */
+	protected double zipfExponent = DEFAULT_ZIPF_EXPONENT;
+
+	/** The distribution of the ratings. */
+	protected int ratingDistribution = NORMAL_RATINGS;
+
+	/**
+	 * Creates a synthetic corpus generator.
+	 * @param seed the seed of the random choices.
+	 */
+	public SyntheticCorpus(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Generates a new random word, different from all the words
+	 * generated before.
+	 * @return the new word.
+	 */
+	protected String createWord() {
+		while (true) {
+			int length = 4 + random.nextInt(7);
+			char[] chars = new char[length];
+
+			for (int i = 0; i < length; i++) {
+				chars[i] = (char) ('a' + random.nextInt(26));
+			}
+
+			String word = new String(chars);
+
+			if (usedWords.add(word)) {
+				return word;
+			}
+		}
+	}
+
+	/**
+	 * Generates a list of keywords. The first keywords are the most
+	 * frequent ones.
+	 * @param numKeywords the number of keywords.
+	 * @return the keywords, all of them single words.
+	 */
+	public String[] createKeywords(int numKeywords) {
+		String[] keywords = new String[numKeywords];
+
+		for (int i = 0; i < numKeywords; i++) {
+			keywords[i] = createWord();
+		}
+
+		return keywords;
+	}
+
+	/**
+	 * Retrieves the words that are not keywords, generating them
+	 * the first time.
+	 * @return the vocabulary of the articles.
+	 */
+	private String[] getVocabulary() {
+		if (vocabulary == null) {
+			vocabulary = new String[vocabularySize];
+
+			for (int i = 0; i < vocabularySize; i++) {
+				vocabulary[i] = createWord();
+			}
+
+			wordDistribution = new ZipfDistribution(vocabularySize,
+					zipfExponent);
+		}
+
+		return vocabulary;
+	}
+
+	/**
+	 * Draws the index of a keyword.
+	 * @param numKeywords the number of keywords.
+	 * @return the index of the keyword.
+	 */
+	private int nextKeyword(int numKeywords) {
+		if (keywordDistribution == null ||
+				keywordDistribution.getNumRanks() != numKeywords) {
+			keywordDistribution = new ZipfDistribution(numKeywords,
+					zipfExponent);
+		}
+
+		return keywordDistribution.next(random);
+	}
+
+	/**
+	 * Draws a rating from the rating distribution.
+	 * @return the rating, between 0 and 1 with two decimals.
+	 */
+	public double nextRating() {
+		double rating;
+
+		switch (ratingDistribution) {
+		case UNIFORM_RATINGS:
+			rating = random.nextDouble();
+			break;
+		case SKEWED_RATINGS:
+			rating = Math.pow(random.nextDouble(), 3);
+			break;
+		case BIMODAL_RATINGS:
+			rating = (random.nextBoolean() ? 0.2 : 0.8) +
+					0.1 * random.nextGaussian();
+			break;
+		default:
+			rating = MEAN_RATING + RATING_STD_DEV * random.nextGaussian();
+		}
+
+		rating = Math.max(0.0, Math.min(1.0, rating));
+		return Math.round(rating * 100) / 100.0;
+	}
+
+	/**
+	 * Computes the fraction of the words of an article that are
+	 * keywords.
+	 * @param rating the rating of the article.
+	 * @return the keyword rate of the article.
+	 */
+	private double getKeywordRate(double rating) {
+		return Math.min(1.0, 2 * keywordRate * rating);
+	}
+
+	/**
+	 * Generates the text of an article with a random rating.
+	 * @param keywords the keywords that occur in the text.
+	 * @return the text of the article.
+	 */
+	public String createText(String[] keywords) {
+		return createText(keywords, nextRating());
+	}
+
+	/**
+	 * Generates the text of an article. The words are separated by
+	 * spaces and grouped into sentences.
+	 * @param keywords the keywords that occur in the text.
+	 * @param rating the rating of the article.
+	 * @return the text of the article.
+	 */
+	public String createText(String[] keywords, double rating) {
+		String[] words = getVocabulary();
+		double rate = getKeywordRate(rating);
+		StringBuilder text = new StringBuilder(articleLength * 8);
+
+		for (int i = 0; i < articleLength; i++) {
+			if (keywords.length > 0 && random.nextDouble() < rate) {
+				text.append(keywords[nextKeyword(keywords.length)]);
+			} else {
+				text.append(words[wordDistribution.next(random)]);
+			}
+
+			text.append((i % SENTENCE_LENGTH == SENTENCE_LENGTH - 1) ?
+					". " : " ");
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Generates articles whose text is held in memory.
+	 * @param keywords the keywords that occur in the articles.
+	 * @param numArticles the number of articles.
+	 * @return the articles.
+	 */
+	public List<Article> createArticles(String[] keywords,
+			int numArticles) {
+		List<Article> articles = new ArrayList<>(numArticles);
+
+		for (int i = 0; i < numArticles; i++) {
+			Article article = new Article("synthetic-" + i,
+					Article.FROM_WEB_PAGE);
+			article.setBody(createText(keywords));
+			articles.add(article);
+		}
+
+		return articles;
+	}
+
+	/**
+	 * Writes articles as UTF-8 text files named <code>article-N.txt
+	 * </code>, which can be loaded like any other articles, and
+	 * their ratings into the <code>ratings.csv</code> file of the
+	 * same directory.
+	 * @param keywords the keywords that occur in the articles.
+	 * @param numArticles the number of articles.
+	 * @param directory the directory of the files, which is created
+	 * if necessary.
+	 * @throws IOException if a file cannot be written.
+	 */
+	public void writeArticles(String[] keywords, int numArticles,
+			File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the directory " + directory);
+		}
+
+		int numDigits = String.valueOf(Math.max(numArticles - 1, 1)).length();
+
+		try (BufferedWriter ratings = new BufferedWriter(
+				new FileWriter(new File(directory, "ratings.csv")))) {
+			ratings.write("file,rating");
+			ratings.newLine();
+
+			for (int i = 0; i < numArticles; i++) {
+				String fileName = String.format("article-%0" + numDigits +
+						"d.txt", i);
+				double rating = nextRating();
+
+				try (Writer out = new OutputStreamWriter(
+						new FileOutputStream(new File(directory, fileName)),
+						StandardCharsets.UTF_8)) {
+					out.write(createText(keywords, rating));
+				}
+
+				ratings.write(fileName + "," + rating);
+				ratings.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Writes a training data set in the layout of the <code>
+	 * infofilter.dfn</code> and <code>infofilter.dat</code> files
+	 * written by the filter agent: a continuous field per keyword
+	 * holding its count in an article, followed by the rating as the
+	 * continuous <code>ClassField</code>. The records are written as
+	 * they are generated, so that data sets of millions of records
+	 * do not need to fit in memory.
+	 * @param keywords the keywords, which are the names of the fields.
+	 * @param numRecords the number of records.
+	 * @param fileName the name of the files without the extension.
+	 * @throws IOException if the files cannot be written.
+	 */
+	public void writeDataSet(String[] keywords, int numRecords,
+			String fileName) throws IOException {
+		try (BufferedWriter out = new BufferedWriter(
+				new FileWriter(fileName + ".dfn"))) {
+			for (int i = 0; i < keywords.length; i++) {
+				out.write("continuous " + keywords[i]);
+				out.newLine();
+			}
+
+			out.write("continuous ClassField");
+			out.newLine();
+		}
+
+		try (BufferedWriter out = new BufferedWriter(
+				new FileWriter(fileName + ".dat"), 1 << 16)) {
+			int[] counts = new int[keywords.length];
+			StringBuilder line = new StringBuilder();
+
+			for (int i = 0; i < numRecords; i++) {
+				double rating = nextRating();
+				int numOccurrences = (int) Math.round(articleLength *
+						getKeywordRate(rating) * 2 * random.nextDouble());
+
+				if (keywords.length == 0) {
+					numOccurrences = 0;
+				}
+
+				for (int j = 0; j < numOccurrences; j++) {
+					counts[nextKeyword(keywords.length)]++;
+				}
+
+				line.setLength(0);
+
+				for (int j = 0; j < counts.length; j++) {
+					line.append(counts[j]).append(' ');
+					counts[j] = 0;
+				}
+
+				line.append(rating);
+
+				out.write(line.toString());
+				out.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Converts the name of a rating distribution into the
+	 * distribution.
+	 * @param name <code>uniform</code>, <code>normal</code>, <code>
+	 * skewed</code> or <code>bimodal</code>.
+	 * @return the rating distribution, or -1 if the name is unknown.
+	 */
+	public static int parseRatingDistribution(String name) {
+		for (int i = 0; i < RATING_DISTRIBUTIONS.length; i++) {
+			if (RATING_DISTRIBUTIONS[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Sets the number of words in a generated article.
+	 * @param articleLength the number of words.
+	 */
+	public void setArticleLength(int articleLength) {
+		this.articleLength = articleLength;
+	}
+
+	/**
+	 * Sets the fraction of the words of an article that are keywords,
+	 * for the mean rating.
+	 * @param keywordRate the keyword rate, between 0 and 0.5.
+	 */
+	public void setKeywordRate(double keywordRate) {
+		this.keywordRate = keywordRate;
+	}
+
+	/**
+	 * Sets the number of distinct words that are not keywords. It
+	 * must be set before the first article is generated.
+	 * @param vocabularySize the size of the vocabulary.
+	 */
+	public void setVocabularySize(int vocabularySize) {
+		this.vocabularySize = vocabularySize;
+	}
+
+	/**
+	 * Sets the exponent of the Zipf distributions of the words and
+	 * of the keywords. It must be set before the first article is
+	 * generated.
+	 * @param zipfExponent the exponent, 0 for uniform frequencies.
+	 */
+	public void setZipfExponent(double zipfExponent) {
+		this.zipfExponent = zipfExponent;
+	}
+
+	/**
+	 * Sets the distribution of the ratings.
+	 * @param ratingDistribution the rating distribution:<br>
+	 * <ul>
+	 * <li>{@link #UNIFORM_RATINGS}
+	 * <li>{@link #NORMAL_RATINGS}
+	 * <li>{@link #SKEWED_RATINGS}
+	 * <li>{@link #BIMODAL_RATINGS}
+	 * </ul>
+	 */
+	public void setRatingDistribution(int ratingDistribution) {
+		this.ratingDistribution = ratingDistribution;
+	}
+} // end class SyntheticCorpus
@@ -0,0 +1,92 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The <code>ZipfDistribution</code> class draws ranks following
+ * <b>Zipf's law</b>: the probability of the rank <i>k</i>, counted
+ * from 0, is proportional to <code>1 / (k + 1)^s</code>, where
+ * <i>s</i> is the exponent of the distribution. With the exponent 1,
+ * the most frequent word of a text is about twice as frequent as the
+ * second one and three times as frequent as the third one, as in
+ * natural languages. The exponent 0 gives the uniform distribution.
+ * <br>
+ * A rank is drawn by a binary search of the cumulative probabilities
+ * of the ranks, which are computed once.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ZipfDistribution {
+	/** The cumulative probability of each rank. */
+	private final double[] cumulative;
+
+	/** The exponent of the distribution. */
+	private final double exponent;
+
+	/**
+	 * Creates a Zipf distribution.
+	 * @param numRanks the number of ranks, at least 1.
+	 * @param exponent the exponent of the distribution, at least 0.
+	 */
+	public ZipfDistribution(int numRanks, double exponent) {
+		if (numRanks < 1 || exponent < 0) {
+			throw new IllegalArgumentException("Invalid Zipf distribution: " +
+					numRanks + " ranks, exponent " + exponent);
+		}
+
+		this.exponent = exponent;
+		cumulative = new double[numRanks];
+
+		double sum = 0.0;
+
+		for (int k = 0; k < numRanks; k++) {
+			sum += 1.0 / Math.pow(k + 1, exponent);
+			cumulative[k] = sum;
+		}
+
+		for (int k = 0; k < numRanks; k++) {
+			cumulative[k] /= sum;
+		}
+
+		cumulative[numRanks - 1] = 1.0; // despite rounding errors
+	}
+
+	/**
+	 * Draws a rank.
+	 * @param random the generator of the random numbers.
+	 * @return a rank between 0 and the number of ranks - 1.
+	 */
+	public int next(Random random) {
+		int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+
+		// a missing value gives the index of the next higher one
+		return (rank >= 0) ? rank : -rank - 1;
+	}
+
+	/**
+	 * Retrieves the probability of a rank.
+	 * @param rank the rank, between 0 and the number of ranks - 1.
+	 * @return the probability of the rank.
+	 */
+	public double getProbability(int rank) {
+		return (rank == 0) ?
+				cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+	}
+
+	/**
+	 * Retrieves the number of ranks.
+	 * @return the number of ranks.
+	 */
+	public int getNumRanks() {
+		return cumulative.length;
+	}
+
+	/**
+	 * Retrieves the exponent of the distribution.
+	 * @return the exponent.
+	 */
+	public double getExponent() {
+		return exponent;
+	}
+} // end class ZipfDistribution
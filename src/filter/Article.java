@@ -1,10 +1,16 @@
 package filter;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The <code>Article</code> class defines all of the information
@@ -54,6 +60,15 @@ public class Article implements Serializable {
 	 * contents of the web page. */
 	protected String body;
 
+	/** The maximum number of characters kept in {@link #body} for
+	 * an article whose text is streamed from a large file. */
+	public static final int PREVIEW_LENGTH = 64 * 1024;
+
+	/** Indicates that {@link #body} only holds the beginning of
+	 * the text, and that the whole text has to be streamed from
+	 * the file of the article again when it is needed. */
+	protected transient boolean truncated;
+
 	/** Indicates whether the article satisfies the degree of
 	 * interestingness/usefulness so that it could be selected
 	 * to send to other agent(s). */
@@ -86,6 +101,33 @@ public class Article implements Serializable {
 	/** Average score of all articles in the cluster. */
 	protected double clusterScore;
 
+	/** The version of the keyword list that {@link #counts} were
+	 * computed for, 0 if the keywords were never counted.
+	 * @see FilterAgent#getKeywordsVersion() */
+	transient int countsVersion;
+
+	/** The version of the Kohonen map neural network that
+	 * {@link #clusterId} was computed by, 0 if out of date. */
+	transient int clusterVersion;
+
+	/** The version of the back propagation neural network that
+	 * {@link #predictedRating} was computed by, 0 if out of date. */
+	transient int predictionVersion;
+
+	/** The name of the topic profile the article matches best,
+	 * <code>null</code> if it was not routed to a topic. */
+	protected transient String topic;
+
+	/** The keyword score of the article for each topic profile. */
+	protected transient int[] topicKeywordScores;
+
+	/** The rating predicted by each topic profile. */
+	protected transient double[] topicRatings;
+
+	/** The topic profiles that {@link #topic} was chosen from.
+	 * @see ProfileSet#hasScored(Article) */
+	transient TopicProfile[] topicProfiles;
+
 	/**
 	 * Constructs a new article object with specified ID.
 	 * @param id the identifier of the article (file path if the
@@ -99,23 +141,15 @@ public class Article implements Serializable {
 	}
 
 	/**
-	 * Reads an article from a <b>text</b> or <b>HTML</b> file.
-	 * @param fileName the name of the file to be read.
-	 * @param directory the directory that contains the file to be read.
+	 * Reads an article from a UTF-8 <b>text</b> or <b>HTML</b> file
+	 * through a memory mapping of the file.
+	 * @param filePath the path of the file to be read.
 	 * @return the text contents of the file.
+	 * @see MappedTextReader
 	 */
 	public static String readArticle(String filePath) {
 		try {
-			File f = new File(filePath);
-			FileInputStream in = new FileInputStream(f);
-			int size = (int) f.length();
-			byte[] data = new byte[size];
-
-			in.read(data);
-			String body = new String(data);
-			in.close();
-
-			return body;
+			return MappedTextReader.readString(filePath);
 		} catch (IOException e) {
 			System.out.println("Error: couldn't read article from " + filePath);
 			return "";
@@ -129,17 +163,20 @@ public class Article implements Serializable {
 	 * written into.
 	 */
 	public void writeArticle(String fileName, String directory) {
-		String contents = body;
-		int size = (int) contents.length();
-		byte data[] = new byte[size];
+		File f = new File(directory + fileName);
 
-		data = contents.getBytes();
+		// a truncated article is saved from its file, which must
+		// not be overwritten while it is read
+		if (truncated && f.getAbsoluteFile().equals(
+				new File(id).getAbsoluteFile())) {
+			return;
+		}
 
 		try {
-			File f = new File(directory + fileName);
-			FileOutputStream out = new FileOutputStream(f);
+			Writer out = new OutputStreamWriter(new FileOutputStream(f),
+					StandardCharsets.UTF_8);
 
-			out.write(data);
+			Utilities.writeContents(this, out);
 			out.flush();
 			out.close();
 		} catch (IOException e) {
@@ -293,6 +330,28 @@ public class Article implements Serializable {
 	 */
 	public void setBody(String body) {
 		this.body = body;
+		truncated = false;
+	}
+
+	/**
+	 * Sets the beginning of the text as the body of an article
+	 * whose text is streamed from its file.
+	 * @param preview the beginning of the text.
+	 * @param truncated <code>true</code> if the text is longer than
+	 * the preview.
+	 */
+	public void setPreview(String preview, boolean truncated) {
+		this.body = preview;
+		this.truncated = truncated;
+	}
+
+	/**
+	 * Checks whether the body only holds the beginning of the text.
+	 * @return <code>true</code> if the text has to be streamed from
+	 * the file of the article.
+	 */
+	public boolean isTruncated() {
+		return truncated;
 	}
 
 	/**
@@ -367,6 +426,7 @@ public class Article implements Serializable {
 	 * @param userRating the user rating in String.
 	 */
 	public void setUserRating(String userRating) {
+		double oldRating = rating;
 		this.userRating = userRating;
 
 		switch (userRating) {
@@ -385,6 +445,12 @@ public class Article implements Serializable {
 		case FilterAgent.INTERESTING_RATING:
 			rating = 1.0;
 		}
+
+		// the rating is an input of both neural networks
+		if (rating != oldRating) {
+			clusterVersion = 0;
+			predictionVersion = 0;
+		}
 	}
 
 	/**
@@ -445,6 +511,35 @@ public class Article implements Serializable {
 		this.predictedRating = predictedRating;
 	}
 
+	/**
+	 * Retrieves the topic profile the article was routed to.
+	 * @return the name of the best matching topic, or an empty
+	 * String if the article was not routed to a topic.
+	 */
+	public String getTopic() {
+		return (topic == null) ? "" : topic;
+	}
+
+	/**
+	 * Retrieves the keyword scores of the article for all topic
+	 * profiles.
+	 * @return the keyword score for each topic profile, or
+	 * <code>null</code> if the article was not routed to a topic.
+	 */
+	public int[] getTopicKeywordScores() {
+		return topicKeywordScores;
+	}
+
+	/**
+	 * Retrieves the ratings of the article predicted by all topic
+	 * profiles.
+	 * @return the predicted rating for each topic profile, or
+	 * <code>null</code> if the article was not routed to a topic.
+	 */
+	public double[] getTopicRatings() {
+		return topicRatings;
+	}
+
 	/**
 	 * Retrieves the profile data, including the raw keyword counts
 	 * and the numeric user rating, as a String.
@@ -469,4 +564,58 @@ public class Article implements Serializable {
 	public String toString() {
 		return subject + " <Approved = " + apporved + ", Rating = " + userRating + ">";
 	}
+
+	/**
+	 * Serializes the article to a specified output stream, e.g. to
+	 * send it to another agent. The whole text of an article whose
+	 * body only holds a preview is streamed from its file and
+	 * written after the fields, since the receiver cannot read the
+	 * file.
+	 * @param outputStream the stream to which the article is written.
+	 * @throws IOException if any I/O error occurs.
+	 */
+	private void writeObject(ObjectOutputStream outputStream)
+			throws IOException {
+		String text = null;
+
+		if (truncated) {
+			StringWriter writer = new StringWriter();
+
+			try {
+				Utilities.writeContents(this, writer);
+				text = writer.toString();
+			} catch (IOException e) {
+				// the preview is sent instead
+				System.out.println("Error: couldn't read article from " + id);
+			}
+		}
+
+		outputStream.defaultWriteObject();
+		outputStream.writeObject(text);
+	}
+
+	/**
+	 * Deserializes the article from a specified input stream, and
+	 * replaces the preview by the whole text if it was written.
+	 * Articles serialized without the whole text are read as well.
+	 * @param inputStream the stream from which the article is read.
+	 * @throws IOException if any I/O error occurs.
+	 * @throws ClassNotFoundException if any class file is not found.
+	 */
+	private void readObject(ObjectInputStream inputStream)
+			throws IOException, ClassNotFoundException {
+		inputStream.defaultReadObject();
+
+		try {
+			String text = (String) inputStream.readObject();
+
+			if (text != null) {
+				body = text;
+			}
+		} catch (OptionalDataException e) {
+			if (!e.eof) {
+				throw e;
+			}
+		}
+	}
 } // end class NewsArticle
\ No newline at end of file
@@ -0,0 +1,315 @@
+package filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * The <code>ArticleRanking</code> class keeps a set of articles
+ * ordered in descending order of their scores
+ * ({@link Article#getScore(int)}) for a filter type. Articles with
+ * the same score keep the order in which they were added, the same
+ * as the order produced by a stable sort.<br>
+ * The ranking supports:
+ * <ul>
+ * <li>the full order of all articles in O(n)
+ * <li>the <i>k</i> best articles in O(k)
+ * <li>re-positioning a single article whose score has changed in
+ * O(log n)
+ * </ul>
+ * The static methods {@link #sort(List, int)} and
+ * {@link #topK(Collection, int, int)} rank a plain collection of
+ * articles in O(n log n) and O(n log k) respectively, without
+ * building a ranking.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ArticleRanking {
+	/**
+	 * An article together with the score under which it is
+	 * currently positioned in the ranking.
+	 */
+	private static class Entry {
+		final Article article;
+		final long sequence;
+		double score;
+
+		Entry(Article article, long sequence, double score) {
+			this.article = article;
+			this.sequence = sequence;
+			this.score = score;
+		}
+	}
+
+	/** Orders entries by descending score, then by arrival. */
+	private static final Comparator<Entry> ENTRY_ORDER =
+			new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			int result = Double.compare(e2.score, e1.score);
+
+			return (result != 0) ?
+					result : Long.compare(e1.sequence, e2.sequence);
+		}
+	};
+
+	/** The filter type whose scores are used for the ranking. */
+	private int filterType;
+
+	/** The ranked entries. */
+	private final TreeSet<Entry> order = new TreeSet<>(ENTRY_ORDER);
+
+	/** The entry of each ranked article. */
+	private final Map<Article, Entry> entries = new IdentityHashMap<>();
+
+	/** The arrival number of the next added article. */
+	private long nextSequence = 0;
+
+	/**
+	 * Creates an empty ranking for the given filter type.
+	 * @param filterType the filter type (or filter method):<br>
+	 * <ul>
+	 * <li>{@link FilterAgent#USE_KEYWORDS}
+	 * <li>{@link FilterAgent#USE_CLUSTERS}
+	 * <li>{@link FilterAgent#USE_PREDICTED_RATING}
+	 * </ul>
+	 */
+	public ArticleRanking(int filterType) {
+		this.filterType = filterType;
+	}
+
+	/**
+	 * Adds an article to the ranking, or re-positions it if it is
+	 * already ranked.
+	 * @param article the article to be added.
+	 */
+	public synchronized void add(Article article) {
+		if (entries.containsKey(article)) {
+			update(article);
+			return;
+		}
+
+		Entry entry = new Entry(article, nextSequence++,
+				article.getScore(filterType));
+
+		entries.put(article, entry);
+		order.add(entry);
+	}
+
+	/**
+	 * Adds a collection of articles to the ranking.
+	 * @param articles the articles to be added, in arrival order.
+	 */
+	public synchronized void addAll(Collection<Article> articles) {
+		for (Article article : articles) {
+			add(article);
+		}
+	}
+
+	/**
+	 * Removes an article from the ranking.
+	 * @param article the article to be removed.
+	 * @return <code>true</code> if the article was ranked.
+	 */
+	public synchronized boolean remove(Article article) {
+		Entry entry = entries.remove(article);
+
+		if (entry == null) {
+			return false;
+		}
+
+		order.remove(entry);
+		return true;
+	}
+
+	/**
+	 * Removes all articles from the ranking.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		order.clear();
+	}
+
+	/**
+	 * Re-positions an article after its score has changed. The
+	 * article keeps its arrival order among articles with the
+	 * same score.
+	 * @param article the article whose score has changed.
+	 * @return <code>true</code> if the article was ranked.
+	 */
+	public synchronized boolean update(Article article) {
+		Entry entry = entries.get(article);
+
+		if (entry == null) {
+			return false;
+		}
+
+		double score = article.getScore(filterType);
+
+		if (score != entry.score) {
+			order.remove(entry);
+			entry.score = score;
+			order.add(entry);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Changes the filter type and re-ranks all articles with the
+	 * scores of the new filter type.
+	 * @param filterType the new filter type.
+	 */
+	public synchronized void setFilterType(int filterType) {
+		this.filterType = filterType;
+		refresh();
+	}
+
+	/**
+	 * Re-ranks all articles after their scores have been changed,
+	 * e.g. when all articles were re-scored.
+	 */
+	public synchronized void refresh() {
+		List<Entry> all = new ArrayList<>(order);
+		order.clear();
+
+		for (Entry entry : all) {
+			entry.score = entry.article.getScore(filterType);
+			order.add(entry);
+		}
+	}
+
+	/**
+	 * Retrieves the filter type used for the ranking.
+	 * @return the current filter type.
+	 */
+	public synchronized int getFilterType() {
+		return filterType;
+	}
+
+	/**
+	 * Retrieves the number of ranked articles.
+	 * @return the number of articles in the ranking.
+	 */
+	public synchronized int size() {
+		return order.size();
+	}
+
+	/**
+	 * Retrieves the <i>k</i> best articles of the ranking.
+	 * @param k the number of articles to be retrieved.
+	 * @return at most <code>k</code> articles in descending order
+	 * of their scores.
+	 */
+	public synchronized List<Article> getTop(int k) {
+		List<Article> top = new ArrayList<>(Math.min(k, order.size()));
+
+		for (Entry entry : order) {
+			if (top.size() >= k) {
+				break;
+			}
+
+			top.add(entry.article);
+		}
+
+		return top;
+	}
+
+	/**
+	 * Retrieves all articles of the ranking.
+	 * @return all articles in descending order of their scores.
+	 */
+	public synchronized List<Article> getAll() {
+		return getTop(order.size());
+	}
+
+	/**
+	 * Retrieves the position of an article in the ranking.
+	 * @param article the article whose position is retrieved.
+	 * @return the 0-based rank of the article, -1 if it is not
+	 * ranked.
+	 */
+	public synchronized int indexOf(Article article) {
+		Entry entry = entries.get(article);
+
+		return (entry == null) ? -1 : order.headSet(entry).size();
+	}
+
+	/**
+	 * Creates a comparator ordering articles by descending score.
+	 * @param filterType the filter type whose scores are compared.
+	 * @return the comparator.
+	 */
+	public static Comparator<Article> descendingScore(int filterType) {
+		return new Comparator<Article>() {
+			@Override
+			public int compare(Article a1, Article a2) {
+				return Double.compare(
+						a2.getScore(filterType), a1.getScore(filterType));
+			}
+		};
+	}
+
+	/**
+	 * Sorts a list of articles in descending order of their scores
+	 * in O(n log n). Articles with the same score keep their
+	 * relative order.
+	 * @param articles the articles to be sorted in place.
+	 * @param filterType the filter type whose scores are used.
+	 */
+	public static void sort(List<Article> articles, int filterType) {
+		Collections.sort(articles, descendingScore(filterType));
+	}
+
+	/**
+	 * Selects the <i>k</i> best articles of a collection in
+	 * O(n log k) using a bounded heap, without sorting the whole
+	 * collection. Articles with the same score keep their
+	 * relative order.
+	 * @param articles the articles to be ranked.
+	 * @param k the number of articles to be selected.
+	 * @param filterType the filter type whose scores are used.
+	 * @return at most <code>k</code> articles in descending order
+	 * of their scores.
+	 */
+	public static List<Article> topK(Collection<Article> articles,
+			int k, int filterType) {
+		if (k <= 0) {
+			return new ArrayList<>();
+		}
+
+		// a min-heap whose head is the worst of the best k so far
+		PriorityQueue<Entry> heap = new PriorityQueue<>(
+				Math.min(k, articles.size()) + 1,
+				Collections.reverseOrder(ENTRY_ORDER));
+		long sequence = 0;
+
+		for (Article article : articles) {
+			Entry entry = new Entry(article, sequence++,
+					article.getScore(filterType));
+
+			if (heap.size() < k) {
+				heap.add(entry);
+			} else if (ENTRY_ORDER.compare(entry, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(entry);
+			}
+		}
+
+		List<Entry> best = new ArrayList<>(heap);
+		Collections.sort(best, ENTRY_ORDER);
+		List<Article> top = new ArrayList<>(best.size());
+
+		for (Entry entry : best) {
+			top.add(entry.article);
+		}
+
+		return top;
+	}
+} // end class ArticleRanking
\ No newline at end of file
@@ -0,0 +1,366 @@
+package filter;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>BatchScorer</code> class scores a batch of articles
+ * without the GUI, so that large sets of documents can be scored on
+ * a server, e.g. every night. Its usage is:
+ * <pre>
+ * java filter.BatchScorer [options] file-or-directory...
+ *
+ *   -profile path   a serialized filter agent (filterAgent.ser) or a
+ *                   topic directory containing one, by default the
+ *                   filterAgent.ser of the working directory
+ *   -topics dir     a directory of topic directories, such as
+ *                   TrainingDataSets, to route the articles to topics
+ *   -filter type    keywords, clusters or rating (default keywords)
+ *   -format fmt     csv or jsonl (default csv)
+ *   -top k          only writes the k best articles
+ *   -threads n      the number of extraction threads (default: one
+ *                   per core)
+ * </pre>
+ * Directories are searched for articles recursively. The files are
+ * read, counted and scored in parallel by an
+ * {@link IngestionPipeline}, then written to the standard output in
+ * descending order of their scores. Messages are written to the
+ * standard error.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class BatchScorer {
+	/** The names of the filter types, by filter type. */
+	private static final String[] FILTER_NAMES = {
+			"keywords", "clusters", "rating" };
+
+	/** The agent scoring the articles. */
+	protected FilterAgent filterAgent;
+
+	/** The filter type of the scores. */
+	protected int filterType;
+
+	/** The number of extraction threads. */
+	protected int numThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Creates a batch scorer.
+	 * @param filterAgent the agent scoring the articles.
+	 * @param filterType the filter type (or filter method):<br>
+	 * <ul>
+	 * <li>{@link FilterAgent#USE_KEYWORDS}
+	 * <li>{@link FilterAgent#USE_CLUSTERS}
+	 * <li>{@link FilterAgent#USE_PREDICTED_RATING}
+	 * </ul>
+	 */
+	public BatchScorer(FilterAgent filterAgent, int filterType) {
+		this.filterAgent = filterAgent;
+		this.filterType = filterType;
+	}
+
+	/**
+	 * Sets the number of threads extracting the text of the files.
+	 * @param numThreads the number of extraction threads.
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Reads and scores articles. Only a preview of the text of each
+	 * article is kept while the files are read, and the text is
+	 * dropped once the article is scored.
+	 * @param roots the files and directories of the articles.
+	 * @return the scored articles, in descending order of their
+	 * scores.
+	 * @throws InterruptedException if the thread is interrupted.
+	 */
+	public List<Article> score(File[] roots) throws InterruptedException {
+		return score(roots, -1);
+	}
+
+	/**
+	 * Reads and scores articles, and only keeps the <i>k</i> best of
+	 * them, which are selected without sorting all articles.
+	 * @param roots the files and directories of the articles.
+	 * @param k the number of articles to be kept, or a negative
+	 * number to keep all articles.
+	 * @return at most <code>k</code> scored articles, in descending
+	 * order of their scores.
+	 * @throws InterruptedException if the thread is interrupted.
+	 * @see ArticleRanking#topK(java.util.Collection, int, int)
+	 */
+	public List<Article> score(File[] roots, int k)
+			throws InterruptedException {
+		final List<Article> articles = new ArrayList<>();
+		IngestionPipeline pipeline = new IngestionPipeline(filterAgent,
+				numThreads);
+
+		pipeline.run(roots, new IngestionPipeline.Sink() {
+			@Override
+			public void accept(Article article, Map<String, int[]> tokens) {
+				// the keywords were counted by the extraction threads
+				filterAgent.score(article, filterType);
+				article.setBody(null);
+				articles.add(article);
+			}
+		});
+
+		System.err.println("Pipeline: " + pipeline);
+
+		if (filterType == FilterAgent.USE_CLUSTERS) {
+			setClusterScores(articles);
+		}
+
+		if (k >= 0) {
+			return ArticleRanking.topK(articles, k, filterType);
+		}
+
+		ArticleRanking.sort(articles, filterType);
+		return articles;
+	}
+
+	/**
+	 * Sets the cluster score of every article to the average
+	 * keyword score of its cluster, as {@link ScoreIndex} does.
+	 * @param articles the articles whose clusters were found.
+	 */
+	private static void setClusterScores(List<Article> articles) {
+		long[] sums = new long[FilterAgent.NUM_CLUSTERS];
+		int[] sizes = new int[FilterAgent.NUM_CLUSTERS];
+
+		for (Article article : articles) {
+			sums[article.getClusterId()] += article.getKeywordScore();
+			sizes[article.getClusterId()]++;
+		}
+
+		for (Article article : articles) {
+			int cluster = article.getClusterId();
+			article.setClusterScore((double) sums[cluster] / sizes[cluster]);
+		}
+	}
+
+	/**
+	 * Writes scored articles as comma separated values, with a
+	 * header line.
+	 * @param articles the articles in the order of their ranks.
+	 * @param out the stream receiving the values.
+	 */
+	public void writeCSV(List<Article> articles, PrintStream out) {
+		out.println("rank,score,keyword_score,cluster,cluster_score," +
+				"predicted_rating,topic,file");
+
+		for (int i = 0; i < articles.size(); i++) {
+			Article article = articles.get(i);
+
+			out.println((i + 1) + "," +
+					article.getScore(filterType) + "," +
+					article.getKeywordScore() + "," +
+					article.getClusterId() + "," +
+					article.getClusterScore() + "," +
+					article.getPredictedRating() + "," +
+					csvField(article.getTopic()) + "," +
+					csvField(article.getID()));
+		}
+	}
+
+	/**
+	 * Writes scored articles as JSON lines, one object per article.
+	 * @param articles the articles in the order of their ranks.
+	 * @param out the stream receiving the objects.
+	 */
+	public void writeJSONLines(List<Article> articles, PrintStream out) {
+		for (int i = 0; i < articles.size(); i++) {
+			Article article = articles.get(i);
+
+			out.println("{\"rank\":" + (i + 1) +
+					",\"score\":" + Json.number(article.getScore(filterType)) +
+					",\"keywordScore\":" + article.getKeywordScore() +
+					",\"cluster\":" + article.getClusterId() +
+					",\"clusterScore\":" + Json.number(article.getClusterScore()) +
+					",\"predictedRating\":" + Json.number(article.getPredictedRating()) +
+					",\"topic\":" + Json.quote(article.getTopic()) +
+					",\"file\":" + Json.quote(article.getID()) + "}");
+		}
+	}
+
+	/**
+	 * Quotes a CSV field if it contains a separator, a quote or a
+	 * line break.
+	 * @param value the value of the field.
+	 * @return the field.
+	 */
+	private static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 &&
+				value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Reads the filter agent of a profile.
+	 * @param profile a serialized filter agent, or a directory
+	 * containing one.
+	 * @return the filter agent.
+	 * @throws Exception if the agent cannot be read.
+	 */
+	static FilterAgent loadProfile(File profile) throws Exception {
+		if (profile.isDirectory()) {
+			return TopicProfile.load(profile).getAgent();
+		}
+
+		return FilterAgent.restoreFromFile(profile.getPath());
+	}
+
+	/**
+	 * Converts the name of a filter type into the filter type.
+	 * @param name <code>keywords</code>, <code>clusters</code> or
+	 * <code>rating</code>.
+	 * @return the filter type, or -1 if the name is unknown.
+	 */
+	static int parseFilterType(String name) {
+		return Arrays.asList(FILTER_NAMES).indexOf(name);
+	}
+
+	/**
+	 * Prints the usage of the command and exits.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java filter.BatchScorer [options] " +
+				"file-or-directory...");
+		System.err.println("  -profile path   filterAgent.ser or a topic " +
+				"directory (default ./" + FilterAgent.fileName + ")");
+		System.err.println("  -topics dir     directory of topic " +
+				"directories to route articles to");
+		System.err.println("  -filter type    keywords, clusters or " +
+				"rating (default keywords)");
+		System.err.println("  -format fmt     csv or jsonl (default csv)");
+		System.err.println("  -top k          only write the k best articles");
+		System.err.println("  -threads n      number of extraction threads");
+		System.exit(2);
+	}
+
+	/**
+	 * Scores the articles given on the command line.
+	 * @param args the options and the files and directories of the
+	 * articles.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		// the results are written to the standard output, so the
+		// messages of the agents go to the standard error
+		PrintStream results = System.out;
+		System.setOut(System.err);
+
+		File profile = null;
+		File topics = null;
+		int filterType = FilterAgent.USE_KEYWORDS;
+		boolean jsonLines = false;
+		int top = -1;
+		int numThreads = -1;
+		List<File> roots = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+
+				if (!arg.startsWith("-")) {
+					roots.add(new File(arg));
+				} else if (i + 1 >= args.length) {
+					usage();
+				} else if (arg.equals("-profile")) {
+					profile = new File(args[++i]);
+				} else if (arg.equals("-topics")) {
+					topics = new File(args[++i]);
+				} else if (arg.equals("-filter")) {
+					filterType = parseFilterType(args[++i]);
+				} else if (arg.equals("-format")) {
+					String format = args[++i];
+					jsonLines = format.equals("jsonl");
+
+					if (!jsonLines && !format.equals("csv")) {
+						usage();
+					}
+				} else if (arg.equals("-top")) {
+					top = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-threads")) {
+					numThreads = Integer.parseInt(args[++i]);
+				} else {
+					usage();
+				}
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		}
+
+		if (roots.isEmpty() || filterType == -1) {
+			usage();
+		}
+
+		FilterAgent filterAgent;
+
+		try {
+			filterAgent = loadProfile((profile != null) ?
+					profile : new File(FilterAgent.fileName));
+		} catch (Exception e) {
+			System.err.println("Error: cannot read the profile " +
+					profile + " - " + e);
+			System.exit(1);
+			return;
+		}
+
+		if (filterType != FilterAgent.USE_KEYWORDS &&
+				!filterAgent.neuralNetworksTrained) {
+			System.err.println("Error: the neural networks of the " +
+					"profile have not been trained");
+			System.exit(1);
+		}
+
+		if (topics != null) {
+			List<TopicProfile> profiles = TopicProfile.loadAll(topics);
+
+			if (profiles.isEmpty()) {
+				System.err.println("Error: no topic profile in " + topics);
+				System.exit(1);
+			}
+
+			filterAgent.setTopicProfiles(profiles);
+		}
+
+		BatchScorer scorer = new BatchScorer(filterAgent, filterType);
+
+		if (numThreads > 0) {
+			scorer.setNumThreads(numThreads);
+		}
+
+		long startTime = System.currentTimeMillis();
+		List<Article> articles;
+
+		try {
+			articles = scorer.score(roots.toArray(new File[roots.size()]),
+					top);
+		} catch (InterruptedException e) {
+			System.err.println("Error: scoring was interrupted");
+			System.exit(1);
+			return;
+		}
+
+		if (jsonLines) {
+			scorer.writeJSONLines(articles, results);
+		} else {
+			scorer.writeCSV(articles, results);
+		}
+
+		results.flush();
+		System.err.println("Scored in " +
+				(System.currentTimeMillis() - startTime) + " ms");
+		System.exit(results.checkError() ? 1 : 0);
+	}
+} // end class BatchScorer
\ No newline at end of file
@@ -19,4 +19,8 @@ public class Constants {
 	 *  all the keywords used to score and rate articles. */
 	public static final String keywordCountsFileName =
 			keyworsdFileName + ".dat";
+
+	/** The name of the directory {@value} that caches the text
+	 * extracted from PDF, MS Word and PowerPoint files. */
+	public static final String textCacheDirName = "textcache";
 } // end class Constants
\ No newline at end of file
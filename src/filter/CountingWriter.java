@@ -0,0 +1,198 @@
+package filter;
+
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The <code>CountingWriter</code> class is a <code>Writer</code>
+ * that scores the text written to it instead of storing it. The
+ * text can be copied from a <code>Reader</code> or written page by
+ * page by a text extractor, and each piece is:
+ * <ul>
+ * <li>fed to a {@link KeywordMatcher.Counter}
+ * <li>split into tokens whose frequencies are counted for the
+ * {@link InvertedIndex}, if asked for with {@link #collectTokens()}
+ * <li>appended to a preview of the text, up to a maximum length
+ * </ul>
+ * so only the preview and the counts are kept in memory, whatever
+ * the length of the text.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class CountingWriter extends Writer {
+	/** The counter of keywords, <code>null</code> if none. */
+	private final KeywordMatcher.Counter counter;
+
+	/** The maximum number of characters of the preview. */
+	private final int previewLength;
+
+	/** The beginning of the text. */
+	private final StringBuilder preview = new StringBuilder();
+
+	/** The frequency of each token, <code>null</code> if tokens
+	 * are not collected. */
+	private Map<String, int[]> tokens;
+
+	/** The characters of the current token. */
+	private final StringBuilder token = new StringBuilder();
+
+	/** The number of characters written so far. */
+	private long length = 0;
+
+	/** A buffer for copying the characters of strings. */
+	private char[] buffer;
+
+	/**
+	 * Creates a writer counting keywords.
+	 * @param counter the counter the text is fed to, or
+	 * <code>null</code> if keywords are not counted.
+	 * @param previewLength the maximum number of characters of the
+	 * text that are kept.
+	 */
+	public CountingWriter(KeywordMatcher.Counter counter, int previewLength) {
+		this.counter = counter;
+		this.previewLength = previewLength;
+	}
+
+	/**
+	 * Asks the writer to also count the frequencies of the tokens
+	 * of the text.
+	 */
+	public void collectTokens() {
+		if (tokens == null) {
+			tokens = new HashMap<>();
+		}
+	}
+
+	/**
+	 * Writes a piece of text.
+	 * @param chars the characters of the text.
+	 * @param offset the index of the first character to be written.
+	 * @param len the number of characters to be written.
+	 */
+	@Override
+	public void write(char[] chars, int offset, int len) {
+		if (counter != null) {
+			counter.feed(chars, offset, len);
+		}
+
+		if (preview.length() < previewLength) {
+			preview.append(chars, offset,
+					Math.min(len, previewLength - preview.length()));
+		}
+
+		if (tokens != null) {
+			for (int i = offset, end = offset + len; i < end; i++) {
+				char c = chars[i];
+
+				if (KeywordMatcher.isDelimiter(c)) {
+					endToken();
+				} else {
+					token.append(Character.toLowerCase(c));
+				}
+			}
+		}
+
+		length += len;
+	}
+
+	/**
+	 * Writes a piece of text.
+	 * @param str the string containing the text.
+	 * @param offset the index of the first character to be written.
+	 * @param len the number of characters to be written.
+	 */
+	@Override
+	public void write(String str, int offset, int len) {
+		if (buffer == null) {
+			buffer = new char[8192];
+		}
+
+		for (int i = offset, end = offset + len; i < end; i += buffer.length) {
+			int n = Math.min(end - i, buffer.length);
+
+			str.getChars(i, i + n, buffer, 0);
+			write(buffer, 0, n);
+		}
+	}
+
+	/**
+	 * Writes a piece of text.
+	 * @param str the text to be written.
+	 */
+	@Override
+	public void write(String str) {
+		write(str, 0, str.length());
+	}
+
+	/**
+	 * Counts the token that has just ended, if any.
+	 */
+	private void endToken() {
+		if (token.length() > 0) {
+			String key = token.toString();
+			int[] freq = tokens.get(key);
+
+			if (freq == null) {
+				tokens.put(key, new int[] {1});
+			} else {
+				freq[0]++;
+			}
+
+			token.setLength(0);
+		}
+	}
+
+	/**
+	 * Does nothing, since nothing is buffered.
+	 */
+	@Override
+	public void flush() {
+	}
+
+	/**
+	 * Ends the text. The last token is counted.
+	 */
+	@Override
+	public void close() {
+		if (tokens != null) {
+			endToken();
+		}
+	}
+
+	/**
+	 * Retrieves the beginning of the text.
+	 * @return at most the maximum number of characters of the
+	 * preview.
+	 */
+	public String getPreview() {
+		return preview.toString();
+	}
+
+	/**
+	 * Checks whether the text was longer than the preview.
+	 * @return <code>true</code> if only a part of the text was kept.
+	 */
+	public boolean isTruncated() {
+		return length > preview.length();
+	}
+
+	/**
+	 * Retrieves the number of characters written.
+	 * @return the length of the whole text.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Retrieves the frequencies of the tokens of the text. The
+	 * writer must have been closed.
+	 * @return the frequency of each distinct lower case token, or
+	 * <code>null</code> if tokens were not collected.
+	 */
+	public Map<String, int[]> getTokenFrequencies() {
+		return tokens;
+	}
+} // end class CountingWriter
\ No newline at end of file
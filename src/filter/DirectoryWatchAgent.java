@@ -0,0 +1,500 @@
+package filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import agent.Agent;
+import agent.AgentEvent;
+import agent.AgentState;
+
+/**
+ * The <code>DirectoryWatchAgent</code> class implements an agent that
+ * watches a spool directory and loads the articles that are put into
+ * it, including those in its sub-directories.<br>
+ * A watch thread records the files that are created or modified.
+ * A file is loaded once no event has been received for it during the
+ * quiet time, so that a file still being copied is not read too
+ * early. Every timer pop, the files that became quiet are loaded as a
+ * batch through an {@link IngestionPipeline}, scored into the
+ * {@link ScoreIndex} and sent to the listeners of the agent with the
+ * action <code>addArticles</code>.<br>
+ * Each file is loaded once: a file that is modified after it was
+ * loaded is ignored. A file that is deleted or moved out of the
+ * directory is forgotten, so that a new file reusing its name is
+ * loaded.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class DirectoryWatchAgent extends Agent {
+	/** Serial version. */
+	private static final long serialVersionUID = 1L;
+
+	/** The default time without events before a file is loaded. */
+	public static final int DEFAULT_QUIET_TIME = 2000; // 2 seconds
+
+	/** The default maximum number of files loaded at a time. */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+	/** The directory that is watched, <code>null</code> if none. */
+	protected File directory;
+
+	/** The time without events before a file is loaded (ms). */
+	protected int quietTime = DEFAULT_QUIET_TIME;
+
+	/** The maximum number of files loaded at a time. */
+	protected int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	/** The agent counting the keywords of the loaded articles. */
+	transient protected FilterAgent filterAgent;
+
+	/** The index scoring the loaded articles. */
+	transient protected ScoreIndex scoreIndex;
+
+	/** The service watching the directory tree. */
+	transient private WatchService watchService;
+
+	/** The directory watched by each watch key. */
+	transient private Map<WatchKey, Path> watchedDirs;
+
+	/** The thread waiting for file events. */
+	transient private Thread watchThread;
+
+	/** The time of the last event of each file waiting to be loaded. */
+	transient private LinkedHashMap<File, Long> pendingFiles;
+
+	/** The files that have been loaded. */
+	transient private Set<File> loadedFiles;
+
+	/** The number of articles loaded since the directory is watched. */
+	transient private int numLoaded;
+
+	/**
+	 * Creates a <code>DirectoryWatchAgent</code> with the default
+	 * name <code>DirectoryWatchAgent</code>.
+	 */
+	public DirectoryWatchAgent() {
+		this("DirectoryWatchAgent");
+	}
+
+	/**
+	 * Creates a <code>DirectoryWatchAgent</code> with the given name.
+	 * @param name the name of the agent to be created.
+	 */
+	public DirectoryWatchAgent(String name) {
+		super(name);
+	}
+
+	/**
+	 * Retrieves the task description used for display purposes.
+	 * @return the task description of the agent.
+	 */
+	@Override
+	public String getTaskDescription() {
+		return "Watch a directory";
+	}
+
+	/**
+	 * Initializes the agent by setting up the sleep time and state.
+	 */
+	@Override
+	public void initialize() {
+		setSleepTime(1000); // every second
+		setState(AgentState.INITIATED);
+	}
+
+	/**
+	 * Does nothing.
+	 */
+	@Override
+	public void process() {
+	}
+
+	/**
+	 * Loads the files that have been quiet for the quiet time.
+	 */
+	@Override
+	public void processTimerPop() {
+		List<File> files = takeQuietFiles();
+
+		if (!files.isEmpty()) {
+			loadFiles(files);
+		}
+	}
+
+	/**
+	 * Starts watching a directory. The files already in the
+	 * directory are loaded too.
+	 * @param directory the directory to be watched.
+	 * @throws IOException if the directory cannot be watched.
+	 */
+	public synchronized void watch(File directory) throws IOException {
+		stopWatching();
+
+		final WatchService service = FileSystems.getDefault().newWatchService();
+
+		this.directory = directory;
+		watchService = service;
+		watchedDirs = new HashMap<>();
+		pendingFiles = new LinkedHashMap<>();
+		loadedFiles = new HashSet<>();
+		numLoaded = 0;
+
+		try {
+			registerTree(directory.toPath());
+		} catch (IOException e) {
+			stopWatching();
+			throw e;
+		}
+
+		watchThread = new Thread(name + " watch") {
+			@Override
+			public void run() {
+				watchEvents(service);
+			}
+		};
+		watchThread.setDaemon(true);
+		watchThread.start();
+
+		trace(name + ": watching " + directory);
+	}
+
+	/**
+	 * Stops watching the directory. The files waiting to be loaded
+	 * are dropped.
+	 */
+	public synchronized void stopWatching() {
+		if (watchService == null) {
+			return;
+		}
+
+		try {
+			watchService.close(); // ends the watch thread
+		} catch (IOException e) {
+			trace("Error: cannot close the watch service - " + e);
+		}
+
+		watchService = null;
+		watchThread = null;
+		pendingFiles.clear();
+
+		trace(name + ": stopped watching " + directory);
+	}
+
+	/**
+	 * Checks whether a directory is being watched.
+	 * @return <code>true</code> if the agent watches a directory.
+	 */
+	public synchronized boolean isWatching() {
+		return watchService != null;
+	}
+
+	/**
+	 * Registers a directory and all its sub-directories with the
+	 * watch service, and queues the files they already contain.
+	 * @param root the root of the directory tree.
+	 * @throws IOException if a directory cannot be registered.
+	 */
+	private void registerTree(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir,
+					BasicFileAttributes attrs) throws IOException {
+				WatchKey key = dir.register(watchService,
+						StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY,
+						StandardWatchEventKinds.ENTRY_DELETE);
+
+				watchedDirs.put(key, dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) {
+				addPendingFile(file.toFile());
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Waits for file events and records the files that are created
+	 * or modified, and forgets those that are deleted, until the
+	 * watch service is closed.
+	 * @param service the watch service.
+	 */
+	private void watchEvents(WatchService service) {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+
+				synchronized (this) {
+					if (service != watchService) {
+						return; // watching another directory
+					}
+
+					Path dir = watchedDirs.get(key);
+
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							// events were lost, look for new files
+							rescan();
+							continue;
+						}
+
+						Path path = dir.resolve((Path) event.context());
+
+						if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+							forgetFiles(path.toFile());
+						} else if (Files.isDirectory(path)) {
+							if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+								registerTreeQuietly(path);
+							}
+						} else {
+							addPendingFile(path.toFile());
+						}
+					}
+
+					if (!key.reset()) {
+						watchedDirs.remove(key); // the directory was deleted
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// the directory is no longer watched
+		}
+	}
+
+	/**
+	 * Registers a new directory tree, reporting failures.
+	 * @param root the root of the directory tree.
+	 */
+	private void registerTreeQuietly(Path root) {
+		try {
+			registerTree(root);
+		} catch (IOException e) {
+			trace("Error: cannot watch " + root + " - " + e);
+		}
+	}
+
+	/**
+	 * Forgets the loaded files that no longer exist, since their
+	 * deletion may be among the lost events, and queues the files of
+	 * the whole directory tree that have not been loaded.
+	 */
+	private void rescan() {
+		for (Iterator<File> it = loadedFiles.iterator(); it.hasNext(); ) {
+			if (!it.next().exists()) {
+				it.remove();
+			}
+		}
+
+		registerTreeQuietly(directory.toPath());
+	}
+
+	/**
+	 * Forgets a deleted file, or all files of a deleted directory, so
+	 * that a new file with the same name is loaded.
+	 * @param deleted the deleted file or directory.
+	 */
+	private synchronized void forgetFiles(File deleted) {
+		pendingFiles.remove(deleted);
+
+		if (loadedFiles.remove(deleted)) {
+			return; // a loaded file
+		}
+
+		// the path may be a directory, whose events are not received
+		// for the files it held when it is moved away
+		Path dir = deleted.toPath();
+
+		for (Iterator<File> it = loadedFiles.iterator(); it.hasNext(); ) {
+			if (it.next().toPath().startsWith(dir)) {
+				it.remove();
+			}
+		}
+
+		for (Iterator<File> it = pendingFiles.keySet().iterator(); it.hasNext(); ) {
+			if (it.next().toPath().startsWith(dir)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Records an event of a file. The quiet time of the file starts
+	 * again.
+	 * @param file the file that was created or modified.
+	 */
+	private synchronized void addPendingFile(File file) {
+		if (Article.typeOfFile(file.getName()) == -1 ||
+				loadedFiles.contains(file)) {
+			return;
+		}
+
+		// move the file to the end of the queue
+		pendingFiles.remove(file);
+		pendingFiles.put(file, System.currentTimeMillis());
+	}
+
+	/**
+	 * Removes the files that have been quiet for the quiet time from
+	 * the queue.
+	 * @return at most the maximum batch size of files to be loaded.
+	 */
+	private synchronized List<File> takeQuietFiles() {
+		List<File> files = new ArrayList<>();
+
+		if (pendingFiles == null) {
+			return files;
+		}
+
+		long quietSince = System.currentTimeMillis() - quietTime;
+		Iterator<Map.Entry<File, Long>> it = pendingFiles.entrySet().iterator();
+
+		// the queue is in the order of the last events
+		while (it.hasNext() && files.size() < maxBatchSize) {
+			Map.Entry<File, Long> entry = it.next();
+
+			if (entry.getValue() > quietSince) {
+				break;
+			}
+
+			it.remove();
+
+			if (entry.getKey().isFile()) {
+				files.add(entry.getKey());
+				loadedFiles.add(entry.getKey());
+			}
+		}
+
+		return files;
+	}
+
+	/**
+	 * Loads and scores a batch of files, then sends the articles to
+	 * the listeners of the agent.
+	 * @param files the files to be loaded.
+	 */
+	protected void loadFiles(List<File> files) {
+		final Vector<Article> articles = new Vector<>();
+		IngestionPipeline pipeline = new IngestionPipeline(filterAgent);
+
+		try {
+			pipeline.run(files.toArray(new File[files.size()]),
+					new IngestionPipeline.Sink() {
+				@Override
+				public void accept(Article article, Map<String, int[]> tokens) {
+					if (tokens != null) {
+						scoreIndex.add(article, tokens);
+					} else {
+						scoreIndex.add(article);
+					}
+
+					articles.addElement(article);
+				}
+			});
+		} catch (InterruptedException e) {
+			trace("Error: loading files was interrupted");
+		}
+
+		if (!articles.isEmpty()) {
+			synchronized (this) {
+				numLoaded += articles.size();
+			}
+
+			notifyAgentEventListeners(
+					new AgentEvent(this, "addArticles", articles));
+		}
+	}
+
+	/**
+	 * Retrieves the directory that is watched.
+	 * @return the watched directory, or <code>null</code> if none.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Retrieves the time without events before a file is loaded.
+	 * @return the quiet time in milliseconds.
+	 */
+	public int getQuietTime() {
+		return quietTime;
+	}
+
+	/**
+	 * Sets the time without events before a file is loaded.
+	 * @param quietTime the quiet time in milliseconds.
+	 */
+	public void setQuietTime(int quietTime) {
+		this.quietTime = quietTime;
+	}
+
+	/**
+	 * Retrieves the maximum number of files loaded at a time.
+	 * @return the maximum batch size.
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Sets the maximum number of files loaded at a time.
+	 * @param maxBatchSize the maximum batch size.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Sets the agent counting the keywords of the loaded articles.
+	 * @param filterAgent the filter agent.
+	 */
+	public void setFilterAgent(FilterAgent filterAgent) {
+		this.filterAgent = filterAgent;
+	}
+
+	/**
+	 * Sets the index scoring the loaded articles.
+	 * @param scoreIndex the score index.
+	 */
+	public void setScoreIndex(ScoreIndex scoreIndex) {
+		this.scoreIndex = scoreIndex;
+	}
+
+	/**
+	 * Retrieves the number of articles loaded since the directory
+	 * is watched.
+	 * @return the number of loaded articles.
+	 */
+	public synchronized int getNumLoaded() {
+		return numLoaded;
+	}
+} // end class DirectoryWatchAgent
\ No newline at end of file
@@ -0,0 +1,704 @@
+package filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The <code>ExtractedTextCache</code> class keeps the text extracted
+ * from PDF, MS Word and PowerPoint files on disk, so that a document
+ * that was already loaded is not parsed again by PDFBox or POI.<br>
+ * Each document has an entry file in the cache directory, named after
+ * a hash of the absolute path of the document. An entry holds:
+ * <ul>
+ * <li>a header with the absolute path, the size, the last modified
+ * time and the SHA-1 hash of the contents of the document
+ * <li>the extracted text in UTF-8, compressed by <i>deflate</i>
+ * </ul>
+ * An entry is used as it is when the size and the last modified time
+ * of the document are unchanged. When only the time changed (e.g. the
+ * document was copied or touched), the contents of the document are
+ * hashed again and the entry is still used if the hashes match. The
+ * new time is then written to the header, so that the document is
+ * not hashed again the next time.<br>
+ * The total size of the entries is bounded: the least recently used
+ * entries are deleted first. The order of use survives restarts since
+ * the last modified time of an entry file is the time it was last
+ * used.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ExtractedTextCache {
+	/** The first bytes of an entry file. */
+	private static final int MAGIC = 0x49465443; // "IFTC"
+
+	/** The version of the format of entry files. */
+	private static final int FORMAT_VERSION = 1;
+
+	/** The extension of entry files. */
+	private static final String ENTRY_EXTENSION = ".cache";
+
+	/** The extension of entry files being written. */
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	/** The default maximum total size of the entries, in bytes. */
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	/** The cache used by {@link Utilities}, <code>null</code> if
+	 * extracted text is not cached. */
+	private static ExtractedTextCache defaultCache;
+
+	/** Set once the default cache has been opened. */
+	private static boolean defaultOpened = false;
+
+	/** The directory of the entry files. */
+	private final File directory;
+
+	/** The maximum total size of the entries, in bytes. */
+	private final long maxBytes;
+
+	/** The size of each entry file, from the least recently used. */
+	private final LinkedHashMap<String, Long> entries =
+			new LinkedHashMap<>(16, 0.75f, true);
+
+	/** The total size of the entry files, in bytes. */
+	private long numBytes = 0;
+
+	/** Statistics of use. */
+	private int hits = 0;
+	private int misses = 0;
+
+	/**
+	 * Opens a cache. Entry files already in the directory are kept,
+	 * and entry files left over by an interrupted write are deleted.
+	 * @param directory the directory of the entry files, created if
+	 * it does not exist.
+	 * @param maxBytes the maximum total size of the entries, in bytes.
+	 * @throws IOException if the directory cannot be created.
+	 */
+	public ExtractedTextCache(File directory, long maxBytes) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create the directory " + directory);
+		}
+
+		File[] files = directory.listFiles();
+
+		if (files == null) {
+			throw new IOException("cannot list the directory " + directory);
+		}
+
+		// the least recently used entries first
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+
+		for (File file : files) {
+			String name = file.getName();
+
+			if (name.endsWith(ENTRY_EXTENSION)) {
+				entries.put(name, file.length());
+				numBytes += file.length();
+			} else if (name.endsWith(TEMP_EXTENSION)) {
+				file.delete();
+			}
+		}
+
+		evict();
+	}
+
+	/**
+	 * Retrieves the cache used by {@link Utilities}. It is opened in
+	 * the directory {@link Constants#textCacheDirName} the first time.
+	 * @return the default cache, or <code>null</code> if it cannot
+	 * be opened.
+	 */
+	public static synchronized ExtractedTextCache getDefault() {
+		if (!defaultOpened) {
+			defaultOpened = true;
+
+			try {
+				defaultCache = new ExtractedTextCache(
+						new File(Constants.textCacheDirName), DEFAULT_MAX_BYTES);
+			} catch (IOException e) {
+				System.out.println("Error: cannot open the text cache - " + e);
+			}
+		}
+
+		return defaultCache;
+	}
+
+	/**
+	 * Replaces the cache used by {@link Utilities}.
+	 * @param cache the new default cache, or <code>null</code> to
+	 * stop caching extracted text.
+	 */
+	public static synchronized void setDefault(ExtractedTextCache cache) {
+		defaultCache = cache;
+		defaultOpened = true;
+	}
+
+	/**
+	 * Retrieves the cached text of a document.
+	 * @param filePath the path of the document.
+	 * @return the extracted text, or <code>null</code> if the text of
+	 * the document is not cached or is out of date.
+	 */
+	public String get(String filePath) {
+		final StringBuilder text = new StringBuilder();
+
+		try {
+			boolean found = write(filePath, new Writer() {
+				@Override
+				public void write(char[] chars, int offset, int len) {
+					text.append(chars, offset, len);
+				}
+
+				@Override
+				public void flush() {
+				}
+
+				@Override
+				public void close() {
+				}
+			});
+
+			return found ? text.toString() : null;
+		} catch (IOException e) {
+			return null; // the damaged entry was deleted
+		}
+	}
+
+	/**
+	 * Writes the cached text of a document to a writer in chunks.
+	 * @param filePath the path of the document.
+	 * @param out the writer receiving the text.
+	 * @return <code>true</code> if the text was written,
+	 * <code>false</code> if the text of the document is not cached or
+	 * is out of date, in which case nothing was written.
+	 * @throws IOException if the entry is damaged or the text cannot
+	 * be written, after a part of the text may have been written.
+	 */
+	public boolean write(String filePath, Writer out) throws IOException {
+		File document = new File(filePath).getAbsoluteFile();
+		String name = entryName(document);
+		File entryFile = new File(directory, name);
+		boolean touched = false;
+		DataInputStream in;
+
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(entryFile)));
+		} catch (IOException e) {
+			return miss(name, null); // no entry
+		}
+
+		try {
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ||
+						!in.readUTF().equals(document.getPath())) {
+					return miss(name, entryFile);
+				}
+
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				byte[] hash = new byte[in.readUnsignedByte()];
+
+				in.readFully(hash);
+
+				if (size != document.length()) {
+					return miss(name, entryFile);
+				}
+
+				// a new time does not mean new contents
+				if (lastModified != document.lastModified()) {
+					if (!Arrays.equals(hash, hashOf(document))) {
+						return miss(name, entryFile);
+					}
+
+					touched = true;
+				}
+			} catch (IOException e) {
+				return miss(name, entryFile); // a damaged header
+			}
+
+			Reader reader = new InputStreamReader(
+					new InflaterInputStream(in), StandardCharsets.UTF_8);
+			char[] chars = new char[8192];
+
+			try {
+				for (int n; (n = reader.read(chars)) != -1; ) {
+					out.write(chars, 0, n);
+				}
+			} catch (IOException e) {
+				miss(name, entryFile);
+				throw e;
+			}
+		} finally {
+			in.close();
+		}
+
+		synchronized (this) {
+			hits++;
+
+			if (entries.get(name) != null) {
+				if (touched) {
+					updateLastModified(entryFile, document.lastModified());
+				}
+
+				entryFile.setLastModified(System.currentTimeMillis());
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes a new last modified time of the document in the header
+	 * of its entry, after the contents of the document were found
+	 * unchanged.
+	 * @param entryFile the entry file.
+	 * @param lastModified the last modified time of the document.
+	 */
+	private void updateLastModified(File entryFile, long lastModified) {
+		try (RandomAccessFile file = new RandomAccessFile(entryFile, "rw")) {
+			file.seek(8); // after the magic number and the version
+
+			int pathLength = file.readUnsignedShort();
+
+			file.seek(10 + pathLength + 8); // after the path and the size
+			file.writeLong(lastModified);
+		} catch (IOException e) {
+			// the document is hashed again the next time
+		}
+	}
+
+	/**
+	 * Records a miss, deleting an entry that is out of date.
+	 * @param name the name of the entry file.
+	 * @param entryFile the entry file to be deleted, or
+	 * <code>null</code> to keep it.
+	 * @return <code>false</code>.
+	 */
+	private synchronized boolean miss(String name, File entryFile) {
+		misses++;
+
+		if (entryFile != null) {
+			Long length = entries.remove(name);
+
+			if (length != null) {
+				numBytes -= length;
+			}
+
+			entryFile.delete();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Caches the text extracted from a document.
+	 * @param filePath the path of the document.
+	 * @param text the text extracted from the document.
+	 */
+	public void put(String filePath, String text) {
+		Entry entry = newEntry(filePath, null);
+
+		try {
+			entry.write(text);
+			entry.commit();
+		} catch (IOException e) {
+			System.out.println("Error: cannot cache the text of " +
+					filePath + " - " + e);
+		} finally {
+			entry.close();
+		}
+	}
+
+	/**
+	 * Creates an entry for the text of a document that is extracted
+	 * in pieces. The text written to the entry is also written to
+	 * another writer, so it can be cached while it is streamed.
+	 * The entry must be committed once the whole text is written,
+	 * and closed in any case:
+	 * <pre>
+	 * Entry entry = cache.newEntry(filePath, out);
+	 * try {
+	 *     ... write the text to entry ...
+	 *     entry.commit();
+	 * } finally {
+	 *     entry.close();
+	 * }
+	 * </pre>
+	 * @param filePath the path of the document.
+	 * @param out the writer also receiving the text, or
+	 * <code>null</code>.
+	 * @return the new entry.
+	 */
+	public Entry newEntry(String filePath, Writer out) {
+		return new Entry(new File(filePath).getAbsoluteFile(), out);
+	}
+
+	/**
+	 * The <code>Entry</code> class is a writer compressing the text
+	 * of a document into a temporary file, which replaces the entry
+	 * of the document when it is committed.
+	 */
+	public class Entry extends Writer {
+		/** The document whose text is written. */
+		private final File document;
+
+		/** The writer also receiving the text, <code>null</code> if none. */
+		private final Writer out;
+
+		/** The size and the time of the document before it is read. */
+		private final long size;
+		private final long lastModified;
+
+		/** The temporary file, <code>null</code> if it cannot be written. */
+		private File tempFile;
+
+		/** The writer compressing the text into the temporary file. */
+		private Writer compressed;
+
+		/**
+		 * Creates an entry.
+		 * @param document the document whose text is written.
+		 * @param out the writer also receiving the text, or
+		 * <code>null</code>.
+		 */
+		private Entry(File document, Writer out) {
+			this.document = document;
+			this.out = out;
+
+			size = document.length();
+			lastModified = document.lastModified();
+
+			try {
+				byte[] hash = hashOf(document);
+
+				tempFile = File.createTempFile("entry", TEMP_EXTENSION, directory);
+
+				DataOutputStream header = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+				header.writeInt(MAGIC);
+				header.writeInt(FORMAT_VERSION);
+				header.writeUTF(document.getPath());
+				header.writeLong(size);
+				header.writeLong(lastModified);
+				header.writeByte(hash.length);
+				header.write(hash);
+
+				compressed = new OutputStreamWriter(
+						new DeflaterOutputStream(header), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				// the text is still written to the other writer
+				discard();
+			}
+		}
+
+		/**
+		 * Writes a piece of text.
+		 * @param chars the characters of the text.
+		 * @param offset the index of the first character to be written.
+		 * @param len the number of characters to be written.
+		 * @throws IOException if the other writer fails.
+		 */
+		@Override
+		public void write(char[] chars, int offset, int len) throws IOException {
+			if (out != null) {
+				out.write(chars, offset, len);
+			}
+
+			if (compressed != null) {
+				try {
+					compressed.write(chars, offset, len);
+				} catch (IOException e) {
+					discard();
+				}
+			}
+		}
+
+		/**
+		 * Writes a piece of text.
+		 * @param str the string containing the text.
+		 * @param offset the index of the first character to be written.
+		 * @param len the number of characters to be written.
+		 * @throws IOException if the other writer fails.
+		 */
+		@Override
+		public void write(String str, int offset, int len) throws IOException {
+			if (out != null) {
+				out.write(str, offset, len);
+			}
+
+			if (compressed != null) {
+				try {
+					compressed.write(str, offset, len);
+				} catch (IOException e) {
+					discard();
+				}
+			}
+		}
+
+		/**
+		 * Flushes the other writer.
+		 * @throws IOException if the other writer fails.
+		 */
+		@Override
+		public void flush() throws IOException {
+			if (out != null) {
+				out.flush();
+			}
+		}
+
+		/**
+		 * Stores the entry once the whole text has been written.
+		 * The entry is not stored if the document was modified
+		 * while it was read.
+		 * @throws IOException if the entry cannot be written.
+		 */
+		public void commit() throws IOException {
+			if (compressed == null) {
+				return;
+			}
+
+			if (document.length() != size ||
+					document.lastModified() != lastModified) {
+				discard();
+				return;
+			}
+
+			try {
+				compressed.close();
+			} catch (IOException e) {
+				compressed = null;
+				discard();
+				throw e;
+			}
+
+			compressed = null;
+			store(tempFile, new File(directory, entryName(document)));
+			tempFile = null;
+		}
+
+		/**
+		 * Deletes the temporary file if the entry was not committed.
+		 */
+		@Override
+		public void close() {
+			discard();
+		}
+
+		/**
+		 * Stops writing the temporary file and deletes it.
+		 */
+		private void discard() {
+			if (compressed != null) {
+				try {
+					compressed.close();
+				} catch (IOException e) {
+					// the file is deleted anyway
+				}
+
+				compressed = null;
+			}
+
+			if (tempFile != null) {
+				tempFile.delete();
+				tempFile = null;
+			}
+		}
+	} // end class Entry
+
+	/**
+	 * Moves a new entry file into place and evicts the least
+	 * recently used entries if the cache is full.
+	 * @param newFile the new entry file.
+	 * @param entryFile the final entry file.
+	 */
+	private synchronized void store(File newFile, File entryFile) {
+		String name = entryFile.getName();
+		long length = newFile.length();
+
+		// an entry larger than the cache is not kept
+		if (length > maxBytes) {
+			newFile.delete();
+			return;
+		}
+
+		try {
+			Files.move(newFile.toPath(), entryFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			newFile.delete();
+			return;
+		}
+
+		Long oldLength = entries.put(name, length);
+
+		numBytes += length - ((oldLength == null) ? 0 : oldLength);
+		evict();
+	}
+
+	/**
+	 * Deletes the least recently used entries until the total size
+	 * of the entries is within the maximum size.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+
+		while (numBytes > maxBytes && it.hasNext()) {
+			Map.Entry<String, Long> eldest = it.next();
+
+			new File(directory, eldest.getKey()).delete();
+			numBytes -= eldest.getValue();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Deletes all entries.
+	 */
+	public synchronized void clear() {
+		for (String name : entries.keySet()) {
+			new File(directory, name).delete();
+		}
+
+		entries.clear();
+		numBytes = 0;
+	}
+
+	/**
+	 * Retrieves the number of entries.
+	 * @return the number of cached documents.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Retrieves the total size of the entries.
+	 * @return the number of bytes used by the cache.
+	 */
+	public synchronized long getNumBytes() {
+		return numBytes;
+	}
+
+	/**
+	 * Retrieves the number of documents whose text was found in the
+	 * cache.
+	 * @return the number of hits.
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Retrieves the number of documents whose text had to be
+	 * extracted.
+	 * @return the number of misses.
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Computes the name of the entry file of a document.
+	 * @param document the absolute path of the document.
+	 * @return the hexadecimal SHA-1 hash of the path followed by the
+	 * extension of entry files.
+	 */
+	private static String entryName(File document) {
+		byte[] hash = newDigest().digest(
+				document.getPath().getBytes(StandardCharsets.UTF_8));
+
+		return toHex(hash) + ENTRY_EXTENSION;
+	}
+
+	/**
+	 * Computes the SHA-1 hash of the contents of a file.
+	 * @param file the file to be hashed.
+	 * @return the hash of the file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static byte[] hashOf(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[64 * 1024];
+
+		try (InputStream in = new FileInputStream(file)) {
+			for (int n; (n = in.read(buffer)) != -1; ) {
+				digest.update(buffer, 0, n);
+			}
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Creates a SHA-1 message digest.
+	 * @return a new message digest.
+	 */
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Converts bytes into a hexadecimal string.
+	 * @param bytes the bytes to be converted.
+	 * @return two hexadecimal digits for each byte.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(2 * bytes.length);
+
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return hex.toString();
+	}
+
+	/**
+	 * Returns basic information about the cache.
+	 */
+	public String toString() {
+		return "Extracted Text Cache: " + size() + " documents, " +
+				getNumBytes() + " bytes, " + getHits() + " hits, " +
+				getMisses() + " misses";
+	}
+} // end class ExtractedTextCache
\ No newline at end of file
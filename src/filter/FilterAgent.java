@@ -10,17 +10,22 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Arrays;
-import java.util.Hashtable;
 import java.util.List;
-import java.util.StringTokenizer;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import agent.Agent;
 import agent.AgentEvent;
 import agent.AgentState;
 import learn.BackProp;
+import learn.ConvergenceMonitor;
+import learn.DataMatrix;
 import learn.DataSet;
 import learn.KMapNet;
+import learn.ParallelTrainer;
+import learn.TraceLevel;
 
 /**
  * The <code>FilterAgent</code> class implements an agent that is
@@ -38,17 +43,47 @@ public class FilterAgent extends Agent {
 	/** Serial version. */
 	private static final long serialVersionUID = 1L;
 
-	/** A reference to the owning <code>InfoFilterFrame</code>. */
-	transient InfoFilterFrame infoFilter;
-
-	/** Holds keywords specified by user. */
+	/** Holds keywords specified by user. A keyword is either a
+	 * single word or a phrase of words separated by spaces. */
 	protected String[] keywords;
 
+	/** The automaton compiled from {@link #keywords} that is used
+	 * to count keyword frequencies in the body of articles. It is
+	 * rebuilt whenever the keywords change or the agent is restored
+	 * from a serialized file. */
+	protected transient volatile KeywordMatcher keywordMatcher;
+
 	/** The Kohonen map neural network for clustering articles. */
-	protected KMapNet clusterNet;
+	protected volatile KMapNet clusterNet;
 
 	/** The back propagation neural network for rating articles. */
-	protected BackProp ratingNet;
+	protected volatile BackProp ratingNet;
+
+	/** Generates the versions of keyword lists and neural networks.
+	 * Versions are unique among all filter agents, and never 0,
+	 * which marks an article score that was never computed. */
+	private static final AtomicInteger versions = new AtomicInteger();
+
+	/** The version of {@link #keywords}, 0 if not yet assigned. */
+	private transient int keywordsVersion;
+
+	/** The list of keywords before the last change, so that the
+	 * counts of unchanged keywords can be reused. */
+	private transient String[] previousKeywords;
+
+	/** The version of {@link #previousKeywords}, 0 if none. */
+	private transient int previousKeywordsVersion;
+
+	/** The version of {@link #ratingNet}. */
+	private transient volatile int ratingNetVersion = nextVersion();
+
+	/** The version of {@link #clusterNet}. */
+	private transient volatile int clusterNetVersion = nextVersion();
+
+	/** The topic profiles articles are also scored against in the
+	 * multi-profile mode, <code>null</code> in the single profile
+	 * mode. */
+	protected transient volatile ProfileSet profileSet;
 
 	/** Indicates whether the two neural networks will be built. */
 	protected boolean buildNeuralNetworks;
@@ -60,6 +95,54 @@ public class FilterAgent extends Agent {
 	 * object of a filter agent. */
 	public static final String fileName = "filterAgent.ser";
 
+	/** The number of clusters (2 rows * 2 columns) of the Kohonen
+	 * map neural network. */
+	public static final int NUM_CLUSTERS = 4;
+
+	/** The number of records of a mini-batch when the back
+	 * propagation neural network is trained, shared by the workers
+	 * of a training step. */
+	public static final int RATING_BATCH_SIZE = 16;
+
+	/** The minimum number of records of the shard of each worker
+	 * training the back propagation neural network. */
+	public static final int RATING_RECORDS_PER_WORKER = 1000;
+
+	/** The number of inputs from which the back propagation neural
+	 * network has two hidden layers, of as many units as inputs and
+	 * of half as many, instead of one of twice as many units. */
+	public static final int DEEP_RATING_NET_INPUTS = 100;
+
+	/** The maximum number of training passes of the back propagation
+	 * neural network. */
+	public static final int MAX_RATING_PASSES = 2500;
+
+	/** The number of passes without improvement of the validation
+	 * error after which the back propagation neural network stops
+	 * training. */
+	public static final int RATING_PATIENCE = 400;
+
+	/** The maximum number of training passes of the Kohonen map
+	 * neural network. */
+	public static final int MAX_CLUSTER_PASSES = 1000;
+
+	/** The number of passes without improvement of the validation
+	 * error after which the Kohonen map neural network stops
+	 * training. */
+	public static final int CLUSTER_PATIENCE = 100;
+
+	/** The number of passes over which the learn rate and the
+	 * neighborhood width of the Kohonen map neural network shrink,
+	 * before which its training does not stop. */
+	public static final int CLUSTER_SCHEDULE_PASSES = 250;
+
+	/** The number of records of the data set per record held out to
+	 * validate the training of the neural networks. */
+	public static final int VALIDATION_INTERVAL = 10;
+
+	/** The time budget of the training of each neural network (ms). */
+	public static final long TRAINING_TIME_BUDGET = 10 * 60 * 1000L;
+
 	public static final int USE_KEYWORDS = 0;
 	public static final int USE_CLUSTERS = 1;
 	public static final int USE_PREDICTED_RATING = 2;
@@ -152,6 +235,10 @@ public class FilterAgent extends Agent {
 					+ "and user ratings of training articles");
 			DataSet dataSet = new DataSet(
 					"ProfileData", Constants.keyworsdFileName);
+
+			// the records are only traced when it was asked for
+			dataSet.setTraceLevel((traceLevel > 0) ?
+					TraceLevel.RECORDS : TraceLevel.SUMMARY);
 			dataSet.loadDataFile();
 
 			displayMSG("Training back propagation neural network");
@@ -175,19 +262,19 @@ public class FilterAgent extends Agent {
 			neuralNetworksTrained = false;
 			displayERR("Error occured while reading the file \"" +
 					Constants.keywordCountsFileName + "\"");
+		} catch (InterruptedException e) {
+			neuralNetworksTrained = false;
+			displayERR("The training of the neural networks was interrupted");
+			Thread.currentThread().interrupt(); // let the caller stop
 		} catch (Exception e) {
 			neuralNetworksTrained = false;
 			displayERR("Cannot train neural networks successfully - " + e);
 			e.printStackTrace();
 		}
 
-		if (neuralNetworksTrained) {
-			infoFilter.useFeedbackCheckBoxMenuItem.setEnabled(true);
-			infoFilter.useClustersCheckBoxMenuItem.setEnabled(true);
-		} else {
-			infoFilter.useFeedbackCheckBoxMenuItem.setEnabled(false);
-			infoFilter.useClustersCheckBoxMenuItem.setEnabled(false);
-		}
+		// let the GUI, if any, enable the filters using the networks
+		notifyAgentEventListeners(new AgentEvent(this,
+				"neuralNetworksTrained", neuralNetworksTrained));
 	}
 
 	/**
@@ -201,44 +288,85 @@ public class FilterAgent extends Agent {
 	 * in descending order with the score that is closest to 1.0 at
 	 * the top of the list and the score that is closest to 0.0 at
 	 * the bottom.
+	 * @throws InterruptedException if the training is interrupted.
 	 */
-	private void trainRatingNet(DataSet dataSet) {
-		// create a back propagation neural network
-		ratingNet = new BackProp("Back Propagation Neural Network");
-		ratingNet.setDataSet(dataSet); //TODO redundant
-		ratingNet.setNumRecs(dataSet.getNumRecords());
-		ratingNet.setFieldsPerRec(dataSet.getNormFieldsPerRec());
-		ratingNet.setData(dataSet.getNormalizedData());
+	private void trainRatingNet(DataSet dataSet)
+			throws InterruptedException {
+		// create a back propagation neural network, which is only
+		// published to the scoring threads once it is trained
+		BackProp net = new BackProp("Back Propagation Neural Network");
+		DataMatrix[] split = dataSet.getNormalizedMatrix()
+				.split(VALIDATION_INTERVAL);
+		DataMatrix validation = (split[1].getNumRows() > 0) ?
+				split[1] : split[0]; // too few records to hold out
+		net.setDataSet(dataSet); //TODO redundant
+		net.setNumRecs(split[0].getNumRows());
+		net.setFieldsPerRec(dataSet.getNormFieldsPerRec());
+		net.setData(split[0]);
 
 		//TODO understand + comment
 		int numOutputs = dataSet.getClassFieldSize();
-		int numInputs = ratingNet.getFieldsPerRec() - numOutputs; //TODO understand
-		ratingNet.createNetwork(numInputs, 2 * numInputs, numOutputs);
+		int numInputs = net.getFieldsPerRec() - numOutputs; //TODO understand
 
-		// train the network
-		int maxNumPasses = 2500; // default, could be changed on ap
-		int numRecs = ratingNet.getNumRecs();
+		if (numInputs >= DEEP_RATING_NET_INPUTS) {
+			// a single wide hidden layer does not converge on large
+			// keyword sets, and costs more per record
+			net.createNetwork(numInputs,
+					new int[] { numInputs, numInputs / 2 }, numOutputs);
+		} else {
+			net.createNetwork(numInputs, 2 * numInputs, numOutputs);
+		}
 
-		for (int i = 0; i < maxNumPasses; i++) {
-			for (int j = 0; j < numRecs; j++) {
-				ratingNet.process(); // train
-			}
+		// use a worker per processor for large data sets, each with
+		// its share of the mini-batch of a step
+		int numRecs = net.getNumRecs();
+		int numWorkers = Math.max(1, Math.min(
+				Runtime.getRuntime().availableProcessors(),
+				numRecs / RATING_RECORDS_PER_WORKER));
+		net.setBatchSize(Math.max(1, RATING_BATCH_SIZE / numWorkers));
+
+		// train the network until the validation error stops
+		// improving, and keep the weights of its best pass
+		ParallelTrainer trainer = new ParallelTrainer(net, numWorkers);
+		ConvergenceMonitor monitor = new ConvergenceMonitor(
+				MAX_RATING_PASSES, RATING_PATIENCE);
+		monitor.setTimeBudget(TRAINING_TIME_BUDGET);
+		double[] bestWeights = null;
+		boolean training;
 
-			// after each training pass, to enable the InfoFilter
-			// application to continue its processing, the
-			// FilterAgent thread is yielded
-			Thread.yield();
+		try {
+			do {
+				trainer.trainPass();
+				training = monitor.endPass(
+						net.computeRMSError(validation));
+
+				if (monitor.isBestPass()) {
+					bestWeights = net.copyWeights();
+				}
+
+				// after each training pass, to enable the InfoFilter
+				// application to continue its processing, the
+				// FilterAgent thread is yielded
+				Thread.yield();
+			} while (training);
+		} finally {
+			trainer.shutdown();
 		}
 
-		ratingNet.setMode(1); // lock the network
-		trace("\nBack Propagation Passes Completed: " + maxNumPasses +
-				",  RMS Error: " + ratingNet.getAveRMSError() + "\n");
+		net.restoreWeights(bestWeights);
+		net.setMode(1); // lock the network
+		trace("\nBack Propagation Passes Completed: " +
+				monitor.getNumPasses() + ",  RMS Error: " +
+				monitor.getBestError() + "\n" + monitor + "\n");
 
 		// a single pass is used to check results
 		for (int i = 0; i < numRecs; i++) {
-			ratingNet.process(); // test
-			//ratingNet.display_network();
+			net.process(); // test
+			//net.display_network();
 		}
+
+		ratingNetVersion = nextVersion();
+		ratingNet = net;
 	}
 
 	/**
@@ -247,41 +375,66 @@ public class FilterAgent extends Agent {
 	 * infofilter.dat</code> files are used as training data.
 	 */
 	private void trainClusterNet(DataSet dataSet) {
-		// create a Kohonen map neural network
-		clusterNet = new KMapNet("Kohonen Map Neural Network");
-		clusterNet.setDataSet(dataSet); //TODO redundant
-		clusterNet.setNumRecs(dataSet.getNumRecords());
-		clusterNet.setFieldsPerRec(dataSet.getFieldsPerRec());
-		clusterNet.setData(dataSet.getNormalizedData());
+		// create a Kohonen map neural network, which is only
+		// published to the scoring threads once it is trained
+		KMapNet net = new KMapNet("Kohonen Map Neural Network");
+		DataMatrix[] split = dataSet.getNormalizedMatrix()
+				.split(VALIDATION_INTERVAL);
+		DataMatrix validation = (split[1].getNumRows() > 0) ?
+				split[1] : split[0]; // too few records to hold out
+		net.setDataSet(dataSet); //TODO redundant
+		net.setNumRecs(split[0].getNumRows());
+		net.setFieldsPerRec(dataSet.getFieldsPerRec());
+		net.setData(split[0]);
 
 		// configure the Kohonen map neural network to have as many
 		// inputs as are defined in the infofilter.dat file and to
 		// have four (2 rows * 2 columns) outputs or clusters
-		clusterNet.createNetwork(clusterNet.getFieldsPerRec(), 2, 2);
+		net.createNetwork(net.getFieldsPerRec(), 2,
+				NUM_CLUSTERS / 2);
+
+		// train the network at least until its neighborhood has
+		// shrunk, then until the validation error stops improving,
+		// and keep the weights of its best pass
+		int numRecs = net.getNumRecs();
+		ConvergenceMonitor monitor = new ConvergenceMonitor(
+				MAX_CLUSTER_PASSES, CLUSTER_PATIENCE);
+		net.setMaxNumPasses(CLUSTER_SCHEDULE_PASSES);
+		monitor.setMinNumPasses(CLUSTER_SCHEDULE_PASSES);
+		monitor.setTimeBudget(TRAINING_TIME_BUDGET);
+		double[] bestWeights = null;
+		boolean training;
+
+		do {
+			for (int j = 0; j < numRecs; j++) {
+				net.cluster(); // train
+			}
 
-		// train the network
-		int maxNumPasses = 1000;
-		int numRecs = clusterNet.getNumRecs();
+			training = monitor.endPass(
+					net.computeQuantizationError(validation));
 
-		for (int i = 0; i < maxNumPasses; i++) {
-			for (int j = 0; j < numRecs; j++) {
-				clusterNet.cluster(); // train
+			if (monitor.isBestPass()) {
+				bestWeights = net.copyWeights();
 			}
 
 			// after each training pass, to enable the InfoFilter
 			// application to continue its processing, the
 			// FilterAgent thread is yielded
 			Thread.yield();
-		}
+		} while (training);
 
-		clusterNet.setMode(1); // lock the network weights
-		trace("\nKohonen Map Training Completed\n");
+		net.restoreWeights(bestWeights);
+		net.setMode(1); // lock the network weights
+		trace("\nKohonen Map Training Completed\n" + monitor + "\n");
 
 		// a single pass is used to check results
 		for (int i = 0; i < numRecs; i++) {
-			clusterNet.cluster(); // test
-			// clusterNet.display_network();
+			net.cluster(); // test
+			// net.display_network();
 		}
+
+		clusterNetVersion = nextVersion();
+		clusterNet = net;
 	}
 
 	/**
@@ -305,6 +458,11 @@ public class FilterAgent extends Agent {
 	 * Calculates the score of interestingness of each article
 	 * with respect to the corresponding filter type
 	 * (frequencies of keywords, back propagation net, Kohonen map).
+	 * Only the parts of the score that are out of date are
+	 * computed: the keyword counts are kept as long as the keywords
+	 * do not change, and the cluster and the predicted rating are
+	 * kept as long as the keyword counts, the user rating and the
+	 * corresponding neural network do not change.
 	 * @param article the article to be scored.
 	 * @param filterType the filter type (or filter method):<br>
 	 * <ul>
@@ -314,77 +472,257 @@ public class FilterAgent extends Agent {
 	 * </ul>
 	 */
 	protected void score(Article article, int filterType) {
-		article.counts = countWordMultiKeys(keywords, article.body);
-		int size = article.counts.length;
-		int sum = 0;
-
-		for (int i = 0; i < size; i++) {
-			sum += article.counts[i];
-		}
-
-		article.setKeywordScore(sum);
+		countKeywords(article);
 
 		// based on the filter type that the user wants
 		// fill in the score slot of each article
 		switch (filterType) {
 		case USE_KEYWORDS: // frequencies of keywords
-			article.setKeywordScore(sum);
 			break;
 
 		case USE_CLUSTERS: // Kohonen map
-			if (clusterNet != null) {
-				double[] inputRec = new double[size + 2];
+			findCluster(article);
+			break;
 
-				for (int i = 0; i < size; i++) {
-					inputRec[i] = (double) article.counts[i];
-				}
+		case USE_PREDICTED_RATING: // back propagation
+			predictRating(article);
+			break;
 
-				inputRec[size] = article.getKeywordScore();
-				inputRec[size + 1] = article.getRating();
+		default:
+			System.out.println("Error: Filter type is not valid");
+		}
+	}
 
-				article.setClusterId(clusterNet.getCluster(inputRec));
-			}
+	/**
+	 * Counts the keywords in the body of an article and sets its
+	 * keyword score, unless the counts are already up to date with
+	 * the current list of keywords. New counts also reset the user
+	 * rating of the article from its keyword score.
+	 * @param article the article whose keywords are counted.
+	 */
+	protected void countKeywords(Article article) {
+		int version;
+		ProfileSet profiles;
 
-			break;
+		synchronized (this) {
+			version = getKeywordsVersion();
+			profiles = profileSet;
+		}
 
-		case USE_PREDICTED_RATING: // back propagation
-			if (ratingNet != null) {
-				double[] inputRec = new double[size + 2];
+		boolean countsOutOfDate = (article.countsVersion != version);
+		boolean topicsOutOfDate = (profiles != null &&
+				!profiles.hasScored(article));
 
-				for (int i = 0; i < size; i++) {
-					inputRec[i] = article.counts[i];
-				}
+		if (!countsOutOfDate && !topicsOutOfDate) {
+			return;
+		}
 
-				inputRec[size] = article.getKeywordScore();
-				inputRec[size + 1] = article.getRating();
+		if (profiles == null) {
+			setCounts(article, countWordMultiKeys(article), version);
+			return;
+		}
 
-				article.setPredictedRating(ratingNet.getPrediction(inputRec));
-			}
+		// a single pass over the body counts the keywords of this
+		// agent and of all topic profiles
+		int[] allCounts = profiles.count(article);
 
-			break;
+		if (countsOutOfDate) {
+			setCounts(article, profiles.getOwnCounts(allCounts), version);
+		}
 
-		default:
-			System.out.println("Error: Filter type is not valid");
+		if (topicsOutOfDate) {
+			profiles.score(article, allCounts);
+		}
+	}
+
+	/**
+	 * Streams the text of an article from its file and counts its
+	 * keywords (and those of the topic profiles, if any) on the
+	 * fly. Only a preview of {@link Article#PREVIEW_LENGTH}
+	 * characters is kept as the body of the article, so a large
+	 * file never has to be held in memory as a whole.
+	 * @param article the article read from a file, with its
+	 * identifier and type set.
+	 * @return the frequency of each token of the text, for the
+	 * {@link InvertedIndex}.
+	 * @throws IOException if the file cannot be read.
+	 */
+	protected Map<String, int[]> countKeywordsOfFile(Article article)
+			throws IOException {
+		int version;
+		ProfileSet profiles;
+		KeywordMatcher.Counter counter;
+
+		synchronized (this) {
+			version = getKeywordsVersion();
+			profiles = profileSet;
+			counter = (profiles != null) ?
+					profiles.newCounter() : getKeywordMatcher().newCounter();
+		}
+
+		CountingWriter writer = new CountingWriter(counter,
+				Article.PREVIEW_LENGTH);
+		writer.collectTokens();
+
+		// the whole text is read from the file of the article
+		article.setPreview(null, true);
+		Utilities.writeContents(article, writer);
+		writer.close();
+		article.setPreview(writer.getPreview(), writer.isTruncated());
+
+		int[] counts = counter.finish();
+
+		if (profiles == null) {
+			setCounts(article, counts, version);
+		} else {
+			setCounts(article, profiles.getOwnCounts(counts), version);
+			profiles.score(article, counts);
+		}
+
+		return writer.getTokenFrequencies();
+	}
+
+	/**
+	 * Sets the keyword counts and the keyword score of an article,
+	 * and does an automatic feedback pass based on the score.
+	 * @param article the article whose counts are set.
+	 * @param counts the keyword counts of the article.
+	 * @param version the keywords version the counts belong to.
+	 */
+	protected void setCounts(Article article, int[] counts, int version) {
+		int size = counts.length;
+		int sum = 0;
+
+		for (int i = 0; i < size; i++) {
+			sum += counts[i];
 		}
 
+		article.counts = counts;
+		article.setKeywordScore(sum);
+
 		// do an automatic feedback pass automatically so that
 		// user doesn't have to do it for each article.
 		// user can override via feedback menu option
-		if (sum < 6) {
-			article.setUserRating(USELESS_RATING);
-		} else if (sum < 11) {
-			article.setUserRating(NOTVERY_RATING);
-		} else if (sum < 21) {
-			article.setUserRating(NEUTRAL_RATING);
-		} else if (sum < 61) {
-			article.setUserRating(MILDLY_RATING);
+		article.setUserRating(RATINGS[getFeedbackLevel(sum)]);
+
+		// the network outputs depend on the counts
+		article.clusterVersion = 0;
+		article.predictionVersion = 0;
+		article.countsVersion = version;
+	}
+
+	/**
+	 * Retrieves the level of the rating that the automatic feedback
+	 * pass gives to an article.
+	 * @param keywordScore the keyword score of the article.
+	 * @return the index of the rating in {@link #RATINGS}.
+	 */
+	protected static int getFeedbackLevel(int keywordScore) {
+		if (keywordScore < 6) {
+			return 0;
+		} else if (keywordScore < 11) {
+			return 1;
+		} else if (keywordScore < 21) {
+			return 2;
+		} else if (keywordScore < 61) {
+			return 3;
 		} else {
-			article.setUserRating(INTERESTING_RATING);
+			return 4;
 		}
 	}
 
+	/**
+	 * Finds the cluster of an article using the Kohonen map neural
+	 * network, unless it is already up to date.
+	 * @param article the article whose keywords were counted.
+	 */
+	protected void findCluster(Article article) {
+		KMapNet kmapNet = clusterNet;
+		int version = clusterNetVersion;
+
+		if (kmapNet == null || article.clusterVersion == version) {
+			return;
+		}
+
+		article.setClusterId(kmapNet.getCluster(getInputRecord(
+				article.counts, article.getKeywordScore(),
+				article.getRating())));
+		article.clusterVersion = version;
+	}
+
+	/**
+	 * Predicts the rating of an article using the back propagation
+	 * neural network, unless it is already up to date.
+	 * @param article the article whose keywords were counted.
+	 */
+	protected void predictRating(Article article) {
+		BackProp backPropNet = ratingNet;
+		int version = ratingNetVersion;
+
+		if (backPropNet == null || article.predictionVersion == version) {
+			return;
+		}
+
+		article.setPredictedRating(backPropNet.getPrediction(getInputRecord(
+				article.counts, article.getKeywordScore(),
+				article.getRating())));
+		article.predictionVersion = version;
+	}
+
+	/**
+	 * Predicts the rating of an article from its keyword counts
+	 * alone. The user rating input of the network is the rating
+	 * that the automatic feedback pass of this agent would give.
+	 * @param counts the counts of the keywords of this agent.
+	 * @return the predicted rating, or the automatic feedback
+	 * rating if the back propagation network was not trained.
+	 */
+	public double predictRating(int[] counts) {
+		int sum = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			sum += counts[i];
+		}
+
+		// the same values as Article.setUserRating gives the ratings
+		double rating = (double) getFeedbackLevel(sum) / (RATINGS.length - 1);
+		BackProp backPropNet = ratingNet;
+
+		if (backPropNet == null) {
+			return rating;
+		}
+
+		return backPropNet.getPrediction(getInputRecord(counts, sum, rating));
+	}
+
+	/**
+	 * Builds the input record of the neural networks for an article,
+	 * which has the same layout as a profile record: the keyword
+	 * counts, the keyword score and the user rating.
+	 * @param counts the keyword counts of the article.
+	 * @param keywordScore the sum of the keyword counts.
+	 * @param rating the numeric user rating of the article.
+	 * @return the input record.
+	 */
+	private static double[] getInputRecord(int[] counts, int keywordScore,
+			double rating) {
+		int size = counts.length;
+		double[] inputRec = new double[size + 2];
+
+		for (int i = 0; i < size; i++) {
+			inputRec[i] = counts[i];
+		}
+
+		inputRec[size] = keywordScore;
+		inputRec[size + 1] = rating;
+
+		return inputRec;
+	}
+
 	/**
 	 * Scores all loaded articles using the given filter type.
+	 * The articles are scored in parallel by a
+	 * {@link ScoreArticlesTask} on the common fork/join pool.
 	 * If the filter type is using Kohonen map neural network,
 	 * the average score of all articles that have the same
 	 * <code>clusterID</code> will be calculated.
@@ -397,18 +735,23 @@ public class FilterAgent extends Agent {
 	 * </ul>
 	 */
 	protected void score(Vector<Article> articles, int filterType) {
-		try {
-			for (int i = 0; i < articles.size(); i++) {
-				Article article = articles.get(i);
+		Article[] batch = articles.toArray(new Article[0]);
+		long[] clusterSums = null;
 
-				score(article, filterType);
-			}
+		try {
+			clusterSums = ForkJoinPool.commonPool().invoke(
+					new ScoreArticlesTask(this, batch, 0,
+							batch.length, filterType));
 		} catch (Exception e) {
 			trace("Error: Exception occured while scoring articles");
 		}
 
 		if (filterType == USE_CLUSTERS) {
-			computeClusterAverages(articles);
+			if (clusterSums != null) {
+				setClusterScores(Arrays.asList(batch), clusterSums);
+			} else {
+				computeClusterAverages(articles);
+			}
 		}
 	}
 
@@ -420,10 +763,7 @@ public class FilterAgent extends Agent {
 	 * score is set.
 	 */
 	protected void computeClusterAverages(List<Article> articles) {
-		int numClusters = 4; // we are using 4 for now
-		int sum[] = new int[numClusters];
-		int numArticles[] = new int[numClusters];
-		double avgs[] = new double[numClusters];
+		long[] clusterSums = new long[2 * NUM_CLUSTERS];
 
 		// compute raw match score sum and
 		// number of articles in each cluster
@@ -431,14 +771,32 @@ public class FilterAgent extends Agent {
 			Article article = articles.get(i);
 			int cluster = article.getClusterId();
 
-			sum[cluster] += article.getKeywordScore(); // sum of counts
-			numArticles[cluster]++;
+			clusterSums[cluster] += article.getKeywordScore(); // sum of counts
+			clusterSums[NUM_CLUSTERS + cluster]++;
 		}
 
+		setClusterScores(articles, clusterSums);
+	}
+
+	/**
+	 * Sets the cluster score for each article to the average score
+	 * of its cluster.
+	 * @param articles a list of articles for which the cluster
+	 * score is set.
+	 * @param clusterSums {@link #NUM_CLUSTERS} raw match score sums
+	 * followed by {@link #NUM_CLUSTERS} numbers of articles, one per
+	 * cluster.
+	 */
+	private void setClusterScores(List<Article> articles,
+			long[] clusterSums) {
+		double avgs[] = new double[NUM_CLUSTERS];
+
 		// compute average score for each cluster
-		for (int i = 0; i < numClusters; i++) {
-			if (numArticles[i] > 0) {
-				avgs[i] = (double) sum[i] / (double) numArticles[i];
+		for (int i = 0; i < NUM_CLUSTERS; i++) {
+			long numArticles = clusterSums[NUM_CLUSTERS + i];
+
+			if (numArticles > 0) {
+				avgs[i] = (double) clusterSums[i] / (double) numArticles;
 			} else {
 				avgs[i] = 0.0;
 			}
@@ -455,44 +813,45 @@ public class FilterAgent extends Agent {
 	}
 
 	/**
-	 * Counts the occurrence frequencies of keywords in the body
-	 * text of an article.
-	 * @param keys a list of keywords given by user.
-	 * @param body the body text of the article from which the
-	 * frequencies of keyword will be calculated.
+	 * Counts the occurrence frequencies of keywords in the text of
+	 * an article using the compiled {@link KeywordMatcher} of the
+	 * current list of keywords.
+	 * @param article the article whose text is scanned.
 	 * @return an array that contains occurrence frequencies of
 	 * corresponding keywords.
 	 */
-	private int[] countWordMultiKeys(String[] keys, String body) {
-		int[] counts = new int[keys.length];
-		StringTokenizer tokens = new StringTokenizer(body, " .?!,\"");
-		Hashtable<String, Integer> frequencies = new Hashtable<>();
-
-		// initialize frequencies of keywords as 0 at the beginning
-		for (String key : keys) {
-			frequencies.put(key, 0);
+	private int[] countWordMultiKeys(Article article) {
+		KeywordMatcher matcher = getKeywordMatcher();
+		int[] counts = matcher.count(article);
+
+		// tracing every keyword of every article is only worth
+		// its cost when it was asked for
+		if (traceLevel > 0) {
+			String[] keys = matcher.getKeywords();
+
+			for (int i = 0; i < keys.length; i++) {
+				trace("  key = " + keys[i] +
+						", frequency = " + counts[i] + "\n");
+			}
 		}
 
-		// calculate frequencies
-		while (tokens.hasMoreElements()) {
-			String token = tokens.nextToken().toLowerCase();
-			Integer f = frequencies.get(token);
+		return counts;
+	}
 
-			if (f == null) {
-				continue;
-			} else {
-				frequencies.put(token, f + 1);
-			}
-		}
+	/**
+	 * Retrieves the automaton compiled from the current list of
+	 * keywords, compiling it first if necessary.
+	 * @return the keyword matcher of this agent.
+	 */
+	protected KeywordMatcher getKeywordMatcher() {
+		KeywordMatcher matcher = keywordMatcher;
 
-		// copy frequencies of keywords from hash table to array
-		for (int i = 0; i < keys.length; i++) {
-			counts[i] = frequencies.get(keys[i]);
-			trace("  key = " + keys[i] +
-					", frequency = " + counts[i] + "\n");
+		if (matcher == null) {
+			matcher = new KeywordMatcher(keywords);
+			keywordMatcher = matcher;
 		}
 
-		return counts;
+		return matcher;
 	}
 
 	/**
@@ -509,7 +868,7 @@ public class FilterAgent extends Agent {
 
 			for (int i = 0; i < keywords.length; i++) {
 				out.write("continuous ");
-				out.write(keywords[i]);
+				out.write(getFieldName(keywords[i]));
 				out.newLine();
 			}
 
@@ -527,6 +886,18 @@ public class FilterAgent extends Agent {
 		}
 	}
 
+	/**
+	 * Converts a keyword to the field name used in the
+	 * <code>infofilter.dfn</code> file. Since {@link DataSet} reads
+	 * a field name as a single token, the words of a phrase keyword
+	 * are joined by underscores (e.g. <i>neural_network</i>).
+	 * @param keyword the keyword to be converted.
+	 * @return the field name of the keyword.
+	 */
+	protected static String getFieldName(String keyword) {
+		return keyword.trim().replaceAll("\\s+", "_");
+	}
+
 	/**
 	 * Deletes the file {@link Constants#keywordCountsFileName}
 	 * when the new list of keywords is save to the file
@@ -647,8 +1018,82 @@ public class FilterAgent extends Agent {
 	 * Sets the list of keywords given by user.
 	 * @param keywords the list of keywords to be set.
 	 */
-	public void setKeywords(String[] keywords) {
+	public synchronized void setKeywords(String[] keywords) {
+		previousKeywords = this.keywords;
+		previousKeywordsVersion = keywordsVersion;
 		this.keywords = keywords;
+		keywordMatcher = new KeywordMatcher(keywords);
+		keywordsVersion = nextVersion();
+
+		if (profileSet != null) {
+			profileSet = profileSet.withKeywords(keywords);
+		}
+	}
+
+	/**
+	 * Switches the agent to the multi-profile mode, in which every
+	 * article is also scored against a set of topic profiles and
+	 * routed to the topic it matches best, or back to the single
+	 * profile mode.
+	 * @param profiles the topic profiles, <code>null</code> or empty
+	 * for the single profile mode.
+	 */
+	public synchronized void setTopicProfiles(List<TopicProfile> profiles) {
+		if (profiles == null || profiles.isEmpty()) {
+			profileSet = null;
+		} else {
+			profileSet = new ProfileSet(keywords, profiles);
+		}
+	}
+
+	/**
+	 * Retrieves the topic profiles of the multi-profile mode.
+	 * @return the set of topic profiles, <code>null</code> in the
+	 * single profile mode.
+	 */
+	public ProfileSet getProfileSet() {
+		return profileSet;
+	}
+
+	/**
+	 * Retrieves the version of the list of keywords. The version
+	 * changes whenever the keywords change, so that the keyword
+	 * counts of articles can be checked for being up to date.
+	 * @return the version of the current list of keywords.
+	 */
+	public synchronized int getKeywordsVersion() {
+		if (keywordsVersion == 0) {
+			keywordsVersion = nextVersion();
+		}
+
+		return keywordsVersion;
+	}
+
+	/**
+	 * Retrieves the list of keywords that was replaced by the last
+	 * call of {@link #setKeywords(String[])}.
+	 * @return the previous list of keywords, <code>null</code> if
+	 * the keywords have not been changed.
+	 */
+	public synchronized String[] getPreviousKeywords() {
+		return previousKeywords;
+	}
+
+	/**
+	 * Retrieves the version of the previous list of keywords.
+	 * @return the version of {@link #getPreviousKeywords()}, 0 if
+	 * no article can have been counted with them.
+	 */
+	public synchronized int getPreviousKeywordsVersion() {
+		return previousKeywordsVersion;
+	}
+
+	/**
+	 * Generates a new version number.
+	 * @return a version number that has never been used.
+	 */
+	private static int nextVersion() {
+		return versions.incrementAndGet();
 	}
 
 	/**
@@ -683,6 +1128,22 @@ public class FilterAgent extends Agent {
 		return restoreAgent;
 	}
 
+	/**
+	 * Deserializes the agent and assigns new versions to its neural
+	 * networks, so that no article score is mistaken for being up
+	 * to date with them.
+	 * @param inputStream the stream from which the agent is read.
+	 * @throws IOException if any I/O error occurs.
+	 * @throws ClassNotFoundException if any class file is not found.
+	 */
+	private void readObject(ObjectInputStream inputStream)
+			throws IOException, ClassNotFoundException {
+		inputStream.defaultReadObject();
+
+		ratingNetVersion = nextVersion();
+		clusterNetVersion = nextVersion();
+	}
+
 	/**
 	 * Writes a serialized version of this <code>FilterAgent</code>
 	 * object to the specified file.
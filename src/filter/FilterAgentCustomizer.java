@@ -11,6 +11,8 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.beans.Customizer;
 import java.util.Vector;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.swing.GroupLayout;
 import javax.swing.JButton;
@@ -39,6 +41,11 @@ public class FilterAgentCustomizer extends JDialog implements Customizer {
 	/** Serial version. */
 	private static final long serialVersionUID = 1L;
 
+	/** Matches either a double-quoted phrase keyword or a single
+	 * keyword delimited by commas and spaces. */
+	private static final Pattern KEYWORD_PATTERN =
+			Pattern.compile("\"([^\"]*)\"|[^,\\s\"]+");
+
 	JTextField keywordTextField;
 	JList<String> keywordList;
 
@@ -133,7 +140,7 @@ public class FilterAgentCustomizer extends JDialog implements Customizer {
 		panel.setLayout(new GridLayout(4, 1, 0, 40));
 
 		JButton addButton = new JButton("Add");
-		addButton.setToolTipText("Add keyword");
+		addButton.setToolTipText("Add keyword (enclose a phrase in double quotes)");
 		addButton.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				addButtonActionPerformed(e);
@@ -289,17 +296,25 @@ public class FilterAgentCustomizer extends JDialog implements Customizer {
 	/**
 	 * Adds additional keywords when the <b>Add</b> button is pressed.
 	 * User may enter more than one keyword into the <b>keyword text field</b>
-	 * by inserting a space in between consecutive keywords.
+	 * by inserting a space in between consecutive keywords. A phrase
+	 * keyword (e.g. <i>neural network</i>) is entered by enclosing
+	 * its words in double quotes.
 	 * @param e the event generated when the <b>Add</b> button is pressed.
 	 */
 	private void addButtonActionPerformed(ActionEvent e) {
 		String text = keywordTextField.getText().trim();
 
 		if (text != null && text.length() > 0) {
-			String[] newKeywords = text.split("[, ]+");
+			Matcher newKeywords = KEYWORD_PATTERN.matcher(text);
+
+			while (newKeywords.find()) {
+				String phrase = newKeywords.group(1);
 
-			for (String newKeyword : newKeywords) {
-				addKeyword(newKeyword);
+				if (phrase == null) {
+					addKeyword(newKeywords.group());
+				} else if (phrase.trim().length() > 0) {
+					addKeyword(phrase.trim().replaceAll("\\s+", " "));
+				}
 			}
 
 			// update GUI
@@ -18,8 +18,14 @@ import java.beans.Customizer;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.Vector;
 
 import javax.swing.BorderFactory;
@@ -87,6 +93,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 	JMenuItem resetMenuItem;
 	JMenuItem downloadArticleMenuItem;
 	JMenuItem loadArticleMenuItem;
+	JMenuItem watchDirectoryMenuItem;
 	JMenuItem saveArticleMenuItem;
 	JMenuItem exitMenuItem;
 
@@ -95,6 +102,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 	JMenuItem keywordsMenuItem;
 	JMenuItem addArticleMenuItem;
 	JMenuItem addAllMenuItem;
+	JMenuItem topicProfilesMenuItem;
 
 	JMenuItem trainNeuralNetworksMenuItem;
 	JCheckBoxMenuItem useKeywordsCheckBoxMenuItem;
@@ -133,12 +141,14 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 	protected static final int COL_APPROVE_ID = 1;
 	protected static final int COL_SCORE_ID = 2;
 	protected static final int COL_RATING_ID = 3;
+	protected static final int COL_TOPIC_ID = 4;
 	private static final String COL_SUBJECT = "Subject";
 	private static final String COL_APPROVE = "Approve";
 	private static final String COL_SCORE = "Score";
 	private static final String COL_RATING = "Rating";
+	private static final String COL_TOPIC = "Topic";
 	protected static String[] columnNameList =
-		{COL_SUBJECT, COL_APPROVE, COL_SCORE, COL_RATING};
+		{COL_SUBJECT, COL_APPROVE, COL_SCORE, COL_RATING, COL_TOPIC};
 	protected static final int NUM_COLS = columnNameList.length;
 
 	protected Object[][] data;
@@ -149,12 +159,17 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 	/** The agent that filters articles. */
 	protected FilterAgent filterAgent;
 
+	/** The scores and the ranking of all articles. */
+	protected ScoreIndex scoreIndex;
+
 	/** The agent that allows user to download article. */
 	protected URLReaderAgent urlReaderAgent;
 
+	/** The agent that loads the articles put into a directory. */
+	protected DirectoryWatchAgent directoryWatchAgent;
+
 	/** Currently selected article. */
 	Article currentArt;
-	boolean scored = false; // true if articles were scored
 
 	/**
 	 * Type of filtering:<br>
@@ -209,16 +224,24 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			System.out.println("New " + filterAgent);
 		}
 
-		filterAgent.infoFilter = this;
 		filterAgent.addAgentEventListener(this); // for trace msgs
 		filterAgent.initialize();
 		filterAgent.startAgentProcessing(); // start filter agent thread
 
+		scoreIndex = new ScoreIndex(filterAgent, filterType);
+
 		urlReaderAgent = new URLReaderAgent();
 		urlReaderAgent.addAgentEventListener(this);
 		urlReaderAgent.initialize();
 		urlReaderAgent.startAgentProcessing(); // start it running
 
+		directoryWatchAgent = new DirectoryWatchAgent();
+		directoryWatchAgent.setFilterAgent(filterAgent);
+		directoryWatchAgent.setScoreIndex(scoreIndex);
+		directoryWatchAgent.addAgentEventListener(this);
+		directoryWatchAgent.initialize();
+		directoryWatchAgent.startAgentProcessing(); // start it running
+
 		// initialize network connections
 		try {
 			SwingUtilities.invokeLater(new Runnable() {
@@ -232,7 +255,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 		}
 
 		fileChoser = new JFileChooser();
-		fileChoser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+		fileChoser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
 		fileChoser.setMultiSelectionEnabled(true);
 	}
 
@@ -285,6 +308,14 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			}
 		});
 
+		watchDirectoryMenuItem = new JMenuItem("Watch Directory...");
+		watchDirectoryMenuItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				watchDirectoryMenuItem_actionPerformed(e);
+			}
+		});
+
 		saveArticleMenuItem = new JMenuItem("Save Article...");
 		saveArticleMenuItem.setIcon(getIcon("icons/File_SaveArticle.png"));
 		saveArticleMenuItem.setEnabled(false);
@@ -308,6 +339,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 		menuFile.addSeparator();
 		menuFile.add(downloadArticleMenuItem);
 		menuFile.add(loadArticleMenuItem);
+		menuFile.add(watchDirectoryMenuItem);
 		menuFile.add(saveArticleMenuItem);
 		menuFile.addSeparator();
 		menuFile.add(exitMenuItem);
@@ -352,10 +384,20 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			}
 		});
 
+		topicProfilesMenuItem = new JMenuItem("Load Topic Profiles...");
+		topicProfilesMenuItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				topicProfilesMenuItem_actionPerformed(e);
+			}
+		});
+
 		menuKeywords.add(keywordsMenuItem);
 		menuKeywords.addSeparator();
 		menuKeywords.add(addArticleMenuItem);
 		menuKeywords.add(addAllMenuItem);
+		menuKeywords.addSeparator();
+		menuKeywords.add(topicProfilesMenuItem);
 
 		trainNeuralNetworksMenuItem = new JMenuItem("Train Neural Networks");
 		trainNeuralNetworksMenuItem.addActionListener(new ActionListener() {
@@ -542,6 +584,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 	protected void resetMenuItem_actionPerformed(ActionEvent e) {
 		System.out.println("Reset action is requested");
 		articles.clear();
+		scoreIndex.clear();
 		refreshTable();
 
 		if (articleEditorPane.getContentType().equals("text/html")) {
@@ -648,6 +691,42 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 		loadArticles.execute();
 	}
 
+	/**
+	 * Starts watching a directory chosen by the user, whose new
+	 * articles are loaded and scored as they arrive, or stops
+	 * watching the directory.
+	 * @param e the event generated when the <b>Watch Directory...</b>
+	 * menu item is selected.
+	 */
+	protected void watchDirectoryMenuItem_actionPerformed(ActionEvent e) {
+		if (directoryWatchAgent.isWatching()) {
+			directoryWatchAgent.stopWatching();
+			watchDirectoryMenuItem.setText("Watch Directory...");
+			displayTaskMSG("Loaded " + directoryWatchAgent.getNumLoaded() +
+					" articles from " + directoryWatchAgent.getDirectory());
+			return;
+		}
+
+		JFileChooser dirChooser = new JFileChooser();
+		dirChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		dirChooser.setCurrentDirectory(fileChoser.getCurrentDirectory());
+
+		if (dirChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+
+		File directory = dirChooser.getSelectedFile();
+
+		try {
+			directoryWatchAgent.watch(directory);
+			watchDirectoryMenuItem.setText("Stop Watching " +
+					directory.getName());
+			displayTaskMSG("Watching " + directory);
+		} catch (IOException ex) {
+			displayTaskERR("Cannot watch " + directory + " - " + ex);
+		}
+	}
+
 	/**
 	 * Saves an article to a personal computer for later uses.
 	 * @param e the event generated when the <b>Save Article...</b>
@@ -684,7 +763,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			return; // nothing is selected
 		}
 
-		articles.removeElementAt(selectedRow);
+		scoreIndex.remove(articles.remove(selectedRow));
 		currentArt = null;
 
 		if (articleEditorPane.getContentType().equals("text/html")) {
@@ -733,6 +812,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			return;
 		}
 
+		int keywordsVersion = filterAgent.getKeywordsVersion();
 		JDialog dlg = (JDialog) customizer;
 
 		// center the dialog
@@ -744,6 +824,44 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 				frameLoc.x + (frameSize.width - dlgSize.width) / 2,
 				frameLoc.y + (frameSize.height - dlgSize.height) / 2);
 		dlg.setVisible(true);
+
+		// the dialog is modal, so the keywords have been changed if
+		// their version differs now
+		if (filterAgent.getKeywordsVersion() != keywordsVersion) {
+			scoreIndex.keywordsChanged();
+			filterArticles();
+		}
+	}
+
+	/**
+	 * Switches the filter agent to the multi-profile mode. The user
+	 * selects a directory whose sub-directories contain the profiles
+	 * of topics (e.g. <code>TrainingDataSets</code>), and every
+	 * article is scored against all of them and routed to the best
+	 * matching topic.
+	 * @param e the event generated when the <b>Load Topic
+	 * Profiles...</b> menu item is selected.
+	 */
+	protected void topicProfilesMenuItem_actionPerformed(ActionEvent e) {
+		JFileChooser dirChooser = new JFileChooser(new File("."));
+		dirChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+
+		if (dirChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+
+		List<TopicProfile> profiles =
+				TopicProfile.loadAll(dirChooser.getSelectedFile());
+
+		if (profiles.isEmpty()) {
+			displayTaskERR("No topic profiles found");
+			return;
+		}
+
+		filterAgent.setTopicProfiles(profiles);
+		filterArticles();
+
+		displayTaskMSG("Loaded " + profiles.size() + " topic profiles");
 	}
 
 	protected void addArticleMenuItem_actionPerformed(ActionEvent e) {
@@ -1019,7 +1137,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			Reliability reliability) {
 		// score received article using the corresponding filter type
 		Vector<Article> newArticles = new Vector<>(receivedArticles);
-		filterAgent.score(newArticles, filterType);
+		scoreIndex.addAll(newArticles);
 
 		// select articles that have score higher than or equal to the
 		// threshold of the corresponding filter type
@@ -1039,6 +1157,19 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 
 		reliability.updateReliability(selected, eliminated);
 
+		// route the received articles to their topics
+		if (filterAgent.getProfileSet() != null) {
+			Map<String, Integer> routed = new TreeMap<>();
+
+			for (Article newArticle : newArticles) {
+				Integer count = routed.get(newArticle.getTopic());
+				routed.put(newArticle.getTopic(),
+						(count == null) ? 1 : count + 1);
+			}
+
+			displayTaskMSG("Routed received articles " + routed);
+		}
+
 		// add received articles to the set of articles and view them
 		// in the GUI table of articles
 		articles.addAll(newArticles);
@@ -1123,7 +1254,13 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 					data[row][col] = userRating;
 
 					if (articles.size() > 0) {
-						articles.get(row).setUserRating(userRating);
+						Article article = articles.get(row);
+						article.setUserRating(userRating);
+
+						// only the rated article is scored again
+						scoreIndex.update(article);
+						data[row][COL_SCORE_ID] = String.valueOf(
+								article.getScore(filterType));
 					}
 
 					break;
@@ -1233,6 +1370,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 		articleTable.getColumn(COL_APPROVE).setMinWidth(70);
 		articleTable.getColumn(COL_SCORE).setPreferredWidth(30);
 		articleTable.getColumn(COL_RATING).setPreferredWidth(50);
+		articleTable.getColumn(COL_TOPIC).setPreferredWidth(50);
 
 		articleTable.setRowHeight(20);
 		articleTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -1259,6 +1397,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			table[0][1] = false;
 			table[0][2] = "";
 			table[0][3] = "";
+			table[0][4] = "";
 
 			return table;
 		} else {
@@ -1271,6 +1410,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 				table[i][1] = article.isApproved();
 				table[i][2] = String.valueOf(article.getScore(filterType));
 				table[i][3] = article.getUserRating();
+				table[i][4] = article.getTopic();
 			}
 
 			return table;
@@ -1288,6 +1428,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 
 			data[i][COL_APPROVE_ID] = article.apporved;
 			data[i][COL_SCORE_ID] = score;
+			data[i][COL_TOPIC_ID] = article.getTopic();
 		}
 	}
 
@@ -1314,6 +1455,9 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 	 * <li>trace: display trace message
 	 * <li>status: display status of agent
 	 * <li>addArticle: score article using current filter type
+	 * <li>addArticles: show articles scored by another agent
+	 * <li>neuralNetworksTrained: enable the filters using the
+	 * neural networks if they were trained
 	 * </ul>
 	 * @param e the event to be processed.
 	 */
@@ -1331,6 +1475,19 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 			} else if (action.equals("addArticle")) {
 				// score the article sent by another agent
 				addArticle((Article) arg);
+			} else if (action.equals("addArticles")) {
+				@SuppressWarnings("unchecked")
+				Vector<Article> newArticles = (Vector<Article>) arg;
+				addScoredArticles(newArticles);
+			} else if (action.equals("neuralNetworksTrained")) {
+				final boolean trained = (Boolean) arg;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						useFeedbackCheckBoxMenuItem.setEnabled(trained);
+						useClustersCheckBoxMenuItem.setEnabled(trained);
+					}
+				});
 			} else if (action.equals("status")) {
 				filterAgentStatusLabel.setForeground(Color.BLACK);
 				filterAgentStatusLabel.setText((String) arg);
@@ -1383,7 +1540,7 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 		articles.addElement(art);
 
 		// score the article
-		filterAgent.score(art, filterType);
+		scoreIndex.add(art);
 
 		// update the GUI table
 		refreshTable();
@@ -1403,6 +1560,37 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 		});
 	}
 
+	/**
+	 * Adds articles that were already scored into the score index,
+	 * e.g. by the {@link DirectoryWatchAgent}, to the table.
+	 * @param newArticles the scored articles.
+	 */
+	protected void addScoredArticles(final Vector<Article> newArticles) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				Set<Article> shown = Collections.newSetFromMap(
+						new IdentityHashMap<Article, Boolean>());
+
+				shown.addAll(articles);
+
+				for (Article article : newArticles) {
+					// the table may have been filtered meanwhile
+					if (shown.add(article)) {
+						articles.addElement(article);
+					}
+				}
+
+				refreshTable();
+				displayTaskMSG("Loaded " + newArticles.size() + " new article" +
+						(newArticles.size() > 1 ? "s" : ""));
+
+				addArticleMenuItem.setEnabled(true);
+				addAllMenuItem.setEnabled(true);
+			}
+		});
+	}
+
 	/**
 	 * Displays the web page in the web view area, or the article
 	 * loaded from computer in the text editor.
@@ -1479,9 +1667,10 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 	 * GUI table again.
 	 */
 	public void filterArticles() {
-		filterAgent.score(articles, filterType);
+		// only scores that are out of date are computed again
+		scoreIndex.setFilterType(filterType);
 
-		articles = insertionSort(articles);
+		articles = new Vector<>(scoreIndex.getRankedArticles());
 
 		refreshTable();
 
@@ -1490,35 +1679,6 @@ public class InfoFilterFrame extends JFrame implements AgentEventListener {
 		}
 	}
 
-	/**
-	 * Sorts a set of articles in descending order with respect to
-	 * their scores of the corresponding filter type.
-	 * @param articles the set of articles to be sorted<br>
-	 * <b>Note:</b> the order of elements of this vector will be
-	 * preserved after the invocation of this method.
-	 * @return a vector of articles sorted in descending order.
-	 */
-	Vector<Article> insertionSort(Vector<Article> articles) {
-		int size = articles.size();
-		Vector<Article> out = new Vector<>(articles);
-
-		for (int i = 1; i < size; i++) {
-			Article ai = out.get(i);
-
-			for (int j = 0; j <= i - 1; j++) {
-				Article aj = out.get(j);
-
-				if (ai.getScore(filterType) > aj.getScore(filterType)) {
-					out.remove(i);
-					out.insertElementAt(ai, j);
-					break;
-				}
-			}
-		}
-
-		return out;
-	}
-
 	/**
 	 * Displays a message in the bottom text area.
 	 * @param msg the message to be displayed.
@@ -0,0 +1,353 @@
+package filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The <code>IngestionPipeline</code> class loads a batch of article
+ * files in stages connected by bounded queues:
+ * <ol>
+ * <li><b>discovery</b>: one thread walks the selected files and
+ * directories and queues every file of a supported type
+ * <li><b>extraction</b>: one thread per core extracts the text of
+ * the files (PDF, MS Word, PowerPoint, text, HTML) and counts its
+ * keywords. Text, HTML and PDF files are streamed into the keyword
+ * counter while they are extracted, see
+ * {@link FilterAgent#countKeywordsOfFile(Article)}
+ * <li><b>scoring</b>: the thread running the pipeline hands every
+ * extracted article to a {@link Sink}, which scores and publishes it
+ * </ol>
+ * A large file only occupies one extraction thread while the other
+ * threads go on with the rest of the batch. Since the queues are
+ * bounded, a fast stage waits for a slower stage (backpressure), so
+ * at most a few extracted articles per core are held in memory
+ * whatever the size of the batch.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class IngestionPipeline {
+	/**
+	 * The <code>Sink</code> interface receives the extracted
+	 * articles on the scoring stage.
+	 */
+	public interface Sink {
+		/**
+		 * Receives an extracted article.
+		 * @param article the extracted article.
+		 * @param tokens the frequency of each token of the text if
+		 * it was counted while the text was streamed, or
+		 * <code>null</code>.
+		 */
+		void accept(Article article, Map<String, int[]> tokens);
+	}
+
+	/** An extracted article waiting to be scored. */
+	private static class Extracted {
+		final Article article;
+		final Map<String, int[]> tokens;
+
+		Extracted(Article article, Map<String, int[]> tokens) {
+			this.article = article;
+			this.tokens = tokens;
+		}
+	}
+
+	/** Marks the end of the discovered files. */
+	private static final File NO_MORE_FILES = new File("");
+
+	/** Marks the end of the articles of an extraction thread. */
+	private static final Extracted NO_MORE_ARTICLES = new Extracted(null, null);
+
+	/** The agent counting the keywords of streamed articles. */
+	private final FilterAgent filterAgent;
+
+	/** The number of extraction threads. */
+	private final int numExtractors;
+
+	/** The discovered files waiting to be extracted. */
+	private final BlockingQueue<File> files;
+
+	/** The extracted articles waiting to be scored. */
+	private final BlockingQueue<Extracted> extracted;
+
+	/** Progress of the stages. */
+	private final AtomicInteger numDiscovered = new AtomicInteger();
+	private final AtomicInteger numExtracted = new AtomicInteger();
+	private final AtomicInteger numScored = new AtomicInteger();
+	private final AtomicInteger numFailed = new AtomicInteger();
+
+	/** Set when all files have been discovered. */
+	private volatile boolean discoveryDone = false;
+
+	/**
+	 * Creates a pipeline with one extraction thread per core.
+	 * @param filterAgent the agent counting the keywords.
+	 */
+	public IngestionPipeline(FilterAgent filterAgent) {
+		this(filterAgent, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a pipeline.
+	 * @param filterAgent the agent counting the keywords.
+	 * @param numExtractors the number of extraction threads.
+	 */
+	public IngestionPipeline(FilterAgent filterAgent, int numExtractors) {
+		this.filterAgent = filterAgent;
+		this.numExtractors = Math.max(1, numExtractors);
+
+		// room for the discovered files and the end markers
+		files = new ArrayBlockingQueue<>(1024 + this.numExtractors);
+		extracted = new ArrayBlockingQueue<>(2 * this.numExtractors);
+	}
+
+	/**
+	 * Loads a batch of files and directories. The method returns
+	 * when all discovered files have been handed to the sink or
+	 * have failed.
+	 * @param roots the selected files and directories.
+	 * @param sink the receiver of the extracted articles, called
+	 * on the thread running this method.
+	 * @throws InterruptedException if the thread is interrupted
+	 * while waiting for articles.
+	 */
+	public void run(final File[] roots, Sink sink) throws InterruptedException {
+		ExecutorService extractors = Executors.newFixedThreadPool(numExtractors);
+
+		Thread discovery = new Thread("IngestionPipeline discovery") {
+			@Override
+			public void run() {
+				try {
+					for (File root : roots) {
+						discover(root, true);
+					}
+				} catch (InterruptedException e) {
+					// the pipeline was stopped, so the extraction
+					// threads do not wait for the end markers
+					return;
+				} finally {
+					discoveryDone = true;
+				}
+
+				try {
+					for (int i = 0; i < numExtractors; i++) {
+						files.put(NO_MORE_FILES); // consumed below
+					}
+				} catch (InterruptedException e) {
+					// the pipeline was stopped
+				}
+			}
+		};
+
+		discovery.setDaemon(true);
+		discovery.start();
+
+		for (int i = 0; i < numExtractors; i++) {
+			extractors.execute(new Runnable() {
+				@Override
+				public void run() {
+					extractAll();
+				}
+			});
+		}
+
+		try {
+			int finished = 0;
+
+			while (finished < numExtractors) {
+				Extracted next = extracted.take();
+
+				if (next == NO_MORE_ARTICLES) {
+					finished++;
+				} else {
+					sink.accept(next.article, next.tokens);
+					numScored.incrementAndGet();
+				}
+			}
+		} finally {
+			discovery.interrupt();
+			extractors.shutdownNow();
+		}
+	}
+
+	/**
+	 * Queues a file, or all files of a directory tree.
+	 * @param file the file or directory.
+	 * @param selected <code>true</code> if the user selected the
+	 * file, so that an unsupported type is reported.
+	 * @throws InterruptedException if the thread is interrupted
+	 * while waiting for room in the queue.
+	 */
+	private void discover(File file, boolean selected)
+			throws InterruptedException {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+
+			if (children != null) {
+				Arrays.sort(children);
+
+				for (File child : children) {
+					discover(child, false);
+				}
+			}
+		} else if (Article.typeOfFile(file.getName()) != -1) {
+			putFile(file);
+			numDiscovered.incrementAndGet();
+		} else if (selected) {
+			System.out.println("Error: the type of the selected file \"" +
+					file + "\" is not allowed to be read.");
+		}
+	}
+
+	/**
+	 * Queues a discovered file.
+	 * @param file the file to be extracted.
+	 * @throws InterruptedException if the thread is interrupted.
+	 */
+	private void putFile(File file) throws InterruptedException {
+		files.put(file);
+	}
+
+	/**
+	 * Extracts files until the end marker is taken.
+	 */
+	private void extractAll() {
+		boolean stopped = false;
+
+		try {
+			while (true) {
+				File file = files.take();
+
+				if (file == NO_MORE_FILES) {
+					break;
+				}
+
+				Extracted next = extract(file);
+
+				if (next == null) {
+					numFailed.incrementAndGet();
+				} else {
+					numExtracted.incrementAndGet();
+					extracted.put(next);
+				}
+			}
+		} catch (InterruptedException e) {
+			stopped = true; // the pipeline was stopped
+		} finally {
+			// the scoring stage waits for the end marker of every thread
+			if (!stopped) {
+				try {
+					extracted.put(NO_MORE_ARTICLES);
+				} catch (InterruptedException e) {
+					// the pipeline was stopped
+				}
+			}
+		}
+	}
+
+	/**
+	 * Extracts the text of a file.
+	 * @param file the file to be extracted.
+	 * @return the article and its tokens, or <code>null</code> if
+	 * the file cannot be read.
+	 */
+	private Extracted extract(File file) {
+		String filePath = file.getPath();
+		int type = Article.typeOfFile(file.getName());
+		Article article = new Article(filePath, type);
+
+		article.setSubject(file.getName(), type);
+
+		try {
+			switch (type) {
+			case Article.FROM_TEXT_FILE:
+			case Article.FROM_PDF_FILE:
+			case Article.FROM_HTML_FILE:
+				// count the keywords while the text is read, keeping
+				// only a preview of the text as the body
+				return new Extracted(article,
+						filterAgent.countKeywordsOfFile(article));
+
+			case Article.FROM_MS_WORD_FILE:
+				article.setBody(Utilities.getContentsOfWordFile(filePath));
+				filterAgent.countKeywords(article);
+				return new Extracted(article, null);
+
+			case Article.FROM_PPTX_FILE:
+				article.setBody(Utilities.getContentsOfPPTXFile(filePath));
+				filterAgent.countKeywords(article);
+				return new Extracted(article, null);
+
+			default:
+				return null;
+			}
+		} catch (IOException e) {
+			System.out.println("Error: cannot read the file " +
+					filePath + " - " + e);
+			return null;
+		} catch (RuntimeException e) {
+			// a malformed document must not stop the other files
+			System.out.println("Error: cannot extract the file " +
+					filePath + " - " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Retrieves the number of discovered files.
+	 * @return the number of files found so far.
+	 */
+	public int getNumDiscovered() {
+		return numDiscovered.get();
+	}
+
+	/**
+	 * Retrieves the number of extracted files.
+	 * @return the number of files extracted so far.
+	 */
+	public int getNumExtracted() {
+		return numExtracted.get();
+	}
+
+	/**
+	 * Retrieves the number of scored articles.
+	 * @return the number of articles handed to the sink so far.
+	 */
+	public int getNumScored() {
+		return numScored.get();
+	}
+
+	/**
+	 * Retrieves the number of files that could not be read.
+	 * @return the number of failed files so far.
+	 */
+	public int getNumFailed() {
+		return numFailed.get();
+	}
+
+	/**
+	 * Checks whether all files have been discovered.
+	 * @return <code>true</code> if the number of discovered files
+	 * is final.
+	 */
+	public boolean isDiscoveryDone() {
+		return discoveryDone;
+	}
+
+	/**
+	 * Returns the progress of the stages.
+	 */
+	public String toString() {
+		return "Found " + numDiscovered.get() +
+				(discoveryDone ? "" : "+") + " files, extracted " +
+				numExtracted.get() + ", scored " + numScored.get() +
+				(numFailed.get() > 0 ? ", failed " + numFailed.get() : "");
+	}
+} // end class IngestionPipeline
\ No newline at end of file
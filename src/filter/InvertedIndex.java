@@ -0,0 +1,489 @@
+package filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>InvertedIndex</code> class maps every token of the body
+ * texts of a set of articles to its <i>posting list</i>: the
+ * articles that contain the token, together with the occurrence
+ * frequency of the token in each of them. Tokens are split and
+ * lower-cased exactly as {@link KeywordMatcher} does.<br>
+ * The index is built once as articles are loaded, so that the
+ * keyword counts of all articles for a new list of keywords can be
+ * computed without scanning the body texts again:
+ * <ul>
+ * <li>the counts of a single word keyword are read directly from
+ * the posting list of that word
+ * <li>a phrase keyword can only occur in the articles that contain
+ * all of its words, so only the bodies of those articles are
+ * scanned
+ * <li>the counts of the keywords that were already in the previous
+ * list of keywords are copied, so adding one keyword only looks up
+ * that keyword
+ * </ul>
+ * Each indexed article has a document number, which gives the order
+ * of the postings. Removed articles leave a gap that is skipped,
+ * and the postings are compacted once half of the articles have
+ * been removed.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class InvertedIndex {
+	/**
+	 * The posting list of a token, in ascending order of document
+	 * numbers.
+	 */
+	private static class Postings {
+		int[] docs = new int[2];
+		int[] freqs = new int[2];
+		int size;
+
+		void add(int doc, int freq) {
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, 2 * size);
+				freqs = Arrays.copyOf(freqs, 2 * size);
+			}
+
+			docs[size] = doc;
+			freqs[size] = freq;
+			size++;
+		}
+
+		boolean contains(int doc) {
+			return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+		}
+	}
+
+	/** The posting list of each token. */
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	/** The indexed articles by document number, <code>null</code>
+	 * for removed articles. */
+	private final List<Article> documents = new ArrayList<>();
+
+	/** The document number of each indexed article. */
+	private final Map<Article, Integer> docNumbers = new IdentityHashMap<>();
+
+	/** The number of removed articles that still leave a gap. */
+	private int numRemoved = 0;
+
+	/**
+	 * Adds the tokens of an article to the index. The text is
+	 * tokenized before the index is locked.
+	 * @param article the article to be indexed.
+	 */
+	public void add(Article article) {
+		add(article, countTokens(article));
+	}
+
+	/**
+	 * Adds an article whose tokens have already been counted, e.g.
+	 * while its text was streamed by a {@link CountingWriter}.
+	 * @param article the article to be indexed.
+	 * @param frequencies the frequency of each token of the text.
+	 */
+	public void add(Article article, Map<String, int[]> frequencies) {
+		synchronized (this) {
+			if (docNumbers.containsKey(article)) {
+				return;
+			}
+
+			int doc = documents.size();
+			documents.add(article);
+			docNumbers.put(article, doc);
+
+			for (Map.Entry<String, int[]> e : frequencies.entrySet()) {
+				Postings list = postings.get(e.getKey());
+
+				if (list == null) {
+					list = new Postings();
+					postings.put(e.getKey(), list);
+				}
+
+				list.add(doc, e.getValue()[0]);
+			}
+		}
+	}
+
+	/**
+	 * Removes an article from the index.
+	 * @param article the article to be removed.
+	 */
+	public synchronized void remove(Article article) {
+		Integer doc = docNumbers.remove(article);
+
+		if (doc == null) {
+			return;
+		}
+
+		documents.set(doc, null);
+		numRemoved++;
+
+		if (2 * numRemoved > documents.size()) {
+			compact();
+		}
+	}
+
+	/**
+	 * Removes all articles from the index.
+	 */
+	public synchronized void clear() {
+		postings.clear();
+		documents.clear();
+		docNumbers.clear();
+		numRemoved = 0;
+	}
+
+	/**
+	 * Retrieves the number of indexed articles.
+	 * @return the number of articles.
+	 */
+	public synchronized int size() {
+		return docNumbers.size();
+	}
+
+	/**
+	 * Retrieves the number of distinct tokens in the index.
+	 * @return the number of posting lists.
+	 */
+	public synchronized int getNumTokens() {
+		return postings.size();
+	}
+
+	/**
+	 * Counts the indexed articles that contain a token.
+	 * @param token the lower case token.
+	 * @return the number of articles containing the token.
+	 */
+	public synchronized int getDocumentFrequency(String token) {
+		Postings list = postings.get(token);
+
+		if (list == null) {
+			return 0;
+		}
+
+		int count = 0;
+
+		for (int i = 0; i < list.size; i++) {
+			if (documents.get(list.docs[i]) != null) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Sets the keyword counts of all indexed articles for the
+	 * current list of keywords of a filter agent. Articles whose
+	 * counts are already up to date are left unchanged. When all
+	 * other articles were counted with the previous list of
+	 * keywords, only the keywords that were not in that list are
+	 * looked up, and the counts of the other keywords are copied.
+	 * @param filterAgent the agent whose keywords are counted.
+	 */
+	public synchronized void updateCounts(FilterAgent filterAgent) {
+		String[] keywords;
+		int version;
+		String[] previous;
+		int previousVersion;
+
+		// read consistent lists of keywords and their versions
+		synchronized (filterAgent) {
+			keywords = filterAgent.getKeywords();
+			version = filterAgent.getKeywordsVersion();
+			previous = filterAgent.getPreviousKeywords();
+			previousVersion = filterAgent.getPreviousKeywordsVersion();
+		}
+
+		// the column of each keyword in the previous counts, -1 for
+		// new keywords
+		int[] oldColumns = new int[keywords.length];
+		boolean[] newColumns = new boolean[keywords.length];
+		Arrays.fill(oldColumns, -1);
+
+		if (previous != null && previousVersion != 0 &&
+				isCountedWith(previousVersion, version)) {
+			Map<String, Integer> previousColumns = new HashMap<>();
+
+			for (int i = previous.length - 1; i >= 0; i--) {
+				previousColumns.put(previous[i], i);
+			}
+
+			for (int i = 0; i < keywords.length; i++) {
+				Integer column = previousColumns.get(keywords[i]);
+				oldColumns[i] = (column == null) ? -1 : column;
+			}
+		}
+
+		for (int i = 0; i < keywords.length; i++) {
+			newColumns[i] = (oldColumns[i] == -1);
+		}
+
+		int[][] counts = count(keywords, newColumns);
+
+		for (int doc = 0; doc < counts.length; doc++) {
+			Article article = documents.get(doc);
+
+			if (article == null || article.countsVersion == version) {
+				continue;
+			}
+
+			for (int i = 0; i < keywords.length; i++) {
+				if (oldColumns[i] != -1) {
+					counts[doc][i] = article.counts[oldColumns[i]];
+				}
+			}
+
+			filterAgent.setCounts(article, counts[doc], version);
+		}
+	}
+
+	/**
+	 * Checks whether every indexed article that is not up to date
+	 * was counted with a given list of keywords.
+	 * @param previousVersion the version of that list of keywords.
+	 * @param version the version of the current list of keywords.
+	 * @return <code>true</code> if the counts of all articles can be
+	 * reused.
+	 */
+	private boolean isCountedWith(int previousVersion, int version) {
+		for (Article article : documents) {
+			if (article != null && article.countsVersion != version &&
+					(article.countsVersion != previousVersion ||
+					article.counts == null)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Computes the keyword counts of all indexed articles from the
+	 * posting lists.
+	 * @param keywords the keywords to be counted.
+	 * @return the keyword counts of each article by document
+	 * number, <code>null</code> for removed articles.
+	 */
+	public synchronized int[][] count(String[] keywords) {
+		return count(keywords, null);
+	}
+
+	/**
+	 * Computes the counts of some of the keywords of all indexed
+	 * articles from the posting lists.
+	 * @param keywords the keywords to be counted.
+	 * @param columns the flags of the keywords to be counted, or
+	 * <code>null</code> to count all keywords. The counts of the
+	 * other keywords are left 0.
+	 * @return the keyword counts of each article by document
+	 * number, <code>null</code> for removed articles.
+	 */
+	private int[][] count(String[] keywords, boolean[] columns) {
+		int[][] counts = new int[documents.size()][];
+
+		for (int doc = 0; doc < counts.length; doc++) {
+			if (documents.get(doc) != null) {
+				counts[doc] = new int[keywords.length];
+			}
+		}
+
+		List<String> phrases = new ArrayList<>();
+		List<Integer> phraseIndexes = new ArrayList<>();
+
+		for (int i = 0; i < keywords.length; i++) {
+			List<String> words = KeywordMatcher.splitIntoWords(keywords[i]);
+
+			if (words == null || (columns != null && !columns[i])) {
+				continue; // can never match, or is not asked for
+			}
+
+			if (words.size() > 1) {
+				phrases.add(keywords[i]);
+				phraseIndexes.add(i);
+				continue;
+			}
+
+			Postings list = postings.get(words.get(0));
+
+			if (list != null) {
+				for (int j = 0; j < list.size; j++) {
+					int[] docCounts = counts[list.docs[j]];
+
+					if (docCounts != null) {
+						docCounts[i] = list.freqs[j];
+					}
+				}
+			}
+		}
+
+		if (!phrases.isEmpty()) {
+			countPhrases(phrases, phraseIndexes, counts);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Counts phrase keywords by scanning only the bodies of the
+	 * articles that contain all words of at least one phrase.
+	 * @param phrases the phrase keywords.
+	 * @param phraseIndexes the index of each phrase in the whole
+	 * list of keywords.
+	 * @param counts the keyword counts to be updated.
+	 */
+	private void countPhrases(List<String> phrases,
+			List<Integer> phraseIndexes, int[][] counts) {
+		boolean[] candidates = new boolean[counts.length];
+
+		for (String phrase : phrases) {
+			markCandidates(KeywordMatcher.splitIntoWords(phrase),
+					candidates);
+		}
+
+		KeywordMatcher matcher = new KeywordMatcher(
+				phrases.toArray(new String[0]));
+
+		for (int doc = 0; doc < counts.length; doc++) {
+			if (!candidates[doc] || counts[doc] == null) {
+				continue;
+			}
+
+			int[] phraseCounts = matcher.count(documents.get(doc));
+
+			for (int k = 0; k < phraseCounts.length; k++) {
+				counts[doc][phraseIndexes.get(k)] = phraseCounts[k];
+			}
+		}
+	}
+
+	/**
+	 * Marks the articles that contain all words of a phrase. The
+	 * posting list of the rarest word is walked and each of its
+	 * articles is looked up in the posting lists of the other words.
+	 * @param words the words of the phrase.
+	 * @param candidates the flags of the articles to be scanned.
+	 */
+	private void markCandidates(List<String> words, boolean[] candidates) {
+		Postings[] lists = new Postings[words.size()];
+		int rarest = 0;
+
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = postings.get(words.get(i));
+
+			if (lists[i] == null) {
+				return; // a word that occurs nowhere
+			}
+
+			if (lists[i].size < lists[rarest].size) {
+				rarest = i;
+			}
+		}
+
+		Postings list = lists[rarest];
+
+		for (int j = 0; j < list.size; j++) {
+			int doc = list.docs[j];
+			boolean all = true;
+
+			for (int i = 0; i < lists.length && all; i++) {
+				all = (i == rarest) || lists[i].contains(doc);
+			}
+
+			if (all) {
+				candidates[doc] = true;
+			}
+		}
+	}
+
+	/**
+	 * Renumbers the remaining articles without gaps and drops the
+	 * postings of removed articles.
+	 */
+	private void compact() {
+		int[] newNumbers = new int[documents.size()];
+		List<Article> remaining = new ArrayList<>(docNumbers.size());
+
+		for (int doc = 0; doc < newNumbers.length; doc++) {
+			Article article = documents.get(doc);
+
+			if (article == null) {
+				newNumbers[doc] = -1;
+			} else {
+				newNumbers[doc] = remaining.size();
+				docNumbers.put(article, remaining.size());
+				remaining.add(article);
+			}
+		}
+
+		Iterator<Postings> it = postings.values().iterator();
+
+		while (it.hasNext()) {
+			Postings list = it.next();
+			int size = 0;
+
+			for (int j = 0; j < list.size; j++) {
+				int doc = newNumbers[list.docs[j]];
+
+				if (doc != -1) {
+					list.docs[size] = doc;
+					list.freqs[size] = list.freqs[j];
+					size++;
+				}
+			}
+
+			list.size = size;
+
+			if (size == 0) {
+				it.remove();
+			}
+		}
+
+		documents.clear();
+		documents.addAll(remaining);
+		numRemoved = 0;
+	}
+
+	/**
+	 * Splits the text of an article into lower case tokens and
+	 * counts them. The text of an article whose body only holds a
+	 * preview is streamed from its source again.
+	 * @param article the article to be tokenized.
+	 * @return the frequency of each distinct token.
+	 */
+	static Map<String, int[]> countTokens(Article article) {
+		CountingWriter writer = new CountingWriter(null, 0);
+		writer.collectTokens();
+
+		try {
+			if (article.isTruncated()) {
+				Utilities.writeContents(article, writer);
+			} else if (article.getBody() != null) {
+				writer.write(article.getBody());
+			}
+		} catch (IOException e) {
+			System.out.println("Error: cannot read the text of " +
+					article.getID() + " - " + e);
+		}
+
+		writer.close();
+
+		return writer.getTokenFrequencies();
+	}
+
+	/**
+	 * Returns basic information about the index.
+	 */
+	public synchronized String toString() {
+		return "Inverted Index: " + docNumbers.size() + " articles, " +
+				postings.size() + " tokens";
+	}
+} // end class InvertedIndex
\ No newline at end of file
@@ -0,0 +1,384 @@
+package filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>Json</code> class defines methods that write values in
+ * the <b>JSON</b> format, used by the results of the batch scoring
+ * of articles, and a parser of the requests of the
+ * {@link ScoringServer}. A parsed value is one of:
+ * <ul>
+ * <li>a <code>Map&lt;String, Object&gt;</code> for an object, whose
+ * members keep their order
+ * <li>a <code>List&lt;Object&gt;</code> for an array
+ * <li>a <code>String</code>, a <code>Double</code> or a
+ * <code>Boolean</code>
+ * <li><code>null</code>
+ * </ul>
+ *
+ * @author Tran Xuan Hoang
+ */
+public class Json {
+	/**
+	 * Writes a string as a JSON string.
+	 * @param value the string to be written, or <code>null</code>.
+	 * @return the quoted and escaped string, or <code>null</code>
+	 * if the string is <code>null</code>.
+	 */
+	public static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+
+		StringBuilder json = new StringBuilder(value.length() + 2);
+		json.append('"');
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					json.append(String.format("\\u%04x", (int) c));
+				} else {
+					json.append(c);
+				}
+			}
+		}
+
+		return json.append('"').toString();
+	}
+
+	/**
+	 * Writes a number as a JSON number.
+	 * @param value the number to be written.
+	 * @return the number, or <code>null</code> if it is not finite,
+	 * since JSON has no NaN nor infinity.
+	 */
+	public static String number(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return "null";
+		}
+
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+
+		return Double.toString(value);
+	}
+
+	/**
+	 * Parses a JSON text.
+	 * @param text the JSON text.
+	 * @return the parsed value.
+	 * @throws IllegalArgumentException if the text is not valid JSON.
+	 */
+	public static Object parse(String text) {
+		Json parser = new Json(text);
+		Object value = parser.parseValue();
+
+		parser.skipSpaces();
+
+		if (parser.pos < text.length()) {
+			throw parser.error("unexpected text after the value");
+		}
+
+		return value;
+	}
+
+	/**
+	 * The maximum nesting depth of the objects and arrays of a text,
+	 * beyond which the text is rejected rather than overflowing the
+	 * stack of the recursive parser.
+	 */
+	public static final int MAX_DEPTH = 512;
+
+	/** The text being parsed. */
+	private final String text;
+
+	/** The index of the next character to be parsed. */
+	private int pos = 0;
+
+	/** The number of objects and arrays enclosing the position. */
+	private int depth = 0;
+
+	/**
+	 * Creates a parser.
+	 * @param text the text to be parsed.
+	 */
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parses the value starting at the current position.
+	 * @return the parsed value.
+	 */
+	private Object parseValue() {
+		skipSpaces();
+
+		if (pos >= text.length()) {
+			throw error("unexpected end of text");
+		}
+
+		char c = text.charAt(pos);
+
+		switch (c) {
+		case '{':
+		case '[':
+			if (depth == MAX_DEPTH) {
+				throw error("more than " + MAX_DEPTH + " nested values");
+			}
+
+			depth++;
+			Object value = (c == '{') ? parseObject() : parseArray();
+			depth--;
+			return value;
+		case '"':
+			return parseString();
+		case 't':
+			return parseLiteral("true", Boolean.TRUE);
+		case 'f':
+			return parseLiteral("false", Boolean.FALSE);
+		case 'n':
+			return parseLiteral("null", null);
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				return parseNumber();
+			}
+
+			throw error("unexpected character '" + c + "'");
+		}
+	}
+
+	/**
+	 * Parses an object.
+	 * @return the members of the object.
+	 */
+	private Map<String, Object> parseObject() {
+		Map<String, Object> object = new LinkedHashMap<>();
+
+		pos++; // '{'
+		skipSpaces();
+
+		if (peek() == '}') {
+			pos++;
+			return object;
+		}
+
+		while (true) {
+			skipSpaces();
+
+			if (peek() != '"') {
+				throw error("expected a member name");
+			}
+
+			String name = parseString();
+
+			skipSpaces();
+			expect(':');
+			object.put(name, parseValue());
+			skipSpaces();
+
+			if (peek() == ',') {
+				pos++;
+			} else {
+				expect('}');
+				return object;
+			}
+		}
+	}
+
+	/**
+	 * Parses an array.
+	 * @return the elements of the array.
+	 */
+	private List<Object> parseArray() {
+		List<Object> array = new ArrayList<>();
+
+		pos++; // '['
+		skipSpaces();
+
+		if (peek() == ']') {
+			pos++;
+			return array;
+		}
+
+		while (true) {
+			array.add(parseValue());
+			skipSpaces();
+
+			if (peek() == ',') {
+				pos++;
+			} else {
+				expect(']');
+				return array;
+			}
+		}
+	}
+
+	/**
+	 * Parses a string.
+	 * @return the unescaped string.
+	 */
+	private String parseString() {
+		StringBuilder value = new StringBuilder();
+
+		pos++; // '"'
+
+		while (true) {
+			if (pos >= text.length()) {
+				throw error("unterminated string");
+			}
+
+			char c = text.charAt(pos++);
+
+			if (c == '"') {
+				return value.toString();
+			}
+
+			if (c != '\\') {
+				value.append(c);
+				continue;
+			}
+
+			if (pos >= text.length()) {
+				throw error("unterminated string");
+			}
+
+			c = text.charAt(pos++);
+
+			switch (c) {
+			case '"':
+			case '\\':
+			case '/':
+				value.append(c);
+				break;
+			case 'b':
+				value.append('\b');
+				break;
+			case 'f':
+				value.append('\f');
+				break;
+			case 'n':
+				value.append('\n');
+				break;
+			case 'r':
+				value.append('\r');
+				break;
+			case 't':
+				value.append('\t');
+				break;
+			case 'u':
+				if (pos + 4 > text.length()) {
+					throw error("invalid unicode escape");
+				}
+
+				try {
+					value.append((char) Integer.parseInt(
+							text.substring(pos, pos + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("invalid unicode escape");
+				}
+
+				pos += 4;
+				break;
+			default:
+				throw error("invalid escape '\\" + c + "'");
+			}
+		}
+	}
+
+	/**
+	 * Parses a number.
+	 * @return the number.
+	 */
+	private Double parseNumber() {
+		int start = pos;
+
+		while (pos < text.length() &&
+				"+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+			pos++;
+		}
+
+		try {
+			return Double.valueOf(text.substring(start, pos));
+		} catch (NumberFormatException e) {
+			pos = start;
+			throw error("invalid number");
+		}
+	}
+
+	/**
+	 * Parses a literal.
+	 * @param literal the expected literal.
+	 * @param value the value of the literal.
+	 * @return the value of the literal.
+	 */
+	private Object parseLiteral(String literal, Object value) {
+		if (!text.startsWith(literal, pos)) {
+			throw error("invalid literal");
+		}
+
+		pos += literal.length();
+		return value;
+	}
+
+	/**
+	 * Skips white spaces.
+	 */
+	private void skipSpaces() {
+		while (pos < text.length() &&
+				Character.isWhitespace(text.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	/**
+	 * Retrieves the current character.
+	 * @return the current character, or 0 at the end of the text.
+	 */
+	private char peek() {
+		return (pos < text.length()) ? text.charAt(pos) : 0;
+	}
+
+	/**
+	 * Checks the current character and moves after it.
+	 * @param c the expected character.
+	 */
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error("expected '" + c + "'");
+		}
+
+		pos++;
+	}
+
+	/**
+	 * Creates a syntax error at the current position.
+	 * @param msg the description of the error.
+	 * @return the exception to be thrown.
+	 */
+	private IllegalArgumentException error(String msg) {
+		return new IllegalArgumentException("Invalid JSON at " + pos +
+				": " + msg);
+	}
+} // end class Json
\ No newline at end of file
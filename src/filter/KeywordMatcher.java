@@ -0,0 +1,629 @@
+package filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * The <code>KeywordMatcher</code> class implements a compiled
+ * <b>Aho-Corasick</b> matcher over a list of keywords. The matcher
+ * is built once per keyword list and then counts the occurrence
+ * frequencies of all keywords in a single pass over the characters
+ * of a body text, without creating any intermediate token or
+ * lower-cased strings.<br>
+ * Tokens are separated by the characters in {@link #DELIMITERS}
+ * and compared in lower case. A keyword is either a single token
+ * (e.g. <i>learning</i>) or a phrase of several tokens (e.g.
+ * <i>neural network</i>), and it is counted only when it matches
+ * whole consecutive tokens of the body. The matcher works on two
+ * levels:
+ * <ol>
+ * <li>a character automaton recognizes which word of the keywords,
+ * if any, each token of the body is
+ * <li>a word automaton, driven by the recognized words, finds all
+ * phrases that end at each token
+ * </ol>
+ * For single token keywords, the counts produced by this class are
+ * the same as the counts produced by splitting the body with a
+ * <code>StringTokenizer</code> and looking up every lower-cased
+ * token in a table of keywords.<br>
+ * A <code>KeywordMatcher</code> is immutable once it is built, so
+ * it can be shared by several scoring threads.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class KeywordMatcher {
+	/** The characters that separate tokens in a body text. */
+	public static final String DELIMITERS = " .?!,\"";
+
+	/** Fast lookup of {@link #DELIMITERS} for ASCII characters. */
+	private static final boolean[] IS_DELIMITER = new boolean[128];
+
+	static {
+		for (int i = 0; i < DELIMITERS.length(); i++) {
+			IS_DELIMITER[DELIMITERS.charAt(i)] = true;
+		}
+	}
+
+	/** The keywords this matcher was compiled from. */
+	private final String[] keywords;
+
+	/** For each keyword, the index of the first keyword in
+	 * {@link #keywords} that has the same words, or -1 if the
+	 * keyword can never match. */
+	private final int[] firstIndex;
+
+	// character automaton recognizing the words of the keywords
+	/** Number of distinct characters used by all keywords. */
+	private final int alphabetSize;
+
+	/** Character class of each (case folded) ASCII character,
+	 * -1 if the character does not appear in any keyword. */
+	private final int[] asciiClass = new int[128];
+
+	/** Sorted non-ASCII characters that appear in the keywords. */
+	private final char[] otherChars;
+
+	/** Character classes of {@link #otherChars}. */
+	private final int[] otherClass;
+
+	/** The transition table of the character automaton, with
+	 * failure transitions already resolved:
+	 * <code>next[state * alphabetSize + charClass]</code>. */
+	private final int[] next;
+
+	/** Length of the string spelled by each character state. */
+	private final int[] depth;
+
+	/** Index of the word ending at each character state, -1 if
+	 * none. */
+	private final int[] wordAt;
+
+	// word automaton recognizing the phrases of the keywords
+	/** Number of distinct words used by all keywords. */
+	private final int numWords;
+
+	/** The transition table of the word automaton, with failure
+	 * transitions already resolved:
+	 * <code>phraseNext[state * numWords + word]</code>. */
+	private final int[] phraseNext;
+
+	/** Index of the keyword ending at each word state, -1 if
+	 * none. */
+	private final int[] keywordAt;
+
+	/** For each word state, the nearest state on its failure chain
+	 * at which a keyword ends, 0 if there is none. */
+	private final int[] outputLink;
+
+	/**
+	 * Compiles a matcher for the given list of keywords.
+	 * @param keywords the keywords to be counted. The words of a
+	 * phrase keyword are separated by any of the {@link #DELIMITERS}.
+	 * Keywords that contain upper case letters can never match a
+	 * lower-cased token and are always counted as 0.
+	 */
+	public KeywordMatcher(String[] keywords) {
+		this.keywords = keywords.clone();
+		firstIndex = new int[keywords.length];
+
+		// split keywords into words and number the distinct words
+		Map<String, Integer> wordIds = new HashMap<>();
+		List<String> words = new ArrayList<>();
+		int[][] phrases = new int[keywords.length][];
+		Map<String, Integer> phraseIds = new HashMap<>();
+
+		for (int i = 0; i < keywords.length; i++) {
+			firstIndex[i] = -1;
+			List<String> tokens = splitIntoWords(keywords[i]);
+
+			if (tokens == null) {
+				continue; // never matches
+			}
+
+			String key = String.join(" ", tokens);
+			Integer first = phraseIds.get(key);
+
+			if (first != null) {
+				firstIndex[i] = first; // same words as a previous keyword
+				continue;
+			}
+
+			phraseIds.put(key, i);
+			firstIndex[i] = i;
+			phrases[i] = new int[tokens.size()];
+
+			for (int j = 0; j < tokens.size(); j++) {
+				Integer id = wordIds.get(tokens.get(j));
+
+				if (id == null) {
+					id = words.size();
+					wordIds.put(tokens.get(j), id);
+					words.add(tokens.get(j));
+				}
+
+				phrases[i][j] = id;
+			}
+		}
+
+		numWords = words.size();
+
+		// build the alphabet from the characters of all words
+		Arrays.fill(asciiClass, -1);
+		StringBuilder others = new StringBuilder();
+		int numClasses = 0;
+		int maxStates = 1;
+
+		for (String word : words) {
+			maxStates += word.length();
+
+			for (int j = 0; j < word.length(); j++) {
+				char c = word.charAt(j);
+
+				if (c < 128) {
+					if (asciiClass[c] == -1) {
+						asciiClass[c] = numClasses++;
+					}
+				} else if (others.indexOf(String.valueOf(c)) == -1) {
+					others.append(c);
+				}
+			}
+		}
+
+		otherChars = others.toString().toCharArray();
+		Arrays.sort(otherChars);
+		otherClass = new int[otherChars.length];
+
+		for (int i = 0; i < otherChars.length; i++) {
+			otherClass[i] = numClasses++;
+		}
+
+		// fold upper case ASCII letters onto their lower case class
+		for (char c = 'A'; c <= 'Z'; c++) {
+			asciiClass[c] = asciiClass[Character.toLowerCase(c)];
+		}
+
+		alphabetSize = Math.max(numClasses, 1);
+
+		// build the character trie of words
+		int[] trie = new int[maxStates * alphabetSize];
+		Arrays.fill(trie, -1);
+		int[] stateDepth = new int[maxStates];
+		int[] stateWord = new int[maxStates];
+		Arrays.fill(stateWord, -1);
+		int numStates = 1;
+
+		for (int w = 0; w < numWords; w++) {
+			String word = words.get(w);
+			int state = 0;
+
+			for (int j = 0; j < word.length(); j++) {
+				int inx = state * alphabetSize + classOf(word.charAt(j));
+
+				if (trie[inx] == -1) {
+					stateDepth[numStates] = stateDepth[state] + 1;
+					trie[inx] = numStates++;
+				}
+
+				state = trie[inx];
+			}
+
+			stateWord[state] = w;
+		}
+
+		next = Arrays.copyOf(trie, numStates * alphabetSize);
+		depth = Arrays.copyOf(stateDepth, numStates);
+		wordAt = Arrays.copyOf(stateWord, numStates);
+		computeFailureTransitions(next, alphabetSize, numStates, null);
+
+		// build the word trie of phrases
+		int maxPhraseStates = 1;
+
+		for (int[] phrase : phrases) {
+			maxPhraseStates += (phrase == null) ? 0 : phrase.length;
+		}
+
+		int width = Math.max(numWords, 1);
+		int[] phraseTrie = new int[maxPhraseStates * width];
+		Arrays.fill(phraseTrie, -1);
+		int[] stateKeyword = new int[maxPhraseStates];
+		Arrays.fill(stateKeyword, -1);
+		int numPhraseStates = 1;
+
+		for (int i = 0; i < phrases.length; i++) {
+			if (phrases[i] == null) {
+				continue;
+			}
+
+			int state = 0;
+
+			for (int word : phrases[i]) {
+				int inx = state * width + word;
+
+				if (phraseTrie[inx] == -1) {
+					phraseTrie[inx] = numPhraseStates++;
+				}
+
+				state = phraseTrie[inx];
+			}
+
+			stateKeyword[state] = i;
+		}
+
+		phraseNext = Arrays.copyOf(phraseTrie, numPhraseStates * width);
+		keywordAt = Arrays.copyOf(stateKeyword, numPhraseStates);
+		int[] fail = new int[numPhraseStates];
+		computeFailureTransitions(phraseNext, width, numPhraseStates, fail);
+
+		// link each state to the next keyword on its failure chain so
+		// that overlapping phrases (e.g. "network" inside "neural
+		// network") are all counted
+		outputLink = new int[numPhraseStates];
+		List<Integer> order = breadthFirstOrder(phraseTrie, width,
+				numPhraseStates);
+
+		for (int state : order) {
+			int f = fail[state];
+			outputLink[state] = (keywordAt[f] != -1) ? f : outputLink[f];
+		}
+	}
+
+	/**
+	 * Splits a keyword into lower case words.
+	 * @param keyword the keyword to be split.
+	 * @return the words of the keyword, or <code>null</code> if the
+	 * keyword has no word or contains upper case letters.
+	 */
+	static List<String> splitIntoWords(String keyword) {
+		if (keyword == null) {
+			return null;
+		}
+
+		List<String> words = new ArrayList<>();
+		int start = -1;
+
+		for (int i = 0; i <= keyword.length(); i++) {
+			if (i == keyword.length() || isDelimiter(keyword.charAt(i))) {
+				if (start != -1) {
+					words.add(keyword.substring(start, i));
+					start = -1;
+				}
+			} else {
+				char c = keyword.charAt(i);
+
+				if (Character.toLowerCase(c) != c) {
+					return null;
+				}
+
+				if (start == -1) {
+					start = i;
+				}
+			}
+		}
+
+		return words.isEmpty() ? null : words;
+	}
+
+	/**
+	 * Turns a trie into a deterministic automaton by following the
+	 * failure links in breadth first order and replacing every
+	 * missing transition by the transition of the failure state.
+	 * @param table the transition table of the trie, where missing
+	 * transitions are -1. It is modified in place.
+	 * @param width the number of symbols of the alphabet.
+	 * @param numStates the number of states in the trie.
+	 * @param fail an array receiving the failure link of each
+	 * state, or <code>null</code> if the links are not needed.
+	 */
+	private static void computeFailureTransitions(int[] table,
+			int width, int numStates, int[] fail) {
+		if (fail == null) {
+			fail = new int[numStates];
+		}
+
+		Queue<Integer> queue = new LinkedList<>();
+
+		for (int c = 0; c < width; c++) {
+			int child = table[c];
+
+			if (child == -1) {
+				table[c] = 0;
+			} else {
+				fail[child] = 0;
+				queue.add(child);
+			}
+		}
+
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+
+			for (int c = 0; c < width; c++) {
+				int inx = state * width + c;
+				int child = table[inx];
+
+				if (child == -1) {
+					table[inx] = table[fail[state] * width + c];
+				} else {
+					fail[child] = table[fail[state] * width + c];
+					queue.add(child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lists the non-root states of a trie in breadth first order,
+	 * so that the failure state of each state comes before it.
+	 * @param trie the transition table of the trie before failure
+	 * transitions were resolved.
+	 * @param width the number of symbols of the alphabet.
+	 * @param numStates the number of states in the trie.
+	 * @return the states in breadth first order.
+	 */
+	private static List<Integer> breadthFirstOrder(int[] trie,
+			int width, int numStates) {
+		List<Integer> order = new ArrayList<>(numStates);
+		Queue<Integer> queue = new LinkedList<>();
+		queue.add(0);
+
+		while (!queue.isEmpty()) {
+			int state = queue.remove();
+
+			for (int c = 0; c < width; c++) {
+				int child = trie[state * width + c];
+
+				if (child != -1) {
+					order.add(child);
+					queue.add(child);
+				}
+			}
+		}
+
+		return order;
+	}
+
+	/**
+	 * Checks whether a character separates tokens.
+	 * @param c the character to be checked.
+	 * @return <code>true</code> if <code>c</code> is a delimiter.
+	 */
+	public static boolean isDelimiter(char c) {
+		return c < 128 && IS_DELIMITER[c];
+	}
+
+	/**
+	 * Retrieves the character class of a character.
+	 * @param c the character whose class is retrieved.
+	 * @return the class of the lower case form of <code>c</code>,
+	 * or -1 if no keyword contains that character.
+	 */
+	private int classOf(char c) {
+		if (c < 128) {
+			return asciiClass[c];
+		}
+
+		int inx = Arrays.binarySearch(otherChars, Character.toLowerCase(c));
+
+		return inx < 0 ? -1 : otherClass[inx];
+	}
+
+	/**
+	 * The <code>Counter</code> class counts the keywords of a text
+	 * that is fed in pieces, e.g. read from a <code>Reader</code>
+	 * chunk by chunk or extracted page by page, so that the whole
+	 * text never has to be held in memory. Tokens and phrases may
+	 * span the boundaries of the pieces.
+	 */
+	public class Counter {
+		/** The keyword counts so far. */
+		private final int[] counts = new int[keywords.length];
+
+		/** A buffer for copying the characters of strings. */
+		private char[] buffer;
+
+		/** The character automaton state. */
+		private int state = 0;
+
+		/** The word automaton state. */
+		private int phraseState = 0;
+
+		/** The number of characters of the current token. */
+		private int tokenLength = 0;
+
+		/**
+		 * Feeds a piece of text to the counter.
+		 * @param chars the characters of the text.
+		 * @param offset the index of the first character of the piece.
+		 * @param length the number of characters of the piece.
+		 */
+		public void feed(char[] chars, int offset, int length) {
+			int s = state;
+			int phrase = phraseState;
+			int tokenLen = tokenLength;
+
+			for (int i = offset, end = offset + length; i < end; i++) {
+				char c = chars[i];
+
+				if (isDelimiter(c)) {
+					if (tokenLen > 0) {
+						phrase = endToken(s, tokenLen, phrase, counts);
+						s = 0;
+						tokenLen = 0;
+					}
+				} else {
+					int charClass = classOf(c);
+
+					s = (charClass == -1) ?
+							0 : next[s * alphabetSize + charClass];
+					tokenLen++;
+				}
+			}
+
+			state = s;
+			phraseState = phrase;
+			tokenLength = tokenLen;
+		}
+
+		/**
+		 * Feeds a piece of text to the counter.
+		 * @param text the piece of text.
+		 */
+		public void feed(String text) {
+			if (buffer == null) {
+				buffer = new char[8192];
+			}
+
+			for (int i = 0, n = text.length(); i < n; i += buffer.length) {
+				int end = Math.min(n, i + buffer.length);
+
+				text.getChars(i, end, buffer, 0);
+				feed(buffer, 0, end - i);
+			}
+		}
+
+		/**
+		 * Ends the text and retrieves the counts. The counter must
+		 * not be fed any more.
+		 * @return an array that contains occurrence frequencies of
+		 * the keywords, in the same order as the keyword list.
+		 */
+		public int[] finish() {
+			if (tokenLength > 0) {
+				endToken(state, tokenLength, phraseState, counts);
+				tokenLength = 0;
+			}
+
+			// keywords with identical words share the count of the first one
+			for (int i = 0; i < counts.length; i++) {
+				if (firstIndex[i] != -1 && firstIndex[i] != i) {
+					counts[i] = counts[firstIndex[i]];
+				}
+			}
+
+			return counts;
+		}
+	} // end class Counter
+
+	/**
+	 * Creates a counter for a text that is fed in pieces.
+	 * @return a new counter of the keywords of this matcher.
+	 */
+	public Counter newCounter() {
+		return new Counter();
+	}
+
+	/**
+	 * Counts the occurrence frequencies of all keywords in the
+	 * given body text.
+	 * @param body the body text to be scanned.
+	 * @return an array that contains occurrence frequencies of the
+	 * keywords, in the same order as the keyword list.
+	 */
+	public int[] count(String body) {
+		Counter counter = new Counter();
+
+		if (body != null) {
+			counter.feed(body);
+		}
+
+		return counter.finish();
+	}
+
+	/**
+	 * Counts the occurrence frequencies of all keywords in the full
+	 * text of an article. The text of an article whose body only
+	 * holds a preview is streamed from its source again.
+	 * @param article the article to be scanned.
+	 * @return an array that contains occurrence frequencies of the
+	 * keywords, in the same order as the keyword list.
+	 */
+	public int[] count(Article article) {
+		if (!article.isTruncated()) {
+			return count(article.getBody());
+		}
+
+		Counter counter = new Counter();
+
+		try {
+			Utilities.writeContents(article, new CountingWriter(counter, 0));
+			return counter.finish();
+		} catch (IOException e) {
+			System.out.println("Error: cannot read the text of " +
+					article.getID() + " - " + e);
+			return count(article.getBody());
+		}
+	}
+
+	/**
+	 * Feeds the token that has just ended to the word automaton
+	 * and counts all keywords ending at that token. Since the
+	 * character state always spells the longest suffix of the token
+	 * that is a prefix of some word, the whole token is a word only
+	 * when the depth of the state equals the token length.
+	 * @param state the character state at the end of the token.
+	 * @param tokenLength the number of characters in the token.
+	 * @param phraseState the word automaton state before the token.
+	 * @param counts the keyword counts to be updated.
+	 * @return the word automaton state after the token.
+	 */
+	private int endToken(int state, int tokenLength, int phraseState,
+			int[] counts) {
+		int word = (depth[state] == tokenLength) ? wordAt[state] : -1;
+
+		if (word == -1) {
+			return 0; // a token that is in no keyword breaks all phrases
+		}
+
+		phraseState = phraseNext[phraseState * numWords + word];
+		int s = (keywordAt[phraseState] != -1) ?
+				phraseState : outputLink[phraseState];
+
+		while (s != 0) {
+			counts[keywordAt[s]]++;
+			s = outputLink[s];
+		}
+
+		return phraseState;
+	}
+
+	/**
+	 * Retrieves the keywords this matcher was compiled from.
+	 * @return a copy of the list of keywords.
+	 */
+	public String[] getKeywords() {
+		return keywords.clone();
+	}
+
+	/**
+	 * Retrieves the number of keywords.
+	 * @return the number of keywords this matcher counts.
+	 */
+	public int getNumKeywords() {
+		return keywords.length;
+	}
+
+	/**
+	 * Checks whether a keyword is a phrase of several words.
+	 * @param keyword the keyword to be checked.
+	 * @return <code>true</code> if the keyword has more than one word.
+	 */
+	public static boolean isPhrase(String keyword) {
+		List<String> words = splitIntoWords(keyword);
+
+		return words != null && words.size() > 1;
+	}
+
+	/**
+	 * Returns basic information about the matcher.
+	 */
+	public String toString() {
+		return "Keyword Matcher: " + depth.length + " character states, " +
+				keywordAt.length + " word states, " +
+				keywords.length + " keywords " + Arrays.asList(keywords);
+	}
+} // end class KeywordMatcher
@@ -2,6 +2,7 @@ package filter;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import javax.swing.JEditorPane;
@@ -28,6 +29,9 @@ public class LoadArticles extends SwingWorker<Integer, Article> {
 
 	private int loadedArts;
 
+	/** The pipeline reading and scoring the files. */
+	private volatile IngestionPipeline pipeline;
+
 	public LoadArticles(File[] files, Vector<Article> articles,
 			FilterAgent filterAgent, int filterType,
 			InfoFilterFrame infoFilterFrame,
@@ -48,51 +52,64 @@ public class LoadArticles extends SwingWorker<Integer, Article> {
 
 	/**
 	 * Loads selected articles from personal computer.
+	 * The files are read and scored by an {@link IngestionPipeline},
+	 * whose directories are searched for articles recursively.
 	 * This method also sends the corresponding
 	 * signal to method 'process' and 'done' to update the
 	 * GUI while loading articles.
 	 */
 	@Override
 	protected Integer doInBackground() throws Exception {
-		for (int i = 0; i < files.length; i++) {
-			String filePath = files[i].toString();
+		pipeline = new IngestionPipeline(filterAgent);
 
-			Article article = loadOneArticle(filePath);
+		pipeline.run(files, new IngestionPipeline.Sink() {
+			@Override
+			public void accept(Article article, Map<String, int[]> tokens) {
+				articles.addElement(article);
 
-			setProgress(100 * (i + 1) / files.length);
+				if (tokens != null) {
+					infoFilterFrame.scoreIndex.add(article, tokens);
+				} else {
+					infoFilterFrame.scoreIndex.add(article);
+				}
 
-			if (article != null) {
-				articles.addElement(article);
-				filterAgent.score(article, filterType);
+				loadedArts++;
+
+				// the number of files is only known once they are all found
+				int total = Math.max(pipeline.getNumDiscovered(), 1);
+				int progress = 100 * (loadedArts + pipeline.getNumFailed()) / total;
 
+				setProgress(pipeline.isDiscoveryDone() ?
+						Math.min(progress, 100) : Math.min(progress, 99));
 				publish(article);
-				loadedArts++;
 			}
-		}
+		});
 
-		return null;
+		return loadedArts;
 	}
 
 	/**
 	 * Updates the loaded articled in the article table on GUI.
+	 * The articles published since the last update are shown in
+	 * the table at once, and the last of them in the editor pane.
 	 */
 	@Override
 	protected void process(List<Article> publishedVals) {
-		for (int i = 0; i < publishedVals.size(); i++) {
-			Article article = publishedVals.get(i);
+		Article article = publishedVals.get(publishedVals.size() - 1);
 
-			infoFilterFrame.refreshTable();
-			infoFilterFrame.flipToShowEditorPane();
+		infoFilterFrame.refreshTable();
+		infoFilterFrame.flipToShowEditorPane();
 
-			if (article.type == Article.FROM_HTML_FILE) {
-				articleEditorPane.setContentType("text/html");
-			} else {
-				articleEditorPane.setContentType("text/plain");
-			}
-
-			articleEditorPane.setText(article.getBody());
-			articleEditorPane.setCaretPosition(0);
+		if (article.type == Article.FROM_HTML_FILE) {
+			articleEditorPane.setContentType("text/html");
+		} else {
+			articleEditorPane.setContentType("text/plain");
 		}
+
+		articleEditorPane.setText(article.getBody());
+		articleEditorPane.setCaretPosition(0);
+
+		infoFilterFrame.displayTaskMSG(pipeline.toString());
 	} // end method process
 
 	/**
@@ -102,63 +119,10 @@ public class LoadArticles extends SwingWorker<Integer, Article> {
 	protected void done() {
 		taskProgressBar.setVisible(false);
 
+		int failed = (pipeline == null) ? 0 : pipeline.getNumFailed();
+
 		infoFilterFrame.displayTaskMSG("Loaded " + loadedArts +
-				" article" + (loadedArts > 1 ? "s" : ""));
+				" article" + (loadedArts > 1 ? "s" : "") +
+				(failed > 0 ? ", " + failed + " failed" : ""));
 	} // end method done
-
-	/**
-	 * Loads and scores an article from a personal computer.
-	 * @param filePath the absolute path of the file from which
-	 * the <code>Article</code> will be read.
-	 */
-	private Article loadOneArticle(String filePath) {
-		String fileName = filePath.substring(
-				filePath.lastIndexOf(File.separatorChar) + 1);
-
-		if (fileName != null) {
-			int type = Article.typeOfFile(fileName);
-			Article article = new Article(filePath, type);
-
-			switch (type) {
-			case Article.FROM_TEXT_FILE:
-				String text = Article.readArticle(filePath);
-				article.setBody(text);
-				article.setSubject(fileName, type);
-				break;
-
-			case Article.FROM_PDF_FILE:
-				String pdf = Utilities.getContentsOfPDFFile(filePath);
-				article.setBody(pdf);
-				article.setSubject(fileName, type);
-				break;
-
-			case Article.FROM_MS_WORD_FILE:
-				String msword = Utilities.getContentsOfWordFile(filePath);
-				article.setBody(msword);
-				article.setSubject(fileName, type);
-				break;
-
-			case Article.FROM_PPTX_FILE:
-				String pptx = Utilities.getContentsOfPPTXFile(filePath);
-				article.setBody(pptx);
-				article.setSubject(fileName, type);
-				break;
-
-			case Article.FROM_HTML_FILE:
-				String html = Article.readArticle(filePath);
-				article.setBody(html);
-				article.setSubject(fileName, type);
-				break;
-
-			default:
-				System.out.println("Error: the type of the selected file \"" +
-						filePath + "\" is not allowed to be read.");
-				return null;
-			}
-
-			return article;
-		}
-
-		return null;
-	}
 } // end class LoadArticles
\ No newline at end of file
@@ -0,0 +1,220 @@
+package filter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The <code>MappedTextReader</code> class reads UTF-8 text files
+ * (<code>.txt</code> and <code>.html</code> articles) through a
+ * memory mapping of the file instead of copying the file onto the
+ * heap. The mapped bytes are decoded directly into a small buffer of
+ * characters that is written to a <code>Writer</code>, e.g. a
+ * {@link CountingWriter} counting the keywords, so a String of the
+ * whole text is only built by {@link #readString(String)} when it is
+ * really needed.<br>
+ * Most bytes of an article are ASCII, which are copied as they are.
+ * Other bytes are decoded as UTF-8 sequences, and every malformed
+ * byte is replaced by <code>U+FFFD</code>. A byte order mark at the
+ * beginning of the file is skipped.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class MappedTextReader {
+	/** The maximum number of bytes mapped at a time. */
+	private static final int REGION_SIZE = 1 << 28;
+
+	/** The number of characters decoded before they are written. */
+	private static final int CHUNK_SIZE = 8192;
+
+	/** The character replacing malformed bytes. */
+	private static final char REPLACEMENT = '\uFFFD';
+
+	/**
+	 * Reads the whole text of a file into a String.
+	 * @param filePath the path of the file to be read.
+	 * @return the text of the file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static String readString(String filePath) throws IOException {
+		// most articles are ASCII, with one character per byte
+		final StringBuilder text = new StringBuilder((int) Math.min(
+				Files.size(Paths.get(filePath)), Integer.MAX_VALUE - 8));
+
+		write(filePath, new Writer() {
+			@Override
+			public void write(char[] chars, int offset, int len) {
+				text.append(chars, offset, len);
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+
+		return text.toString();
+	}
+
+	/**
+	 * Decodes the text of a file and writes it to a writer in
+	 * chunks. The file is mapped in regions of at most 256 MB.
+	 * @param filePath the path of the file to be read.
+	 * @param out the writer receiving the text.
+	 * @throws IOException if the file cannot be read or the text
+	 * cannot be written.
+	 */
+	public static void write(String filePath, Writer out) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath),
+				StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			char[] chars = new char[CHUNK_SIZE];
+
+			while (position < size) {
+				int length = (int) Math.min(REGION_SIZE, size - position);
+				MappedByteBuffer bytes = channel.map(
+						FileChannel.MapMode.READ_ONLY, position, length);
+				int start = (position == 0) ? skipByteOrderMark(bytes, length) : 0;
+
+				// do not split a sequence between two regions
+				if (position + length < size) {
+					length = lastBoundary(bytes, length);
+				}
+
+				decode(bytes, start, length, chars, out);
+				position += length;
+			}
+		}
+	}
+
+	/**
+	 * Decodes UTF-8 bytes and writes the characters to a writer.
+	 * @param bytes the bytes to be decoded.
+	 * @param start the index of the first byte.
+	 * @param end the index after the last byte.
+	 * @param chars the buffer of decoded characters.
+	 * @param out the writer receiving the characters.
+	 * @throws IOException if the text cannot be written.
+	 */
+	private static void decode(MappedByteBuffer bytes, int start, int end,
+			char[] chars, Writer out) throws IOException {
+		int n = 0;
+		int i = start;
+
+		while (i < end) {
+			// room for a surrogate pair
+			if (n >= chars.length - 1) {
+				out.write(chars, 0, n);
+				n = 0;
+			}
+
+			int b = bytes.get(i);
+
+			if (b >= 0) { // ASCII
+				chars[n++] = (char) b;
+				i++;
+				continue;
+			}
+
+			int length;
+			int codePoint;
+
+			if ((b & 0xE0) == 0xC0) {
+				length = 2;
+				codePoint = b & 0x1F;
+			} else if ((b & 0xF0) == 0xE0) {
+				length = 3;
+				codePoint = b & 0x0F;
+			} else if ((b & 0xF8) == 0xF0) {
+				length = 4;
+				codePoint = b & 0x07;
+			} else {
+				chars[n++] = REPLACEMENT;
+				i++;
+				continue;
+			}
+
+			boolean valid = (i + length <= end);
+
+			for (int k = 1; k < length && valid; k++) {
+				int next = bytes.get(i + k);
+
+				valid = ((next & 0xC0) == 0x80);
+				codePoint = (codePoint << 6) | (next & 0x3F);
+			}
+
+			// reject overlong forms, surrogates and too large values
+			if (valid) {
+				valid = (length == 2 && codePoint >= 0x80) ||
+						(length == 3 && codePoint >= 0x800 &&
+						(codePoint < 0xD800 || codePoint > 0xDFFF)) ||
+						(length == 4 && codePoint >= 0x10000 &&
+						codePoint <= 0x10FFFF);
+			}
+
+			if (!valid) {
+				chars[n++] = REPLACEMENT;
+				i++;
+			} else if (length == 4) {
+				chars[n++] = Character.highSurrogate(codePoint);
+				chars[n++] = Character.lowSurrogate(codePoint);
+				i += length;
+			} else {
+				chars[n++] = (char) codePoint;
+				i += length;
+			}
+		}
+
+		if (n > 0) {
+			out.write(chars, 0, n);
+		}
+	}
+
+	/**
+	 * Finds the end of the last complete UTF-8 sequence of a region.
+	 * @param bytes the bytes of the region.
+	 * @param length the number of bytes of the region.
+	 * @return the index after the last complete sequence.
+	 */
+	private static int lastBoundary(MappedByteBuffer bytes, int length) {
+		for (int i = length - 1; i >= Math.max(0, length - 3); i--) {
+			int b = bytes.get(i) & 0xFF;
+
+			if (b < 0x80) {
+				return length; // ASCII
+			}
+
+			if (b >= 0xC0) { // the lead byte of a sequence
+				int needed = (b >= 0xF0) ? 4 : (b >= 0xE0) ? 3 : 2;
+
+				return (i + needed > length) ? i : length;
+			}
+		}
+
+		return length;
+	}
+
+	/**
+	 * Skips the UTF-8 byte order mark at the beginning of a file.
+	 * @param bytes the first bytes of the file.
+	 * @param length the number of mapped bytes.
+	 * @return the index of the first byte of the text.
+	 */
+	private static int skipByteOrderMark(MappedByteBuffer bytes, int length) {
+		if (length >= 3 && (bytes.get(0) & 0xFF) == 0xEF &&
+				(bytes.get(1) & 0xFF) == 0xBB &&
+				(bytes.get(2) & 0xFF) == 0xBF) {
+			return 3;
+		}
+
+		return 0;
+	}
+} // end class MappedTextReader
\ No newline at end of file
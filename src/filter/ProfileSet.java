@@ -0,0 +1,222 @@
+package filter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The <code>ProfileSet</code> class scores articles against several
+ * topic profiles at once. The keywords of the filter agent and the
+ * keywords of all {@link TopicProfile}s are compiled into a single
+ * {@link KeywordMatcher}, so that the body of an article is scanned
+ * only once whatever the number of topics. The counts of each
+ * profile are a contiguous range of the counts of the matcher:
+ * <pre>
+ * | agent keywords | topic 0 keywords | topic 1 keywords | ... |
+ * </pre>
+ * For each topic, an article gets a keyword score and a rating
+ * predicted by the back propagation network of the topic. The
+ * article is routed to the topic with the highest predicted rating,
+ * since predicted ratings are on the same scale for all topics
+ * whereas keyword scores depend on the number of keywords of a
+ * topic. Articles that contain no keyword of any topic are not
+ * routed.<br>
+ * A <code>ProfileSet</code> is immutable, so it can be shared by
+ * several scoring threads.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ProfileSet {
+	/** The keywords of the filter agent. */
+	private final String[] ownKeywords;
+
+	/** The topic profiles. */
+	private final TopicProfile[] profiles;
+
+	/** The index of the first count of each topic profile, followed
+	 * by the total number of counts. */
+	private final int[] offsets;
+
+	/** The matcher of the keywords of the agent and all topics. */
+	private final KeywordMatcher matcher;
+
+	/**
+	 * Creates a set of topic profiles.
+	 * @param ownKeywords the keywords of the filter agent.
+	 * @param profiles the topic profiles.
+	 */
+	public ProfileSet(String[] ownKeywords, List<TopicProfile> profiles) {
+		this(ownKeywords, profiles.toArray(new TopicProfile[0]));
+	}
+
+	/**
+	 * Creates a set of topic profiles sharing the given array of
+	 * profiles.
+	 * @param ownKeywords the keywords of the filter agent.
+	 * @param profiles the topic profiles.
+	 */
+	private ProfileSet(String[] ownKeywords, TopicProfile[] profiles) {
+		this.ownKeywords = ownKeywords;
+		this.profiles = profiles;
+
+		offsets = new int[profiles.length + 1];
+		offsets[0] = ownKeywords.length;
+
+		for (int i = 0; i < profiles.length; i++) {
+			offsets[i + 1] = offsets[i] + profiles[i].getKeywords().length;
+		}
+
+		String[] allKeywords = Arrays.copyOf(ownKeywords,
+				offsets[profiles.length]);
+
+		for (int i = 0; i < profiles.length; i++) {
+			String[] keywords = profiles[i].getKeywords();
+
+			System.arraycopy(keywords, 0, allKeywords, offsets[i],
+					keywords.length);
+		}
+
+		matcher = new KeywordMatcher(allKeywords);
+	}
+
+	/**
+	 * Creates a set of the same topic profiles for a new list of
+	 * keywords of the filter agent. Articles routed by this set
+	 * keep their topics.
+	 * @param keywords the new keywords of the filter agent.
+	 * @return the new set of topic profiles.
+	 */
+	public ProfileSet withKeywords(String[] keywords) {
+		return new ProfileSet(keywords, profiles);
+	}
+
+	/**
+	 * Counts the keywords of the agent and of all topics in the
+	 * text of an article in a single pass.
+	 * @param article the article to be scanned.
+	 * @return the counts of all keywords.
+	 */
+	public int[] count(Article article) {
+		return matcher.count(article);
+	}
+
+	/**
+	 * Creates a counter of the keywords of the agent and of all
+	 * topics for a text that is fed in pieces.
+	 * @return a new counter.
+	 */
+	public KeywordMatcher.Counter newCounter() {
+		return matcher.newCounter();
+	}
+
+	/**
+	 * Extracts the counts of the keywords of the filter agent.
+	 * @param allCounts the counts of all keywords.
+	 * @return the counts of the keywords of the agent.
+	 */
+	public int[] getOwnCounts(int[] allCounts) {
+		return Arrays.copyOf(allCounts, ownKeywords.length);
+	}
+
+	/**
+	 * Extracts the counts of the keywords of a topic.
+	 * @param allCounts the counts of all keywords.
+	 * @param topic the index of the topic profile.
+	 * @return the counts of the keywords of the topic.
+	 */
+	public int[] getTopicCounts(int[] allCounts, int topic) {
+		return Arrays.copyOfRange(allCounts, offsets[topic],
+				offsets[topic + 1]);
+	}
+
+	/**
+	 * Scores an article against every topic profile and routes it
+	 * to the best matching topic.
+	 * @param article the article to be scored.
+	 * @param allCounts the counts of all keywords in the body of
+	 * the article.
+	 */
+	public void score(Article article, int[] allCounts) {
+		int[] keywordScores = new int[profiles.length];
+		double[] ratings = new double[profiles.length];
+
+		for (int i = 0; i < profiles.length; i++) {
+			int[] counts = getTopicCounts(allCounts, i);
+
+			for (int j = 0; j < counts.length; j++) {
+				keywordScores[i] += counts[j];
+			}
+
+			ratings[i] = profiles[i].getAgent().predictRating(counts);
+		}
+
+		int best = route(keywordScores, ratings);
+
+		article.topicKeywordScores = keywordScores;
+		article.topicRatings = ratings;
+		article.topic = (best == -1) ? null : profiles[best].getName();
+		article.topicProfiles = profiles;
+	}
+
+	/**
+	 * Chooses the topic with the highest predicted rating, and the
+	 * highest keyword score among equal ratings.
+	 * @param keywordScores the keyword score for each topic.
+	 * @param ratings the predicted rating for each topic.
+	 * @return the index of the best topic, -1 if no keyword of any
+	 * topic was found.
+	 */
+	private int route(int[] keywordScores, double[] ratings) {
+		int best = -1;
+
+		for (int i = 0; i < profiles.length; i++) {
+			if (keywordScores[i] == 0) {
+				continue;
+			}
+
+			if (best == -1 || ratings[i] > ratings[best] ||
+					(ratings[i] == ratings[best] &&
+					keywordScores[i] > keywordScores[best])) {
+				best = i;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Checks whether the topic of an article was chosen from the
+	 * topic profiles of this set.
+	 * @param article the article to be checked.
+	 * @return <code>true</code> if the topic scores of the article
+	 * are up to date.
+	 */
+	public boolean hasScored(Article article) {
+		return article.topicProfiles == profiles;
+	}
+
+	/**
+	 * Retrieves the number of topic profiles.
+	 * @return the number of topics.
+	 */
+	public int getNumProfiles() {
+		return profiles.length;
+	}
+
+	/**
+	 * Retrieves a topic profile.
+	 * @param topic the index of the topic profile.
+	 * @return the topic profile.
+	 */
+	public TopicProfile getProfile(int topic) {
+		return profiles[topic];
+	}
+
+	/**
+	 * Returns basic information about the set of profiles.
+	 */
+	public String toString() {
+		return "Profile Set: " + profiles.length + " topics " +
+				Arrays.asList(profiles) + ", " + offsets[profiles.length] +
+				" keywords";
+	}
+} // end class ProfileSet
\ No newline at end of file
@@ -0,0 +1,105 @@
+package filter;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The <code>ScoreArticlesTask</code> class scores a batch of articles
+ * on a fork/join pool. The batch is split in halves until each part
+ * is small enough to be scored on a single thread, so that keyword
+ * counting and neural network scoring of all parts run in parallel.
+ * <br>
+ * Each task also returns the raw keyword score sums and the number
+ * of articles of every cluster in its part. The results of two
+ * halves are combined by adding them up, which gives the data
+ * needed by {@link FilterAgent#computeClusterAverages} without a
+ * second sequential pass over the articles.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ScoreArticlesTask extends RecursiveTask<long[]> {
+	/** Serial version. */
+	private static final long serialVersionUID = 1L;
+
+	/** Parts with at most this number of articles are not split. */
+	public static final int SEQUENTIAL_THRESHOLD = 32;
+
+	/** The agent whose keywords and neural networks are used. */
+	private final FilterAgent filterAgent;
+
+	/** The whole batch of articles. */
+	private final Article[] articles;
+
+	/** Index of the first article of the part (inclusive). */
+	private final int from;
+
+	/** Index of the last article of the part (exclusive). */
+	private final int to;
+
+	/** The filter type used to score the articles. */
+	private final int filterType;
+
+	/**
+	 * Creates a task scoring the articles in the range
+	 * <code>[from, to)</code> of the given batch.
+	 * @param filterAgent the agent that scores the articles.
+	 * @param articles the whole batch of articles.
+	 * @param from the index of the first article to be scored.
+	 * @param to the index after the last article to be scored.
+	 * @param filterType the filter type (or filter method):<br>
+	 * <ul>
+	 * <li>{@link FilterAgent#USE_KEYWORDS}
+	 * <li>{@link FilterAgent#USE_CLUSTERS}
+	 * <li>{@link FilterAgent#USE_PREDICTED_RATING}
+	 * </ul>
+	 */
+	public ScoreArticlesTask(FilterAgent filterAgent, Article[] articles,
+			int from, int to, int filterType) {
+		this.filterAgent = filterAgent;
+		this.articles = articles;
+		this.from = from;
+		this.to = to;
+		this.filterType = filterType;
+	}
+
+	/**
+	 * Scores the part of the batch, splitting it if it is large.
+	 * @return an array of {@link FilterAgent#NUM_CLUSTERS} keyword
+	 * score sums followed by {@link FilterAgent#NUM_CLUSTERS}
+	 * article counts, one per cluster.
+	 */
+	@Override
+	protected long[] compute() {
+		if (to - from <= SEQUENTIAL_THRESHOLD) {
+			long[] sums = new long[2 * FilterAgent.NUM_CLUSTERS];
+
+			for (int i = from; i < to; i++) {
+				Article article = articles[i];
+
+				filterAgent.score(article, filterType);
+
+				int cluster = article.getClusterId();
+				sums[cluster] += article.getKeywordScore();
+				sums[FilterAgent.NUM_CLUSTERS + cluster]++;
+			}
+
+			return sums;
+		}
+
+		int middle = (from + to) >>> 1;
+		ScoreArticlesTask left = new ScoreArticlesTask(
+				filterAgent, articles, from, middle, filterType);
+		ScoreArticlesTask right = new ScoreArticlesTask(
+				filterAgent, articles, middle, to, filterType);
+
+		left.fork();
+		long[] sums = right.compute();
+		long[] leftSums = left.join();
+
+		// combine the cluster statistics of both halves
+		for (int i = 0; i < sums.length; i++) {
+			sums[i] += leftSums[i];
+		}
+
+		return sums;
+	}
+} // end class ScoreArticlesTask
\ No newline at end of file
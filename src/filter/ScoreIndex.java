@@ -0,0 +1,508 @@
+package filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The <code>ScoreIndex</code> class keeps the scores of a set of
+ * articles up to date and ranked for the current filter type, so
+ * that a change only costs the work for the articles it affects:
+ * <ul>
+ * <li>adding, re-rating or deleting an article only scores and
+ * re-positions that article
+ * <li>switching the filter type only computes the scores that were
+ * never computed for that filter type, since all three scores
+ * (<code>keywordScore</code>, <code>clusterScore</code> and
+ * <code>predictedRating</code>) are kept per article
+ * <li>changing the keywords or retraining a neural network only
+ * recomputes the scores that depend on them
+ * <li>the keyword counts for a new list of keywords are looked up
+ * in an {@link InvertedIndex} of the body texts
+ * </ul>
+ * Whether a score of an article is up to date is decided by the
+ * version of the keyword list and of the neural network it was
+ * computed with (see {@link FilterAgent#getKeywordsVersion()}).
+ * <br>
+ * The cluster score of an article is the average keyword score of
+ * its cluster, so it changes whenever an article joins or leaves
+ * the cluster. The index keeps the keyword score sum and the
+ * members of every cluster, and sets the cluster scores of the
+ * clusters that changed once per call. Since all members of a
+ * cluster have the same score, the clusters are ranked by their
+ * averages instead of re-positioning every member of a cluster in
+ * the ranking when its average changes.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ScoreIndex {
+	/**
+	 * The cluster statistics an article currently contributes to.
+	 */
+	private static class Entry {
+		final Article article;
+		final long sequence;
+		int cluster = -1;
+		int keywordScore;
+
+		Entry(Article article, long sequence) {
+			this.article = article;
+			this.sequence = sequence;
+		}
+	}
+
+	/** Orders entries by arrival. */
+	private static final Comparator<Entry> ARRIVAL_ORDER =
+			new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Long.compare(e1.sequence, e2.sequence);
+		}
+	};
+
+	/** The agent that scores the articles. */
+	private final FilterAgent filterAgent;
+
+	/** The articles ranked by their scores of the filter type; not
+	 * used for the order when clusters are used. */
+	private final ArticleRanking ranking;
+
+	/** The tokens of the body texts of the indexed articles. */
+	private final InvertedIndex textIndex = new InvertedIndex();
+
+	/** The entry of each indexed article. */
+	private final Map<Article, Entry> entries = new IdentityHashMap<>();
+
+	/** The keyword score sum of each cluster. */
+	private final long[] clusterSums = new long[FilterAgent.NUM_CLUSTERS];
+
+	/** The entries of the articles of each cluster, in arrival
+	 * order. */
+	private final List<List<Entry>> clusterMembers = new ArrayList<>();
+
+	/** Indicates whether the average of each cluster has changed
+	 * since the cluster scores of its articles were set. */
+	private final boolean[] clusterChanged =
+			new boolean[FilterAgent.NUM_CLUSTERS];
+
+	/** The arrival number of the next added article. */
+	private long nextSequence = 0;
+
+	/** The current filter type. */
+	private int filterType;
+
+	/**
+	 * Creates an empty index.
+	 * @param filterAgent the agent that scores the articles.
+	 * @param filterType the filter type (or filter method):<br>
+	 * <ul>
+	 * <li>{@link FilterAgent#USE_KEYWORDS}
+	 * <li>{@link FilterAgent#USE_CLUSTERS}
+	 * <li>{@link FilterAgent#USE_PREDICTED_RATING}
+	 * </ul>
+	 */
+	public ScoreIndex(FilterAgent filterAgent, int filterType) {
+		this.filterAgent = filterAgent;
+		this.filterType = filterType;
+		ranking = new ArticleRanking(filterType);
+
+		for (int i = 0; i < FilterAgent.NUM_CLUSTERS; i++) {
+			clusterMembers.add(new ArrayList<Entry>());
+		}
+	}
+
+	/**
+	 * Scores an article and adds it to the index.
+	 * @param article the article to be added.
+	 */
+	public synchronized void add(Article article) {
+		textIndex.add(article);
+		filterAgent.score(article, filterType);
+		register(article);
+		updateClusterScores();
+	}
+
+	/**
+	 * Scores an article whose tokens have already been counted and
+	 * adds it to the index.
+	 * @param article the article to be added.
+	 * @param tokenFrequencies the frequency of each token of the
+	 * text of the article.
+	 * @see FilterAgent#countKeywordsOfFile(Article)
+	 */
+	public synchronized void add(Article article,
+			Map<String, int[]> tokenFrequencies) {
+		textIndex.add(article, tokenFrequencies);
+		filterAgent.score(article, filterType);
+		register(article);
+		updateClusterScores();
+	}
+
+	/**
+	 * Scores a batch of articles in parallel and adds them to the
+	 * index.
+	 * @param articles the articles to be added.
+	 */
+	public synchronized void addAll(Collection<Article> articles) {
+		Article[] batch = articles.toArray(new Article[0]);
+
+		scoreInParallel(batch);
+
+		for (Article article : batch) {
+			textIndex.add(article);
+			register(article);
+		}
+
+		// each cluster that changed is updated once for the batch
+		updateClusterScores();
+	}
+
+	/**
+	 * Removes an article from the index.
+	 * @param article the article to be removed.
+	 */
+	public synchronized void remove(Article article) {
+		Entry entry = entries.remove(article);
+
+		if (entry != null) {
+			ranking.remove(article);
+			textIndex.remove(article);
+			leaveCluster(entry);
+			updateClusterScores();
+		}
+	}
+
+	/**
+	 * Removes a batch of articles from the index.
+	 * @param articles the articles to be removed.
+	 */
+	public synchronized void removeAll(Collection<Article> articles) {
+		for (Article article : articles) {
+			Entry entry = entries.remove(article);
+
+			if (entry != null) {
+				ranking.remove(article);
+				textIndex.remove(article);
+				leaveCluster(entry);
+			}
+		}
+
+		// each cluster that changed is updated once for the batch
+		updateClusterScores();
+	}
+
+	/**
+	 * Removes all articles from the index.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		textIndex.clear();
+		ranking.clear();
+
+		for (int i = 0; i < FilterAgent.NUM_CLUSTERS; i++) {
+			clusterSums[i] = 0;
+			clusterMembers.get(i).clear();
+			clusterChanged[i] = false;
+		}
+	}
+
+	/**
+	 * Re-scores and re-positions a single article, e.g. after the
+	 * user has changed its rating. Only the scores that are out of
+	 * date are computed again.
+	 * @param article the article whose score may have changed.
+	 */
+	public synchronized void update(Article article) {
+		Entry entry = entries.get(article);
+
+		if (entry == null) {
+			add(article);
+			return;
+		}
+
+		filterAgent.score(article, filterType);
+
+		if (filterType == FilterAgent.USE_CLUSTERS) {
+			leaveCluster(entry);
+			joinCluster(article, entry);
+			updateClusterScores();
+		} else {
+			ranking.update(article);
+		}
+	}
+
+	/**
+	 * Changes the filter type, computes the scores of the new
+	 * filter type that are out of date and re-ranks all articles.
+	 * @param filterType the new filter type.
+	 */
+	public synchronized void setFilterType(int filterType) {
+		this.filterType = filterType;
+
+		scoreInParallel(entries.keySet().toArray(new Article[0]));
+		rebuildClusters();
+		ranking.setFilterType(filterType);
+	}
+
+	/**
+	 * Brings all scores up to date, e.g. after the keywords were
+	 * changed or the neural networks were trained again.
+	 */
+	public synchronized void refresh() {
+		setFilterType(filterType);
+	}
+
+	/**
+	 * Recounts the keywords of all articles after the list of
+	 * keywords has changed and brings all scores up to date. The
+	 * counts are computed from the posting lists of the
+	 * {@link InvertedIndex} instead of scanning every body text.
+	 */
+	public synchronized void keywordsChanged() {
+		textIndex.updateCounts(filterAgent);
+		refresh();
+	}
+
+	/**
+	 * Retrieves the current filter type.
+	 * @return the filter type of the index.
+	 */
+	public synchronized int getFilterType() {
+		return filterType;
+	}
+
+	/**
+	 * Retrieves the number of indexed articles.
+	 * @return the number of articles.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Retrieves all indexed articles in ranked order.
+	 * @return the articles in descending order of their scores.
+	 */
+	public synchronized List<Article> getRankedArticles() {
+		return getTop(entries.size());
+	}
+
+	/**
+	 * Retrieves the <i>k</i> best articles.
+	 * @param k the number of articles to be retrieved.
+	 * @return at most <code>k</code> articles in descending order
+	 * of their scores.
+	 */
+	public synchronized List<Article> getTop(int k) {
+		if (filterType == FilterAgent.USE_CLUSTERS) {
+			return getTopOfClusters(k);
+		}
+
+		return ranking.getTop(k);
+	}
+
+	/**
+	 * Retrieves the <i>k</i> best articles when clusters are used,
+	 * by merging the clusters in descending order of their averages.
+	 * Articles of clusters with the same average keep their arrival
+	 * order, the same as in an {@link ArticleRanking}.
+	 * @param k the number of articles to be retrieved.
+	 * @return at most <code>k</code> articles in descending order
+	 * of their scores.
+	 */
+	private List<Article> getTopOfClusters(int k) {
+		List<Article> top = new ArrayList<>(Math.min(k, entries.size()));
+		double[] averages = new double[FilterAgent.NUM_CLUSTERS];
+		int[] next = new int[FilterAgent.NUM_CLUSTERS];
+
+		for (int i = 0; i < FilterAgent.NUM_CLUSTERS; i++) {
+			averages[i] = averageOf(i);
+		}
+
+		while (top.size() < k) {
+			Entry best = null;
+			int bestCluster = -1;
+
+			for (int i = 0; i < FilterAgent.NUM_CLUSTERS; i++) {
+				List<Entry> members = clusterMembers.get(i);
+
+				if (next[i] == members.size()) {
+					continue; // no more articles in this cluster
+				}
+
+				Entry entry = members.get(next[i]);
+
+				if (best == null || averages[i] > averages[bestCluster] ||
+						(averages[i] == averages[bestCluster] &&
+						entry.sequence < best.sequence)) {
+					best = entry;
+					bestCluster = i;
+				}
+			}
+
+			if (best == null) {
+				break; // all clusters are done
+			}
+
+			top.add(best.article);
+			next[bestCluster]++;
+		}
+
+		return top;
+	}
+
+	/**
+	 * Scores a batch of articles on the common fork/join pool.
+	 * Up to date scores are not computed again.
+	 * @param batch the articles to be scored.
+	 */
+	private void scoreInParallel(Article[] batch) {
+		try {
+			ForkJoinPool.commonPool().invoke(new ScoreArticlesTask(
+					filterAgent, batch, 0, batch.length, filterType));
+		} catch (Exception e) {
+			filterAgent.trace("Error: Exception occured while scoring articles");
+		}
+	}
+
+	/**
+	 * Adds a scored article to the ranking and, if clusters are
+	 * used, to its cluster.
+	 * @param article the scored article.
+	 */
+	private void register(Article article) {
+		Entry entry = entries.get(article);
+
+		if (entry == null) {
+			entry = new Entry(article, nextSequence++);
+			entries.put(article, entry);
+		}
+
+		if (filterType == FilterAgent.USE_CLUSTERS) {
+			leaveCluster(entry);
+			joinCluster(article, entry);
+		}
+
+		ranking.add(article);
+	}
+
+	/**
+	 * Adds the keyword score of an article to its cluster and marks
+	 * the cluster as changed.
+	 * @param article the article joining its cluster.
+	 * @param entry the entry of the article.
+	 */
+	private void joinCluster(Article article, Entry entry) {
+		entry.cluster = article.getClusterId();
+		entry.keywordScore = article.getKeywordScore();
+		clusterSums[entry.cluster] += entry.keywordScore;
+		clusterChanged[entry.cluster] = true;
+
+		List<Entry> members = clusterMembers.get(entry.cluster);
+
+		if (members.isEmpty() ||
+				members.get(members.size() - 1).sequence < entry.sequence) {
+			members.add(entry); // a new article arrives last
+		} else {
+			int index = Collections.binarySearch(members, entry,
+					ARRIVAL_ORDER);
+
+			members.add(-index - 1, entry);
+		}
+	}
+
+	/**
+	 * Removes the keyword score of an article from the cluster it
+	 * was counted in and marks the cluster as changed.
+	 * @param entry the entry of the article leaving its cluster.
+	 */
+	private void leaveCluster(Entry entry) {
+		if (entry.cluster == -1) {
+			return;
+		}
+
+		int cluster = entry.cluster;
+		List<Entry> members = clusterMembers.get(cluster);
+
+		clusterSums[cluster] -= entry.keywordScore;
+		clusterChanged[cluster] = true;
+		members.remove(Collections.binarySearch(members, entry,
+				ARRIVAL_ORDER));
+		entry.cluster = -1;
+	}
+
+	/**
+	 * Sets the cluster score of every article of the clusters that
+	 * changed to the average keyword score of its cluster.
+	 */
+	private void updateClusterScores() {
+		for (int i = 0; i < FilterAgent.NUM_CLUSTERS; i++) {
+			if (!clusterChanged[i]) {
+				continue;
+			}
+
+			double average = averageOf(i);
+
+			for (Entry entry : clusterMembers.get(i)) {
+				entry.article.setClusterScore(average);
+			}
+
+			clusterChanged[i] = false;
+		}
+	}
+
+	/**
+	 * Recomputes the statistics of all clusters from scratch and
+	 * sets the cluster score of every article. This is only done
+	 * when clusters are used.
+	 */
+	private void rebuildClusters() {
+		for (int i = 0; i < FilterAgent.NUM_CLUSTERS; i++) {
+			clusterSums[i] = 0;
+			clusterMembers.get(i).clear();
+			clusterChanged[i] = false;
+		}
+
+		for (Entry entry : entries.values()) {
+			entry.cluster = -1;
+		}
+
+		if (filterType != FilterAgent.USE_CLUSTERS) {
+			return;
+		}
+
+		for (Entry entry : entries.values()) {
+			entry.cluster = entry.article.getClusterId();
+			entry.keywordScore = entry.article.getKeywordScore();
+			clusterSums[entry.cluster] += entry.keywordScore;
+			clusterMembers.get(entry.cluster).add(entry);
+		}
+
+		for (int i = 0; i < FilterAgent.NUM_CLUSTERS; i++) {
+			Collections.sort(clusterMembers.get(i), ARRIVAL_ORDER);
+			clusterChanged[i] = true;
+		}
+
+		updateClusterScores();
+	}
+
+	/**
+	 * Computes the average keyword score of a cluster.
+	 * @param cluster the cluster whose average is computed.
+	 * @return the average, 0.0 if the cluster is empty.
+	 */
+	private double averageOf(int cluster) {
+		int size = clusterMembers.get(cluster).size();
+
+		if (size > 0) {
+			return (double) clusterSums[cluster] / size;
+		} else {
+			return 0.0;
+		}
+	}
+} // end class ScoreIndex
\ No newline at end of file
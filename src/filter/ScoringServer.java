@@ -0,0 +1,734 @@
+package filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The <code>ScoringServer</code> class is an embedded HTTP server that
+ * lets other tools score documents with a {@link FilterAgent} without
+ * the GUI. All requests and responses are JSON:
+ * <ul>
+ * <li><code>POST /score</code> <code>{"id": "...", "text": "..."}</code>
+ * scores a document
+ * <li><code>POST /batch</code> <code>{"documents": [{"id": "...",
+ * "text": "..."}, ...]}</code> scores up to
+ * {@link #MAX_BATCH_SIZE} documents in parallel
+ * <li><code>GET /topk?k=10</code> returns the best scored documents
+ * <li><code>POST /feedback</code> <code>{"id": "...", "rating": 0-4,
+ * "addToProfile": true}</code> sets the user rating of a document,
+ * and appends its profile record to the training data if asked
+ * <li><code>POST /delete</code> <code>{"id": "..."}</code> forgets
+ * a document
+ * <li><code>GET /stats</code> returns the latency of every endpoint
+ * </ul>
+ * Scored documents are kept in a {@link ScoreIndex} under their
+ * identifiers, so that they can be ranked and rated later. Scoring a
+ * document with the identifier of a kept document replaces it. At
+ * most {@link #MAX_DOCUMENTS} documents are kept, the documents scored
+ * the longest time ago being forgotten first.<br>
+ * Requests are handled by a bounded pool of threads. When all threads
+ * are busy and the queue is full, the thread accepting connections
+ * handles the request itself, which stops accepting new connections
+ * until the load drops.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ScoringServer {
+	/** The default port of the server. */
+	public static final int DEFAULT_PORT = 8080;
+
+	/** The maximum number of documents of a batch request. */
+	public static final int MAX_BATCH_SIZE = 10000;
+
+	/** The maximum number of kept documents. */
+	public static final int MAX_DOCUMENTS = 100000;
+
+	/** The maximum size of a request body, in bytes. */
+	public static final int MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+
+	/** The number of requests waiting for a thread. */
+	private static final int QUEUE_SIZE = 256;
+
+	/** The agent scoring the documents. */
+	protected FilterAgent filterAgent;
+
+	/** The scores and the ranking of the kept documents. */
+	protected ScoreIndex scoreIndex;
+
+	/**
+	 * The kept documents by identifier, from the least recently scored.
+	 * Its lock also guards the changes of the index, so that the map
+	 * and the index always hold the same documents.
+	 */
+	private final Map<String, Article> documents = new LinkedHashMap<>();
+
+	/** The statistics of every endpoint, in the order of creation. */
+	private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+
+	/** The HTTP server. */
+	private HttpServer server;
+
+	/** The threads handling the requests. */
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * Creates a server.
+	 * @param filterAgent the agent scoring the documents.
+	 * @param filterType the filter type (or filter method):<br>
+	 * <ul>
+	 * <li>{@link FilterAgent#USE_KEYWORDS}
+	 * <li>{@link FilterAgent#USE_CLUSTERS}
+	 * <li>{@link FilterAgent#USE_PREDICTED_RATING}
+	 * </ul>
+	 */
+	public ScoringServer(FilterAgent filterAgent, int filterType) {
+		this.filterAgent = filterAgent;
+		scoreIndex = new ScoreIndex(filterAgent, filterType);
+	}
+
+	/**
+	 * Starts the server.
+	 * @param address the address and the port the server listens to.
+	 * @param numThreads the number of threads handling requests.
+	 * @throws IOException if the server cannot listen to the address.
+	 */
+	public synchronized void start(InetSocketAddress address, int numThreads)
+			throws IOException {
+		server = HttpServer.create(address, 0);
+		executor = new ThreadPoolExecutor(numThreads, numThreads,
+				60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+
+		server.createContext("/score", new Endpoint("score", "POST") {
+			@Override
+			Object respond(HttpExchange exchange, Object request) {
+				Article article = toArticle(request);
+
+				filterAgent.score(article, scoreIndex.getFilterType());
+				keep(Arrays.asList(article));
+				return toJson(article);
+			}
+		});
+
+		server.createContext("/batch", new Endpoint("batch", "POST") {
+			@Override
+			Object respond(HttpExchange exchange, Object request) {
+				List<?> list = (List<?>) member(request, "documents", List.class);
+
+				if (list.size() > MAX_BATCH_SIZE) {
+					throw new RequestException(413, "more than " +
+							MAX_BATCH_SIZE + " documents");
+				}
+
+				Article[] batch = new Article[list.size()];
+
+				for (int i = 0; i < batch.length; i++) {
+					batch[i] = toArticle(list.get(i));
+				}
+
+				// score outside of the index so that other requests
+				// are not blocked meanwhile
+				ForkJoinPool.commonPool().invoke(new ScoreArticlesTask(
+						filterAgent, batch, 0, batch.length,
+						scoreIndex.getFilterType()));
+				keep(Arrays.asList(batch));
+
+				List<Object> results = new ArrayList<>();
+
+				for (Article article : batch) {
+					results.add(toJson(article));
+				}
+
+				return object("results", results);
+			}
+		});
+
+		server.createContext("/topk", new Endpoint("topk", "GET") {
+			@Override
+			Object respond(HttpExchange exchange, Object request) {
+				int k = 10;
+				String query = exchange.getRequestURI().getRawQuery();
+
+				if (query != null) {
+					for (String param : query.split("&")) {
+						if (param.startsWith("k=")) {
+							try {
+								k = Integer.parseInt(param.substring(2));
+							} catch (NumberFormatException e) {
+								throw new RequestException(400, "invalid k");
+							}
+						}
+					}
+				}
+
+				if (k < 0) {
+					throw new RequestException(400, "k must not be negative");
+				}
+
+				List<Object> results = new ArrayList<>();
+
+				for (Article article : scoreIndex.getTop(k)) {
+					results.add(toJson(article));
+				}
+
+				return object("articles", results);
+			}
+		});
+
+		server.createContext("/feedback", new Endpoint("feedback", "POST") {
+			@Override
+			Object respond(HttpExchange exchange, Object request) {
+				String id = (String) member(request, "id", String.class);
+				double level = (Double) member(request, "rating", Double.class);
+				Article article;
+
+				if (level < 0 || level >= FilterAgent.RATINGS.length ||
+						level != Math.rint(level)) {
+					throw new RequestException(400, "the rating must be " +
+							"an integer from 0 to " +
+							(FilterAgent.RATINGS.length - 1));
+				}
+
+				// the document cannot be replaced or forgotten between
+				// the lookup and the update, which would put it back
+				// into the index
+				synchronized (documents) {
+					article = documents.get(id);
+
+					if (article == null) {
+						throw new RequestException(404, "unknown id " + id);
+					}
+
+					article.setUserRating(FilterAgent.RATINGS[(int) level]);
+					scoreIndex.update(article);
+				}
+
+				Object addToProfile = ((Map<?, ?>) request).get("addToProfile");
+
+				if (Boolean.TRUE.equals(addToProfile)) {
+					filterAgent.addArticleToProfile(article);
+				}
+
+				return toJson(article);
+			}
+		});
+
+		server.createContext("/delete", new Endpoint("delete", "POST") {
+			@Override
+			Object respond(HttpExchange exchange, Object request) {
+				String id = (String) member(request, "id", String.class);
+
+				synchronized (documents) {
+					Article article = documents.remove(id);
+
+					if (article == null) {
+						throw new RequestException(404, "unknown id " + id);
+					}
+
+					scoreIndex.remove(article);
+				}
+
+				return object("id", id);
+			}
+		});
+
+		server.createContext("/stats", new Endpoint("stats", "GET") {
+			@Override
+			Object respond(HttpExchange exchange, Object request) {
+				Map<String, Object> result = new LinkedHashMap<>();
+				Map<String, Object> endpoints = new LinkedHashMap<>();
+
+				synchronized (stats) {
+					for (Map.Entry<String, LatencyStats> e : stats.entrySet()) {
+						endpoints.put(e.getKey(), e.getValue().toJson());
+					}
+				}
+
+				result.put("documents", scoreIndex.size());
+				result.put("activeThreads", executor.getActiveCount());
+				result.put("queuedRequests", executor.getQueue().size());
+				result.put("endpoints", endpoints);
+				return result;
+			}
+		});
+
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Stops the server, waiting at most one second for the requests
+	 * being handled.
+	 */
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(1);
+			executor.shutdown();
+			server = null;
+		}
+	}
+
+	/**
+	 * Retrieves the address the server listens to.
+	 * @return the address of the server.
+	 */
+	public synchronized InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Keeps scored documents, replacing the documents with the same
+	 * identifiers and forgetting the oldest documents beyond
+	 * {@link #MAX_DOCUMENTS}.
+	 * @param articles the scored documents.
+	 */
+	private void keep(List<Article> articles) {
+		List<Article> removed = new ArrayList<>();
+		List<Article> kept = new ArrayList<>();
+
+		synchronized (documents) {
+			for (Article article : articles) {
+				// removed first so that the document becomes the newest
+				Article old = documents.remove(article.getID());
+
+				if (old != null && old != article) {
+					removed.add(old);
+				}
+
+				documents.put(article.getID(), article);
+			}
+
+			Iterator<Article> oldest = documents.values().iterator();
+
+			while (documents.size() > MAX_DOCUMENTS) {
+				removed.add(oldest.next());
+				oldest.remove();
+			}
+
+			// a document replaced or forgotten within the same list is
+			// not added to the index
+			for (Article article : articles) {
+				if (documents.get(article.getID()) == article) {
+					kept.add(article);
+				}
+			}
+
+			scoreIndex.removeAll(removed);
+
+			// the scores are up to date, so they are not computed again
+			scoreIndex.addAll(kept);
+		}
+	}
+
+	/**
+	 * Creates the article of a document of a request.
+	 * @param document the document, a JSON object with an
+	 * <code>id</code> and a <code>text</code>.
+	 * @return the article.
+	 */
+	private static Article toArticle(Object document) {
+		String id = (String) member(document, "id", String.class);
+		String text = (String) member(document, "text", String.class);
+		Article article = new Article(id, Article.FROM_WEB_PAGE);
+
+		article.setSubject(id, Article.FROM_WEB_PAGE);
+		article.setBody(text);
+		return article;
+	}
+
+	/**
+	 * Converts the scores of an article to JSON.
+	 * @param article the scored article.
+	 * @return the JSON object of the scores.
+	 */
+	private Map<String, Object> toJson(Article article) {
+		Map<String, Object> json = new LinkedHashMap<>();
+
+		json.put("id", article.getID());
+		json.put("score", article.getScore(scoreIndex.getFilterType()));
+		json.put("keywordScore", article.getKeywordScore());
+		json.put("cluster", article.getClusterId());
+		json.put("clusterScore", article.getClusterScore());
+		json.put("predictedRating", article.getPredictedRating());
+		json.put("userRating", article.getUserRating());
+		json.put("topic", article.getTopic());
+
+		return json;
+	}
+
+	/**
+	 * Retrieves a member of a JSON object of a request.
+	 * @param object the JSON object.
+	 * @param name the name of the member.
+	 * @param type the expected type of the member.
+	 * @return the value of the member.
+	 */
+	private static Object member(Object object, String name, Class<?> type) {
+		Object value = (object instanceof Map) ?
+				((Map<?, ?>) object).get(name) : null;
+
+		if (!type.isInstance(value)) {
+			throw new RequestException(400, "missing or invalid \"" +
+					name + "\"");
+		}
+
+		return value;
+	}
+
+	/**
+	 * Creates a JSON object with a single member.
+	 * @param name the name of the member.
+	 * @param value the value of the member.
+	 * @return the JSON object.
+	 */
+	private static Map<String, Object> object(String name, Object value) {
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put(name, value);
+		return json;
+	}
+
+	/**
+	 * Writes a value made of maps, lists, strings, numbers and
+	 * booleans as JSON.
+	 * @param value the value to be written.
+	 * @param json the buffer receiving the JSON text.
+	 */
+	private static void writeJson(Object value, StringBuilder json) {
+		if (value instanceof Map) {
+			json.append('{');
+			String separator = "";
+
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+				json.append(separator).append(Json.quote((String) e.getKey()))
+						.append(':');
+				writeJson(e.getValue(), json);
+				separator = ",";
+			}
+
+			json.append('}');
+		} else if (value instanceof List) {
+			json.append('[');
+			String separator = "";
+
+			for (Object element : (List<?>) value) {
+				json.append(separator);
+				writeJson(element, json);
+				separator = ",";
+			}
+
+			json.append(']');
+		} else if (value instanceof Number) {
+			json.append(Json.number(((Number) value).doubleValue()));
+		} else if (value instanceof Boolean) {
+			json.append(value);
+		} else {
+			json.append(Json.quote((String) value));
+		}
+	}
+
+	/**
+	 * The <code>RequestException</code> class reports an invalid
+	 * request with its HTTP status code.
+	 */
+	private static class RequestException extends RuntimeException {
+		/** Serial version. */
+		private static final long serialVersionUID = 1L;
+
+		/** The HTTP status code of the response. */
+		final int status;
+
+		RequestException(int status, String msg) {
+			super(msg);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * The <code>Endpoint</code> class handles the requests of an
+	 * endpoint: it checks the method, parses the JSON body, writes
+	 * the JSON response or error and records the latency.
+	 */
+	private abstract class Endpoint implements HttpHandler {
+		/** The HTTP method of the endpoint. */
+		private final String method;
+
+		/** The latency of the requests of the endpoint. */
+		private final LatencyStats latency = new LatencyStats();
+
+		/**
+		 * Creates an endpoint.
+		 * @param name the name of the endpoint in the statistics.
+		 * @param method the HTTP method of the endpoint.
+		 */
+		Endpoint(String name, String method) {
+			this.method = method;
+
+			synchronized (stats) {
+				stats.put(name, latency);
+			}
+		}
+
+		/**
+		 * Computes the response to a request.
+		 * @param exchange the HTTP exchange.
+		 * @param request the parsed JSON body, or <code>null</code>
+		 * for a GET request.
+		 * @return the JSON value of the response.
+		 */
+		abstract Object respond(HttpExchange exchange, Object request);
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			long startTime = System.nanoTime();
+			int status = 200;
+			Object response;
+
+			try {
+				if (!exchange.getRequestMethod().equals(method)) {
+					throw new RequestException(405, method + " only");
+				}
+
+				Object request = method.equals("POST") ?
+						Json.parse(readBody(exchange)) : null;
+
+				response = respond(exchange, request);
+			} catch (RequestException e) {
+				status = e.status;
+				response = object("error", e.getMessage());
+			} catch (IllegalArgumentException e) {
+				status = 400;
+				response = object("error", e.getMessage());
+			} catch (Exception e) {
+				status = 500;
+				response = object("error", e.toString());
+			}
+
+			StringBuilder json = new StringBuilder();
+			writeJson(response, json);
+			byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+
+			try {
+				exchange.getResponseHeaders().set("Content-Type",
+						"application/json; charset=utf-8");
+				exchange.sendResponseHeaders(status, bytes.length);
+
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			} finally {
+				exchange.close();
+				latency.record(System.nanoTime() - startTime, status < 400);
+			}
+		}
+
+		/**
+		 * Reads the body of a request as UTF-8 text.
+		 * @param exchange the HTTP exchange.
+		 * @return the body of the request.
+		 * @throws IOException if the body cannot be read.
+		 */
+		private String readBody(HttpExchange exchange) throws IOException {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+
+			try (InputStream in = exchange.getRequestBody()) {
+				for (int n; (n = in.read(buffer)) != -1; ) {
+					if (body.size() + n > MAX_REQUEST_SIZE) {
+						throw new RequestException(413, "the request is " +
+								"larger than " + MAX_REQUEST_SIZE + " bytes");
+					}
+
+					body.write(buffer, 0, n);
+				}
+			}
+
+			return new String(body.toByteArray(), StandardCharsets.UTF_8);
+		}
+	} // end class Endpoint
+
+	/**
+	 * The <code>LatencyStats</code> class records the latency of the
+	 * requests of an endpoint in a histogram whose buckets grow by a
+	 * factor of two from one microsecond, so that the percentiles are
+	 * known within a factor of two in constant memory.
+	 */
+	static class LatencyStats {
+		/** The number of requests of each bucket. */
+		private final long[] buckets = new long[40];
+
+		/** The number of requests. */
+		private long count = 0;
+
+		/** The number of failed requests. */
+		private long errors = 0;
+
+		/** The sum and the maximum of the latencies, in nanoseconds. */
+		private long totalNanos = 0;
+		private long maxNanos = 0;
+
+		/**
+		 * Records the latency of a request.
+		 * @param nanos the latency in nanoseconds.
+		 * @param success <code>false</code> if the request failed.
+		 */
+		synchronized void record(long nanos, boolean success) {
+			long micros = Math.max(nanos / 1000, 1);
+			int bucket = 63 - Long.numberOfLeadingZeros(micros);
+
+			buckets[Math.min(bucket, buckets.length - 1)]++;
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+
+			if (!success) {
+				errors++;
+			}
+		}
+
+		/**
+		 * Estimates a percentile of the latencies.
+		 * @param percent the percentile, from 0 to 100.
+		 * @return the upper bound of the bucket of the percentile,
+		 * in milliseconds.
+		 */
+		synchronized double percentile(double percent) {
+			long rank = (long) Math.ceil(count * percent / 100.0);
+			long seen = 0;
+
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+
+				if (seen >= rank && seen > 0) {
+					return Math.min((1L << (i + 1)) / 1000.0, maxNanos / 1e6);
+				}
+			}
+
+			return 0.0;
+		}
+
+		/**
+		 * Converts the statistics to JSON.
+		 * @return the JSON object of the statistics.
+		 */
+		synchronized Map<String, Object> toJson() {
+			Map<String, Object> json = new LinkedHashMap<>();
+
+			json.put("count", count);
+			json.put("errors", errors);
+			json.put("meanMs", (count == 0) ? 0.0 : totalNanos / 1e6 / count);
+			json.put("p50Ms", percentile(50));
+			json.put("p95Ms", percentile(95));
+			json.put("p99Ms", percentile(99));
+			json.put("maxMs", maxNanos / 1e6);
+			return json;
+		}
+	} // end class LatencyStats
+
+	/**
+	 * Prints the usage of the command and exits.
+	 */
+	private static void usage() {
+		System.err.println("Usage: java filter.ScoringServer [options]");
+		System.err.println("  -port n         port (default " +
+				DEFAULT_PORT + ")");
+		System.err.println("  -host name      address to listen to " +
+				"(default loopback)");
+		System.err.println("  -profile path   filterAgent.ser or a topic " +
+				"directory (default ./" + FilterAgent.fileName + ")");
+		System.err.println("  -topics dir     directory of topic " +
+				"directories to route documents to");
+		System.err.println("  -filter type    keywords, clusters or " +
+				"rating (default keywords)");
+		System.err.println("  -threads n      number of request threads");
+		System.exit(2);
+	}
+
+	/**
+	 * Starts a server with the options given on the command line.
+	 * @param args the options.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		int port = DEFAULT_PORT;
+		String host = null;
+		File profile = new File(FilterAgent.fileName);
+		File topics = null;
+		int filterType = FilterAgent.USE_KEYWORDS;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+
+		try {
+			for (int i = 0; i < args.length; i += 2) {
+				if (i + 1 >= args.length) {
+					usage();
+				}
+
+				String arg = args[i];
+				String value = args[i + 1];
+
+				if (arg.equals("-port")) {
+					port = Integer.parseInt(value);
+				} else if (arg.equals("-host")) {
+					host = value;
+				} else if (arg.equals("-profile")) {
+					profile = new File(value);
+				} else if (arg.equals("-topics")) {
+					topics = new File(value);
+				} else if (arg.equals("-filter")) {
+					filterType = BatchScorer.parseFilterType(value);
+				} else if (arg.equals("-threads")) {
+					numThreads = Integer.parseInt(value);
+				} else {
+					usage();
+				}
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		}
+
+		if (filterType == -1 || numThreads < 1) {
+			usage();
+		}
+
+		try {
+			FilterAgent filterAgent = BatchScorer.loadProfile(profile);
+
+			if (topics != null) {
+				filterAgent.setTopicProfiles(TopicProfile.loadAll(topics));
+			}
+
+			InetSocketAddress address = (host == null) ?
+					new InetSocketAddress(InetAddress.getLoopbackAddress(), port) :
+					new InetSocketAddress(host, port);
+			ScoringServer server = new ScoringServer(filterAgent, filterType);
+
+			server.start(address, numThreads);
+			System.err.println("Scoring server listening on " +
+					server.getAddress());
+		} catch (Exception e) {
+			System.err.println("Error: cannot start the scoring server - " + e);
+			System.exit(1);
+		}
+	}
+} // end class ScoringServer
\ No newline at end of file
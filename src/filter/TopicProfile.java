@@ -0,0 +1,119 @@
+package filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The <code>TopicProfile</code> class is a named profile of a topic
+ * of interest: the keywords and the trained neural networks of a
+ * {@link FilterAgent} that was serialized into a topic directory,
+ * such as those under <code>TrainingDataSets</code>.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class TopicProfile {
+	/** The name of the topic. */
+	protected String name;
+
+	/** The agent holding the keywords and the neural networks of
+	 * the topic. */
+	protected FilterAgent agent;
+
+	/**
+	 * Creates a topic profile.
+	 * @param name the name of the topic.
+	 * @param agent the agent holding the profile of the topic.
+	 */
+	public TopicProfile(String name, FilterAgent agent) {
+		this.name = name;
+		this.agent = agent;
+	}
+
+	/**
+	 * Retrieves the name of the topic.
+	 * @return the name of the topic.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Retrieves the agent holding the profile of the topic.
+	 * @return the agent of the topic.
+	 */
+	public FilterAgent getAgent() {
+		return agent;
+	}
+
+	/**
+	 * Retrieves the keywords of the topic.
+	 * @return the keywords of the topic.
+	 */
+	public String[] getKeywords() {
+		return agent.getKeywords();
+	}
+
+	/**
+	 * Reads the topic profile serialized in a topic directory. The
+	 * name of the topic is the name of the directory without a
+	 * leading number (e.g. <i>1- Artificial Intelligence</i> gives
+	 * <i>Artificial Intelligence</i>).
+	 * @param directory the directory containing the serialized
+	 * {@link FilterAgent}.
+	 * @return the topic profile.
+	 * @throws IOException if the agent cannot be read.
+	 * @throws ClassNotFoundException if the class of the agent
+	 * cannot be found.
+	 */
+	public static TopicProfile load(File directory)
+			throws IOException, ClassNotFoundException {
+		FilterAgent agent = FilterAgent.restoreFromFile(
+				new File(directory, FilterAgent.fileName).getPath());
+		String name = directory.getName().replaceFirst("^\\d+\\s*-\\s*", "");
+
+		return new TopicProfile(name, agent);
+	}
+
+	/**
+	 * Reads the topic profiles of all sub-directories of a
+	 * directory that contain a serialized {@link FilterAgent}, in
+	 * the order of the directory names.
+	 * @param directory the directory containing topic directories.
+	 * @return the topic profiles that could be read.
+	 */
+	public static List<TopicProfile> loadAll(File directory) {
+		List<TopicProfile> profiles = new ArrayList<>();
+		File[] topicDirs = directory.listFiles();
+
+		if (topicDirs == null) {
+			return profiles;
+		}
+
+		Arrays.sort(topicDirs);
+
+		for (File topicDir : topicDirs) {
+			if (!new File(topicDir, FilterAgent.fileName).isFile()) {
+				continue;
+			}
+
+			try {
+				profiles.add(load(topicDir));
+			} catch (Exception e) {
+				System.out.println("Error: cannot read topic profile " +
+						topicDir + " - " + e.toString());
+			}
+		}
+
+		return profiles;
+	}
+
+	/**
+	 * Returns the name of the topic.
+	 */
+	public String toString() {
+		return name;
+	}
+} // end class TopicProfile
\ No newline at end of file
@@ -3,7 +3,9 @@ package filter;
 import java.awt.Desktop;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.net.URI;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -67,13 +69,22 @@ public class Utilities {
 	}
 
 	/**
-	 * Extracts the text contents of a PDF file.
+	 * Extracts the text contents of a PDF file. The text is taken
+	 * from the {@link ExtractedTextCache} if the file was already
+	 * extracted.
 	 * @param filePath the abstract path of the PDF file to be extracted.
 	 * @return the entire text contents of the PDF file.
 	 */
 	public static String getContentsOfPDFFile(String filePath) {
+		ExtractedTextCache cache = ExtractedTextCache.getDefault();
+		String contents = (cache == null) ? null : cache.get(filePath);
+
+		if (contents != null) {
+			return contents;
+		}
+
 		try {
-			String contents = "";
+			contents = "";
 			PDDocument document = PDDocument.load(new File(filePath));
 
 			if (!document.isEncrypted()) {
@@ -82,6 +93,10 @@ public class Utilities {
 				document.close();
 			}
 
+			if (cache != null) {
+				cache.put(filePath, contents);
+			}
+
 			return contents;
 		} catch (Exception e) {
 			System.out.println(
@@ -92,13 +107,127 @@ public class Utilities {
 	}
 
 	/**
-	 * Extracts the text contents of a MS Word file.
+	 * Extracts the text contents of a PDF file page by page and
+	 * writes them to a writer, so that the text of the whole
+	 * document is never held in memory. The text is also written to
+	 * the {@link ExtractedTextCache}, or read from it if the file was
+	 * already extracted.
+	 * @param filePath the abstract path of the PDF file to be extracted.
+	 * @param out the writer receiving the text contents.
+	 * @throws IOException if the file cannot be read or the text
+	 * cannot be written.
+	 */
+	public static void writeContentsOfPDFFile(String filePath, Writer out)
+			throws IOException {
+		ExtractedTextCache cache = ExtractedTextCache.getDefault();
+
+		if (cache != null && cache.write(filePath, out)) {
+			return;
+		}
+
+		// the entry is only created for a document that could be
+		// loaded, so that a bad file leaves no temporary entry file
+		PDDocument document = PDDocument.load(new File(filePath));
+		Writer entry = (cache == null) ? out : cache.newEntry(filePath, out);
+
+		try {
+			if (!document.isEncrypted()) {
+				PDFTextStripper extractor = new PDFTextStripper();
+
+				for (int page = 1; page <= document.getNumberOfPages(); page++) {
+					extractor.setStartPage(page);
+					extractor.setEndPage(page);
+					extractor.writeText(document, entry);
+				}
+			}
+
+			if (cache != null) {
+				((ExtractedTextCache.Entry) entry).commit();
+			}
+		} finally {
+			document.close();
+
+			if (cache != null) {
+				entry.close();
+			}
+		}
+	}
+
+	/**
+	 * Copies the contents of a UTF-8 text (or HTML) file to a writer
+	 * in chunks, decoding them from a memory mapping of the file as
+	 * {@link Article#readArticle(String)} does.
+	 * @param filePath the abstract path of the text file.
+	 * @param out the writer receiving the text contents.
+	 * @throws IOException if the file cannot be read or the text
+	 * cannot be written.
+	 */
+	public static void writeContentsOfTextFile(String filePath, Writer out)
+			throws IOException {
+		MappedTextReader.write(filePath, out);
+	}
+
+	/**
+	 * Writes the whole text of an article to a writer. The text of
+	 * an article whose body only holds a preview is read from the
+	 * file of the article again. MS Word and PowerPoint files are
+	 * extracted as a whole, since their extractors have no
+	 * streaming interface.
+	 * @param article the article whose text is written.
+	 * @param out the writer receiving the text.
+	 * @throws IOException if the file cannot be read or the text
+	 * cannot be written.
+	 */
+	public static void writeContents(Article article, Writer out)
+			throws IOException {
+		if (!article.isTruncated()) {
+			if (article.getBody() != null) {
+				out.write(article.getBody());
+			}
+
+			return;
+		}
+
+		switch (article.getType()) {
+		case Article.FROM_TEXT_FILE:
+		case Article.FROM_HTML_FILE:
+			writeContentsOfTextFile(article.getID(), out);
+			break;
+
+		case Article.FROM_PDF_FILE:
+			writeContentsOfPDFFile(article.getID(), out);
+			break;
+
+		case Article.FROM_MS_WORD_FILE:
+			out.write(getContentsOfWordFile(article.getID()));
+			break;
+
+		case Article.FROM_PPTX_FILE:
+			out.write(getContentsOfPPTXFile(article.getID()));
+			break;
+
+		default:
+			out.write(article.getBody());
+		}
+	}
+
+	/**
+	 * Extracts the text contents of a MS Word file. The text is taken
+	 * from the {@link ExtractedTextCache} if the file was already
+	 * extracted.
 	 * @param filePath the abstract path of the MS Word file to be extracted.
 	 * @return the entire text contents of the MS Word file.
 	 */
 	public static String getContentsOfWordFile(String filePath) {
+		ExtractedTextCache cache = ExtractedTextCache.getDefault();
+		String contents = (cache == null) ? null : cache.get(filePath);
+
+		if (contents != null) {
+			return contents;
+		}
+
 		try {
-			String contents = "";
+			contents = "";
 
 			// open a word file and place it in a xwpd format
 			File file = new File(filePath);
@@ -109,6 +238,10 @@ public class Utilities {
 			contents = extractor.getText();
 			extractor.close();
 
+			if (cache != null) {
+				cache.put(filePath, contents);
+			}
+
 			return contents;
 		} catch (Exception e) {
 			System.out.println(
@@ -119,19 +252,32 @@ public class Utilities {
 	}
 
 	/**
-	 * Extracts the text contents of a PowerPoint .pptx file.
+	 * Extracts the text contents of a PowerPoint .pptx file. The text
+	 * is taken from the {@link ExtractedTextCache} if the file was
+	 * already extracted.
 	 * @param filePath the abstract path of the PPTX file to be extracted.
 	 * @return the entire text contents of the PPTX file.
 	 */
 	public static String getContentsOfPPTXFile(String filePath) {
+		ExtractedTextCache cache = ExtractedTextCache.getDefault();
+		String contents = (cache == null) ? null : cache.get(filePath);
+
+		if (contents != null) {
+			return contents;
+		}
+
 		try {
 			XSLFSlideShow slideShow =
 					new XSLFSlideShow(filePath);
 			XSLFPowerPointExtractor extractor = 
 					new XSLFPowerPointExtractor(slideShow);
-			String contents = extractor.getText();
+			contents = extractor.getText();
 			extractor.close();
 
+			if (cache != null) {
+				cache.put(filePath, contents);
+			}
+
 			return contents;
 		} catch (Exception e) {
 			System.out.println("Error: cannot extract text of the "
@@ -1,5 +1,7 @@
 package learn;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Vector;
 
@@ -8,6 +10,12 @@ import javax.swing.JTextArea;
 /**
  * The <code>BackProp</code> class implements the standard backward
  * propagation algorithm with momentum for using in neural networks.
+ * A network has an input layer, one or more hidden layers and an
+ * output layer, each fully connected to the next one. The units of
+ * all layers are numbered one layer after the other, and the weights
+ * of each layer are a matrix, one row per unit of the layer and one
+ * column per unit of the previous layer, stored after the weights
+ * of the previous layer.
  * 
  * @author Tran Xuan Hoang
  */
@@ -20,6 +28,9 @@ public class BackProp implements Serializable {
 	private DataSet dataset;
 	/** Holds the training data. */
 	private Vector<double[]> data;
+	/** Holds the training data, one record per row, if it is set as
+	 * a matrix instead of a <code>Vector</code>. */
+	private DataMatrix matrix;
 	/** Current record index. */
 	private int recInx = 0;
 	/** Total number of records in data. */
@@ -38,6 +49,16 @@ public class BackProp implements Serializable {
 	private int numInputs;
 	/** Number of units in the first hidden layer. */
 	private int numHid1;
+	/** Number of units in each layer, from the input layer to the
+	 * output layer. */
+	private int[] layerSizes;
+	/** Index of the first unit of each layer, followed by the total
+	 * number of units. */
+	transient private int[] layerStarts;
+	/** Index in the weights of the first weight of each layer, the
+	 * input layer having none, followed by the total number of
+	 * weights. */
+	transient private int[] weightStarts;
 	/** Number of units in the output layer. */
 	private int numOutputs;
 	/** Total number of units in all layers. */
@@ -55,6 +76,12 @@ public class BackProp implements Serializable {
 	private int mode;
 	private double learnRate; // learnRate and momentum are used to
 	private double momentum;  // control the size of the weight updates
+	/**
+	 * The number of records processed by {@link #processBatch()}
+	 * before the weights are adjusted, 1 to adjust them after each
+	 * record as {@link #process()} does.
+	 */
+	private int batchSize = 1;
 	/**
 	 * Specifies how close the predicted output value has to be to
 	 * the desired output value before the error is considered to
@@ -79,7 +106,31 @@ public class BackProp implements Serializable {
 	private double teach[];         // target output values
 	private double error[];
 	private double deltas[];        // the error deltas
+
+	// mini-batch data, one row per record of the batch
+	transient private double batchTeach[];   // target output values
+	transient private double batchActivations[][]; // of each layer
+	transient private double batchDeltas[][];  // of each layer
+	/** The level of the trace information reported, one of the
+	 * {@link TraceLevel} constants. */
+	private int traceLevel = TraceLevel.SUMMARY;
 	transient public JTextArea textArea;
+	/** The buffer of the text area. */
+	transient private TraceBuffer traceBuffer;
+
+	/**
+	 * Per-thread activation buffers used by
+	 * {@link #getPrediction(double[])}, so that several threads can
+	 * do predictions with the same trained network at once. A buffer
+	 * is grown whenever a network with more units uses it.
+	 */
+	private static final ThreadLocal<double[]> predictionBuffers =
+			new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return new double[0];
+		}
+	};
 
 	/**
 	 * Creates a back propagation object with the given name.
@@ -91,25 +142,53 @@ public class BackProp implements Serializable {
 	}
 
 	/**
-	 * Displays an array of network data.
+	 * Adds text to the text area for display, or prints it if there
+	 * is no text area. The text is appended to the text area in
+	 * batches by its {@link TraceBuffer}.
+	 * @param text the String to be displayed.
+	 */
+	public void trace(String text) {
+		if (textArea != null) {
+			if (traceBuffer == null ||
+					traceBuffer.getTextArea() != textArea) {
+				traceBuffer = TraceBuffer.of(textArea);
+			}
+
+			traceBuffer.append(text);
+		} else {
+			System.out.println(text);
+		}
+	}
+
+	/**
+	 * Displays an array of network data, if the records are traced.
 	 * @param name the name of the information being displayed.
 	 * @param arr the array to be displayed.
 	 */
 	public void show_array(String name, double[] arr) {
-		if (textArea != null) {
-			textArea.append("\n" + name + " = ");
+		if (traceLevel >= TraceLevel.RECORDS) {
+			StringBuilder text = new StringBuilder();
+
+			text.append("\n").append(name).append(" = ");
 			for (int i = 0; i < arr.length; i++) {
-				textArea.append(arr[i] + "  ");
+				text.append(arr[i]).append("  ");
 			}
+
+			trace(text.toString());
 		}
 	}
 
 	/**
 	 * Display the results after a neural network training run.
 	 * Displays the relevant information for the network. Default
-	 * is to show only the activations array values.
+	 * is to show only the activations array values. Nothing is
+	 * displayed unless the records are traced.
 	 */
 	public void display_network() {
+		if (traceLevel < TraceLevel.RECORDS) {
+			return;
+		}
+
 		show_array("activations", activations);
 		// uncomment these lines to see more data on network state
 		// show_array("weights",weights);
@@ -118,12 +197,9 @@ public class BackProp implements Serializable {
 
 		String desired = dataset.getClassFieldValue(recInx - 1);
 		String actual = dataset.getClassFieldValue(activations,
-				numInputs + numHid1);
+				numUnits - numOutputs);
 
-		if (textArea != null) {
-			textArea.append("\n  Desired: " + desired +
-					"  Actual: " + actual);
-		}
+		trace("\n  Desired: " + desired + "  Actual: " + actual);
 	}
 
 	/**
@@ -146,15 +222,22 @@ public class BackProp implements Serializable {
 	 */
 	public void readInputs() {
 		recInx = recInx % numRecs; // keep index from 0 to n-1 records
-		double[] tempRec = data.elementAt(recInx); // get record
-		int inx = 0;
 
-		for (inx = 0; inx < numInputs; inx++) {
-			activations[inx] = tempRec[inx];
-		}
+		if (matrix != null) {
+			// the inputs are followed by the desired outputs
+			matrix.copyRow(recInx, 0, activations, 0, numInputs);
+			matrix.copyRow(recInx, numInputs, teach, 0, numOutputs);
+		} else {
+			double[] tempRec = data.elementAt(recInx); // get record
+			int inx = 0;
+
+			for (inx = 0; inx < numInputs; inx++) {
+				activations[inx] = tempRec[inx];
+			}
 
-		for (int i = 0; i < numOutputs; i++) {
-			teach[i] = tempRec[inx++];
+			for (int i = 0; i < numOutputs; i++) {
+				teach[i] = tempRec[inx++];
+			}
 		}
 
 		recInx++;
@@ -162,36 +245,36 @@ public class BackProp implements Serializable {
 
 	/**
 	 * Computes the outputs by doing a single forward pass through
-	 * the network. (Note: the implementation of this method needs
-	 * to be revised if the neural network's architecture changes,
-	 * i.e. has more than one hidden layer)
+	 * the network.
 	 */
 	public void computeOutputs() {
-		int firstHid1 = numInputs;
-		int firstOut = numInputs + numHid1;
-
-		// first layer
-		int inx = 0;
-
-		for (int i = firstHid1; i < firstOut; i++) {
-			double sum = thresholds[i];
-
-			for (int j = 0; j < numInputs; j++) {
-				sum += activations[j] * weights[inx++];
-			}
-
-			activations[i] = logistic(sum);
-		}
-
-		// second layer
-		for (int i = firstOut; i < numUnits; i++) {
-			double sum = thresholds[i];
+		computeOutputs(activations);
+	}
 
-			for (int j = firstHid1; j < firstOut; j++) {
-				sum += activations[j] * weights[inx++];
+	/**
+	 * Computes the outputs by doing a single forward pass through
+	 * the network using the given activations instead of the
+	 * network's own ones. Only the activations are written, so
+	 * this method can be called by several threads at once, each
+	 * with its own buffer.
+	 * @param activations the unit activations, whose first
+	 * <code>numInputs</code> elements hold the inputs. It must
+	 * have at least as many elements as there are units.
+	 */
+	private void computeOutputs(double[] activations) {
+		// each layer from the activations of the previous one
+		for (int l = 1; l < layerSizes.length; l++) {
+			int from = layerStarts[l - 1];
+			int n = layerSizes[l - 1];
+			int inx = weightStarts[l];
+
+			for (int i = layerStarts[l]; i < layerStarts[l + 1]; i++) {
+				double sum = thresholds[i] +
+						Kernels.dot(activations, from, weights, inx, n);
+
+				activations[i] = logistic(sum);
+				inx += n;
 			}
-
-			activations[i] = logistic(sum);
 		}
 	}
 
@@ -208,8 +291,8 @@ public class BackProp implements Serializable {
 	 * </ol>
 	 */
 	public void computeError() {
-		int firstHid1 = numInputs;
-		int firstOut = numInputs + numHid1;
+		int lastLayer = layerSizes.length - 1;
+		int firstOut = layerStarts[lastLayer];
 
 		// clear hidden unit errors
 		for (int i = numInputs; i < numUnits; i++) {
@@ -231,35 +314,29 @@ public class BackProp implements Serializable {
 			deltas[i] = error[i] * activations[i] * (1 - activations[i]);
 		}
 
-		// compute hidden layer errors
-		int winx = numInputs * numHid1; // offset into weight array
-
-		for (int i = firstOut; i < numUnits; i++) {
-			for (int j = firstHid1; j < firstOut; j++) {
-				wDerivs[winx] += deltas[i] * activations[j];
-				error[j] += weights[winx] * deltas[i];
-				winx++;
+		// from the output layer down, compute the errors of the
+		// previous layer, then its deltas if it is a hidden layer
+		for (int l = lastLayer; l > 0; l--) {
+			int from = layerStarts[l - 1];
+			int n = layerSizes[l - 1];
+			int winx = weightStarts[l]; // offset into weight array
+
+			for (int i = layerStarts[l]; i < layerStarts[l + 1]; i++) {
+				Kernels.axpy(deltas[i], activations, from,
+						wDerivs, winx, n);
+				Kernels.axpy(deltas[i], weights, winx,
+						error, from, n);
+				winx += n;
+
+				tDerivs[i] += deltas[i];
 			}
 
-			tDerivs[i] += deltas[i];
-		}
-
-		// compute hidden layer deltas
-		for (int i = firstHid1; i < firstOut; i++) {
-			deltas[i] = error[i] * activations[i] * (1 - activations[i]);
-		}
-
-		// compute input layer errors
-		winx = 0; // offset into weight array
-
-		for (int i = firstHid1; i < firstOut; i++) {
-			for (int j = 0; j < firstHid1; j++) {
-				wDerivs[winx] += deltas[i] * activations[j];
-				error[j] += weights[winx] * deltas[i];
-				winx++;
+			if (l > 1) {
+				for (int i = from; i < from + n; i++) {
+					deltas[i] = error[i] * activations[i] *
+							(1 - activations[i]);
+				}
 			}
-
-			tDerivs[i] += deltas[i];
 		}
 	}
 
@@ -268,9 +345,36 @@ public class BackProp implements Serializable {
 	 * the delta for each.
 	 */
 	public void adjustWeights() {
+		adjustWeights(learnRate);
+	}
+
+	/**
+	 * Adjusts the weights and thresholds by computing and adding
+	 * the delta for each.
+	 * @param rate the learn rate applied to the accumulated weight
+	 * and threshold changes.
+	 */
+	private void adjustWeights(double rate) {
+		applyChanges(rate); // apply changes to weights
+
+		// if at the end of an epoch, compute average RMS error
+		if (recInx == numRecs) {
+			completePass(sumSquaredError);
+			sumSquaredError = 0.0;	// clear the accumulator
+		}
+	}
+
+	/**
+	 * Adds the accumulated weight and threshold changes, with the
+	 * momentum of the previous ones, to the weights and thresholds,
+	 * and clears them.
+	 * @param rate the learn rate applied to the accumulated weight
+	 * and threshold changes.
+	 */
+	void applyChanges(double rate) {
 		// first walk through the weights array
 		for (int i = 0; i < weights.length; i++) {
-			wDeltas[i] = (learnRate * wDerivs[i]) +
+			wDeltas[i] = (rate * wDerivs[i]) +
 					(momentum * wDeltas[i]);
 
 			weights[i] += wDeltas[i]; // modify the weight
@@ -279,40 +383,144 @@ public class BackProp implements Serializable {
 
 		// then walk through the threshold array
 		for (int i = numInputs; i < numUnits; i++) {
-			tDeltas[i] = (learnRate * tDerivs[i]) +
+			tDeltas[i] = (rate * tDerivs[i]) +
 					(momentum * tDeltas[i]);
 
 			thresholds[i] += tDeltas[i]; // modify the threshold
 			tDerivs[i] = 0.0;
 		}
+	}
 
-		// if at the end of an epoch, compute average RMS error
-		if (recInx == numRecs) {
-			numPasses++;			// increase pass counter
-			aveRMSError = Math.sqrt(
-					sumSquaredError / numRecs * numOutputs);
-			sumSquaredError = 0.0;	// clear the accumulator
-		}
+	/**
+	 * Counts a pass over the data set and computes its average RMS
+	 * error.
+	 * @param passSquaredError the sum of squared errors of the pass.
+	 */
+	void completePass(double passSquaredError) {
+		numPasses++;			// increase pass counter
+		aveRMSError = Math.sqrt(passSquaredError / numRecs * numOutputs);
 	}
 
 	/**
 	 * For networks with single continuous outputs only, retrieves
 	 * the prediction. Do a single forward pass through the
-	 * network and return the output value.
+	 * network and return the output value.<br>
+	 * The forward pass uses an activation buffer owned by the
+	 * calling thread, so the network state is not modified and
+	 * this method is safe to be called by several threads at once.
 	 * @param inputRec the double array of input record.
 	 * @return the prediction value.
 	 */
 	public double getPrediction(double[] inputRec) {
-		int firstOut = numInputs + numHid1;
+		double[] buffer = predictionBuffers.get();
+
+		if (buffer.length < numUnits) {
+			buffer = createActivationBuffer();
+			predictionBuffers.set(buffer);
+		}
+
+		return getPrediction(inputRec, buffer);
+	}
+
+	/**
+	 * For networks with single continuous outputs only, retrieves
+	 * the prediction using the given activation buffer. Nothing is
+	 * written to the network state, so a trained network can be
+	 * shared by several threads as long as each of them uses its
+	 * own buffer.
+	 * @param inputRec the double array of input record.
+	 * @param buffer the activation buffer owned by the caller,
+	 * created by {@link #createActivationBuffer()}.
+	 * @return the prediction value.
+	 */
+	public double getPrediction(double[] inputRec, double[] buffer) {
+		int firstOut = numUnits - numOutputs;
 
 		// set input unit activations
 		for (int inx = 0; inx < numInputs; inx++) {
-			activations[inx] = inputRec[inx];
+			buffer[inx] = inputRec[inx];
+		}
+
+		computeOutputs(buffer); // do forward pass through network
+
+		return buffer[firstOut];
+	}
+
+	/**
+	 * Creates an activation buffer that can be used with
+	 * {@link #getPrediction(double[], double[])}.
+	 * @return a new array with one element per unit.
+	 */
+	public double[] createActivationBuffer() {
+		return new double[numUnits];
+	}
+
+	/**
+	 * Computes the average RMS error of records as
+	 * {@link #getAveRMSError()} does for a pass, without the
+	 * tolerance and without changing the network, e.g. on a
+	 * validation set to check the progress of the training.
+	 * @param records the records, whose inputs are followed by the
+	 * desired outputs.
+	 * @return the average RMS error, 0 if there are no records.
+	 */
+	public double computeRMSError(DataMatrix records) {
+		int numRows = records.getNumRows();
+		int firstOut = numUnits - numOutputs;
+		double[] buffer = createActivationBuffer();
+		double sse = 0.0;
+
+		if (numRows == 0) {
+			return 0.0;
 		}
 
-		computeOutputs(); // do forward pass through network
+		for (int r = 0; r < numRows; r++) {
+			records.copyRow(r, 0, buffer, 0, numInputs);
+			computeOutputs(buffer);
+
+			for (int o = 0; o < numOutputs; o++) {
+				double err = records.get(r, numInputs + o) -
+						buffer[firstOut + o];
+
+				sse += err * err;
+			}
+		}
+
+		return Math.sqrt(sse / numRows * numOutputs);
+	}
+
+	/**
+	 * Copies the weights and thresholds, e.g. to restore those of
+	 * the best pass of the training with
+	 * {@link #restoreWeights(double[])}.
+	 * @return the weights followed by the thresholds.
+	 */
+	public double[] copyWeights() {
+		double[] saved = new double[numWeights + numUnits];
+
+		System.arraycopy(weights, 0, saved, 0, numWeights);
+		System.arraycopy(thresholds, 0, saved, numWeights, numUnits);
 
-		return activations[firstOut];
+		return saved;
+	}
+
+	/**
+	 * Restores weights and thresholds copied by
+	 * {@link #copyWeights()}. The changes of the last adjustments
+	 * are cleared, so that the momentum does not carry them on.
+	 * @param saved the copy of the weights and thresholds.
+	 */
+	public void restoreWeights(double[] saved) {
+		System.arraycopy(saved, 0, weights, 0, numWeights);
+		System.arraycopy(saved, numWeights, thresholds, 0, numUnits);
+
+		for (int i = 0; i < numWeights; i++) {
+			wDeltas[i] = 0.0;
+		}
+
+		for (int i = 0; i < numUnits; i++) {
+			tDeltas[i] = 0.0;
+		}
 	}
 
 	/**
@@ -331,6 +539,306 @@ public class BackProp implements Serializable {
 		}
 	}
 
+	/**
+	 * Processes the next records of the data set as a mini-batch:
+	 * the outputs and errors of all records of the batch are
+	 * computed layer by layer over contiguous arrays, one row per
+	 * record, and if training, the weights are adjusted once with
+	 * the changes accumulated over the batch, using the learn rate
+	 * divided by the square root of the batch size. A batch does not
+	 * go past the end of the data set, so that each pass ends with a
+	 * batch. With a batch size of 1, the network is trained exactly
+	 * as by {@link #process()}.
+	 * @return the number of records processed.
+	 */
+	public int processBatch() {
+		recInx = recInx % numRecs; // keep index from 0 to n-1 records
+
+		int size = Math.min(getBatchSize(), numRecs - recInx);
+
+		trainRecords(recInx, size);
+		recInx += size; // move to the record after the batch
+
+		// keep the activations of the last record, as process() does
+		int last = size - 1;
+
+		for (int l = 0; l < layerSizes.length; l++) {
+			System.arraycopy(batchActivations[l], last * layerSizes[l],
+					activations, layerStarts[l], layerSizes[l]);
+		}
+
+		// only adjust if in training mode; the changes of the batch
+		// are summed, so the rate is scaled down to keep large
+		// batches from overshooting
+		if (mode == 0) {
+			adjustWeights(learnRate / Math.sqrt(size));
+		}
+
+		return size;
+	}
+
+	/**
+	 * Computes the outputs and errors of consecutive records as a
+	 * batch, and accumulates their weight and threshold changes and
+	 * their squared errors, without adjusting the weights.
+	 * @param firstRec the index of the first record.
+	 * @param size the number of records, at most the batch size.
+	 */
+	void trainRecords(int firstRec, int size) {
+		readBatch(firstRec, size);	// set input unit activations
+		computeBatchOutputs(size);	// do forward pass through network
+		computeBatchError(size);	// compute error and deltas
+	}
+
+	/**
+	 * Reads consecutive records into the batch arrays.
+	 * @param firstRec the index of the first record.
+	 * @param size the number of records of the batch.
+	 */
+	private void readBatch(int firstRec, int size) {
+		int capacity = getBatchSize();
+
+		if (batchActivations == null ||
+				batchTeach.length != capacity * numOutputs) {
+			int numLayers = layerSizes.length;
+
+			batchTeach = new double[capacity * numOutputs];
+			batchActivations = new double[numLayers][];
+			batchDeltas = new double[numLayers][];
+
+			for (int l = 0; l < numLayers; l++) {
+				batchActivations[l] = new double[capacity * layerSizes[l]];
+
+				if (l > 0) { // the input layer has no deltas
+					batchDeltas[l] = new double[capacity * layerSizes[l]];
+				}
+			}
+		}
+
+		double[] batchInputs = batchActivations[0];
+
+		for (int s = 0; s < size; s++) {
+			int rec = firstRec + s;
+
+			if (matrix != null) {
+				// the inputs are followed by the desired outputs
+				matrix.copyRow(rec, 0, batchInputs, s * numInputs,
+						numInputs);
+				matrix.copyRow(rec, numInputs, batchTeach,
+						s * numOutputs, numOutputs);
+			} else {
+				double[] tempRec = data.elementAt(rec);
+
+				System.arraycopy(tempRec, 0, batchInputs, s * numInputs,
+						numInputs);
+				System.arraycopy(tempRec, numInputs, batchTeach,
+						s * numOutputs, numOutputs);
+			}
+		}
+	}
+
+	/**
+	 * Computes the outputs of the records of a batch by doing a
+	 * forward pass through the network. The weights of a unit are
+	 * applied to all records of the batch before the next unit, so
+	 * they are read from memory once per batch instead of once per
+	 * record.
+	 * @param size the number of records of the batch.
+	 */
+	private void computeBatchOutputs(int size) {
+		// each layer from the activations of the previous one
+		for (int l = 1; l < layerSizes.length; l++) {
+			double[] inputs = batchActivations[l - 1];
+			double[] outputs = batchActivations[l];
+			int n = layerSizes[l - 1];
+			int m = layerSizes[l];
+
+			for (int u = 0; u < m; u++) {
+				int winx = weightStarts[l] + u * n;
+				double threshold = thresholds[layerStarts[l] + u];
+
+				for (int s = 0; s < size; s++) {
+					double sum = threshold + Kernels.dot(inputs, s * n,
+							weights, winx, n);
+
+					outputs[s * m + u] = logistic(sum);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the errors and deltas of the records of a batch, as
+	 * {@link #computeError()} does for a record, and accumulates
+	 * their weight and threshold changes. The records whose output
+	 * errors are within the tolerance add no change, so they are
+	 * skipped.
+	 * @param size the number of records of the batch.
+	 */
+	private void computeBatchError(int size) {
+		int lastLayer = layerSizes.length - 1;
+		double[] batchOutputs = batchActivations[lastLayer];
+		double[] batchOutDeltas = batchDeltas[lastLayer];
+
+		// compute output layer errors and deltas
+		for (int i = 0; i < size * numOutputs; i++) {
+			double err = batchTeach[i] - batchOutputs[i];
+
+			// accumulate squared errors
+			sumSquaredError += err * err;
+
+			if (Math.abs(err) < tolerance) {
+				err = 0.0;		// close enough
+			}
+
+			batchOutDeltas[i] = err * batchOutputs[i] *
+					(1 - batchOutputs[i]);
+		}
+
+		// from the output layer down, accumulate the weight changes of
+		// the layer, then compute the deltas of the previous layer if
+		// it is a hidden layer
+		for (int l = lastLayer; l > 0; l--) {
+			double[] prevActivations = batchActivations[l - 1];
+			double[] layerDeltas = batchDeltas[l];
+			int n = layerSizes[l - 1];
+			int m = layerSizes[l];
+
+			// a unit at a time, so that its weight changes stay in
+			// the cache over the records of the batch
+			for (int u = 0; u < m; u++) {
+				int winx = weightStarts[l] + u * n;
+
+				for (int s = 0; s < size; s++) {
+					double delta = layerDeltas[s * m + u];
+
+					if (delta == 0.0) {
+						continue;
+					}
+
+					Kernels.axpy(delta, prevActivations, s * n,
+							wDerivs, winx, n);
+
+					tDerivs[layerStarts[l] + u] += delta;
+				}
+			}
+
+			if (l == 1) {
+				break; // the input layer has no deltas
+			}
+
+			double[] prevDeltas = batchDeltas[l - 1];
+
+			for (int s = 0; s < size; s++) {
+				int pinx = s * n;
+				boolean changed = false;
+
+				for (int j = 0; j < n; j++) {
+					prevDeltas[pinx + j] = 0.0;
+				}
+
+				// compute the errors of the previous layer
+				for (int u = 0; u < m; u++) {
+					double delta = layerDeltas[s * m + u];
+
+					if (delta == 0.0) {
+						continue;
+					}
+
+					Kernels.axpy(delta, weights, weightStarts[l] + u * n,
+							prevDeltas, pinx, n);
+					changed = true;
+				}
+
+				// compute the deltas of the previous layer
+				if (changed) {
+					for (int j = 0; j < n; j++) {
+						double act = prevActivations[pinx + j];
+
+						prevDeltas[pinx + j] =
+								prevDeltas[pinx + j] * act * (1 - act);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a replica of the network, which trains on the same
+	 * data with the same weights and thresholds: the arrays of the
+	 * weights and thresholds are shared, not copied, while the
+	 * activations, the accumulated changes, the momentum and the
+	 * squared errors are the replica's own. The replica does not
+	 * report any trace.
+	 * @return the replica.
+	 */
+	BackProp createReplica() {
+		BackProp replica = new BackProp(name);
+
+		replica.dataset = dataset;
+		replica.data = data;
+		replica.matrix = matrix;
+		replica.numRecs = numRecs;
+		replica.fieldsPerRec = fieldsPerRec;
+		replica.numInputs = numInputs;
+		replica.numHid1 = numHid1;
+		replica.layerSizes = layerSizes;
+		replica.layerStarts = layerStarts;
+		replica.weightStarts = weightStarts;
+		replica.numOutputs = numOutputs;
+		replica.numUnits = numUnits;
+		replica.numWeights = numWeights;
+		replica.mode = mode;
+		replica.learnRate = learnRate;
+		replica.momentum = momentum;
+		replica.batchSize = batchSize;
+		replica.tolerance = tolerance;
+		replica.traceLevel = TraceLevel.NONE;
+
+		replica.weights = weights;
+		replica.thresholds = thresholds;
+		replica.activations = new double[numUnits];
+		replica.wDerivs = new double[numWeights];
+		replica.wDeltas = new double[numWeights];
+		replica.tDerivs = new double[numUnits];
+		replica.tDeltas = new double[numUnits];
+		replica.teach = new double[numOutputs];
+		replica.deltas = new double[numUnits];
+		replica.error = new double[numUnits];
+
+		return replica;
+	}
+
+	/**
+	 * Adds the weight and threshold changes accumulated by a replica
+	 * to those of this network, and clears the replica's.
+	 * @param replica a replica created by {@link #createReplica()}.
+	 */
+	void addChanges(BackProp replica) {
+		for (int i = 0; i < numWeights; i++) {
+			wDerivs[i] += replica.wDerivs[i];
+			replica.wDerivs[i] = 0.0;
+		}
+
+		for (int i = numInputs; i < numUnits; i++) {
+			tDerivs[i] += replica.tDerivs[i];
+			replica.tDerivs[i] = 0.0;
+		}
+	}
+
+	/**
+	 * Retrieves the squared errors accumulated since the last call,
+	 * and clears them.
+	 * @return the sum of squared errors.
+	 */
+	double takeSumSquaredError() {
+		double sse = sumSquaredError;
+
+		sumSquaredError = 0.0;
+
+		return sse;
+	}
+
 	/**
 	 * Resets the network by initializing the network arrays.
 	 */
@@ -360,12 +868,34 @@ public class BackProp implements Serializable {
 	 * @param numOut the number of output units.
 	 */
 	public void createNetwork(int numIn, int numHidden, int numOut) {
+		createNetwork(numIn, new int[] { numHidden }, numOut);
+	}
+
+	/**
+	 * Defines a back propagation neural network of several hidden
+	 * layers.
+	 * @param numIn the number of input units.
+	 * @param numHidden the number of units of each hidden layer, from
+	 * the one after the input layer.
+	 * @param numOut the number of output units.
+	 */
+	public void createNetwork(int numIn, int[] numHidden, int numOut) {
+		if (numHidden.length == 0) {
+			throw new IllegalArgumentException("No hidden layer");
+		}
+
 		// set the network architecture
+		layerSizes = new int[numHidden.length + 2];
+		layerSizes[0] = numIn;
+		System.arraycopy(numHidden, 0, layerSizes, 1, numHidden.length);
+		layerSizes[layerSizes.length - 1] = numOut;
+		computeLayerStarts();
+
 		numInputs = numIn;
-		numHid1 = numHidden;
+		numHid1 = numHidden[0];
 		numOutputs = numOut;
-		numUnits = numInputs + numHid1 + numOutputs;
-		numWeights = (numInputs * numHid1) + (numHid1 * numOutputs);
+		numUnits = layerStarts[layerSizes.length];
+		numWeights = weightStarts[layerSizes.length];
 
 		// initialize control parameters
 		learnRate = 0.2;
@@ -375,9 +905,11 @@ public class BackProp implements Serializable {
 		aveRMSError = 0.0;
 		numPasses = 0;
 
-		System.out.println("Network's numUnit: " + numUnits +
-				", numIn = " + numIn + ", numHidden = " + numHidden
-				+ ", numOut = " + numOut);
+		if (traceLevel >= TraceLevel.SUMMARY) {
+			trace("Network's numUnit: " + numUnits +
+					", numIn = " + numIn + ", numHidden = " +
+					getHiddenSizes() + ", numOut = " + numOut);
+		}
 		// create weight and error arrays
 		activations = new double[numUnits];	// unit activations
 		weights = new double[numWeights];
@@ -389,10 +921,82 @@ public class BackProp implements Serializable {
 		teach = new double[numOutputs];		// desired outputs
 		deltas = new double[numUnits];
 		error = new double[numUnits];
+		batchActivations = null;			// created by the next batch
 
 		reset(); // reset and initialize the weight arrays
 	}
 
+	/**
+	 * Computes the index of the first unit and of the first weight
+	 * of each layer from the sizes of the layers.
+	 */
+	private void computeLayerStarts() {
+		int numLayers = layerSizes.length;
+
+		layerStarts = new int[numLayers + 1];
+		weightStarts = new int[numLayers + 1];
+
+		for (int l = 0; l < numLayers; l++) {
+			layerStarts[l + 1] = layerStarts[l] + layerSizes[l];
+		}
+
+		// the weights of a layer start where those of the previous
+		// one end
+		for (int l = 1; l < numLayers; l++) {
+			weightStarts[l + 1] = weightStarts[l] +
+					layerSizes[l] * layerSizes[l - 1];
+		}
+	}
+
+	/**
+	 * Restores a network, computing the layers of the networks saved
+	 * before the number of hidden layers could be chosen, which have
+	 * a single hidden layer.
+	 * @param in the stream the network is read from.
+	 * @throws IOException if the network cannot be read.
+	 * @throws ClassNotFoundException if a class of the network cannot
+	 * be found.
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		if (layerSizes == null && numUnits > 0) {
+			layerSizes = new int[] { numInputs, numHid1, numOutputs };
+		}
+
+		if (layerSizes != null) {
+			computeLayerStarts();
+		}
+	}
+
+	/**
+	 * Retrieves the number of units of each layer.
+	 * @return the sizes of the layers, from the input layer to the
+	 * output layer.
+	 */
+	public int[] getLayerSizes() {
+		return layerSizes.clone();
+	}
+
+	/**
+	 * Retrieves the number of units of the hidden layers.
+	 * @return the sizes of the hidden layers separated by commas.
+	 */
+	private String getHiddenSizes() {
+		StringBuilder sizes = new StringBuilder();
+
+		for (int l = 1; l < layerSizes.length - 1; l++) {
+			if (l > 1) {
+				sizes.append(", ");
+			}
+
+			sizes.append(layerSizes[l]);
+		}
+
+		return sizes.toString();
+	}
+
 	public DataSet getDataSet() {
 		return dataset;
 	}
@@ -418,11 +1022,72 @@ public class BackProp implements Serializable {
 	}
 
 	public Vector<double[]> getData() {
-		return data;
+		return (matrix != null) ? matrix.toRows() : data;
 	}
 
 	public void setData(Vector<double[]> data) {
 		this.data = data;
+		this.matrix = null;
+	}
+
+	/**
+	 * Sets the training data held in a matrix, e.g. the {@link
+	 * DataSet#getNormalizedMatrix() normalized matrix} of a data
+	 * set, whose records are read without being copied.
+	 * @param matrix the training data, one record per row.
+	 */
+	public void setData(DataMatrix matrix) {
+		this.matrix = matrix;
+		this.data = null;
+	}
+
+	/**
+	 * Retrieves the training data if it is held in a matrix.
+	 * @return the training data, or <code>null</code> if it is held
+	 * in a <code>Vector</code>.
+	 */
+	public DataMatrix getDataMatrix() {
+		return matrix;
+	}
+
+	/**
+	 * Sets the level of the trace information reported.
+	 * @param traceLevel one of the {@link TraceLevel} constants.
+	 */
+	public void setTraceLevel(int traceLevel) {
+		this.traceLevel = traceLevel;
+	}
+
+	/**
+	 * Retrieves the level of the trace information reported.
+	 * @return one of the {@link TraceLevel} constants.
+	 */
+	public int getTraceLevel() {
+		return traceLevel;
+	}
+
+	/**
+	 * Sets the number of records processed by {@link
+	 * #processBatch()} before the weights are adjusted.
+	 * @param batchSize the batch size, at least 1.
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException(
+					"Invalid batch size: " + batchSize);
+		}
+
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Retrieves the number of records processed by {@link
+	 * #processBatch()} before the weights are adjusted.
+	 * @return the batch size.
+	 */
+	public int getBatchSize() {
+		// networks saved before batches were introduced have 0
+		return Math.max(batchSize, 1);
 	}
 
 	public int getMode() {
@@ -463,7 +1128,8 @@ public class BackProp implements Serializable {
 	public String toString() {
 		return "Back Propagation Neural Net: " + name +
 				"\n\tNum. of units in the input layer: " + numInputs +
-				"\n\tNum. of units in the hidden layer: " + numHid1 +
+				"\n\tNum. of units in the hidden layers: " +
+				((layerSizes != null) ? getHiddenSizes() : "") +
 				"\n\tNum. of units in the output layer: " + numOutputs +
 				"\n\t" + dataset;
 	}
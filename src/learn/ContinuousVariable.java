@@ -48,8 +48,16 @@ public class ContinuousVariable extends Variable implements Serializable {
 	 */
 	@Override
 	public void computeStatistics(String inValue) {
-		double val = new Double(inValue).doubleValue();
+		computeStatistics(Double.parseDouble(inValue));
+	}
 
+	/**
+	 * Used within a <code>DataSet</code> to compute the minimum
+	 * and maximum value for the variable, based on the given value.
+	 * @param val the value used to determine the minimum or maximum
+	 * value for the variable.
+	 */
+	public void computeStatistics(double val) {
 		if (val < min) {
 			min = val;
 		}
@@ -69,8 +77,19 @@ public class ContinuousVariable extends Variable implements Serializable {
 	 */
 	@Override
 	public int normalize(String inStrValue, double[] outArray, int inx) {
+		return normalize(Double.parseDouble(inStrValue), outArray, inx);
+	}
+
+	/**
+	 * Linearly scales a value to be in the range from 0.0 to 1.0.
+	 * @param inValue the value to be scaled.
+	 * @param outArray the double array of scaled values.
+	 * @param inx the index of the array element where the scaled
+	 * value is stored.
+	 * @return the index of the next element in the array.
+	 */
+	public int normalize(double inValue, double[] outArray, int inx) {
 		double outValue;
-		double inValue = Double.valueOf(inStrValue).doubleValue();
 
 		if (inValue <= min) {
 			outValue = min;
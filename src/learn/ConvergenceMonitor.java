@@ -0,0 +1,255 @@
+package learn;
+
+/**
+ * The <code>ConvergenceMonitor</code> class decides when the training
+ * of a network stops, from the error of the network after each pass,
+ * usually on a validation set that is not trained on. The training
+ * stops:
+ * <ul>
+ * <li>{@link #PLATEAU}, when the error has not improved by the
+ * minimal improvement for a number of passes (the patience)
+ * <li>{@link #TIME_BUDGET}, when the time budget has elapsed
+ * <li>{@link #MAX_PASSES}, when the maximum number of passes is
+ * reached
+ * </ul>
+ * The monitor tells when a pass has the lowest error so far, however
+ * small the improvement, so that the weights of the network can be
+ * copied and restored once the training stops. A minimum number of
+ * passes can be set for a network that is not usable before a
+ * schedule has run, e.g. a Kohonen map whose neighborhood shrinks
+ * over its passes: the passes before it are neither the best pass
+ * nor counted for the plateau. If the training stops before any
+ * pass could be the best one, the last pass is. Its usage is:
+ * <pre>
+ * ConvergenceMonitor monitor = new ConvergenceMonitor(2500, 200);
+ * double[] best = null;
+ * boolean training;
+ *
+ * do {
+ *     // train a pass
+ *     training = monitor.endPass(net.computeRMSError(validation));
+ *
+ *     if (monitor.isBestPass()) {
+ *         best = net.copyWeights();
+ *     }
+ * } while (training);
+ *
+ * net.restoreWeights(best);
+ * </pre>
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ConvergenceMonitor {
+	/** The training goes on. */
+	public static final int RUNNING = 0;
+
+	/** The training stopped after the maximum number of passes. */
+	public static final int MAX_PASSES = 1;
+
+	/** The training stopped because the error did not improve. */
+	public static final int PLATEAU = 2;
+
+	/** The training stopped because its time budget elapsed. */
+	public static final int TIME_BUDGET = 3;
+
+	/** The names of the reasons to stop, by their values. */
+	private static final String[] REASON_NAMES = {
+			"running", "maximum passes", "plateau", "time budget" };
+
+	/** The maximum number of passes. */
+	private final int maxNumPasses;
+
+	/** The number of passes without improvement after which the
+	 * training stops. */
+	private final int patience;
+
+	/** The fraction of the error of the last improvement by which
+	 * an error must be lower to be an improvement. */
+	private double minImprovement = 0.001;
+
+	/** The number of passes before which the training does not stop
+	 * on a plateau and no pass is the best one. */
+	private int minNumPasses = 0;
+
+	/** The time budget of the training (ms), 0 for none. */
+	private long timeBudget = 0;
+
+	/** The time the training started (ms). */
+	private final long startTime;
+
+	/** The number of passes done. */
+	private int numPasses = 0;
+
+	/** The best error. */
+	private double bestError = Double.POSITIVE_INFINITY;
+
+	/** The pass of the best error, 0 if there is none yet. */
+	private int bestPass = 0;
+
+	/** The error of the last improvement. */
+	private double improvedError = Double.POSITIVE_INFINITY;
+
+	/** The pass of the last improvement, 0 if there is none yet. */
+	private int improvedPass = 0;
+
+	/** The reason the training stopped, or {@link #RUNNING}. */
+	private int stopReason = RUNNING;
+
+	/**
+	 * Creates a monitor for a training starting now.
+	 * @param maxNumPasses the maximum number of passes.
+	 * @param patience the number of passes without improvement after
+	 * which the training stops.
+	 */
+	public ConvergenceMonitor(int maxNumPasses, int patience) {
+		if (maxNumPasses < 1 || patience < 1) {
+			throw new IllegalArgumentException("Invalid number of passes: " +
+					maxNumPasses + ", patience: " + patience);
+		}
+
+		this.maxNumPasses = maxNumPasses;
+		this.patience = patience;
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Records the error after a pass and decides whether the training
+	 * goes on.
+	 * @param error the error of the network after the pass.
+	 * @return <code>true</code> if the training goes on,
+	 * <code>false</code> if it stops.
+	 */
+	public boolean endPass(double error) {
+		if (stopReason != RUNNING) {
+			return false;
+		}
+
+		numPasses++;
+
+		if (numPasses >= minNumPasses) {
+			if (bestPass == 0 || error < bestError) {
+				bestError = error;
+				bestPass = numPasses;
+			}
+
+			if (improvedPass == 0 ||
+					error < improvedError - minImprovement * improvedError) {
+				improvedError = error;
+				improvedPass = numPasses;
+			}
+		}
+
+		if (numPasses >= maxNumPasses) {
+			stopReason = MAX_PASSES;
+		} else if (improvedPass > 0 && numPasses - improvedPass >= patience) {
+			stopReason = PLATEAU;
+		} else if (timeBudget > 0 &&
+				System.currentTimeMillis() - startTime >= timeBudget) {
+			stopReason = TIME_BUDGET;
+		}
+
+		if (stopReason != RUNNING && bestPass == 0) {
+			// stopped before the minimum number of passes
+			bestError = error;
+			bestPass = numPasses;
+		}
+
+		return stopReason == RUNNING;
+	}
+
+	/**
+	 * Tells whether the last pass has the best error so far.
+	 * @return <code>true</code> if the last pass is the best one.
+	 */
+	public boolean isBestPass() {
+		return numPasses > 0 && bestPass == numPasses;
+	}
+
+	/**
+	 * Sets the fraction of the error of the last improvement by which
+	 * an error must be lower to be an improvement, which resets the
+	 * count of passes of the patience.
+	 * @param minImprovement the fraction, e.g. 0.001 for 0.1%.
+	 */
+	public void setMinImprovement(double minImprovement) {
+		this.minImprovement = minImprovement;
+	}
+
+	/**
+	 * Sets the number of passes before which the training does not
+	 * stop on a plateau and no pass is the best one.
+	 * @param minNumPasses the minimum number of passes.
+	 */
+	public void setMinNumPasses(int minNumPasses) {
+		this.minNumPasses = minNumPasses;
+	}
+
+	/**
+	 * Sets the time budget of the training.
+	 * @param timeBudget the time budget (ms), 0 for none.
+	 */
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Retrieves the number of passes done.
+	 * @return the number of passes.
+	 */
+	public int getNumPasses() {
+		return numPasses;
+	}
+
+	/**
+	 * Retrieves the number of passes saved by stopping before the
+	 * maximum number of passes.
+	 * @return the number of passes not done.
+	 */
+	public int getPassesSaved() {
+		return maxNumPasses - numPasses;
+	}
+
+	/**
+	 * Retrieves the best error.
+	 * @return the best error.
+	 */
+	public double getBestError() {
+		return bestError;
+	}
+
+	/**
+	 * Retrieves the pass of the best error.
+	 * @return the pass, from 1, or 0 if there is none yet.
+	 */
+	public int getBestPass() {
+		return bestPass;
+	}
+
+	/**
+	 * Retrieves the reason the training stopped.
+	 * @return {@link #RUNNING}, {@link #MAX_PASSES}, {@link #PLATEAU}
+	 * or {@link #TIME_BUDGET}.
+	 */
+	public int getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * Retrieves the time elapsed since the training started.
+	 * @return the elapsed time (ms).
+	 */
+	public long getElapsedTime() {
+		return System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * Reports the passes done and saved and the best error.
+	 */
+	public String toString() {
+		return "Passes: " + numPasses + " of " + maxNumPasses +
+				" (" + REASON_NAMES[stopReason] + "), saved: " +
+				getPassesSaved() + ", best error: " + bestError +
+				" at pass " + bestPass + ", time: " + getElapsedTime() +
+				" ms";
+	}
+} // end class ConvergenceMonitor
@@ -0,0 +1,303 @@
+package learn;
+
+import java.io.Serializable;
+import java.util.Vector;
+
+/**
+ * The <code>DataMatrix</code> class holds the records of a data set
+ * in a single contiguous block of doubles, one record after the
+ * other (row-major order), instead of one array per record. A data
+ * set of millions of records is then a single object for the garbage
+ * collector, and its records are read without following a reference
+ * per record.<br>
+ * The records and the fields of the matrix can be read through:
+ * <ul>
+ * <li>{@link #get(int, int)}, for a single value
+ * <li>{@link #copyRow(int, int, double[], int, int)}, for the fields
+ * of a record, e.g. into the input units of a neural network
+ * <li>{@link #row(int)} and {@link #column(int)}, for a view of a
+ * record or of a field that does not copy the values
+ * </ul>
+ *
+ * @author Tran Xuan Hoang
+ */
+public class DataMatrix implements Serializable {
+	/** The serial version ID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of rows (records). */
+	protected final int numRows;
+
+	/** The number of columns (fields per record). */
+	protected final int numCols;
+
+	/** The values of the rows, one row after the other. */
+	protected final double[] values;
+
+	/**
+	 * Creates a matrix whose values are all 0.0.
+	 * @param numRows the number of rows.
+	 * @param numCols the number of columns.
+	 */
+	public DataMatrix(int numRows, int numCols) {
+		this(new double[checkSize(numRows, numCols)], numCols);
+	}
+
+	/**
+	 * Creates a matrix holding the given values, which are not
+	 * copied.
+	 * @param values the values of the rows in row-major order.
+	 * @param numCols the number of columns, which divides the number
+	 * of values.
+	 */
+	public DataMatrix(double[] values, int numCols) {
+		if ((numCols < 1 && values.length > 0) ||
+				(numCols > 0 && values.length % numCols != 0)) {
+			throw new IllegalArgumentException(values.length +
+					" values cannot be split in rows of " + numCols);
+		}
+
+		this.values = values;
+		this.numCols = numCols;
+		this.numRows = (numCols > 0) ? values.length / numCols : 0;
+	}
+
+	/**
+	 * Checks that a matrix fits in a single array.
+	 * @param numRows the number of rows.
+	 * @param numCols the number of columns.
+	 * @return the number of values of the matrix.
+	 */
+	private static int checkSize(int numRows, int numCols) {
+		long size = (long) numRows * numCols;
+
+		if (numRows < 0 || numCols < 0 || size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid matrix size: " +
+					numRows + " x " + numCols);
+		}
+
+		return (int) size;
+	}
+
+	/**
+	 * Creates a matrix from records held in a <code>Vector</code>.
+	 * @param rows the records, each of at least <code>numCols</code>
+	 * values.
+	 * @param numCols the number of columns.
+	 * @return a matrix holding a copy of the records.
+	 */
+	public static DataMatrix fromRows(Vector<double[]> rows, int numCols) {
+		DataMatrix matrix = new DataMatrix(rows.size(), numCols);
+
+		for (int r = 0; r < matrix.numRows; r++) {
+			System.arraycopy(rows.elementAt(r), 0, matrix.values,
+					r * numCols, numCols);
+		}
+
+		return matrix;
+	}
+
+	/**
+	 * Retrieves a value.
+	 * @param row the index of the row.
+	 * @param col the index of the column.
+	 * @return the value.
+	 */
+	public double get(int row, int col) {
+		return values[row * numCols + col];
+	}
+
+	/**
+	 * Sets a value.
+	 * @param row the index of the row.
+	 * @param col the index of the column.
+	 * @param value the new value.
+	 */
+	public void set(int row, int col, double value) {
+		values[row * numCols + col] = value;
+	}
+
+	/**
+	 * Retrieves the index in {@link #getValues()} of the first value
+	 * of a row.
+	 * @param row the index of the row.
+	 * @return the index of the first value of the row.
+	 */
+	public int getRowOffset(int row) {
+		return row * numCols;
+	}
+
+	/**
+	 * Copies consecutive values of a row into an array.
+	 * @param row the index of the row.
+	 * @param fromCol the index of the first column copied.
+	 * @param dest the destination array.
+	 * @param destPos the index in the destination of the first value.
+	 * @param length the number of values copied.
+	 */
+	public void copyRow(int row, int fromCol, double[] dest, int destPos,
+			int length) {
+		System.arraycopy(values, row * numCols + fromCol, dest, destPos,
+				length);
+	}
+
+	/**
+	 * Retrieves a view of a row.
+	 * @param row the index of the row.
+	 * @return the view of the values of the row.
+	 */
+	public View row(int row) {
+		return new View(row * numCols, 1, numCols);
+	}
+
+	/**
+	 * Retrieves a view of a column.
+	 * @param col the index of the column.
+	 * @return the view of the values of the column, one per row.
+	 */
+	public View column(int col) {
+		return new View(col, numCols, numRows);
+	}
+
+	/**
+	 * Splits the rows into two matrices, e.g. a training set and a
+	 * validation set. The last row of every group of
+	 * <code>interval</code> rows goes to the second matrix, so that
+	 * both matrices spread over all the rows, whatever their order.
+	 * @param interval the number of rows per row of the second
+	 * matrix, at least 2.
+	 * @return the matrix of the other rows and the matrix of every
+	 * <code>interval</code>-th row, which may have no rows.
+	 */
+	public DataMatrix[] split(int interval) {
+		if (interval < 2) {
+			throw new IllegalArgumentException("Invalid interval: " + interval);
+		}
+
+		int numHeld = numRows / interval;
+		DataMatrix kept = new DataMatrix(numRows - numHeld, numCols);
+		DataMatrix held = new DataMatrix(numHeld, numCols);
+
+		for (int r = 0, k = 0, h = 0; r < numRows; r++) {
+			if (r % interval == interval - 1) {
+				System.arraycopy(values, r * numCols, held.values,
+						(h++) * numCols, numCols);
+			} else {
+				System.arraycopy(values, r * numCols, kept.values,
+						(k++) * numCols, numCols);
+			}
+		}
+
+		return new DataMatrix[] { kept, held };
+	}
+
+	/**
+	 * Copies the rows into a <code>Vector</code> of arrays, the way
+	 * the records of a data set used to be held.
+	 * @return a new <code>Vector</code> of one array per row.
+	 */
+	public Vector<double[]> toRows() {
+		Vector<double[]> rows = new Vector<double[]>(numRows);
+
+		for (int r = 0; r < numRows; r++) {
+			double[] row = new double[numCols];
+
+			System.arraycopy(values, r * numCols, row, 0, numCols);
+			rows.addElement(row);
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Retrieves the number of rows.
+	 * @return the number of rows.
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Retrieves the number of columns.
+	 * @return the number of columns.
+	 */
+	public int getNumCols() {
+		return numCols;
+	}
+
+	/**
+	 * Retrieves the values of the matrix, which are not copied.
+	 * @return the values of the rows in row-major order.
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * The <code>View</code> class gives access to the values of a
+	 * row or of a column of the matrix, without copying them.
+	 */
+	public class View {
+		/** The index of the first value of the view. */
+		private final int offset;
+
+		/** The distance between two consecutive values of the view. */
+		private final int stride;
+
+		/** The number of values of the view. */
+		private final int length;
+
+		/**
+		 * Creates a view.
+		 * @param offset the index of the first value.
+		 * @param stride the distance between two consecutive values.
+		 * @param length the number of values.
+		 */
+		View(int offset, int stride, int length) {
+			this.offset = offset;
+			this.stride = stride;
+			this.length = length;
+		}
+
+		/**
+		 * Retrieves a value of the view.
+		 * @param i the index of the value in the view, i.e. the
+		 * column of a row view or the row of a column view.
+		 * @return the value.
+		 */
+		public double get(int i) {
+			return values[offset + i * stride];
+		}
+
+		/**
+		 * Sets a value of the view, and thus of the matrix.
+		 * @param i the index of the value in the view.
+		 * @param value the new value.
+		 */
+		public void set(int i, double value) {
+			values[offset + i * stride] = value;
+		}
+
+		/**
+		 * Retrieves the number of values of the view.
+		 * @return the number of values.
+		 */
+		public int size() {
+			return length;
+		}
+
+		/**
+		 * Copies the values of the view into a new array.
+		 * @return the values of the view.
+		 */
+		public double[] toArray() {
+			double[] array = new double[length];
+
+			for (int i = 0; i < length; i++) {
+				array[i] = values[offset + i * stride];
+			}
+
+			return array;
+		}
+	} // end class View
+} // end class DataMatrix
@@ -1,9 +1,11 @@
 package learn;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.io.StreamTokenizer;
@@ -42,7 +44,26 @@ public class DataSet implements Serializable {
 	/** Stores raw data read from the file. */
 	protected Vector<String[]> data;
 
-	/** Stores scaled and translated data. */
+	/**
+	 * Stores the raw values of the class field, one per record, when
+	 * all fields are continuous. The records are then not stored in
+	 * {@link #data}.
+	 */
+	protected double[] classValues;
+
+	/**
+	 * Indicates whether the parsed values of a data file whose
+	 * fields are all continuous are kept in a {@link DataSetCache}.
+	 */
+	protected boolean useCache = true;
+
+	/** Stores scaled and translated data, one record per row. */
+	protected DataMatrix normalizedMatrix;
+
+	/**
+	 * Stores scaled and translated data of the data sets saved
+	 * before the records were held in {@link #normalizedMatrix}.
+	 */
 	protected Vector<double[]> normalizedData;
 
 	/**
@@ -74,8 +95,19 @@ public class DataSet implements Serializable {
 	 */
 	protected int numRecords = 0;
 
+	/**
+	 * The level of the trace information reported, one of the
+	 * {@link TraceLevel} constants. The records are only traced at
+	 * the {@link TraceLevel#RECORDS} level.
+	 */
+	protected int traceLevel = TraceLevel.SUMMARY;
+
 	transient public JTextArea textArea1;
 
+	/** The buffer of the text area, which appends the trace text to
+	 * it in batches. */
+	transient private TraceBuffer traceBuffer;
+
 	/**
 	 * Creates a <code>DataSet</code> with the given name that will
 	 * be populated from the specified file.
@@ -105,7 +137,9 @@ public class DataSet implements Serializable {
 	 * that contains a list of the field data types and their names.
 	 */
 	public void loadDataFileDefinition() {
-		trace("\nReading file definition " + fileName + ".dfn");
+		if (traceLevel >= TraceLevel.SUMMARY) {
+			trace("\nReading file definition " + fileName + ".dfn");
+		}
 
 		try (BufferedReader in = new BufferedReader(
 				new InputStreamReader(
@@ -131,8 +165,10 @@ public class DataSet implements Serializable {
 						addVariable(new DiscreteVariable(varName));
 					}
 
-					trace("\n  Record " + recInx + ": " +
-							varType + " " + varName);
+					if (traceLevel >= TraceLevel.DETAIL) {
+						trace("\n  Record " + recInx + ": " +
+								varType + " " + varName);
+					}
 
 					recInx++;
 				} else {
@@ -141,7 +177,10 @@ public class DataSet implements Serializable {
 			} while (token != StreamTokenizer.TT_EOF);
 
 			fieldsPerRec = fieldList.size();
-			trace("\nCreated " + fieldsPerRec + " variables.\n");
+
+			if (traceLevel >= TraceLevel.SUMMARY) {
+				trace("\nCreated " + fieldsPerRec + " variables.\n");
+			}
 		} catch (FileNotFoundException e) {
 			trace("Error: Cannot find definition file " + fileName + ".dfn");
 		} catch (IOException e) {
@@ -172,8 +211,15 @@ public class DataSet implements Serializable {
 		loadDataFileDefinition();
 		fieldsPerRec = fieldList.size(); //TODO redundant
 
-		trace("\nReading file " + fileName + ".dat with " +
-				fieldsPerRec + " fields per record");
+		if (isAllContinuous()) {
+			loadNumericDataFile();
+			return;
+		}
+
+		if (traceLevel >= TraceLevel.SUMMARY) {
+			trace("\nReading file " + fileName + ".dat with " +
+					fieldsPerRec + " fields per record");
+		}
 
 		try (BufferedReader in = new BufferedReader(
 				new InputStreamReader(
@@ -188,18 +234,24 @@ public class DataSet implements Serializable {
 				tempRec = new String[fieldsPerRec];
 				data.addElement(tempRec); // add record
 
-				trace("\n  Record " + recInx + ": ");
 				for (int i = 0; i < fieldsPerRec; i++) {
 					tempRec[i] = input.nextToken();
 					fieldList.elementAt(i).computeStatistics(tempRec[i]);
-					trace(tempRec[i] + " ");
+				}
+
+				if (traceLevel >= TraceLevel.RECORDS) {
+					trace("\n  Record " + recInx + ": " +
+							String.join(" ", tempRec) + " ");
 				}
 
 				recInx++;
 			}
 
 			numRecords = recInx;
-			trace("\nLoaded " + numRecords + " records into memory.\n");
+
+			if (traceLevel >= TraceLevel.SUMMARY) {
+				trace("\nLoaded " + numRecords + " records into memory.\n");
+			}
 
 			normalizeData(); // now convert to numeric form
 			displayVariables();
@@ -214,6 +266,150 @@ public class DataSet implements Serializable {
 		}
 	}
 
+	/**
+	 * Checks whether all fields are continuous, so that the data
+	 * file can be read by a {@link NumericDataParser}.
+	 * @return <code>true</code> if there is at least one field and
+	 * all fields are continuous.
+	 */
+	protected boolean isAllContinuous() {
+		for (int i = 0; i < fieldList.size(); i++) {
+			if (!(fieldList.elementAt(i) instanceof ContinuousVariable)) {
+				return false;
+			}
+		}
+
+		return fieldsPerRec > 0;
+	}
+
+	/**
+	 * Reads a data file whose fields are all continuous. The values
+	 * are read from the binary cache of the data file if it is up to
+	 * date. Otherwise the data file is parsed in a single pass into
+	 * a single array, and the cache is written for the next loads.
+	 * The statistics of the variables are then computed and the
+	 * records normalized in the same array.
+	 * @throws FileNotFoundException if the <i>data file</i> not found.
+	 * @throws IOException if any error occurs while reading the
+	 * <i>data file</i>.
+	 */
+	protected void loadNumericDataFile()
+			throws FileNotFoundException, IOException {
+		File dataFile = new File(fileName + ".dat");
+
+		if (!dataFile.isFile()) {
+			trace("Error: Cannot find data record file " + fileName + ".dat");
+			throw new FileNotFoundException();
+		}
+
+		DataSetCache cache = null;
+		double[] values = null;
+
+		if (useCache) {
+			try {
+				cache = new DataSetCache(dataFile,
+						new File(fileName + ".dfn"));
+				values = cache.read(fieldsPerRec);
+			} catch (IOException e) {
+				trace("\nCannot read the cache of " + fileName +
+						".dat - " + e);
+				values = null;
+			}
+		}
+
+		if (values != null) {
+			if (traceLevel >= TraceLevel.SUMMARY) {
+				trace("\nRead " + fileName + ".dat from its cache " +
+						cache.getCacheFile().getName());
+			}
+		} else {
+			if (traceLevel >= TraceLevel.SUMMARY) {
+				trace("\nReading file " + fileName + ".dat with " +
+						fieldsPerRec + " fields per record");
+			}
+
+			try (InputStream in = new FileInputStream(dataFile)) {
+				// a field takes at least 2 bytes with its separator, so
+				// the buffer of values never has to grow
+				NumericDataParser parser = new NumericDataParser(
+						fieldsPerRec, (int) Math.min(Integer.MAX_VALUE / 8,
+								dataFile.length() / (2 * fieldsPerRec) + 1));
+
+				parser.parse(in);
+				values = parser.getValues();
+			} catch (IOException e) {
+				trace("Error reading file: " + fileName + ".dat - " + e);
+				throw e;
+			} catch (NumberFormatException e) {
+				trace("Error reading file: " + fileName + ".dat - " + e);
+				throw new IOException(e.getMessage(), e);
+			}
+
+			if (cache != null) {
+				try {
+					cache.write(values, fieldsPerRec);
+				} catch (IOException e) {
+					trace("\nCannot write the cache of " + fileName +
+							".dat - " + e);
+				}
+			}
+		}
+
+		numRecords = values.length / fieldsPerRec;
+
+		if (traceLevel >= TraceLevel.SUMMARY) {
+			trace("\nLoaded " + numRecords + " records into memory.\n");
+		}
+
+		normalizeValues(values);
+		displayVariables();
+		displayNormalizedData();
+	}
+
+	/**
+	 * Computes the statistics of the continuous variables and
+	 * normalizes the records, as {@link #normalizeData()} does from
+	 * the raw String data. A continuous variable is normalized into
+	 * a single field, so the records are normalized in place and the
+	 * array becomes the {@link #normalizedMatrix}. Only the raw
+	 * values of the class field are kept.
+	 * @param values the raw values of the records in row-major order.
+	 */
+	protected void normalizeValues(double[] values) {
+		ContinuousVariable[] vars = new ContinuousVariable[fieldsPerRec];
+
+		for (int i = 0; i < fieldsPerRec; i++) {
+			vars[i] = (ContinuousVariable) fieldList.elementAt(i);
+		}
+
+		for (int r = 0, inx = 0; r < numRecords; r++) {
+			for (int i = 0; i < fieldsPerRec; i++) {
+				vars[i].computeStatistics(values[inx++]);
+			}
+		}
+
+		Variable classField = variableList.get("ClassField");
+
+		if (classField != null) {
+			classValues = new double[numRecords];
+
+			for (int r = 0; r < numRecords; r++) {
+				classValues[r] = values[r * fieldsPerRec + classField.column];
+			}
+		}
+
+		normFieldsPerRec = getNormalizedRecordSize();
+
+		for (int inx = 0; inx < values.length; ) {
+			for (int i = 0; i < fieldsPerRec; i++, inx++) {
+				vars[i].normalize(values[inx], values, inx);
+			}
+		}
+
+		normalizedData = null;
+		normalizedMatrix = new DataMatrix(values, normFieldsPerRec);
+	}
+
 	/**
 	 * Retrieves the size of the class field.
 	 * @return the class field size.
@@ -252,6 +448,11 @@ public class DataSet implements Serializable {
 	 */
 	public String getClassFieldValue(int recIndex) {
 		Variable classField = variableList.get("ClassField");
+
+		if (classValues != null) {
+			return String.valueOf(classValues[recIndex]);
+		}
+
 		return data.elementAt(recIndex)[classField.column];
 	}
 
@@ -281,54 +482,95 @@ public class DataSet implements Serializable {
 	 * in the 0.0 to 1.0 range.
 	 */
 	public void normalizeData() {
-		normalizedData = new Vector<double[]>();
 		normFieldsPerRec = getNormalizedRecordSize();
+		normalizedData = null;
+		normalizedMatrix = new DataMatrix(data.size(), normFieldsPerRec);
+
+		double[] normValues = normalizedMatrix.getValues();
 		Enumeration<String[]> rawData = data.elements();
+		int inx = 0;
 
 		while (rawData.hasMoreElements()) {
-			int inx = 0;
-			double normNumRec[] = new double[normFieldsPerRec];
 			Enumeration<Variable> fields = fieldList.elements();
 
 			String[] tempRec = (String[]) rawData.nextElement();
 			for (int i = 0; i < fieldsPerRec; i++) {
 				Variable var = fields.nextElement();
-				inx = var.normalize(tempRec[i], normNumRec, inx);
+				inx = var.normalize(tempRec[i], normValues, inx);
 			}
+		}
+	}
+
+	/**
+	 * Converts the categorical fields of the records held as Strings
+	 * into the indexes of their labels, e.g. for a {@link
+	 * DecisionTree}. The continuous fields keep their raw values.
+	 * @return a matrix of one row per record and one column per
+	 * field.
+	 */
+	public DataMatrix getCodedData() {
+		DataMatrix codes = new DataMatrix(data.size(), fieldsPerRec);
+		Enumeration<String[]> rawData = data.elements();
+		int recInx = 0;
+
+		while (rawData.hasMoreElements()) {
+			String[] tempRec = rawData.nextElement();
+
+			for (int i = 0; i < fieldsPerRec; i++) {
+				Variable var = fieldList.elementAt(i);
 
-			normalizedData.addElement(normNumRec);
+				codes.set(recInx, i, var.isCategorical() ?
+						var.getIndex(tempRec[i]) :
+						Double.parseDouble(tempRec[i]));
+			}
+
+			recInx++;
 		}
+
+		return codes;
 	}
 
 	/**
-	 * Displays the normalized data.
+	 * Displays the normalized data, if the records are traced.
 	 */
 	public void displayNormalizedData() {
+		if (traceLevel < TraceLevel.RECORDS) {
+			return;
+		}
+
 		trace("\n\nNormalized data:");
 
-		Enumeration<double[]> rawData = normalizedData.elements();
-		int recInx = 0;
+		DataMatrix matrix = getNormalizedMatrix();
+		int numFields = matrix.getNumCols();
+		StringBuilder record = new StringBuilder();
 
-		while (rawData.hasMoreElements()) {
-			trace("\n  Record " + recInx++ + ": ");
-			double[] tempNumRec = (double[]) rawData.nextElement();
-			int numFields = tempNumRec.length;
+		for (int recInx = 0; recInx < matrix.getNumRows(); recInx++) {
+			record.setLength(0);
+			record.append("\n  Record ").append(recInx).append(": ");
 
 			for (int i = 0; i < numFields; i++) {
-				trace(String.valueOf(tempNumRec[i]) + " ");
+				record.append(matrix.get(recInx, i)).append(' ');
 			}
+
+			trace(record.toString());
 		}
 
 		trace("\n\n");
 	}
 
 	/**
-	 * Adds text to the text area for display.
+	 * Adds text to the text area for display. The text is appended
+	 * to the text area in batches by its {@link TraceBuffer}.
 	 * @param text the String to be displayed.
 	 */
 	public void trace(String text) {
 		if (textArea1 != null) {
-			textArea1.append(text);
+			if (traceBuffer == null ||
+					traceBuffer.getTextArea() != textArea1) {
+				traceBuffer = TraceBuffer.of(textArea1);
+			}
+
+			traceBuffer.append(text);
 		} else {
 			System.out.println(text);
 		}
@@ -343,9 +585,14 @@ public class DataSet implements Serializable {
 	}
 
 	/**
-	 * Displays all variables and their values.
+	 * Displays all variables and their values, if the details are
+	 * traced.
 	 */
 	public void displayVariables() {
+		if (traceLevel < TraceLevel.DETAIL) {
+			return;
+		}
+
 		Enumeration<Variable> vars = variableList.elements();
 
 		trace("\nVariables:");
@@ -363,6 +610,22 @@ public class DataSet implements Serializable {
 		}
 	}
 
+	/**
+	 * Sets the level of the trace information reported.
+	 * @param traceLevel one of the {@link TraceLevel} constants.
+	 */
+	public void setTraceLevel(int traceLevel) {
+		this.traceLevel = traceLevel;
+	}
+
+	/**
+	 * Retrieves the level of the trace information reported.
+	 * @return one of the {@link TraceLevel} constants.
+	 */
+	public int getTraceLevel() {
+		return traceLevel;
+	}
+
 	/**
 	 * Retrieves the number of records.
 	 * @return the number of records.
@@ -388,11 +651,44 @@ public class DataSet implements Serializable {
 	}
 
 	/**
-	 * Retrieves the data that is already normalized.
+	 * Retrieves the data that is already normalized, as a vector of
+	 * records. The records are copied from the {@link
+	 * #getNormalizedMatrix() normalized matrix} at each call, so the
+	 * matrix should be used instead for large data sets.
 	 * @return the normalized data (a vector of double arrays).
 	 */
 	public Vector<double[]> getNormalizedData() {
-		return normalizedData;
+		if (normalizedData != null) {
+			return normalizedData;
+		}
+
+		return getNormalizedMatrix().toRows();
+	}
+
+	/**
+	 * Retrieves the data that is already normalized, as a matrix of
+	 * one row per record.
+	 * @return the normalized data.
+	 */
+	public DataMatrix getNormalizedMatrix() {
+		if (normalizedMatrix == null) {
+			// a data set saved before the matrix was introduced
+			normalizedMatrix = (normalizedData != null) ?
+					DataMatrix.fromRows(normalizedData, normFieldsPerRec) :
+					new DataMatrix(0, normFieldsPerRec);
+		}
+
+		return normalizedMatrix;
+	}
+
+	/**
+	 * Sets whether the parsed values of the data file are kept in a
+	 * binary cache file, so that the next loads do not parse the
+	 * data file again.
+	 * @param useCache <code>true</code> to use the cache.
+	 */
+	public void setUseCache(boolean useCache) {
+		this.useCache = useCache;
 	}
 
 	/**
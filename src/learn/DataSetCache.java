@@ -0,0 +1,226 @@
+package learn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * The <code>DataSetCache</code> class keeps the parsed values of a
+ * numeric data file in a binary sidecar file, e.g. <code>
+ * infofilter.dat.cache</code> next to <code>infofilter.dat</code>,
+ * so that the next loads of the data set map the values into memory
+ * instead of parsing the text again.<br>
+ * The cache file holds:
+ * <ul>
+ * <li>a header identifying the format, the length and the last
+ * modification time of the data file, and a checksum of the data
+ * file definition (<code>.dfn</code> file)
+ * <li>the number of records and of fields per record
+ * <li>the values of the records in row-major order, as little-endian
+ * doubles
+ * </ul>
+ * A cache whose data file or definition has changed since it was
+ * written is stale and is not read. The cache is written into a
+ * temporary file first, so that a cache file is always complete.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class DataSetCache {
+	/** The extension appended to the name of the data file. */
+	public static final String EXTENSION = ".cache";
+
+	/** The first bytes of a cache file ("DSC" and a version). */
+	private static final int MAGIC = 0x44534301;
+
+	/** The size of the header (bytes), a multiple of 8. */
+	private static final int HEADER_SIZE = 40;
+
+	/** The maximum number of bytes mapped at a time, a multiple of 8. */
+	private static final int REGION_SIZE = 1 << 28;
+
+	/** The number of bytes written at a time. */
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+	/** The data file whose values are cached. */
+	protected File dataFile;
+
+	/** The cache file. */
+	protected File cacheFile;
+
+	/** The length of the data file when the cache was opened. */
+	private final long dataLength;
+
+	/** The last modification time of the data file when the cache
+	 * was opened. */
+	private final long dataModified;
+
+	/** The checksum of the data file definition. */
+	private final long definitionChecksum;
+
+	/**
+	 * Opens the cache of a data file. The length and modification
+	 * time of the data file are read now, so that a cache written
+	 * from the values parsed afterwards is stale if the data file
+	 * changed in between.
+	 * @param dataFile the data file (<code>.dat</code> file).
+	 * @param definitionFile the data file definition (<code>.dfn
+	 * </code> file).
+	 * @throws IOException if the definition cannot be read.
+	 */
+	public DataSetCache(File dataFile, File definitionFile)
+			throws IOException {
+		this.dataFile = dataFile;
+		this.cacheFile = new File(dataFile.getPath() + EXTENSION);
+
+		dataLength = dataFile.length();
+		dataModified = dataFile.lastModified();
+
+		CRC32 crc = new CRC32();
+		crc.update(Files.readAllBytes(definitionFile.toPath()));
+		definitionChecksum = crc.getValue();
+	}
+
+	/**
+	 * Reads the values of the data file from the cache.
+	 * @param fieldsPerRec the number of fields in each record.
+	 * @return the values of the records in row-major order, or
+	 * <code>null</code> if there is no cache or if it is stale.
+	 * @throws IOException if the cache cannot be read.
+	 */
+	public double[] read(int fieldsPerRec) throws IOException {
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+
+		try (FileInputStream in = new FileInputStream(cacheFile);
+				FileChannel channel = in.getChannel()) {
+			if (channel.size() < HEADER_SIZE) {
+				return null;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+
+			while (header.hasRemaining() && channel.read(header) != -1) {
+			}
+
+			header.flip();
+
+			if (header.getInt() != MAGIC ||
+					header.getInt() != fieldsPerRec ||
+					header.getLong() != dataLength ||
+					header.getLong() != dataModified ||
+					header.getLong() != definitionChecksum) {
+				return null;
+			}
+
+			long numValues = header.getLong() * fieldsPerRec;
+
+			if (numValues > Integer.MAX_VALUE ||
+					channel.size() != HEADER_SIZE + 8 * numValues) {
+				return null;
+			}
+
+			double[] values = new double[(int) numValues];
+			long position = HEADER_SIZE;
+			int inx = 0;
+
+			// a mapping holds at most 2 GB, so large caches are mapped
+			// a region at a time
+			while (inx < values.length) {
+				long size = Math.min(REGION_SIZE, channel.size() - position);
+				MappedByteBuffer region = channel.map(
+						FileChannel.MapMode.READ_ONLY, position, size);
+				DoubleBuffer doubles = region.order(ByteOrder.LITTLE_ENDIAN)
+						.asDoubleBuffer();
+				int count = doubles.remaining();
+
+				doubles.get(values, inx, count);
+				inx += count;
+				position += size;
+			}
+
+			return values;
+		}
+	}
+
+	/**
+	 * Writes the values of the data file into the cache.
+	 * @param values the values of the records in row-major order.
+	 * @param fieldsPerRec the number of fields in each record.
+	 * @throws IOException if the cache cannot be written.
+	 */
+	public void write(double[] values, int fieldsPerRec) throws IOException {
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+
+		try (RandomAccessFile out = new RandomAccessFile(tempFile, "rw");
+				FileChannel channel = out.getChannel()) {
+			out.setLength(0);
+
+			ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(fieldsPerRec);
+			buffer.putLong(dataLength);
+			buffer.putLong(dataModified);
+			buffer.putLong(definitionChecksum);
+			buffer.putLong(values.length / fieldsPerRec);
+
+			int inx = 0;
+
+			do {
+				DoubleBuffer doubles = buffer.asDoubleBuffer();
+				int count = Math.min(doubles.remaining(), values.length - inx);
+
+				doubles.put(values, inx, count);
+				buffer.position(buffer.position() + 8 * count);
+				inx += count;
+
+				buffer.flip();
+
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+
+				buffer.clear();
+			} while (inx < values.length);
+		} catch (IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+
+		try {
+			Files.move(tempFile.toPath(), cacheFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.move(tempFile.toPath(), cacheFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Deletes the cache file.
+	 */
+	public void delete() {
+		cacheFile.delete();
+	}
+
+	/**
+	 * Retrieves the cache file.
+	 * @return the cache file.
+	 */
+	public File getCacheFile() {
+		return cacheFile;
+	}
+} // end class DataSetCache
@@ -3,7 +3,6 @@ package learn;
 import java.io.Serializable;
 import java.util.Enumeration;
 import java.util.Hashtable;
-import java.util.Vector;
 
 import javax.swing.JTextArea;
 
@@ -27,14 +26,25 @@ public class DecisionTree implements Serializable {
 	protected Hashtable<String, Variable> variableList;
 
 	/**
-	 * Holds the set of training records, which is the result of
-	 * partitioning of the original training set, based on an
-	 * attribute test.
+	 * Holds the training records with the index of the label of each
+	 * categorical field, e.g. from {@link DataSet#getCodedData()}.
+	 * The subsets of the training set are then given by the indexes
+	 * of their records in this matrix, instead of being copied.
 	 */
-	protected Vector<String[]> examples;
+	protected DataMatrix codes;
 
 	protected JTextArea textArea;
 
+	/**
+	 * The level of the trace information reported, one of the
+	 * {@link TraceLevel} constants. The steps of the construction of
+	 * the tree are only traced at the {@link TraceLevel#DETAIL} level.
+	 */
+	protected int traceLevel = TraceLevel.SUMMARY;
+
+	/** The buffer of the text area. */
+	transient private TraceBuffer traceBuffer;
+
 	/**
 	 * Holds one record of train/test data in string format.
 	 */
@@ -49,89 +59,32 @@ public class DecisionTree implements Serializable {
 	}
 
 	/**
-	 * Determines whether each record in the <code>examples</code>
-	 * vector matches the given variable value. This method takes
-	 * the data set and a single variable as input and returns a
-	 * boolean value indicating whether all of the training records
-	 * contain the same value for the specified variable.
-	 * @param examples the records of training data set.
-	 * @param variable the <code>Variable</code> object that
-	 * contains the value to be matched.
-	 * @return <code>true</code> if the records match and <code>
-	 * false</code> if they do not.
+	 * Adds text to the text area for display. The text is appended
+	 * to the text area in batches by its {@link TraceBuffer}.
+	 * @param text the String to be displayed.
 	 */
-	public boolean identical(
-			Vector<String[]> examples, Variable variable) {
-		int index = variable.column; // see which column to check
-		Enumeration<String[]> examps = examples.elements();
-		boolean same = true;
-		String value = examples.firstElement()[index];
-
-		while (examps.hasMoreElements()) {
-			if (value.equals(examps.nextElement()[index])) {
-				continue;
-			} else {
-				same = false;
-				break;
-			}
+	public void trace(String text) {
+		if (traceBuffer == null || traceBuffer.getTextArea() != textArea) {
+			traceBuffer = TraceBuffer.of(textArea);
 		}
 
-		return same;
+		traceBuffer.append(text);
 	}
 
 	/**
-	 * Returns the classification field's value which occurs most
-	 * often in the given vector of examples. In other words, this
-	 * method examines a data set and returns the label which has
-	 * the most examples for the specified variable.
-	 * @param examples the <code>Vector</code> which is examined.
-	 * @return the String that occurs most often.
+	 * Sets the level of the trace information reported.
+	 * @param traceLevel one of the {@link TraceLevel} constants.
 	 */
-	public String majority(Vector<String[]> examples) {
-		int index = classVar.column;
-		Enumeration<String[]> examps = examples.elements();
-		int counts[] = new int[classVar.labels.size()];
-
-		while (examps.hasMoreElements()) {
-			String value = examps.nextElement()[index];
-			int inx = classVar.getIndex(value);
-
-			counts[inx]++;
-		}
-
-		int maxIndex = 0;
-		int maxVal = counts[maxIndex];
-
-		for (int i = 1; i < classVar.labels.size(); i++) {
-			if (counts[i] > maxVal) {
-				maxVal = counts[i];
-				maxIndex = i;
-			}
-		}
-
-		return classVar.getLabel(maxIndex);
+	public void setTraceLevel(int traceLevel) {
+		this.traceLevel = traceLevel;
 	}
 
 	/**
-	 * Returns an integer array containing the number of occurrences
-	 * of each discrete value in the given set of examples.
-	 * @param examples the set of discrete values.
-	 * @return an array that contains the number of occurrences of
-	 * each discrete value.
+	 * Retrieves the level of the trace information reported.
+	 * @return one of the {@link TraceLevel} constants.
 	 */
-	public int[] getCounts(Vector<String[]> examples) {
-		int index = classVar.column; // look at class column only
-		Enumeration<String[]> examps = examples.elements();
-		int counts[] = new int[classVar.labels.size()];
-
-		while (examps.hasMoreElements()) {
-			String value = examps.nextElement()[index];
-			int inx = classVar.getIndex(value);
-
-			counts[inx]++;
-		}
-
-		return counts;
+	public int getTraceLevel() {
+		return traceLevel;
 	}
 
 	/**
@@ -158,105 +111,171 @@ public class DecisionTree implements Serializable {
 	}
 
 	/**
-	 * Computes the remainder value for the given variable and a
-	 * data set.
+	 * Determines whether the given records of the {@link #codes}
+	 * all have the same value for the given variable.
+	 * @param rows the indexes of the records, at least one.
+	 * @param variable the <code>Variable</code> whose values are
+	 * compared.
+	 * @return <code>true</code> if the records match and <code>
+	 * false</code> if they do not.
+	 */
+	public boolean identical(int[] rows, Variable variable) {
+		DataMatrix.View column = codes.column(variable.column);
+		double value = column.get(rows[0]);
+
+		for (int i = 1; i < rows.length; i++) {
+			if (column.get(rows[i]) != value) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the classification field's label which occurs most
+	 * often in the given records of the {@link #codes}.
+	 * @param rows the indexes of the records.
+	 * @return the label that occurs most often.
+	 */
+	public String majority(int[] rows) {
+		int counts[] = getCounts(rows);
+		int maxIndex = 0;
+		int maxVal = counts[maxIndex];
+
+		for (int i = 1; i < counts.length; i++) {
+			if (counts[i] > maxVal) {
+				maxVal = counts[i];
+				maxIndex = i;
+			}
+		}
+
+		return classVar.getLabel(maxIndex);
+	}
+
+	/**
+	 * Returns the number of occurrences of each label of the
+	 * classification field in the given records of the {@link
+	 * #codes}.
+	 * @param rows the indexes of the records.
+	 * @return an array that contains the number of occurrences of
+	 * each label.
+	 */
+	public int[] getCounts(int[] rows) {
+		DataMatrix.View column = codes.column(classVar.column);
+		int counts[] = new int[classVar.labels.size()];
+
+		for (int i = 0; i < rows.length; i++) {
+			counts[(int) column.get(rows[i])]++;
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Computes the remainder value for the given variable and
+	 * records of the {@link #codes}, counting the positive and
+	 * negative examples of all labels in a single pass.
 	 * @param variable the <code>Variable</code> for which the
 	 * remainder is computed.
-	 * @param examples the data set of the records.
+	 * @param rows the indexes of the records.
 	 * @return the remainder value.
 	 */
-	double computeRemainder(Variable variable, Vector<String[]> examples) {
-		int positive[] = new int[variable.labels.size()];
-		int negative[] = new int[variable.labels.size()];
-		int index = variable.column;
-		int classIndex = classVar.column;
+	double computeRemainder(Variable variable, int[] rows) {
+		int numValues = variable.labels.size();
+		int positive[] = new int[numValues];
+		int negative[] = new int[numValues];
+		DataMatrix.View column = codes.column(variable.column);
+		DataMatrix.View classColumn = codes.column(classVar.column);
+		double yes = classVar.getIndex("yes");
+		double numRecs = rows.length;
 		double sum = 0;
-		double numValues = variable.labels.size();
-		double numRecs = examples.size();
 
-		for (int i = 0; i < numValues; i++) {
-			// get discrete value
-			String value = variable.getLabel(i);
-			Enumeration<String[]> dataset = examples.elements();
-
-			while (dataset.hasMoreElements()) {
-				String[] record = dataset.nextElement();
-
-				if (record[index].equals(value)) {
-					if (record[classIndex].equals("yes")) {
-						positive[i]++;
-					} else {
-						negative[i]++;
-					}
-				}
-			} // end while
+		for (int r = 0; r < rows.length; r++) {
+			int i = (int) column.get(rows[r]);
+
+			if (classColumn.get(rows[r]) == yes) {
+				positive[i]++;
+			} else {
+				negative[i]++;
+			}
+		}
 
+		for (int i = 0; i < numValues; i++) {
 			double weight = (positive[i] + negative[i]) / numRecs;
 			double rem = weight *
 					computeInfo(positive[i], negative[i]);
 			sum += rem;
-		} // end for
+		}
 
 		return sum;
 	}
 
 	/**
-	 * Takes a data set, a variable, a value for that variable and
-	 * returns the subset of data which contains that value in
-	 * every record.
-	 * @param examples the data set containing training records.
+	 * Returns the records of the {@link #codes} among the given ones
+	 * that have a label of a variable.
+	 * @param rows the indexes of the records.
 	 * @param variable the <code>Variable</code> representing a
 	 * column of the data set.
-	 * @param value the value of the <code>variable</code>.
-	 * @return a <code>Vector</code> that contains records that
-	 * have the same <code>value</code> at column represented by
-	 * <code>variable</code>.
+	 * @param labelIndex the index of the label of the <code>variable
+	 * </code>.
+	 * @return the indexes of the matching records.
 	 */
-	Vector<String[]> subset(Vector<String[]> examples,
-			Variable variable, String value) {
-		int index = variable.column;
-		Enumeration<String[]> examps = examples.elements();
-		Vector<String[]> matchingExamples = new Vector<>();
+	int[] subset(int[] rows, Variable variable, int labelIndex) {
+		DataMatrix.View column = codes.column(variable.column);
+		int count = 0;
 
-		while (examps.hasMoreElements()) {
-			String[] record = (String[]) examps.nextElement();
+		for (int i = 0; i < rows.length; i++) {
+			if (column.get(rows[i]) == labelIndex) {
+				count++;
+			}
+		}
+
+		int[] matchingRows = new int[count];
+		count = 0;
 
-			if (value.equals(record[index])) {
-				matchingExamples.addElement(record);
+		for (int i = 0; i < rows.length; i++) {
+			if (column.get(rows[i]) == labelIndex) {
+				matchingRows[count++] = rows[i];
 			}
 		}
 
-		textArea.append("\n Subset - there are " +
-				matchingExamples.size() + " records with " +
-				variable.name + " = " + value);
+		if (traceLevel >= TraceLevel.DETAIL) {
+			trace("\n Subset - there are " +
+					matchingRows.length + " records with " +
+					variable.name + " = " + variable.getLabel(labelIndex));
+		}
 
-		return matchingExamples;
+		return matchingRows;
 	}
 
 	/**
 	 * Chooses the variable with the greatest gain.
 	 * @param variables the list of variable to consider.
-	 * @param examples a subset of training data.
+	 * @param rows the indexes of the records of the {@link #codes}.
 	 * @return the <code>Variable</code> with the greatest gain.
 	 */
 	Variable chooseVariable(Hashtable<String, Variable> variables,
-			Vector<String[]> examples) {
+			int[] rows) {
 		Enumeration<Variable> vars = variables.elements();
 		double gain = 0.0, bestGain = -1.0;
 		Variable best = null;
 
-		int counts[] = getCounts(examples);
-		int pos = counts[0];
-		int neg = counts[1];
-		double info = computeInfo(pos, neg);
+		int counts[] = getCounts(rows);
+		double info = computeInfo(counts[0], counts[1]);
 
-		textArea.append("\nInfo = " + info);
+		if (traceLevel >= TraceLevel.DETAIL) {
+			trace("\nInfo = " + info);
+		}
 
 		while (vars.hasMoreElements()) {
-			Variable var = (Variable) vars.nextElement();
+			Variable var = vars.nextElement();
+
+			gain = info - computeRemainder(var, rows);
 
-			gain = info - computeRemainder(var, examples);
-			textArea.append("\n" + var.name + " gain = " + gain);
+			if (traceLevel >= TraceLevel.DETAIL) {
+				trace("\n" + var.name + " gain = " + gain);
+			}
 
 			if (gain > bestGain) {
 				bestGain = gain;
@@ -264,15 +283,18 @@ public class DecisionTree implements Serializable {
 			}
 		}
 
-		textArea.append("\nChoosing best variable: " + best.name);
+		if (traceLevel >= TraceLevel.DETAIL) {
+			trace("\nChoosing best variable: " + best.name);
+		}
+
 		return best;
 	}
 
 	/**
-	 * Constructs a decision tree with the given vector of example
-	 * data records, splitting on variables and values with the
-	 * most information content.
-	 * @param examples a vector of example records (the data set).
+	 * Constructs a decision tree with all the records of the given
+	 * coded data.
+	 * @param codes the records with the index of the label of each
+	 * field.
 	 * @param variables a hash table that contains all variables
 	 * representing fields of records.
 	 * @param defaultValue the <code>Node</code> object that
@@ -280,34 +302,58 @@ public class DecisionTree implements Serializable {
 	 * from the examples.
 	 * @return the tree's root <code>Node</code>.
 	 */
-	public Node buildDecisionTree(Vector<String[]> examples,
+	public Node buildDecisionTree(DataMatrix codes,
+			Hashtable<String, Variable> variables, Node defaultValue) {
+		int[] rows = new int[codes.getNumRows()];
+
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = i;
+		}
+
+		this.codes = codes;
+		return buildDecisionTree(rows, variables, defaultValue);
+	}
+
+	/**
+	 * Constructs a decision tree with the given records of the
+	 * {@link #codes}, splitting on variables and values with the
+	 * most information content.
+	 * @param rows the indexes of the records.
+	 * @param variables a hash table that contains all variables
+	 * representing fields of records.
+	 * @param defaultValue the <code>Node</code> object that
+	 * contains the default value if the tree cannot be built
+	 * from the records.
+	 * @return the tree's root <code>Node</code>.
+	 */
+	public Node buildDecisionTree(int[] rows,
 			Hashtable<String, Variable> variables, Node defaultValue) {
 		Node tree = new Node();
 
-		if (examples.size() == 0) {
+		if (rows.length == 0) {
 			return defaultValue;
-		} else if (identical(examples, classVar)) {
-			return new Node(examples.firstElement()[classVar.column]);
+		} else if (identical(rows, classVar)) {
+			return new Node(classVar.getLabel(
+					(int) codes.get(rows[0], classVar.column)));
 		} else if (variables.size() == 0) {
-			return new Node(majority(examples));
+			return new Node(majority(rows));
 		} else {
-			Variable best = chooseVariable(variables, examples);
+			Variable best = chooseVariable(variables, rows);
 
 			// root node with best gain
 			tree = new Node(best.name);
 			int numValues = best.labels.size();
 
 			for (int i = 0; i < numValues; i++) {
-				Vector<String[]> examples1 =
-						subset(examples, best, best.getLabel(i));
+				int[] rows1 = subset(rows, best, i);
 
 				Hashtable<String, Variable> variables1 =
 						new Hashtable<String, Variable>(variables);
 
 				variables1.remove(best.getName());
-				Node subTree = buildDecisionTree(examples1,
+				Node subTree = buildDecisionTree(rows1,
 						variables1,
-						new Node(majority(examples1)));
+						new Node(majority(rows1)));
 
 				tree.addChild(subTree, best.name + "=" + best.getLabel(i));
 			}
@@ -324,18 +370,18 @@ public class DecisionTree implements Serializable {
 	 */
 	public void displayTree(Node root, String offset) {
 		if (root.children.size() == 0) {
-			textArea.append("\n" + offset + "    THEN (" +
+			trace("\n" + offset + "    THEN (" +
 					root.label + ")  (Leaf node)");
 			return;
 		} else {
 			Enumeration<Node> children = root.children.elements();
 			Enumeration<String> links = root.linkLabels.elements();
 
-			textArea.append("\n" + offset + "   " +
+			trace("\n" + offset + "   " +
 					root.label + " (Interior node)");
 
 			while (children.hasMoreElements()) {
-				textArea.append("\n" + offset + "   IF (" +
+				trace("\n" + offset + "   IF (" +
 						links.nextElement() + ")");
 				displayTree(children.nextElement(), offset + "   ");
 			}
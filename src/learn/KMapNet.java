@@ -19,6 +19,7 @@ public class KMapNet implements Serializable {
 	protected String name;
 	private DataSet dataset;
 	private Vector<double[]> data;
+	private DataMatrix matrix;      // data, if it is set as a matrix
 	private int recInx = 0;         // current record index
 	private int numRecs = 0;        // number of records in data
 	private int fieldsPerRec;
@@ -44,7 +45,23 @@ public class KMapNet implements Serializable {
 	private double activations[];
 	private double weights[];
 	private int distance[];         // used in neighborhood computation
+	private int traceLevel = TraceLevel.SUMMARY; // see TraceLevel
 	transient public  JTextArea textArea;
+	transient private TraceBuffer traceBuffer; // of the text area
+
+	/**
+	 * Per-thread activation buffers used by
+	 * {@link #getCluster(double[])}, so that several threads can
+	 * cluster records with the same trained network at once. A
+	 * buffer is grown whenever a network with more units uses it.
+	 */
+	private static final ThreadLocal<double[]> clusterBuffers =
+			new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return new double[0];
+		}
+	};
 
 	/**
 	 * Creates a Kohonen map neural network with the given name.
@@ -56,29 +73,54 @@ public class KMapNet implements Serializable {
 	}
 
 	/**
-	 * Displays an array of network data.
+	 * Adds text to the text area for display, or prints it if there
+	 * is no text area. The text is appended to the text area in
+	 * batches by its {@link TraceBuffer}.
+	 * @param text the String to be displayed.
+	 */
+	public void trace(String text) {
+		if (textArea != null) {
+			if (traceBuffer == null ||
+					traceBuffer.getTextArea() != textArea) {
+				traceBuffer = TraceBuffer.of(textArea);
+			}
+
+			traceBuffer.append(text);
+		} else {
+			System.out.println(text);
+		}
+	}
+
+	/**
+	 * Displays an array of network data, if the records are traced.
 	 * @param name the name of the information being displayed.
 	 * @param arr the array to be displayed.
 	 */
 	public void show_array(String name, double[] arr) {
-		if (textArea != null) {
-			textArea.append("\n" + name + " = ");
+		if (traceLevel >= TraceLevel.RECORDS) {
+			StringBuilder text = new StringBuilder();
+
+			text.append("\n").append(name).append(" = ");
 			for (int i = 0; i < arr.length; i++) {
-				textArea.append(arr[i] + "  ");
+				text.append(arr[i]).append("  ");
 			}
+
+			trace(text.toString());
 		}
 	}
 
 	/**
-	 * Displays the relevant information for the network.
+	 * Displays the relevant information for the network, if the
+	 * records are traced.
 	 */
 	public void display_network() {
+		if (traceLevel < TraceLevel.RECORDS) {
+			return;
+		}
+
 		// show_array("weights", weights);
 		show_array("activations", activations);
-
-		if (textArea != null) {
-			textArea.append("\nWinner = " + winner + "\n");
-		}
+		trace("\nWinner = " + winner + "\n");
 	}
 
 	/**
@@ -87,11 +129,15 @@ public class KMapNet implements Serializable {
 	 */
 	public void readInputs() {
 		recInx = recInx % numRecs; // keep index from 0 to n-1 records
-		double[] tempRec = data.elementAt(recInx); // get record
-		int inx = 0;
 
-		for (inx = 0; inx < numInputs; inx++) {
-			activations[inx] = tempRec[inx];
+		if (matrix != null) {
+			matrix.copyRow(recInx, 0, activations, 0, numInputs);
+		} else {
+			double[] tempRec = data.elementAt(recInx); // get record
+
+			for (int inx = 0; inx < numInputs; inx++) {
+				activations[inx] = tempRec[inx];
+			}
 		}
 
 		if (recInx == 0) {
@@ -142,20 +188,28 @@ public class KMapNet implements Serializable {
 	 * input vector to all the output units.
 	 */
 	public void computeOutputs() {
+		computeOutputs(activations);
+	}
+
+	/**
+	 * Computes the outputs into the given activations instead of
+	 * the network's own ones. Only the activations are written, so
+	 * this method can be called by several threads at once, each
+	 * with its own buffer.
+	 * @param activations the unit activations, whose first
+	 * <code>numInputs</code> elements hold the inputs.
+	 */
+	private void computeOutputs(double[] activations) {
 		int lastOut = numUnits - 1;
 		int firstOut = numInputs;
 
 		// first layer
 		for (int i = firstOut; i <= lastOut; i++) {
 			int index = (i - firstOut) * numInputs;
-			activations[i] = 0.0;
 
-			for (int j = 0; j < numInputs; j++) {
-				// compute net inputs
-				activations[i] +=
-						(activations[j] - weights[index + j]) *
-						(activations[j] - weights[index + j]);
-			}
+			// compute net inputs
+			activations[i] = Kernels.squaredDistance(activations, 0,
+					weights, index, numInputs);
 		}
 	}
 
@@ -164,7 +218,18 @@ public class KMapNet implements Serializable {
 	 * activation.
 	 */
 	public void selectWinner() {
-		winner = 0;
+		winner = selectWinner(activations);
+	}
+
+	/**
+	 * Finds the output unit with the smallest activation in the
+	 * given activations.
+	 * @param activations the unit activations computed by a
+	 * forward pass.
+	 * @return the index of the winning output unit.
+	 */
+	private int selectWinner(double[] activations) {
+		int winner = 0;
 		double min = activations[numInputs];
 
 		for (int i = 0; i < numOutputs; i++) {
@@ -173,6 +238,8 @@ public class KMapNet implements Serializable {
 				winner = i;
 			}
 		}
+
+		return winner;
 	}
 
 	/**
@@ -184,7 +251,7 @@ public class KMapNet implements Serializable {
 		int numOutputs = numRows * numCols;
 		double sigma_squared = sigma * sigma;
 		double dist, range;
-		int inx, base;
+		int base;
 
 		for (int i = 0; i < numOutputs; i++) {
 			dist = Math.exp(
@@ -193,28 +260,96 @@ public class KMapNet implements Serializable {
 			base = i * numInputs;  // compute the base index
 			range = learnRate * dist;
 
-			for (int j = 0; j < numInputs; j++) {
-				inx = base + j;
-				weights[inx] += range * (activations[j] - weights[inx]);
-			}
+			Kernels.interpolate(range, activations, 0,
+					weights, base, numInputs);
 		}
 	}
 
 	/**
-	 * Selects a winner from a single input record.
+	 * Selects a winner from a single input record.<br>
+	 * The forward pass uses an activation buffer owned by the
+	 * calling thread, so the network state is not modified and
+	 * this method is safe to be called by several threads at once.
 	 * @param inputRec the double array which contains the inputs.
 	 * @return the winner (cluster number).
 	 */
 	public int getCluster(double[] inputRec) {
+		double[] buffer = clusterBuffers.get();
+
+		if (buffer.length < numUnits) {
+			buffer = createActivationBuffer();
+			clusterBuffers.set(buffer);
+		}
+
+		return getCluster(inputRec, buffer);
+	}
+
+	/**
+	 * Selects a winner from a single input record using the given
+	 * activation buffer. Nothing is written to the network state,
+	 * so a trained network can be shared by several threads as
+	 * long as each of them uses its own buffer.
+	 * @param inputRec the double array which contains the inputs.
+	 * @param buffer the activation buffer owned by the caller,
+	 * created by {@link #createActivationBuffer()}.
+	 * @return the winner (cluster number).
+	 */
+	public int getCluster(double[] inputRec, double[] buffer) {
 		// set input unit activations
 		for (int inx = 0; inx < numInputs; inx++) {
-			activations[inx] = inputRec[inx];
+			buffer[inx] = inputRec[inx];
 		}
 
-		computeOutputs();
-		selectWinner();
+		computeOutputs(buffer);
 
-		return winner;
+		return selectWinner(buffer);
+	}
+
+	/**
+	 * Creates an activation buffer that can be used with
+	 * {@link #getCluster(double[], double[])}.
+	 * @return a new array with one element per unit.
+	 */
+	public double[] createActivationBuffer() {
+		return new double[numUnits];
+	}
+
+	/**
+	 * Computes the quantization error of records, i.e. the mean
+	 * squared distance from a record to its winning unit, e.g. on a
+	 * validation set to check the progress of the training.
+	 * @param records the records, whose first fields are the inputs.
+	 * @return the quantization error, 0 if there are no records.
+	 */
+	public double computeQuantizationError(DataMatrix records) {
+		int numRows = records.getNumRows();
+		double[] buffer = createActivationBuffer();
+		double sum = 0.0;
+
+		for (int r = 0; r < numRows; r++) {
+			records.copyRow(r, 0, buffer, 0, numInputs);
+			computeOutputs(buffer);
+			sum += buffer[numInputs + selectWinner(buffer)];
+		}
+
+		return (numRows > 0) ? sum / numRows : 0.0;
+	}
+
+	/**
+	 * Copies the weights, e.g. to restore those of the best pass of
+	 * the training with {@link #restoreWeights(double[])}.
+	 * @return a copy of the weights.
+	 */
+	public double[] copyWeights() {
+		return weights.clone();
+	}
+
+	/**
+	 * Restores weights copied by {@link #copyWeights()}.
+	 * @param saved the copy of the weights.
+	 */
+	public void restoreWeights(double[] saved) {
+		System.arraycopy(saved, 0, weights, 0, weights.length);
 	}
 
 	/**
@@ -297,11 +432,67 @@ public class KMapNet implements Serializable {
 	}
 
 	public Vector<double[]> getData() {
-		return data;
+		return (matrix != null) ? matrix.toRows() : data;
 	}
 
 	public void setData(Vector<double[]> data) {
 		this.data = data;
+		this.matrix = null;
+	}
+
+	/**
+	 * Sets the training data held in a matrix, e.g. the {@link
+	 * DataSet#getNormalizedMatrix() normalized matrix} of a data
+	 * set, whose records are read without being copied.
+	 * @param matrix the training data, one record per row.
+	 */
+	public void setData(DataMatrix matrix) {
+		this.matrix = matrix;
+		this.data = null;
+	}
+
+	/**
+	 * Retrieves the training data if it is held in a matrix.
+	 * @return the training data, or <code>null</code> if it is held
+	 * in a <code>Vector</code>.
+	 */
+	public DataMatrix getDataMatrix() {
+		return matrix;
+	}
+
+	/**
+	 * Retrieves the number of passes over which the learn rate and
+	 * the neighborhood width shrink to their final values.
+	 * @return the number of passes of the schedule.
+	 */
+	public int getMaxNumPasses() {
+		return maxNumPasses;
+	}
+
+	/**
+	 * Sets the number of passes over which the learn rate and the
+	 * neighborhood width shrink to their final values. They go on
+	 * shrinking if the network is trained for more passes.
+	 * @param maxNumPasses the number of passes of the schedule.
+	 */
+	public void setMaxNumPasses(int maxNumPasses) {
+		this.maxNumPasses = maxNumPasses;
+	}
+
+	/**
+	 * Sets the level of the trace information reported.
+	 * @param traceLevel one of the {@link TraceLevel} constants.
+	 */
+	public void setTraceLevel(int traceLevel) {
+		this.traceLevel = traceLevel;
+	}
+
+	/**
+	 * Retrieves the level of the trace information reported.
+	 * @return one of the {@link TraceLevel} constants.
+	 */
+	public int getTraceLevel() {
+		return traceLevel;
 	}
 
 	public int getMode() {
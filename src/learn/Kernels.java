@@ -0,0 +1,169 @@
+package learn;
+
+/**
+ * The <code>Kernels</code> class implements the dense loops of the
+ * neural networks over <code>double</code> arrays:
+ * <ul>
+ * <li>{@link #dot(double[], int, double[], int, int)}, the net input
+ * of a unit of a back propagation network
+ * <li>{@link #squaredDistance(double[], int, double[], int, int)},
+ * the distance from an input to a unit of a Kohonen map
+ * <li>{@link #axpy(double, double[], int, double[], int, int)} and
+ * {@link #interpolate(double, double[], int, double[], int, int)},
+ * the updates of the errors and weights
+ * </ul>
+ * A sum computed in a single variable cannot start an addition
+ * before the previous one is done, and the JIT compiler does not
+ * reorder floating point additions to avoid it. The sums are thus
+ * computed in four independent partial sums that are added at the
+ * end, so the result may differ from a sum in index order in the
+ * last bits. Vectors shorter than {@link #MIN_SPLIT_LENGTH} are
+ * summed in index order. The updates have no such dependency, so
+ * they are plain loops that the JIT compiler vectorizes by itself.<br>
+ * Each array is given with the offset of its first element, so that
+ * a row of a weight matrix or of a batch is used without copying it.
+ *
+ * @author Tran Xuan Hoang
+ */
+public final class Kernels {
+	/** The number of elements from which the sums are split, below
+	 * which the loop overhead of the partial sums is not paid back. */
+	public static final int MIN_SPLIT_LENGTH = 32;
+
+	/**
+	 * Prevents the creation of instances.
+	 */
+	private Kernels() {
+	}
+
+	/**
+	 * Computes the dot product of two vectors.
+	 * @param x the array of the first vector.
+	 * @param xOff the index of the first element of the first vector.
+	 * @param y the array of the second vector.
+	 * @param yOff the index of the first element of the second vector.
+	 * @param n the number of elements of the vectors.
+	 * @return the sum of <code>x[xOff + i] * y[yOff + i]</code>.
+	 */
+	public static double dot(double[] x, int xOff, double[] y, int yOff,
+			int n) {
+		if (n < MIN_SPLIT_LENGTH) {
+			double sum = 0.0;
+
+			for (int i = 0; i < n; i++) {
+				sum += x[xOff + i] * y[yOff + i];
+			}
+
+			return sum;
+		}
+
+		double sum0 = 0.0;
+		double sum1 = 0.0;
+		double sum2 = 0.0;
+		double sum3 = 0.0;
+		int shift = yOff - xOff; // from an index of x to one of y
+		int end = xOff + (n & ~3);
+		int i = xOff;
+
+		for (; i < end; i += 4) {
+			sum0 += x[i] * y[i + shift];
+			sum1 += x[i + 1] * y[i + 1 + shift];
+			sum2 += x[i + 2] * y[i + 2 + shift];
+			sum3 += x[i + 3] * y[i + 3 + shift];
+		}
+
+		for (end = xOff + n; i < end; i++) {
+			sum0 += x[i] * y[i + shift];
+		}
+
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	/**
+	 * Computes the squared Euclidean distance between two vectors.
+	 * @param x the array of the first vector.
+	 * @param xOff the index of the first element of the first vector.
+	 * @param y the array of the second vector.
+	 * @param yOff the index of the first element of the second vector.
+	 * @param n the number of elements of the vectors.
+	 * @return the sum of the squares of
+	 * <code>x[xOff + i] - y[yOff + i]</code>.
+	 */
+	public static double squaredDistance(double[] x, int xOff,
+			double[] y, int yOff, int n) {
+		if (n < MIN_SPLIT_LENGTH) {
+			double sum = 0.0;
+
+			for (int i = 0; i < n; i++) {
+				double d = x[xOff + i] - y[yOff + i];
+
+				sum += d * d;
+			}
+
+			return sum;
+		}
+
+		double sum0 = 0.0;
+		double sum1 = 0.0;
+		double sum2 = 0.0;
+		double sum3 = 0.0;
+		int shift = yOff - xOff; // from an index of x to one of y
+		int end = xOff + (n & ~3);
+		int i = xOff;
+
+		for (; i < end; i += 4) {
+			double d0 = x[i] - y[i + shift];
+			double d1 = x[i + 1] - y[i + 1 + shift];
+			double d2 = x[i + 2] - y[i + 2 + shift];
+			double d3 = x[i + 3] - y[i + 3 + shift];
+
+			sum0 += d0 * d0;
+			sum1 += d1 * d1;
+			sum2 += d2 * d2;
+			sum3 += d3 * d3;
+		}
+
+		for (end = xOff + n; i < end; i++) {
+			double d = x[i] - y[i + shift];
+
+			sum0 += d * d;
+		}
+
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	/**
+	 * Adds a multiple of a vector to another one:
+	 * <code>y[yOff + i] += a * x[xOff + i]</code>.
+	 * @param a the multiplier.
+	 * @param x the array of the added vector.
+	 * @param xOff the index of the first element of the added vector.
+	 * @param y the array of the updated vector.
+	 * @param yOff the index of the first element of the updated
+	 * vector.
+	 * @param n the number of elements of the vectors.
+	 */
+	public static void axpy(double a, double[] x, int xOff, double[] y,
+			int yOff, int n) {
+		for (int i = 0; i < n; i++) {
+			y[yOff + i] += a * x[xOff + i];
+		}
+	}
+
+	/**
+	 * Moves a vector towards another one:
+	 * <code>y[yOff + i] += rate * (x[xOff + i] - y[yOff + i])</code>.
+	 * @param rate the fraction of the distance moved.
+	 * @param x the array of the target vector.
+	 * @param xOff the index of the first element of the target vector.
+	 * @param y the array of the moved vector.
+	 * @param yOff the index of the first element of the moved vector.
+	 * @param n the number of elements of the vectors.
+	 */
+	public static void interpolate(double rate, double[] x, int xOff,
+			double[] y, int yOff, int n) {
+		for (int i = 0; i < n; i++) {
+			y[yOff + i] += rate * (x[xOff + i] - y[yOff + i]);
+		}
+	}
+} // end class Kernels
@@ -206,23 +206,25 @@ public class LearnFrame extends JFrame implements Runnable {
 	 */
 	public void testBackProp(DataSet dataset, JTextArea bottomText) {
 		BackProp testNet = new BackProp("Test Back Prop Network");
+		TraceBuffer trace = TraceBuffer.of(bottomText);
 
-		bottomText.append("Training Back Propagation Network...");
+		trace.append("Training Back Propagation Network...");
 		testNet.textArea = bottomText;
+		testNet.setTraceLevel(TraceLevel.RECORDS);
 		testNet.setDataSet(dataset);
 		testNet.setNumRecs(dataset.numRecords);
 		testNet.setFieldsPerRec(dataset.normFieldsPerRec);
-		testNet.setData(dataset.normalizedData);
+		testNet.setData(dataset.getNormalizedMatrix());
 
 		int numOutputs = dataset.getClassFieldSize();
 		int numInputs = testNet.getFieldsPerRec() - numOutputs;
 
 		testNet.createNetwork(numInputs, numInputs, numOutputs);
-		bottomText.append("\nNetwork architecture = " + numInputs +
+		trace.append("\nNetwork architecture = " + numInputs +
 				"-" + numInputs + "-" + numOutputs);
-		bottomText.append("\nLearn rate = " + testNet.getLearnRate() +
+		trace.append("\nLearn rate = " + testNet.getLearnRate() +
 				",  Momentum = " + testNet.getMomentum());
-		bottomText.append("\n\n Each '*' indicates 100 passes "
+		trace.append("\n\n Each '*' indicates 100 passes "
 				+ "over training data\n");
 
 		int maxNumpasses = 2500; // default
@@ -239,17 +241,17 @@ public class LearnFrame extends JFrame implements Runnable {
 			} catch (InterruptedException e) {}
 
 			if ((numPasses % 100) == 0) {
-				bottomText.append("*");
+				trace.append("*");
 			}
 
 			if (exitThread) {
-				testNet.textArea.append("\n\nUser pressed Reset"
+				trace.append("\n\nUser pressed Reset"
 						+ " ... training halted!\n\n");
 				break; // exit the loop
 			}
 		}
 
-		testNet.textArea.append("\n  Passes Completed: " + numPasses +
+		trace.append("\n  Passes Completed: " + numPasses +
 				"\tRMS Error = " + testNet.getAveRMSError() + "\n");
 		testNet.setMode(1); // lock the network
 
@@ -269,15 +271,17 @@ public class LearnFrame extends JFrame implements Runnable {
 	 */
 	public void testKMapNet(DataSet dataset, JTextArea bottomText) {
 		KMapNet testNet = new KMapNet("Test Kohonen Map Network");
+		TraceBuffer trace = TraceBuffer.of(bottomText);
 
-		bottomText.append("Training Kohonen Map Network...");
-		bottomText.append("\nEach '*' indicates 1 pass over "
+		trace.append("Training Kohonen Map Network...");
+		trace.append("\nEach '*' indicates 1 pass over "
 				+ "training data.\n");
 		testNet.textArea = bottomText;
+		testNet.setTraceLevel(TraceLevel.RECORDS);
 		testNet.setDataSet(dataset);
 		testNet.setNumRecs(dataset.numRecords);
 		testNet.setFieldsPerRec(dataset.fieldsPerRec);
-		testNet.setData(dataset.normalizedData); // get vector of data
+		testNet.setData(dataset.getNormalizedMatrix()); // get matrix of data
 
 		// create network, all fields are inputs
 		testNet.createNetwork(testNet.getFieldsPerRec(), 4, 4); // default net arch
@@ -295,16 +299,16 @@ public class LearnFrame extends JFrame implements Runnable {
 				Thread.sleep(10); // give up the processor to GUI
 			} catch (InterruptedException e) {}
 
-			bottomText.append("*");
+			trace.append("*");
 
 			if (exitThread) {
-				testNet.textArea.append("\n\nUser pressed Reset "
+				trace.append("\n\nUser pressed Reset "
 						+ "... training halted!\n\n");
 				break; // exit the loop
 			}
 		}
 
-		testNet.textArea.append(
+		trace.append(
 				"\n  Passes Completed: " + numPasses + "\n");
 		testNet.setMode(1); // lock the network weights
 
@@ -323,11 +327,13 @@ public class LearnFrame extends JFrame implements Runnable {
 	 */
 	public void testDecisionTree(DataSet dataSet, JTextArea bottomText) {
 		DecisionTree tree = new DecisionTree("Test Decision Tree");
+		TraceBuffer trace = TraceBuffer.of(bottomText);
 
-		tree.textArea.append("Starting Decision Tree...");
 		tree.textArea = bottomText;
+		tree.setTraceLevel(TraceLevel.DETAIL);
+		trace.append("Starting Decision Tree...");
 		tree.ds = dataSet;
-		tree.examples = dataSet.data; // get vector of data
+		tree.codes = dataSet.getCodedData(); // get matrix of label indexes
 		tree.variableList = dataSet.variableList;
 
 		// test that data set contains all categorical fields
@@ -344,9 +350,9 @@ public class LearnFrame extends JFrame implements Runnable {
 		}
 
 		if (!allCategorical) {
-			tree.textArea.append("\nDecision Tree cannot process "
+			trace.append("\nDecision Tree cannot process "
 					+ "continuous data\n");
-			tree.textArea.append(
+			trace.append(
 					"\nPlease select a different data set\n");
 			return;
 		}
@@ -355,15 +361,15 @@ public class LearnFrame extends JFrame implements Runnable {
 		tree.variableList.remove("ClassField");
 
 		// recursively build tree
-		Node root = tree.buildDecisionTree(tree.examples,
+		Node root = tree.buildDecisionTree(tree.codes,
 				tree.variableList,
 				new Node("default"));
 
 		// now display the results
-		tree.textArea.append("\n\nDecisionTree -- classVar = " +
+		trace.append("\n\nDecisionTree -- classVar = " +
 				tree.classVar.name);
 		tree.displayTree(root, "  ");
-		tree.textArea.append("\nStopping DecisionTree - success!");
+		trace.append("\nStopping DecisionTree - success!");
 	}
 
 	/**
@@ -386,6 +392,7 @@ public class LearnFrame extends JFrame implements Runnable {
 	 * selected.
 	 */
 	void resetMenuItem_actionPerformed(ActionEvent e) {
+		TraceBuffer.of(traceTextArea).clear();
 		traceTextArea.setText("");
 		exitThread = true; // signal training thread to halt
 	}
@@ -404,10 +411,12 @@ public class LearnFrame extends JFrame implements Runnable {
 		String fileName = dlg.getFile();
 
 		if (fileName != null) {
+			TraceBuffer.of(dataTextArea).clear();
 			dataTextArea.setText("");
 
 			dataSet = new DataSet("ds", dirName + fileName);
 			dataSet.setDisplay(dataTextArea);
+			dataSet.setTraceLevel(TraceLevel.RECORDS);
 
 			try {
 				dataSet.loadDataFile();
@@ -468,6 +477,7 @@ public class LearnFrame extends JFrame implements Runnable {
 	 */
 	@Override
 	public void run() {
+		TraceBuffer.of(traceTextArea).clear();
 		traceTextArea.setText("");
 
 		if (backPropRadioButtonMenuItem.isSelected()) {
@@ -0,0 +1,350 @@
+package learn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The <code>NumericDataParser</code> class reads a data file whose
+ * fields are all numbers, e.g. the <code>infofilter.dat</code> file
+ * of keyword counts and ratings, in a single pass. The numbers are
+ * parsed straight from the bytes of the file into a
+ * <code>double[]</code> buffer holding the records one after the
+ * other (row-major order), without creating a String per line or
+ * per field.<br>
+ * Fields are separated by white spaces and records by line breaks
+ * (LF, CR LF or a lone CR, as read by
+ * <code>BufferedReader.readLine</code>), and the fields of a line are
+ * read as by a <code>StringTokenizer</code>. Blank lines are skipped
+ * and the fields after the last expected one are ignored. Most
+ * numbers are decimal numbers with at most 18 significant digits,
+ * whose conversion is exact with a single multiplication or division
+ * by a power of ten. The other numbers are converted by
+ * <code>Double.parseDouble</code>, so the values are always the same
+ * as those parsed from Strings.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class NumericDataParser {
+	/** The number of bytes read from the stream at a time. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The powers of ten that are exactly represented by doubles. */
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+			1e21, 1e22 };
+
+	/** The largest mantissa that is exactly represented by doubles. */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/** The maximum number of significant digits parsed exactly. */
+	private static final int MAX_DIGITS = 18;
+
+	/** The number of fields in each record. */
+	private final int fieldsPerRec;
+
+	/** The values of the records read so far. */
+	private double[] values;
+
+	/** The number of complete records read so far. */
+	private int numRecords = 0;
+
+	/** The bytes of the field being read, when it spans two reads
+	 * of the stream. */
+	private byte[] field = new byte[32];
+
+	/** The number of bytes of the field being read. */
+	private int fieldLength = 0;
+
+	/** The index of the field being read in its record. */
+	private int fieldIndex = 0;
+
+	/** The number of the line being read, from 1. */
+	private int lineNumber = 1;
+
+	/** Indicates that the last byte read was a carriage return, so
+	 * that a line feed right after it does not end another line. */
+	private boolean carriageReturn = false;
+
+	/**
+	 * Creates a parser.
+	 * @param fieldsPerRec the number of fields in each record.
+	 * @param expectedSize the expected number of records, used to
+	 * size the buffer of values.
+	 */
+	public NumericDataParser(int fieldsPerRec, int expectedSize) {
+		this.fieldsPerRec = fieldsPerRec;
+		values = new double[Math.max(expectedSize, 16) * fieldsPerRec];
+	}
+
+	/**
+	 * Reads all records of a stream.
+	 * @param in the stream to be read, which is not closed.
+	 * @throws IOException if the stream cannot be read, or if a line
+	 * has fewer fields than a record.
+	 * @throws NumberFormatException if a field is not a number.
+	 */
+	public void parse(InputStream in) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int length;
+
+		while ((length = in.read(buffer)) != -1) {
+			int i = 0;
+
+			while (i < length) {
+				byte b = buffer[i];
+
+				if (b == '\n' || b == '\r') {
+					endField();
+
+					// the line feed of a CR LF pair ends no other line
+					if (b == '\r' || !carriageReturn) {
+						endLine();
+					}
+
+					carriageReturn = (b == '\r');
+					i++;
+				} else if (isSpace(b)) {
+					endField();
+					carriageReturn = false;
+					i++;
+				} else {
+					int start = i;
+
+					carriageReturn = false;
+
+					while (i < length && buffer[i] != '\n' &&
+							buffer[i] != '\r' && !isSpace(buffer[i])) {
+						i++;
+					}
+
+					if (fieldLength == 0 && i < length) {
+						// the whole field is in the buffer
+						storeField(buffer, start, i - start);
+					} else {
+						// the field continues in the next buffer
+						appendToField(buffer, start, i - start);
+					}
+				}
+			}
+		}
+
+		endField();
+		endLine();
+	}
+
+	/**
+	 * Checks whether a byte separates the fields of a line.
+	 * @param b the byte to be checked.
+	 * @return <code>true</code> if the byte is a white space other
+	 * than a line break.
+	 */
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\f';
+	}
+
+	/**
+	 * Appends bytes to the field being read.
+	 * @param bytes the bytes of the field.
+	 * @param offset the index of the first byte.
+	 * @param length the number of bytes.
+	 */
+	private void appendToField(byte[] bytes, int offset, int length) {
+		if (fieldLength + length > field.length) {
+			field = Arrays.copyOf(field, 2 * (fieldLength + length));
+		}
+
+		System.arraycopy(bytes, offset, field, fieldLength, length);
+		fieldLength += length;
+	}
+
+	/**
+	 * Stores the field that was read in pieces, if any.
+	 */
+	private void endField() {
+		if (fieldLength > 0) {
+			storeField(field, 0, fieldLength);
+			fieldLength = 0;
+		}
+	}
+
+	/**
+	 * Stores a field of the current record.
+	 * @param bytes the bytes of the field.
+	 * @param offset the index of the first byte.
+	 * @param length the number of bytes.
+	 */
+	private void storeField(byte[] bytes, int offset, int length) {
+		if (fieldIndex < fieldsPerRec) {
+			int inx = numRecords * fieldsPerRec + fieldIndex;
+
+			if (inx == values.length) {
+				values = Arrays.copyOf(values, values.length +
+						Math.max(values.length / 2, fieldsPerRec));
+			}
+
+			try {
+				values[inx] = parseDouble(bytes, offset, length);
+			} catch (NumberFormatException e) {
+				throw new NumberFormatException("Invalid number in line " +
+						lineNumber + ": " + e.getMessage());
+			}
+		}
+
+		fieldIndex++;
+	}
+
+	/**
+	 * Completes the record of the line that has just ended.
+	 * @throws IOException if the line has fewer fields than a record.
+	 */
+	private void endLine() throws IOException {
+		if (fieldIndex > 0) {
+			if (fieldIndex < fieldsPerRec) {
+				throw new IOException("Line " + lineNumber + " has " +
+						fieldIndex + " fields instead of " + fieldsPerRec);
+			}
+
+			numRecords++;
+		}
+
+		fieldIndex = 0;
+		lineNumber++;
+	}
+
+	/**
+	 * Converts the ASCII characters of a number into a double,
+	 * without creating any object for decimal numbers.
+	 * @param chars the characters of the number.
+	 * @param offset the index of the first character.
+	 * @param length the number of characters.
+	 * @return the value of the number.
+	 * @throws NumberFormatException if the characters are not a
+	 * number.
+	 */
+	public static double parseDouble(byte[] chars, int offset, int length) {
+		int i = offset;
+		int end = offset + length;
+
+		// most fields are small counts, which are converted first
+		if (length > 0 && length <= 9) {
+			int value = 0;
+
+			while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+				value = 10 * value + (chars[i++] - '0');
+			}
+
+			if (i == end) {
+				return value;
+			}
+
+			i = offset;
+		}
+
+		boolean negative = false;
+
+		if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+			negative = (chars[i] == '-');
+			i++;
+		}
+
+		long mantissa = 0;
+		int numDigits = 0;		// significant digits in the mantissa
+		int exponent = 0;
+		boolean hasDigits = false;
+		boolean truncated = false;
+
+		for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+			hasDigits = true;
+
+			if (numDigits < MAX_DIGITS) {
+				mantissa = 10 * mantissa + (chars[i] - '0');
+				numDigits += (mantissa != 0) ? 1 : 0;
+			} else {
+				exponent++;
+				truncated = true;
+			}
+		}
+
+		if (i < end && chars[i] == '.') {
+			for (i++; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+				hasDigits = true;
+
+				if (numDigits < MAX_DIGITS) {
+					mantissa = 10 * mantissa + (chars[i] - '0');
+					numDigits += (mantissa != 0) ? 1 : 0;
+					exponent--;
+				} else {
+					truncated = true;
+				}
+			}
+		}
+
+		if (hasDigits && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+			int j = i + 1;
+			boolean negativeExponent = false;
+			int value = 0;
+
+			if (j < end && (chars[j] == '-' || chars[j] == '+')) {
+				negativeExponent = (chars[j] == '-');
+				j++;
+			}
+
+			int firstDigit = j;
+
+			for (; j < end && chars[j] >= '0' && chars[j] <= '9' &&
+					value < 100000; j++) {
+				value = 10 * value + (chars[j] - '0');
+			}
+
+			if (j > firstDigit) {
+				exponent += negativeExponent ? -value : value;
+				i = j;
+			}
+		}
+
+		if (!hasDigits || i != end || truncated ||
+				mantissa >= MAX_EXACT_MANTISSA ||
+				exponent < -22 || exponent > 22) {
+			// NaN, Infinity, hexadecimal or too precise numbers and
+			// invalid numbers are left to the standard conversion
+			return Double.parseDouble(
+					new String(chars, offset, length, StandardCharsets.ISO_8859_1));
+		}
+
+		double value = (double) mantissa;
+
+		if (exponent < 0) {
+			value /= POWERS_OF_TEN[-exponent];
+		} else if (exponent > 0) {
+			value *= POWERS_OF_TEN[exponent];
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Retrieves the values of the records, in row-major order.
+	 * @return an array of exactly the number of records times the
+	 * number of fields per record values.
+	 */
+	public double[] getValues() {
+		int size = numRecords * fieldsPerRec;
+
+		if (values.length != size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+		return values;
+	}
+
+	/**
+	 * Retrieves the number of records read.
+	 * @return the number of records.
+	 */
+	public int getNumRecords() {
+		return numRecords;
+	}
+} // end class NumericDataParser
@@ -0,0 +1,317 @@
+package learn;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The <code>ParallelTrainer</code> class trains a back propagation
+ * network on several threads. The records of the data set of the
+ * network are split into contiguous shards, one per worker, and each
+ * worker trains on its shard in mini-batches with its own replica of
+ * the network (see {@link BackProp#createReplica()}), whose weights
+ * and thresholds are those of the network. The workers are run in
+ * one of two modes:
+ * <ul>
+ * <li>{@link #SYNCHRONOUS}, at each step every worker computes the
+ * changes of the next batch of its shard, then the changes of the
+ * workers are added up in the order of the workers and the weights
+ * are adjusted once, using the learn rate divided by the square
+ * root of the number of records of the step. The weights do not
+ * change while the workers read them, so the training is the same
+ * on every run with the same number of workers, and with a single
+ * worker it is the same as with {@link BackProp#processBatch()}.
+ * <li>{@link #HOGWILD}, every worker adjusts the weights after each
+ * batch of its shard, without any lock or waiting for the other
+ * workers. The workers may read weights that are being adjusted and
+ * may overwrite each other's changes, so the training is not
+ * reproducible, but the workers only wait for each other at the end
+ * of a pass.
+ * </ul>
+ * The learn rate, momentum and batch size of the network are read
+ * when the trainer is created. The average RMS error of the network
+ * is computed at the end of each pass, from the errors of all the
+ * workers.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class ParallelTrainer {
+	/** The mode in which the changes of the workers are added up
+	 * before the weights are adjusted. */
+	public static final int SYNCHRONOUS = 0;
+
+	/** The mode in which each worker adjusts the weights without
+	 * waiting for the others. */
+	public static final int HOGWILD = 1;
+
+	/** The trained network. */
+	protected final BackProp net;
+
+	/** The replicas of the network, one per worker. */
+	private final BackProp[] replicas;
+
+	/** The index of the first record of the shard of each worker,
+	 * followed by the number of records. */
+	private final int[] shardStart;
+
+	/** The index of the next record of the shard of each worker. */
+	private final int[] nextRec;
+
+	/** The number of records of each worker in the current step. */
+	private final int[] stepSize;
+
+	/** The maximum number of records of a batch of a worker. */
+	private final int batchSize;
+
+	/** The learn rate of the network. */
+	private final double learnRate;
+
+	/** The tasks of the workers in the synchronous mode. */
+	private final Runnable[] stepTasks;
+
+	/** The tasks of the workers in the Hogwild mode. */
+	private final Runnable[] passTasks;
+
+	/** The mode of the training. */
+	private int mode = SYNCHRONOUS;
+
+	/** The threads of the workers but the first, which is run by the
+	 * calling thread; created when first needed. */
+	private ExecutorService workers;
+
+	/**
+	 * Creates a trainer for a network whose architecture and data are
+	 * set.
+	 * @param net the network.
+	 * @param numWorkers the number of workers, which is reduced to the
+	 * number of records if it is larger.
+	 */
+	public ParallelTrainer(BackProp net, int numWorkers) {
+		if (numWorkers < 1) {
+			throw new IllegalArgumentException(
+					"Invalid number of workers: " + numWorkers);
+		}
+
+		int numRecs = net.getNumRecs();
+
+		numWorkers = Math.max(1, Math.min(numWorkers, numRecs));
+
+		this.net = net;
+		batchSize = net.getBatchSize();
+		learnRate = net.getLearnRate();
+		replicas = new BackProp[numWorkers];
+		shardStart = new int[numWorkers + 1];
+		nextRec = new int[numWorkers];
+		stepSize = new int[numWorkers];
+		stepTasks = new Runnable[numWorkers];
+		passTasks = new Runnable[numWorkers];
+
+		for (int w = 0; w < numWorkers; w++) {
+			final int worker = w;
+
+			replicas[w] = net.createReplica();
+			shardStart[w] = (int) ((long) numRecs * w / numWorkers);
+
+			stepTasks[w] = new Runnable() {
+				@Override
+				public void run() {
+					if (stepSize[worker] > 0) {
+						replicas[worker].trainRecords(nextRec[worker],
+								stepSize[worker]);
+					}
+				}
+			};
+
+			passTasks[w] = new Runnable() {
+				@Override
+				public void run() {
+					trainShard(worker);
+				}
+			};
+		}
+
+		shardStart[numWorkers] = numRecs;
+	}
+
+	/**
+	 * Trains the network with a pass over its data set.
+	 * @throws InterruptedException if the calling thread is
+	 * interrupted while waiting for the workers.
+	 */
+	public void trainPass() throws InterruptedException {
+		if (mode == SYNCHRONOUS) {
+			trainSynchronousPass();
+		} else {
+			runWorkers(passTasks);
+		}
+
+		// add up the errors in the order of the workers
+		double sse = 0.0;
+
+		for (int w = 0; w < replicas.length; w++) {
+			sse += replicas[w].takeSumSquaredError();
+		}
+
+		net.completePass(sse);
+	}
+
+	/**
+	 * Trains the network with a pass over its data set in the
+	 * synchronous mode.
+	 * @throws InterruptedException if the calling thread is
+	 * interrupted while waiting for the workers.
+	 */
+	private void trainSynchronousPass() throws InterruptedException {
+		for (int w = 0; w < replicas.length; w++) {
+			nextRec[w] = shardStart[w];
+		}
+
+		while (true) {
+			int stepRecs = 0;
+
+			for (int w = 0; w < replicas.length; w++) {
+				stepSize[w] = Math.min(batchSize,
+						shardStart[w + 1] - nextRec[w]);
+				stepRecs += stepSize[w];
+			}
+
+			if (stepRecs == 0) {
+				break; // all shards are done
+			}
+
+			runWorkers(stepTasks);
+
+			for (int w = 0; w < replicas.length; w++) {
+				net.addChanges(replicas[w]);
+				nextRec[w] += stepSize[w];
+			}
+
+			net.applyChanges(learnRate / Math.sqrt(stepRecs));
+		}
+	}
+
+	/**
+	 * Trains the replica of a worker with the shard of the worker in
+	 * the Hogwild mode.
+	 * @param worker the index of the worker.
+	 */
+	private void trainShard(int worker) {
+		BackProp replica = replicas[worker];
+		int end = shardStart[worker + 1];
+
+		for (int rec = shardStart[worker]; rec < end; ) {
+			int size = Math.min(batchSize, end - rec);
+
+			replica.trainRecords(rec, size);
+			replica.applyChanges(learnRate / Math.sqrt(size));
+			rec += size;
+		}
+	}
+
+	/**
+	 * Runs the tasks of the workers and waits for all of them to
+	 * complete. The task of the first worker is run by the calling
+	 * thread.
+	 * @param tasks the tasks, one per worker.
+	 * @throws InterruptedException if the calling thread is
+	 * interrupted while waiting for the workers.
+	 */
+	private void runWorkers(Runnable[] tasks) throws InterruptedException {
+		if (tasks.length == 1) {
+			tasks[0].run();
+			return;
+		}
+
+		if (workers == null) {
+			workers = Executors.newFixedThreadPool(tasks.length - 1,
+					new ThreadFactory() {
+				private int count = 0;
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r,
+							"ParallelTrainer worker " + (++count));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		Future<?>[] futures = new Future<?>[tasks.length];
+
+		for (int w = 1; w < tasks.length; w++) {
+			futures[w] = workers.submit(tasks[w]);
+		}
+
+		try {
+			tasks[0].run();
+		} finally {
+			// the other workers are waited for even if the first one
+			// failed, so that no worker still runs after the pass
+			for (int w = 1; w < tasks.length; w++) {
+				try {
+					futures[w].get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+
+					throw new RuntimeException(cause);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops the threads of the workers. The trainer can still be
+	 * used afterwards, and then creates new threads.
+	 */
+	public void shutdown() {
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+	}
+
+	/**
+	 * Retrieves the mode of the training.
+	 * @return {@link #SYNCHRONOUS} or {@link #HOGWILD}.
+	 */
+	public int getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets the mode of the training.
+	 * @param mode {@link #SYNCHRONOUS} or {@link #HOGWILD}.
+	 */
+	public void setMode(int mode) {
+		if (mode != SYNCHRONOUS && mode != HOGWILD) {
+			throw new IllegalArgumentException("Invalid mode: " + mode);
+		}
+
+		this.mode = mode;
+	}
+
+	/**
+	 * Retrieves the number of workers.
+	 * @return the number of workers.
+	 */
+	public int getNumWorkers() {
+		return replicas.length;
+	}
+
+	/**
+	 * Retrieves the trained network.
+	 * @return the network.
+	 */
+	public BackProp getNetwork() {
+		return net;
+	}
+} // end class ParallelTrainer
@@ -0,0 +1,189 @@
+package learn;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+
+/**
+ * The <code>TraceBuffer</code> class collects the trace text written
+ * into a <code>JTextArea</code> by any thread, and appends it to the
+ * text area on the event dispatch thread in batches. The text that
+ * is appended while a batch is waiting for the event dispatch thread
+ * joins that batch, so a data set that is loaded or a network that
+ * is trained does not wait for the text area to be updated.<br>
+ * The pending text is held in a ring buffer of fixed capacity. When
+ * the text is written faster than the text area takes it, the oldest
+ * pending text is dropped and the number of dropped characters is
+ * reported in its place.<br>
+ * All the objects writing into the same text area should use the
+ * buffer returned by {@link #of(JTextArea)}, so that their texts are
+ * appended in the order they were written.
+ *
+ * @author Tran Xuan Hoang
+ */
+public class TraceBuffer {
+	/** The default number of characters held by a buffer. */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/** The buffers of the text areas, which are not kept from being
+	 * garbage collected by their buffers. */
+	private static final Map<JTextArea, TraceBuffer> buffers =
+			new WeakHashMap<JTextArea, TraceBuffer>();
+
+	/** The text area that displays the text. */
+	protected final JTextArea textArea;
+
+	/** The characters waiting to be appended to the text area. */
+	private final char[] ring;
+
+	/** The index in the ring of the first waiting character. */
+	private int head = 0;
+
+	/** The number of waiting characters. */
+	private int size = 0;
+
+	/** The number of characters dropped since the last batch. */
+	private long numDropped = 0;
+
+	/** Indicates whether a batch is waiting for the event dispatch
+	 * thread. */
+	private boolean flushPending = false;
+
+	/** Appends a batch to the text area on the event dispatch thread. */
+	private final Runnable flusher = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+
+	/**
+	 * Retrieves the buffer of a text area, creating it if necessary.
+	 * @param textArea the text area.
+	 * @return the buffer of the text area.
+	 */
+	public static TraceBuffer of(JTextArea textArea) {
+		synchronized (buffers) {
+			TraceBuffer buffer = buffers.get(textArea);
+
+			if (buffer == null) {
+				buffer = new TraceBuffer(textArea, DEFAULT_CAPACITY);
+				buffers.put(textArea, buffer);
+			}
+
+			return buffer;
+		}
+	}
+
+	/**
+	 * Creates a buffer for a text area. The buffer returned by
+	 * {@link #of(JTextArea)} should be used instead, unless the text
+	 * area is only written by a single object.
+	 * @param textArea the text area.
+	 * @param capacity the number of characters held by the buffer.
+	 */
+	public TraceBuffer(JTextArea textArea, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+
+		this.textArea = textArea;
+		ring = new char[capacity];
+	}
+
+	/**
+	 * Appends text to the text area. The text is appended later on
+	 * the event dispatch thread, with the text written until then.
+	 * @param text the text to be appended.
+	 */
+	public void append(String text) {
+		synchronized (this) {
+			int length = text.length();
+			int from = 0;
+
+			if (length >= ring.length) {
+				// only the end of the text fits
+				numDropped += size + length - ring.length;
+				from = length - ring.length;
+				head = 0;
+				size = 0;
+			} else if (size + length > ring.length) {
+				int overflow = size + length - ring.length;
+
+				numDropped += overflow;
+				head = (head + overflow) % ring.length;
+				size -= overflow;
+			}
+
+			int tail = (head + size) % ring.length;
+			int count = Math.min(length - from, ring.length - tail);
+
+			text.getChars(from, from + count, ring, tail);
+			text.getChars(from + count, length, ring, 0);
+			size += length - from;
+
+			if (flushPending) {
+				return; // joins the batch that is waiting
+			}
+
+			flushPending = true;
+		}
+
+		SwingUtilities.invokeLater(flusher);
+	}
+
+	/**
+	 * Discards the text that is waiting to be appended, e.g. before
+	 * the text area is cleared.
+	 */
+	public synchronized void clear() {
+		head = 0;
+		size = 0;
+		numDropped = 0;
+	}
+
+	/**
+	 * Appends the waiting text to the text area. This method is
+	 * called on the event dispatch thread.
+	 */
+	protected void flush() {
+		String text;
+
+		synchronized (this) {
+			flushPending = false;
+
+			if (size == 0 && numDropped == 0) {
+				return;
+			}
+
+			StringBuilder batch = new StringBuilder(size + 64);
+
+			if (numDropped > 0) {
+				batch.append("\n[... ").append(numDropped)
+						.append(" characters of trace dropped ...]\n");
+			}
+
+			int count = Math.min(size, ring.length - head);
+
+			batch.append(ring, head, count);
+			batch.append(ring, 0, size - count);
+			text = batch.toString();
+
+			head = 0;
+			size = 0;
+			numDropped = 0;
+		}
+
+		textArea.append(text);
+	}
+
+	/**
+	 * Retrieves the text area of the buffer.
+	 * @return the text area.
+	 */
+	public JTextArea getTextArea() {
+		return textArea;
+	}
+} // end class TraceBuffer
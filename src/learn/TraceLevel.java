@@ -0,0 +1,39 @@
+package learn;
+
+/**
+ * The <code>TraceLevel</code> class defines how much trace
+ * information the data sets and the learning algorithms report:
+ * <ul>
+ * <li>{@link #NONE}, only the errors
+ * <li>{@link #SUMMARY}, the files that are read, the sizes of the
+ * data and of the networks and the results
+ * <li>{@link #DETAIL}, the variables of the data and the steps of
+ * the algorithms, e.g. the gain of each variable of a decision tree
+ * <li>{@link #RECORDS}, the fields of every record and the
+ * activations of a network for every record
+ * </ul>
+ * Each level includes the levels below it. A trace message is only
+ * built when its level is enabled, so that a data set of millions of
+ * records is not turned into millions of Strings that nobody reads.
+ *
+ * @author Tran Xuan Hoang
+ */
+public final class TraceLevel {
+	/** No trace information but the errors. */
+	public static final int NONE = 0;
+
+	/** The files, sizes and results. */
+	public static final int SUMMARY = 1;
+
+	/** The variables and the steps of the algorithms. */
+	public static final int DETAIL = 2;
+
+	/** Every record of the data. */
+	public static final int RECORDS = 3;
+
+	/**
+	 * Prevents the creation of instances.
+	 */
+	private TraceLevel() {
+	}
+} // end class TraceLevel